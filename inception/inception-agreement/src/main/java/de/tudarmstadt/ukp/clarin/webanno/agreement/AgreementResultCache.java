@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.agreement;
+
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import org.springframework.context.event.EventListener;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import de.tudarmstadt.ukp.clarin.webanno.agreement.config.AgreementAutoConfiguration;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasure;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocumentState;
+import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
+import de.tudarmstadt.ukp.inception.documents.event.BeforeDocumentRemovedEvent;
+import de.tudarmstadt.ukp.inception.project.api.event.BeforeProjectRemovedEvent;
+import de.tudarmstadt.ukp.inception.schema.api.event.LayerConfigurationChangedEvent;
+import de.tudarmstadt.ukp.inception.support.json.JSONUtil;
+
+/**
+ * Keeps the agreement on individual documents so that a re-calculation only needs to look at the
+ * documents that changed since the last calculation. A result is keyed by the document, the
+ * measure including its layer, feature and traits, and the timestamps of the CASes it was
+ * calculated from. When any of these CASes is written, its timestamp changes and the old result is
+ * simply no longer found.
+ * <p>
+ * This class is exposed as a Spring Component via
+ * {@link AgreementAutoConfiguration#agreementResultCache}.
+ * </p>
+ */
+public class AgreementResultCache
+{
+    private static final long NO_CAS = -1;
+
+    private final DocumentService documentService;
+
+    private final Cache<Key, AgreementSummary> results;
+
+    public AgreementResultCache(DocumentService aDocumentService)
+    {
+        documentService = aDocumentService;
+
+        results = Caffeine.newBuilder() //
+                .expireAfterAccess(60, MINUTES) //
+                .maximumSize(500 * 1024) //
+                .softValues() //
+                .build();
+    }
+
+    /**
+     * Reads the timestamps of the CASes of the given data owners. The timestamps should be obtained
+     * <b>before</b> the CASes are read, so a CAS written concurrently causes the result to be
+     * recalculated on the next run instead of a stale result being cached under the new timestamp.
+     * 
+     * @param aDocument
+     *            the document.
+     * @param aDataOwners
+     *            the data owners whose CASes are used to calculate the agreement.
+     * @return the CAS timestamps by data owner. Data owners without a CAS get a fixed placeholder
+     *         value.
+     * @throws IOException
+     *             if a timestamp cannot be read.
+     */
+    public Map<String, Long> getCasTimestamps(SourceDocument aDocument,
+            Collection<String> aDataOwners)
+        throws IOException
+    {
+        var timestamps = new LinkedHashMap<String, Long>();
+        for (var dataOwner : aDataOwners) {
+            timestamps.put(dataOwner, documentService
+                    .getAnnotationCasTimestamp(aDocument, dataOwner).orElse(NO_CAS));
+        }
+        return timestamps;
+    }
+
+    /**
+     * @param aDocument
+     *            the document.
+     * @param aMeasure
+     *            the measure.
+     * @param aCasTimestamps
+     *            the timestamps of the CASes the result was calculated from, as obtained from
+     *            {@link #getCasTimestamps}. Only the entries of the data owners that took part in
+     *            the result must be given.
+     * @return a copy of the cached result, if any. The copy can be merged into other results
+     *         without affecting the cache.
+     */
+    public Optional<AgreementSummary> get(SourceDocument aDocument, AgreementMeasure<?> aMeasure,
+            Map<String, Long> aCasTimestamps)
+    {
+        return Optional.ofNullable(results.getIfPresent(key(aDocument, aMeasure, aCasTimestamps)))
+                .map(AgreementSummary::new);
+    }
+
+    public void put(SourceDocument aDocument, AgreementMeasure<?> aMeasure,
+            Map<String, Long> aCasTimestamps, AgreementSummary aResult)
+    {
+        results.put(key(aDocument, aMeasure, aCasTimestamps), new AgreementSummary(aResult));
+    }
+
+    @EventListener
+    public void onLayerConfigurationChanged(LayerConfigurationChangedEvent aEvent)
+    {
+        // A changed layer configuration can change the result without changing any CAS
+        invalidateProject(aEvent.getProject().getId());
+    }
+
+    @EventListener
+    public void onBeforeProjectRemoved(BeforeProjectRemovedEvent aEvent)
+    {
+        invalidateProject(aEvent.getProject().getId());
+    }
+
+    @EventListener
+    public void onBeforeDocumentRemoved(BeforeDocumentRemovedEvent aEvent)
+    {
+        var documentId = aEvent.getDocument().getId();
+        results.asMap().keySet().removeIf(key -> Objects.equals(key.document(), documentId));
+    }
+
+    private void invalidateProject(Long aProjectId)
+    {
+        results.asMap().keySet().removeIf(key -> Objects.equals(key.project(), aProjectId));
+    }
+
+    private static Key key(SourceDocument aDocument, AgreementMeasure<?> aMeasure,
+            Map<String, Long> aCasTimestamps)
+    {
+        String traits;
+        try {
+            traits = JSONUtil.toJsonString(aMeasure.getTraits());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        var feature = aMeasure.getFeature();
+
+        // The document state is part of the key because it decides e.g. whether the curation CAS
+        // or the initial CAS is used for the curator
+        return new Key(aDocument.getProject().getId(), aDocument.getId(), aDocument.getState(),
+                aMeasure.getLayer().getId(), feature != null ? feature.getId() : null,
+                aMeasure.getClass().getName(), traits, Map.copyOf(aCasTimestamps));
+    }
+
+    private record Key(Long project, Long document, SourceDocumentState documentState, Long layer,
+            Long feature, String measure, String traits, Map<String, Long> casTimestamps)
+    {}
+}
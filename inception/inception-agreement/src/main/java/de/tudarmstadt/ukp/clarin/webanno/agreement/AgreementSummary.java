@@ -137,6 +137,32 @@ public class AgreementSummary
         empty = true;
     }
 
+    /**
+     * Creates a copy of the given summary. Merging other results into the copy does not affect the
+     * original.
+     *
+     * @param aOther
+     *            the summary to copy.
+     */
+    public AgreementSummary(AgreementSummary aOther)
+    {
+        type = aOther.type;
+        feature = aOther.feature;
+        casGroupIds.addAll(aOther.casGroupIds);
+        agreements.addAll(aOther.agreements);
+        categories.addAll(aOther.categories);
+        itemCounts.putAll(aOther.itemCounts);
+        nonNullContentCounts.putAll(aOther.nonNullContentCounts);
+        allNull.putAll(aOther.allNull);
+        empty = aOther.empty;
+        incompleteSetsByPosition = aOther.incompleteSetsByPosition;
+        incompleteSetsByLabel = aOther.incompleteSetsByLabel;
+        pluralitySets = aOther.pluralitySets;
+        relevantSetCount = aOther.relevantSetCount;
+        completeSetCount = aOther.completeSetCount;
+        usedSetCount = aOther.usedSetCount;
+    }
+
     public AgreementSummary(FullUnitizingAgreementResult aResult)
     {
         this((FullAgreementResult_ImplBase<?>) aResult);
@@ -29,6 +29,7 @@ import static org.apache.uima.fit.util.FSUtil.getFeature;
 
 import java.io.PrintStream;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -64,6 +65,23 @@ public class AgreementUtils
                 aExcludeIncomplete, true, aCasMap);
     }
 
+    /**
+     * @param aCasMap
+     *            the CASes of all CAS groups.
+     * @param aCasGroupIds
+     *            the CAS groups to select.
+     * @return the CASes of the given CAS groups in the order of the CAS groups.
+     */
+    public static Map<String, CAS> selectCasGroups(Map<String, CAS> aCasMap,
+            Collection<String> aCasGroupIds)
+    {
+        var casMap = new LinkedHashMap<String, CAS>();
+        for (var casGroupId : aCasGroupIds) {
+            casMap.put(casGroupId, aCasMap.get(casGroupId));
+        }
+        return casMap;
+    }
+
     private static CAS findSomeCas(Map<String, CAS> aCasMap)
     {
         for (var cas : aCasMap.values()) {
@@ -17,14 +17,18 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.agreement.config;
 
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 
+import de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementResultCache;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.cohenkappa.CohenKappaAgreementMeasureSupport;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.fleisskappa.FleissKappaAgreementMeasureSupport;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.krippendorffalpha.KrippendorffAlphaAgreementMeasureSupport;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.krippendorffalphaunitizing.KrippendorffAlphaUnitizingAgreementMeasureSupport;
+import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 
+@EnableConfigurationProperties(AgreementPropertiesImpl.class)
 public class AgreementAutoConfiguration
 {
     @Bean
@@ -53,4 +57,10 @@ public class AgreementAutoConfiguration
     {
         return new KrippendorffAlphaUnitizingAgreementMeasureSupport();
     }
+
+    @Bean
+    public AgreementResultCache agreementResultCache(DocumentService aDocumentService)
+    {
+        return new AgreementResultCache(aDocumentService);
+    }
 }
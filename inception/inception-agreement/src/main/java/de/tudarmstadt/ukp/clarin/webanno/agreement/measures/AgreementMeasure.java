@@ -17,7 +17,11 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.agreement.measures;
 
+import static de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementUtils.selectCasGroups;
+
 import java.io.Serializable;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.uima.cas.CAS;
@@ -31,6 +35,25 @@ public interface AgreementMeasure<R extends Serializable>
 
     R getAgreement(Map<String, CAS> aCasMap);
 
+    /**
+     * Calculates the agreement separately for several subsets of the CAS groups, e.g. for all pairs
+     * of annotators. Implementations may override this to analyze the CASes only once for all
+     * subsets.
+     * 
+     * @param aCasMap
+     *            the CASes of all CAS groups.
+     * @param aCasGroupIdSubsets
+     *            the subsets of CAS groups for which to calculate the agreement.
+     * @return the agreement for each of the subsets in the order of the subsets.
+     */
+    default List<R> getAgreements(Map<String, CAS> aCasMap,
+            List<? extends Collection<String>> aCasGroupIdSubsets)
+    {
+        return aCasGroupIdSubsets.stream() //
+                .map(casGroupIds -> getAgreement(selectCasGroups(aCasMap, casGroupIds))) //
+                .toList();
+    }
+
     AnnotationLayer getLayer();
 
     AnnotationFeature getFeature();
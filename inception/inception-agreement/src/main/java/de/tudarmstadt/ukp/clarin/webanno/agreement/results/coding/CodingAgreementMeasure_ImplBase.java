@@ -17,15 +17,81 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.agreement.results.coding;
 
+import static de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementUtils.selectCasGroups;
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff.doDiff;
+import static de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.DiffAdapterRegistry.getDiffAdapters;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toCollection;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.uima.cas.CAS;
+
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasure_ImplBase;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.DefaultAgreementTraits;
+import de.tudarmstadt.ukp.clarin.webanno.curation.casdiff.CasDiff;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.Tag;
+import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 
 public abstract class CodingAgreementMeasure_ImplBase<T extends DefaultAgreementTraits>
     extends AgreementMeasure_ImplBase<FullCodingAgreementResult, T>
 {
-    public CodingAgreementMeasure_ImplBase(AnnotationFeature aFeature, T aTraits)
+    private final AnnotationSchemaService annotationService;
+
+    public CodingAgreementMeasure_ImplBase(AnnotationFeature aFeature, T aTraits,
+            AnnotationSchemaService aAnnotationService)
     {
         super(aFeature.getLayer(), aFeature, aTraits);
+        annotationService = aAnnotationService;
+    }
+
+    @Override
+    public FullCodingAgreementResult getAgreement(Map<String, CAS> aCasMap)
+    {
+        return calculateAgreement(diff(aCasMap), aCasMap, getTagset());
+    }
+
+    @Override
+    public List<FullCodingAgreementResult> getAgreements(Map<String, CAS> aCasMap,
+            List<? extends Collection<String>> aCasGroupIdSubsets)
+    {
+        // Diff all the CASes only once and derive the diffs for the subsets from it
+        var diff = diff(aCasMap);
+        var tagset = getTagset();
+        return aCasGroupIdSubsets.stream() //
+                .map(casGroupIds -> calculateAgreement(diff.restrictedTo(casGroupIds),
+                        selectCasGroups(aCasMap, casGroupIds), tagset)) //
+                .toList();
+    }
+
+    /**
+     * @param aDiff
+     *            the diff over the given CASes.
+     * @param aCasMap
+     *            the CASes to calculate the agreement for.
+     * @param aTagset
+     *            the tags defined for the feature.
+     * @return the agreement result.
+     */
+    protected abstract FullCodingAgreementResult calculateAgreement(CasDiff aDiff,
+            Map<String, CAS> aCasMap, Set<String> aTagset);
+
+    private CasDiff diff(Map<String, CAS> aCasMap)
+    {
+        var adapters = getDiffAdapters(annotationService, asList(getFeature().getLayer()));
+
+        return doDiff(adapters, aCasMap);
+    }
+
+    private Set<String> getTagset()
+    {
+        return annotationService.listTags(getFeature().getTagset()).stream() //
+                .map(Tag::getName) //
+                .collect(toCollection(LinkedHashSet::new));
     }
 }
@@ -23,24 +23,31 @@ import static de.tudarmstadt.ukp.clarin.webanno.model.SourceDocumentState.CURATI
 import static de.tudarmstadt.ukp.clarin.webanno.model.SourceDocumentState.CURATION_IN_PROGRESS;
 import static de.tudarmstadt.ukp.inception.support.WebAnnoConst.CURATION_USER;
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Comparator.comparing;
 
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import org.apache.commons.lang3.concurrent.LazyInitializer;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.fit.util.FSUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementResultCache;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementSummary;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.PairwiseAgreementResult;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.config.AgreementProperties;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasure;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.DefaultAgreementTraits;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
@@ -61,6 +68,8 @@ public class CalculatePairwiseAgreementTask
     private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
     private @Autowired DocumentService documentService;
+    private @Autowired AgreementResultCache resultCache;
+    private @Autowired AgreementProperties agreementProperties;
 
     private final List<String> annotators;
     private final DefaultAgreementTraits traits;
@@ -86,79 +95,184 @@ public class CalculatePairwiseAgreementTask
     {
         summary = new PairwiseAgreementResult(feature, traits);
 
+        var monitor = getMonitor();
         var maxProgress = allAnnDocs.size();
-        var progress = 0;
+        var progress = new AtomicInteger();
 
         var docs = allAnnDocs.keySet().stream() //
                 .sorted(comparing(SourceDocument::getName)) //
                 .toList();
 
-        for (var doc : docs) {
-            var monitor = getMonitor();
-            if (monitor.isCancelled()) {
-                break;
+        var threadFactory = new BasicThreadFactory.Builder() //
+                .daemon(true) //
+                .namingPattern("agreement-" + feature.getProject().getId() + "-%d") //
+                .build();
+        var executor = Executors.newFixedThreadPool(
+                Math.max(1, agreementProperties.getParallelism()), threadFactory);
+        try {
+            var futures = new ArrayList<Future<List<PairwiseSummary>>>();
+            for (var doc : docs) {
+                futures.add(executor.submit(() -> {
+                    if (monitor.isCancelled()) {
+                        return emptyList();
+                    }
+
+                    var results = calculateAgreement(doc);
+                    monitor.setProgressWithMessage(progress.incrementAndGet(), maxProgress,
+                            LogMessage.info(this, doc.getName()));
+                    return results;
+                }));
+            }
+
+            // Merge in document order, so the result does not depend on the order in which the
+            // workers complete
+            for (int i = 0; i < futures.size(); i++) {
+                for (var result : getResults(docs.get(i), futures.get(i))) {
+                    summary.mergeResult(result.annotator1(), result.annotator2(),
+                            result.summary());
+                }
             }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the results of a single document. If the calculation failed, the failure is reported
+     *         to the user and the task fails - an agreement missing a document would be misleading.
+     */
+    private List<PairwiseSummary> getResults(SourceDocument aDocument,
+            Future<List<PairwiseSummary>> aFuture)
+        throws InterruptedException
+    {
+        try {
+            return aFuture.get();
+        }
+        catch (ExecutionException e) {
+            var cause = e.getCause();
+            LOG.error("Unable to calculate agreement on document {}", aDocument, cause);
+            getMonitor().addMessage(LogMessage.error(this,
+                    "Unable to calculate agreement on document [%s]: %s", aDocument.getName(),
+                    cause.getMessage()));
+            throw new IllegalStateException(
+                    "Unable to calculate agreement on document [" + aDocument.getName() + "]",
+                    cause);
+        }
+    }
 
-            monitor.setProgressWithMessage(progress, maxProgress,
-                    LogMessage.info(this, doc.getName()));
-
-            try (var session = CasStorageSession.openNested()) {
-                for (int m = 0; m < annotators.size(); m++) {
-                    var annotator1 = annotators.get(m);
-                    var maybeCas1 = LazyInitializer.<Optional<CAS>> builder()
-                            .setInitializer(() -> loadCas(doc, annotator1, allAnnDocs)).get();
-
-                    for (int n = 0; n < annotators.size(); n++) {
-                        if (!(n < m)) {
-                            // Triangle matrix mirrored
-                            continue;
-                        }
-
-                        var annotator2 = annotators.get(n);
-
-                        if ((CURATION_USER.equals(annotator1) || CURATION_USER.equals(annotator2))
-                                && !asList(CURATION_IN_PROGRESS, CURATION_FINISHED)
-                                        .contains(doc.getState())) {
-                            LOG.trace("Skipping combination {}/{}@{}: {} not in a curation state",
-                                    annotator1, annotator2, doc, annotator1);
-                            summary.mergeResult(annotator1, annotator2, AgreementSummary
-                                    .skipped(feature.getLayer().getName(), feature.getName()));
-                            continue;
-                        }
-
-                        if (maybeCas1.get().isEmpty()) {
-                            LOG.trace("Skipping combination {}/{}@{}: {} has no data", annotator1,
-                                    annotator2, doc, annotator1);
-                            summary.mergeResult(annotator1, annotator2, AgreementSummary
-                                    .skipped(feature.getLayer().getName(), feature.getName()));
-                            continue;
-                        }
-
-                        var maybeCas2 = LazyInitializer.<Optional<CAS>> builder()
-                                .setInitializer(() -> loadCas(doc, annotator2, allAnnDocs)).get();
-
-                        if (maybeCas2.get().isEmpty()) {
-                            LOG.trace("Skipping combination {}/{}@{}: {} has no data", annotator1,
-                                    annotator2, doc, annotator2);
-                            summary.mergeResult(annotator1, annotator2, AgreementSummary
-                                    .skipped(feature.getLayer().getName(), feature.getName()));
-                            continue;
-                        }
-
-                        var casMap = new LinkedHashMap<String, CAS>();
-                        casMap.put(annotator1, maybeCas1.get().get());
-                        casMap.put(annotator2, maybeCas2.get().get());
-                        var res = AgreementSummary.of(measure.getAgreement(casMap));
-                        summary.mergeResult(annotator1, annotator2, res);
+    /**
+     * Calculates the agreement between all pairs of annotators on the given document. Pairs whose
+     * CASes did not change since the last calculation are taken from the result cache. The measure
+     * gets the CASes for all remaining pairs at once, so it can analyze them once for all pairs
+     * instead of once per pair.
+     */
+    private List<PairwiseSummary> calculateAgreement(SourceDocument aDocument)
+        throws IOException
+    {
+        var results = new ArrayList<PairwiseSummary>();
+
+        try (var session = CasStorageSession.openNested()) {
+            var timestamps = resultCache.getCasTimestamps(aDocument, annotators);
+            var pairs = new ArrayList<List<String>>();
+
+            for (int m = 0; m < annotators.size(); m++) {
+                var annotator1 = annotators.get(m);
+
+                for (int n = 0; n < annotators.size(); n++) {
+                    if (!(n < m)) {
+                        // Triangle matrix mirrored
+                        continue;
+                    }
+
+                    var annotator2 = annotators.get(n);
+
+                    if ((CURATION_USER.equals(annotator1) || CURATION_USER.equals(annotator2))
+                            && !asList(CURATION_IN_PROGRESS, CURATION_FINISHED)
+                                    .contains(aDocument.getState())) {
+                        LOG.trace("Skipping combination {}/{}@{}: {} not in a curation state",
+                                annotator1, annotator2, aDocument, annotator1);
+                        results.add(skipped(annotator1, annotator2));
+                        continue;
+                    }
+
+                    if (!hasData(aDocument, annotator1)) {
+                        LOG.trace("Skipping combination {}/{}@{}: {} has no data", annotator1,
+                                annotator2, aDocument, annotator1);
+                        results.add(skipped(annotator1, annotator2));
+                        continue;
                     }
+
+                    if (!hasData(aDocument, annotator2)) {
+                        LOG.trace("Skipping combination {}/{}@{}: {} has no data", annotator1,
+                                annotator2, aDocument, annotator2);
+                        results.add(skipped(annotator1, annotator2));
+                        continue;
+                    }
+
+                    var cached = resultCache.get(aDocument, measure,
+                            pairTimestamps(timestamps, annotator1, annotator2));
+                    if (cached.isPresent()) {
+                        results.add(new PairwiseSummary(annotator1, annotator2, cached.get()));
+                        continue;
+                    }
+
+                    pairs.add(asList(annotator1, annotator2));
                 }
+            }
+
+            if (pairs.isEmpty()) {
+                return results;
+            }
 
-                progress++;
+            var casMap = new LinkedHashMap<String, CAS>();
+            for (var pair : pairs) {
+                for (var dataOwner : pair) {
+                    if (!casMap.containsKey(dataOwner)) {
+                        casMap.put(dataOwner, loadCas(aDocument, dataOwner));
+                    }
+                }
             }
-            catch (Exception e) {
-                LOG.error("Unable to load data", e);
+
+            var agreements = measure.getAgreements(casMap, pairs);
+            for (int i = 0; i < pairs.size(); i++) {
+                var annotator1 = pairs.get(i).get(0);
+                var annotator2 = pairs.get(i).get(1);
+                var result = AgreementSummary.of(agreements.get(i));
+                resultCache.put(aDocument, measure,
+                        pairTimestamps(timestamps, annotator1, annotator2), result);
+                results.add(new PairwiseSummary(annotator1, annotator2, result));
             }
         }
+
+        return results;
+    }
+
+    private PairwiseSummary skipped(String aAnnotator1, String aAnnotator2)
+    {
+        return new PairwiseSummary(aAnnotator1, aAnnotator2,
+                AgreementSummary.skipped(feature.getLayer().getName(), feature.getName()));
+    }
+
+    private static Map<String, Long> pairTimestamps(Map<String, Long> aTimestamps,
+            String aAnnotator1, String aAnnotator2)
+    {
+        return Map.of( //
+                aAnnotator1, aTimestamps.get(aAnnotator1), //
+                aAnnotator2, aTimestamps.get(aAnnotator2));
+    }
+
+    private boolean hasData(SourceDocument aDocument, String aDataOwner)
+    {
+        if (CURATION_USER.equals(aDataOwner)) {
+            return asList(CURATION_IN_PROGRESS, CURATION_FINISHED).contains(aDocument.getState());
+        }
+
+        return allAnnDocs.get(aDocument).stream() //
+                .anyMatch(annDoc -> aDataOwner.equals(annDoc.getUser()));
     }
 
     private CAS loadInitialCas(SourceDocument aDocument) throws IOException
@@ -175,33 +289,13 @@ public class CalculatePairwiseAgreementTask
         return cas;
     }
 
-    private Optional<CAS> loadCas(SourceDocument aDocument, String aDataOwner,
-            Map<SourceDocument, List<AnnotationDocument>> aAllAnnDocs)
-        throws IOException
+    private CAS loadCas(SourceDocument aDocument, String aDataOwner) throws IOException
     {
-        if (CURATION_USER.equals(aDataOwner)) {
-            if (!asList(CURATION_IN_PROGRESS, CURATION_FINISHED).contains(aDocument.getState())) {
-                return Optional.empty();
-            }
-
-            return loadCas(aDocument, aDataOwner);
-        }
-
-        var annDocs = aAllAnnDocs.get(aDocument);
-
-        if (annDocs.stream().noneMatch(annDoc -> aDataOwner.equals(annDoc.getUser()))) {
-            return Optional.empty();
+        if (!CURATION_USER.equals(aDataOwner)
+                && !documentService.existsCas(aDocument, aDataOwner)) {
+            return loadInitialCas(aDocument);
         }
 
-        if (!documentService.existsCas(aDocument, aDataOwner)) {
-            Optional.of(loadInitialCas(aDocument));
-        }
-
-        return loadCas(aDocument, aDataOwner);
-    }
-
-    private Optional<CAS> loadCas(SourceDocument aDocument, String aDataOwner) throws IOException
-    {
         var cas = documentService.readAnnotationCas(aDocument, aDataOwner, AUTO_CAS_UPGRADE,
                 SHARED_READ_ONLY_ACCESS);
 
@@ -211,7 +305,7 @@ public class CalculatePairwiseAgreementTask
         FSUtil.setFeature(dmd, "documentId", aDocument.getName());
         FSUtil.setFeature(dmd, "collectionId", aDocument.getProject().getName());
 
-        return Optional.of(cas);
+        return cas;
     }
 
     public PairwiseAgreementResult getResult()
@@ -219,6 +313,10 @@ public class CalculatePairwiseAgreementTask
         return summary;
     }
 
+    private record PairwiseSummary(String annotator1, String annotator2,
+            AgreementSummary summary)
+    {}
+
     public static Builder<Builder<?>> builder()
     {
         return new Builder<>();
@@ -27,6 +27,7 @@ import static java.util.Comparator.comparing;
 
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -40,6 +41,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementResultCache;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.AgreementSummary;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.PerDocumentAgreementResult;
 import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasure;
@@ -63,6 +65,7 @@ public class CalculatePerDocumentAgreementTask
     private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
     private @Autowired DocumentService documentService;
+    private @Autowired AgreementResultCache resultCache;
 
     private final Set<String> annotators;
     private final DefaultAgreementTraits traits;
@@ -105,22 +108,32 @@ public class CalculatePerDocumentAgreementTask
                     LogMessage.info(this, doc.getName()));
 
             try (var session = CasStorageSession.openNested()) {
-                var casMap = new LinkedHashMap<String, CAS>();
+                var dataOwners = new ArrayList<String>();
                 for (var annDoc : allAnnDocs.get(doc)) {
-                    var dataOwner = annDoc.getUser();
-                    if (!annotators.contains(dataOwner)) {
-                        continue;
+                    if (annotators.contains(annDoc.getUser())) {
+                        dataOwners.add(annDoc.getUser());
                     }
-
-                    casMap.put(dataOwner, loadCas(annDoc.getDocument(), dataOwner));
                 }
 
                 if (annotators.contains(CURATION_USER)) {
-                    casMap.put(CURATION_USER, loadCas(doc, CURATION_USER));
+                    dataOwners.add(CURATION_USER);
+                }
+
+                // Only re-calculate the agreement if any of the CASes changed since the last time
+                var timestamps = resultCache.getCasTimestamps(doc, dataOwners);
+                var agreementResult = resultCache.get(doc, measure, timestamps).orElse(null);
+                if (agreementResult == null) {
+                    var casMap = new LinkedHashMap<String, CAS>();
+                    for (var dataOwner : dataOwners) {
+                        casMap.put(dataOwner, loadCas(doc, dataOwner));
+                    }
+
+                    LOG.trace("Calculating agreement on {} for [{}] annotators", doc,
+                            casMap.size());
+                    agreementResult = AgreementSummary.of(measure.getAgreement(casMap));
+                    resultCache.put(doc, measure, timestamps, agreementResult);
                 }
 
-                LOG.trace("Calculating agreement on {} for [{}] annotators", doc, casMap.size());
-                var agreementResult = AgreementSummary.of(measure.getAgreement(casMap));
                 summary.mergeResult(doc, agreementResult);
 
                 progress++;
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.agreement;
+
+import static java.util.Optional.empty;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.AgreementMeasure;
+import de.tudarmstadt.ukp.clarin.webanno.agreement.measures.DefaultAgreementTraits;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
+import de.tudarmstadt.ukp.inception.schema.api.event.LayerConfigurationChangedEvent;
+
+class AgreementResultCacheTest
+{
+    private DocumentService documentService;
+    private AgreementMeasure<?> measure;
+    private Project project;
+    private SourceDocument document;
+    private DefaultAgreementTraits traits;
+    private AgreementResultCache sut;
+
+    @BeforeEach
+    void setup() throws Exception
+    {
+        project = new Project("test");
+        project.setId(1l);
+
+        document = new SourceDocument("doc", project, "text");
+        document.setId(2l);
+
+        var layer = new AnnotationLayer();
+        layer.setId(3l);
+        layer.setProject(project);
+
+        var feature = new AnnotationFeature();
+        feature.setId(4l);
+        feature.setLayer(layer);
+
+        traits = new DefaultAgreementTraits();
+
+        measure = mock(AgreementMeasure.class);
+        when(measure.getLayer()).thenReturn(layer);
+        when(measure.getFeature()).thenReturn(feature);
+        when(measure.getTraits()).thenReturn(traits);
+
+        documentService = mock(DocumentService.class);
+        when(documentService.getAnnotationCasTimestamp(document, "user1"))
+                .thenReturn(Optional.of(10l));
+        when(documentService.getAnnotationCasTimestamp(document, "user2")).thenReturn(empty());
+
+        sut = new AgreementResultCache(documentService);
+    }
+
+    @Test
+    void thatResultIsFoundForUnchangedCases() throws Exception
+    {
+        var timestamps = sut.getCasTimestamps(document, List.of("user1", "user2"));
+        assertThat(timestamps).containsEntry("user1", 10l).containsEntry("user2", -1l);
+
+        var result = AgreementSummary.skipped("layer", "feature");
+        sut.put(document, measure, timestamps, result);
+
+        var cached = sut.get(document, measure, timestamps);
+        assertThat(cached).isPresent();
+        assertThat(cached.get()).isNotSameAs(result);
+        assertThat(cached.get().getAgreement()).isNaN();
+    }
+
+    @Test
+    void thatMergingIntoCachedResultDoesNotChangeCache() throws Exception
+    {
+        var timestamps = sut.getCasTimestamps(document, List.of("user1", "user2"));
+        sut.put(document, measure, timestamps, AgreementSummary.skipped("layer", "feature"));
+
+        sut.get(document, measure, timestamps).get()
+                .merge(AgreementSummary.skipped("layer", "feature"));
+
+        assertThat(sut.get(document, measure, timestamps).get().getTotalAgreementsCount())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void thatResultIsNotFoundForChangedCas() throws Exception
+    {
+        var timestamps = sut.getCasTimestamps(document, List.of("user1", "user2"));
+        sut.put(document, measure, timestamps, AgreementSummary.skipped("layer", "feature"));
+
+        when(documentService.getAnnotationCasTimestamp(document, "user1"))
+                .thenReturn(Optional.of(11l));
+
+        assertThat(sut.get(document, measure,
+                sut.getCasTimestamps(document, List.of("user1", "user2")))).isEmpty();
+        assertThat(sut.get(document, measure, Map.of("user1", 10l))).isEmpty();
+    }
+
+    @Test
+    void thatResultIsNotFoundForChangedTraits() throws Exception
+    {
+        var timestamps = sut.getCasTimestamps(document, List.of("user1", "user2"));
+        sut.put(document, measure, timestamps, AgreementSummary.skipped("layer", "feature"));
+
+        traits.setExcludeIncomplete(!traits.isExcludeIncomplete());
+
+        assertThat(sut.get(document, measure, timestamps)).isEmpty();
+    }
+
+    @Test
+    void thatLayerConfigurationChangeInvalidatesProject() throws Exception
+    {
+        var timestamps = sut.getCasTimestamps(document, List.of("user1", "user2"));
+        sut.put(document, measure, timestamps, AgreementSummary.skipped("layer", "feature"));
+
+        sut.onLayerConfigurationChanged(new LayerConfigurationChangedEvent(this, project));
+
+        assertThat(sut.get(document, measure, timestamps)).isEmpty();
+    }
+}
@@ -182,4 +182,20 @@ public interface CasStorageService
         throws IOException;
 
     Optional<Long> getCasFileSize(SourceDocument aDocument, String aUser) throws IOException;
+
+    /**
+     * Reads the hash of the type system a stored CAS was written with without loading the CAS. This
+     * can be used to cheaply check whether a CAS is already on a given type system.
+     * 
+     * @param aDocument
+     *            the document.
+     * @param aUser
+     *            the user owning the CAS.
+     * @return the type system hash or nothing if the CAS does not exist or the storage format does
+     *         not record the hash.
+     * @throws IOException
+     *             if the stored CAS could not be accessed.
+     */
+    Optional<String> getCasTypeSystemHash(SourceDocument aDocument, String aUser)
+        throws IOException;
 }
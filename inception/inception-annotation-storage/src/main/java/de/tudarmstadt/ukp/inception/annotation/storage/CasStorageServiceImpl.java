@@ -702,7 +702,7 @@ public class CasStorageServiceImpl
             }
             // If the repairs are not active, then we run the analysis explicitly
             else {
-                analyze(aDocument, aDataOwner, aCas);
+                analyze(aDocument, aDataOwner, aCas, false);
             }
         }
     }
@@ -719,8 +719,11 @@ public class CasStorageServiceImpl
      *            the user owning the CAS (used for logging)
      * @param aCas
      *            the CAS object
+     * @param aWrite
+     *            whether the CAS is about to be written, in which case expensive checks are only
+     *            run according to the sampling schedule configured for the {@link CasDoctor}
      */
-    private void analyze(SourceDocument aDocument, String aDataOwner, CAS aCas)
+    private void analyze(SourceDocument aDocument, String aDataOwner, CAS aCas, boolean aWrite)
     {
         if (casDoctor == null) {
             return;
@@ -729,7 +732,12 @@ public class CasStorageServiceImpl
         var project = aDocument.getProject();
 
         try {
-            casDoctor.analyze(aDocument, aDataOwner, aCas);
+            if (aWrite) {
+                casDoctor.analyzeOnWrite(aDocument, aDataOwner, aCas);
+            }
+            else {
+                casDoctor.analyze(aDocument, aDataOwner, aCas);
+            }
         }
         catch (CasDoctorException e) {
             var detailMsg = new StringBuilder();
@@ -880,6 +888,24 @@ public class CasStorageServiceImpl
         }
     }
 
+    @Override
+    public Optional<String> getCasTypeSystemHash(SourceDocument aDocument, String aUser)
+        throws IOException
+    {
+        Validate.notNull(aDocument, "Source document must be specified");
+        Validate.notBlank(aUser, "User must be specified");
+
+        try (var access = new WithExclusiveAccess(aDocument, aUser)) {
+            return driver.getCasTypeSystemHash(aDocument, aUser);
+        }
+        catch (IOException e) {
+            throw e;
+        }
+        catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
     private class WithExclusiveAccess
         implements AutoCloseable
     {
@@ -1092,7 +1118,7 @@ public class CasStorageServiceImpl
     private void realWriteCas(SourceDocument aDocument, String aUserName, CAS aCas)
         throws IOException
     {
-        analyze(aDocument, aUserName, aCas);
+        analyze(aDocument, aUserName, aCas, true);
 
         if (CasStorageSession.exists()) {
             var session = CasStorageSession.get();
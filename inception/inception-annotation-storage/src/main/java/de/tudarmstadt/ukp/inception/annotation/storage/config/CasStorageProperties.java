@@ -25,7 +25,15 @@ public interface CasStorageProperties
 
     boolean isParanoidCasSerialization();
 
+    CasVerificationMode getParanoidCasVerification();
+
     boolean isCompressedCasSerialization();
 
+    boolean isBinaryCasSerialization();
+
+    boolean isDeltaCasSerialization();
+
+    int getDeltaCasCompactionThreshold();
+
     Duration getFileSystemTimestampAccuracy();
 }
@@ -35,6 +35,10 @@ public class CasStoragePropertiesImpl
 {
     private boolean compressedCasSerialization = true;
     private boolean paranoidCasSerialization = false;
+    private CasVerificationMode paranoidCasVerification = CasVerificationMode.ROUND_TRIP;
+    private boolean binaryCasSerialization = false;
+    private boolean deltaCasSerialization = false;
+    private int deltaCasCompactionThreshold = 50;
     private boolean traceAccess = false;
     private Duration fileSystemTimestampAccuracy = Duration.ofMillis(0);
 
@@ -62,6 +66,19 @@ public class CasStoragePropertiesImpl
         return paranoidCasSerialization;
     }
 
+    @ManagedAttribute
+    public void setParanoidCasVerification(CasVerificationMode aParanoidCasVerification)
+    {
+        paranoidCasVerification = aParanoidCasVerification;
+    }
+
+    @Override
+    @ManagedAttribute
+    public CasVerificationMode getParanoidCasVerification()
+    {
+        return paranoidCasVerification;
+    }
+
     @ManagedAttribute
     public void setCompressedCasSerialization(boolean aCompressedCasSerialization)
     {
@@ -75,6 +92,45 @@ public class CasStoragePropertiesImpl
         return compressedCasSerialization;
     }
 
+    @ManagedAttribute
+    public void setBinaryCasSerialization(boolean aBinaryCasSerialization)
+    {
+        binaryCasSerialization = aBinaryCasSerialization;
+    }
+
+    @Override
+    @ManagedAttribute
+    public boolean isBinaryCasSerialization()
+    {
+        return binaryCasSerialization;
+    }
+
+    @ManagedAttribute
+    public void setDeltaCasSerialization(boolean aDeltaCasSerialization)
+    {
+        deltaCasSerialization = aDeltaCasSerialization;
+    }
+
+    @Override
+    @ManagedAttribute
+    public boolean isDeltaCasSerialization()
+    {
+        return deltaCasSerialization;
+    }
+
+    @ManagedAttribute
+    public void setDeltaCasCompactionThreshold(int aDeltaCasCompactionThreshold)
+    {
+        deltaCasCompactionThreshold = aDeltaCasCompactionThreshold;
+    }
+
+    @Override
+    @ManagedAttribute
+    public int getDeltaCasCompactionThreshold()
+    {
+        return deltaCasCompactionThreshold;
+    }
+
     @ManagedAttribute
     public void setFileSystemTimestampAccuracy(Duration aFileSystemTimestampAccuracy)
     {
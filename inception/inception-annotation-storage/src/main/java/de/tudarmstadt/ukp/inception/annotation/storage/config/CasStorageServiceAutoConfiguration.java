@@ -32,6 +32,8 @@ import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageServiceSharedAc
 import de.tudarmstadt.ukp.inception.annotation.storage.OpenCasStorageSessionForRequestFilter;
 import de.tudarmstadt.ukp.inception.annotation.storage.driver.CasStorageDriver;
 import de.tudarmstadt.ukp.inception.annotation.storage.driver.filesystem.FileSystemCasStorageDriver;
+import de.tudarmstadt.ukp.inception.annotation.storage.metrics.CasStorageMetrics;
+import de.tudarmstadt.ukp.inception.annotation.storage.metrics.CasStorageMetricsImpl;
 import de.tudarmstadt.ukp.inception.documents.api.RepositoryProperties;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 
@@ -53,10 +55,16 @@ public class CasStorageServiceAutoConfiguration
     @Bean
     public CasStorageDriver fileSystemCasStorageDriver(RepositoryProperties aRepositoryProperties,
             CasStorageBackupProperties aBackupProperties,
-            CasStorageProperties aCasStorageProperties)
+            CasStorageProperties aCasStorageProperties, CasStorageMetrics aMetrics)
     {
         return new FileSystemCasStorageDriver(aRepositoryProperties, aBackupProperties,
-                aCasStorageProperties);
+                aCasStorageProperties, aMetrics);
+    }
+
+    @Bean
+    public CasStorageMetrics casStorageMetrics()
+    {
+        return new CasStorageMetricsImpl();
     }
 
     @Bean
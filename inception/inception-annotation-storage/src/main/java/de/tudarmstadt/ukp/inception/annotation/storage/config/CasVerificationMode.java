@@ -0,0 +1,34 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.annotation.storage.config;
+
+public enum CasVerificationMode
+{
+    /**
+     * Before writing a CAS, deserialize the serialized CAS into a temporary CAS to ensure that it
+     * can be read again. The CAS is only written if this succeeds.
+     */
+    ROUND_TRIP,
+
+    /**
+     * Write the CAS and then read the file back before the write completes, comparing it to the
+     * size and checksum of the data that was written. If the check fails, the previous version of
+     * the CAS is restored and the write fails.
+     */
+    READ_BACK;
+}
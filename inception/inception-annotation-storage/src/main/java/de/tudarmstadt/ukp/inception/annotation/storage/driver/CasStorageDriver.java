@@ -50,4 +50,17 @@ public interface CasStorageDriver
         throws IOException, ConcurentCasModificationException;
 
     Optional<Long> getCasFileSize(SourceDocument aDocument, String aUser) throws IOException;
+
+    /**
+     * @param aDocument
+     *            the document.
+     * @param aUser
+     *            the user owning the CAS.
+     * @return the hash of the type system the stored CAS was written with if the storage format
+     *         records it. Nothing if the CAS does not exist or the hash is not available.
+     * @throws IOException
+     *             if the stored CAS could not be accessed.
+     */
+    Optional<String> getCasTypeSystemHash(SourceDocument aDocument, String aUser)
+        throws IOException;
 }
@@ -20,12 +20,23 @@ package de.tudarmstadt.ukp.inception.annotation.storage.driver.filesystem;
 import static de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil.getRealCas;
 import static java.io.ObjectInputFilter.Config.createFilter;
 import static java.lang.String.join;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.joining;
+import static org.apache.uima.cas.SerialFormat.COMPRESSED_FILTERED;
 import static org.apache.uima.cas.SerialFormat.XMI;
+import static org.apache.uima.cas.impl.Serialization.deserializeCAS;
 import static org.apache.uima.cas.impl.Serialization.deserializeCASComplete;
+import static org.apache.uima.cas.impl.Serialization.serializeCAS;
 import static org.apache.uima.cas.impl.Serialization.serializeCASComplete;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -37,20 +48,37 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.uima.cas.ArrayFS;
 import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.CommonArrayFS;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.Marker;
 import org.apache.uima.cas.impl.CASCompleteSerializer;
 import org.apache.uima.cas.impl.CASImpl;
 import org.apache.uima.cas.impl.CASMgrSerializer;
 import org.apache.uima.cas.impl.CASSerializer;
+import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.util.CasIOUtils;
+import org.apache.uima.util.CasLoadMode;
 import org.apache.uima.util.TypeSystemUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xerial.snappy.SnappyFramedInputStream;
 import org.xerial.snappy.SnappyFramedOutputStream;
 
+import de.tudarmstadt.ukp.clarin.webanno.api.type.CASMetadata;
 import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
 import de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil;
 
@@ -68,25 +96,281 @@ public final class CasPersistenceUtils
     private final static byte[] SNAPPY_MAGIC = new byte[] { (byte) 0xff, 0x06, 0x00, 0x00, 0x73,
             0x4e, 0x61, 0x50, 0x70, 0x59, };
 
+    /**
+     * Magic bytes at the start of a binary CAS file. The magic is followed by the hash of the type
+     * system in the {@link TypeSystemStore} and then by the CAS data in compressed binary form 6.
+     */
+    private final static byte[] BINARY_MAGIC = "INCBIN01".getBytes(US_ASCII);
+
     private CasPersistenceUtils()
     {
         // No instances
     }
 
-    static void writeSerializedCas(CAS aCas, File aFile) throws IOException
+    /**
+     * Size and CRC32C checksum of the bytes that were written to a CAS file.
+     */
+    record FileChecksum(long size, long checksum) {}
+
+    static FileChecksum writeSerializedCas(CAS aCas, File aFile) throws IOException
     {
         FileUtils.forceMkdir(aFile.getParentFile());
-        try (var os = new FileOutputStream(aFile)) {
+        var crc = new CRC32C();
+        try (var os = new CountingOutputStream(
+                new CheckedOutputStream(new FileOutputStream(aFile), crc))) {
             write(os, aCas);
+            return new FileChecksum(os.getByteCount(), crc.getValue());
         }
     }
 
-    static void writeSerializedCasCompressed(CAS aCas, File aFile) throws IOException
+    static FileChecksum writeSerializedCasCompressed(CAS aCas, File aFile) throws IOException
     {
         FileUtils.forceMkdir(aFile.getParentFile());
-        try (var os = new FileOutputStream(aFile)) {
+        var crc = new CRC32C();
+        try (var os = new CountingOutputStream(
+                new CheckedOutputStream(new FileOutputStream(aFile), crc))) {
             writeSnappyCompressed(os, aCas);
+            return new FileChecksum(os.getByteCount(), crc.getValue());
+        }
+    }
+
+    /**
+     * Writes the CAS in compressed binary form 6 without an embedded type system. Instead, the
+     * type system is stored in the given type system store and the CAS file only refers to it by
+     * its hash.
+     */
+    static FileChecksum writeBinaryCas(CAS aCas, File aFile, TypeSystemStore aTypeSystemStore,
+            File aTypeSystemFolder)
+        throws IOException
+    {
+        FileUtils.forceMkdir(aFile.getParentFile());
+
+        var realCas = getRealCas(aCas);
+        var crc = new CRC32C();
+        // UIMA-6162 Workaround: synchronize CAS during de/serialization
+        synchronized (((CASImpl) realCas).getBaseCAS()) {
+            var hash = aTypeSystemStore.store(realCas, aTypeSystemFolder);
+            try (var counter = new CountingOutputStream(
+                    new CheckedOutputStream(new FileOutputStream(aFile), crc));
+                    var os = new BufferedOutputStream(counter)) {
+                writeBinary(os, realCas, hash);
+                os.flush();
+                return new FileChecksum(counter.getByteCount(), crc.getValue());
+            }
+        }
+    }
+
+    /**
+     * Reads the given file and checks that it contains exactly the bytes that were written to it.
+     * Unlike reading the CAS, this does not deserialize anything and does not require the type
+     * system of the CAS.
+     *
+     * @param aFile
+     *            the file to check.
+     * @param aExpected
+     *            the size and checksum recorded while the file was written.
+     * @throws CasVerificationException
+     *             if the file does not match or cannot be read.
+     */
+    static void verifyChecksum(File aFile, FileChecksum aExpected) throws CasVerificationException
+    {
+        verifyChecksum(aFile, 0, aExpected);
+    }
+
+    /**
+     * Checks that the given file ends with exactly the bytes that were written to it starting at
+     * the given offset, e.g. the segment that was last appended to a journal.
+     *
+     * @param aFile
+     *            the file to check.
+     * @param aOffset
+     *            the position in the file at which the bytes were written.
+     * @param aExpected
+     *            the size and checksum recorded while the bytes were written.
+     * @throws CasVerificationException
+     *             if the file does not match or cannot be read.
+     */
+    static void verifyChecksum(File aFile, long aOffset, FileChecksum aExpected)
+        throws CasVerificationException
+    {
+        var length = aFile.length() - aOffset;
+        if (length != aExpected.size()) {
+            throw new CasVerificationException("File [" + aFile + "] has " + length
+                    + " bytes at offset " + aOffset + " but " + aExpected.size()
+                    + " bytes were written");
+        }
+
+        var crc = new CRC32C();
+        try (var fis = new FileInputStream(aFile)) {
+            fis.skipNBytes(aOffset);
+            new CheckedInputStream(fis, crc).transferTo(OutputStream.nullOutputStream());
+        }
+        catch (IOException e) {
+            throw new CasVerificationException(e);
+        }
+
+        if (crc.getValue() != aExpected.checksum()) {
+            throw new CasVerificationException("File [" + aFile
+                    + "] does not contain the bytes that were written to it");
+        }
+    }
+
+    private static void writeBinary(OutputStream aOut, CAS aCas, String aTypeSystemHash)
+        throws IOException
+    {
+        var dos = new DataOutputStream(aOut);
+        dos.write(BINARY_MAGIC);
+        dos.writeUTF(aTypeSystemHash);
+        dos.flush();
+        CasIOUtils.save(aCas, aOut, COMPRESSED_FILTERED);
+    }
+
+    /**
+     * Appends a segment containing all changes made to the CAS since the given marker was created
+     * to the given journal stream. Each segment is prefixed with its length so that a segment that
+     * was only partially written (e.g. due to a crash) can be detected when replaying the journal.
+     * 
+     * @return the size and checksum of the segment including its length prefix.
+     */
+    static FileChecksum writeDelta(CAS aCas, OutputStream aOut, Marker aMarker)
+        throws IOException
+    {
+        var realCas = getRealCas(aCas);
+        var crc = new CRC32C();
+        // UIMA-6162 Workaround: synchronize CAS during de/serialization
+        synchronized (((CASImpl) realCas).getBaseCAS()) {
+            try (var bos = new ByteArrayOutputStream()) {
+                serializeCAS(realCas, bos, aMarker);
+                var dos = new DataOutputStream(new CheckedOutputStream(aOut, crc));
+                dos.writeInt(bos.size());
+                bos.writeTo(dos);
+                dos.flush();
+                return new FileChecksum(dos.size(), crc.getValue());
+            }
+        }
+    }
+
+    /**
+     * Applies all delta segments from the given journal file to the CAS. The CAS must have been
+     * loaded from the base file the journal belongs to.
+     *
+     * @return the number of delta segments that were applied.
+     */
+    static int replayJournal(CAS aCas, File aJournalFile) throws IOException
+    {
+        var realCas = getRealCas(aCas);
+        // UIMA-6162 Workaround: synchronize CAS during de/serialization
+        synchronized (((CASImpl) realCas).getBaseCAS()) {
+            var count = 0;
+            try (var dis = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(aJournalFile)))) {
+                while (true) {
+                    int length;
+                    try {
+                        length = dis.readInt();
+                    }
+                    catch (EOFException e) {
+                        break;
+                    }
+
+                    var segment = new byte[length];
+                    try {
+                        dis.readFully(segment);
+                    }
+                    catch (EOFException e) {
+                        LOG.warn("Ignoring incomplete trailing segment in journal [{}]",
+                                aJournalFile);
+                        break;
+                    }
+
+                    deserializeCAS(realCas, new ByteArrayInputStream(segment));
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Computes a fingerprint of the contents of the CAS which does not depend on the internal
+     * identity of the feature structures. Two CASes with the same fingerprint contain the same
+     * indexed feature structures with the same feature values. References to other feature
+     * structures are only compared by type and, for annotations, by offsets. The
+     * {@link CASMetadata} is not included because it is updated on every read and write.
+     *
+     * @param aCas
+     *            the CAS.
+     * @return the fingerprint.
+     */
+    static String fingerprint(CAS aCas)
+    {
+        var realCas = getRealCas(aCas);
+        var lines = new ArrayList<String>();
+        // UIMA-6162 Workaround: synchronize CAS during de/serialization
+        synchronized (((CASImpl) realCas).getBaseCAS()) {
+            var views = realCas.getViewIterator();
+            while (views.hasNext()) {
+                var view = views.next();
+                lines.add(view.getViewName() + " sofa=" + view.getSofaDataString());
+                for (var fs : view.select().asList()) {
+                    if (!CASMetadata._TypeName.equals(fs.getType().getName())) {
+                        lines.add(view.getViewName() + " " + describe(fs));
+                    }
+                }
+            }
+        }
+
+        lines.sort(null);
+
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            for (var line : lines) {
+                digest.update(line.getBytes(UTF_8));
+                digest.update((byte) '\n');
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String describe(FeatureStructure aFS)
+    {
+        var sb = new StringBuilder(aFS.getType().getName());
+        for (var feature : aFS.getType().getFeatures()) {
+            sb.append(' ').append(feature.getShortName()).append('=');
+            if (feature.getRange().isPrimitive()) {
+                sb.append(aFS.getFeatureValueAsString(feature));
+            }
+            else {
+                sb.append(describeReference(aFS.getFeatureValue(feature)));
+            }
         }
+        return sb.toString();
+    }
+
+    private static String describeReference(FeatureStructure aFS)
+    {
+        if (aFS == null) {
+            return "null";
+        }
+
+        if (aFS instanceof AnnotationFS ann) {
+            return ann.getType().getName() + "@" + ann.getBegin() + "-" + ann.getEnd();
+        }
+
+        if (aFS instanceof ArrayFS<?> array) {
+            return Arrays.stream(array.toArray()) //
+                    .map(CasPersistenceUtils::describeReference) //
+                    .collect(joining(",", "[", "]"));
+        }
+
+        if (aFS instanceof CommonArrayFS<?> array) {
+            return Arrays.toString(array.toStringArray());
+        }
+
+        return aFS.getType().getName();
     }
 
     public static void writeSerializedCasParanoid(CAS aCas, File aFile) throws IOException
@@ -94,30 +378,42 @@ public final class CasPersistenceUtils
         FileUtils.forceMkdir(aFile.getParentFile());
 
         var realCas = getRealCas(aCas);
+        CASCompleteSerializer serializer;
         // UIMA-6162 Workaround: synchronize CAS during de/serialization
         synchronized (((CASImpl) realCas).getBaseCAS()) {
-            CASCompleteSerializer serializer = null;
             try {
-                serializer = serializeCASComplete((CASImpl) getRealCas(aCas));
-
-                // BEGIN SAFEGUARD --------------
-                // Safeguard that we do NOT write a CAS which can afterwards not be read and thus
-                // would render the document broken within the project
-                // Reason we do this: https://issues.apache.org/jira/browse/UIMA-6162
-                CAS dummy = getRealCas(WebAnnoCasUtil.createCas());
-                deserializeCASComplete(serializer, (CASImpl) dummy);
-                // END SAFEGUARD --------------
+                serializer = serializeCASComplete((CASImpl) realCas);
             }
             catch (Exception e) {
                 if (LOG.isDebugEnabled()) {
-                    preserveForDebugging(aFile, aCas, serializer);
+                    preserveForDebugging(aFile, aCas, null);
                 }
                 throw new IOException(e);
             }
+        }
 
-            try (var os = new FileOutputStream(aFile)) {
-                write(os, serializer);
+        // BEGIN SAFEGUARD --------------
+        // Safeguard that we do NOT write a CAS which can afterwards not be read and thus
+        // would render the document broken within the project
+        // Reason we do this: https://issues.apache.org/jira/browse/UIMA-6162
+        // The serializer is independent of the original CAS, so we do not need to hold the lock
+        // on the original CAS while checking it.
+        try {
+            CAS dummy = getRealCas(WebAnnoCasUtil.createCas());
+            deserializeCASComplete(serializer, (CASImpl) dummy);
+        }
+        catch (Exception e) {
+            if (LOG.isDebugEnabled()) {
+                synchronized (((CASImpl) realCas).getBaseCAS()) {
+                    preserveForDebugging(aFile, aCas, serializer);
+                }
             }
+            throw new CasVerificationException(e);
+        }
+        // END SAFEGUARD --------------
+
+        try (var os = new FileOutputStream(aFile)) {
+            write(os, serializer);
         }
     }
 
@@ -181,6 +477,10 @@ public final class CasPersistenceUtils
             LOG.error("Debug type system serialization failed: {}", ex.getMessage(), ex);
         }
 
+        if (aSerializer == null) {
+            return;
+        }
+
         try (var os = new ObjectOutputStream(
                 new FileOutputStream(new File(aFile.getPath() + ".borked-" + ts + ".ser")))) {
             os.writeObject(aSerializer);
@@ -191,12 +491,32 @@ public final class CasPersistenceUtils
     }
 
     public static void readSerializedCas(CAS aCas, File aFile) throws IOException
+    {
+        readSerializedCas(aCas, aFile, null, null);
+    }
+
+    /**
+     * Reads a CAS file in either the serialized (optionally compressed) format or the binary
+     * format. The type system store is only required for binary CAS files.
+     */
+    static void readSerializedCas(CAS aCas, File aFile, TypeSystemStore aTypeSystemStore,
+            File aTypeSystemFolder)
+        throws IOException
     {
         var realCas = getRealCas(aCas);
         // UIMA-6162 Workaround: synchronize CAS during de/serialization
         synchronized (((CASImpl) realCas).getBaseCAS()) {
             try (var bis = new BufferedInputStream(new FileInputStream(aFile))) {
-                readSerializedCas(realCas, maybeUncompress(bis));
+                if (isBinaryStream(bis)) {
+                    if (aTypeSystemStore == null) {
+                        throw new IOException("Reading binary CAS file [" + aFile
+                                + "] requires a type system store");
+                    }
+                    readBinaryCas(realCas, bis, aTypeSystemStore, aTypeSystemFolder);
+                }
+                else {
+                    readSerializedCas(realCas, maybeUncompress(bis));
+                }
             }
         }
     }
@@ -207,22 +527,85 @@ public final class CasPersistenceUtils
             ois.setObjectInputFilter(SERIALIZED_CAS_INPUT_FILTER);
             var serializer = (CASCompleteSerializer) ois.readObject();
             deserializeCASComplete(serializer, (CASImpl) aCas);
-
-            // Workaround for UIMA adding back deleted DocumentAnnotations
-            // https://issues.apache.org/jira/browse/UIMA-6199
-            // If there is a DocumentMetaData annotation, then we can drop any of the default UIMA
-            // DocumentAnnotation instances (excluding the DocumentMetaData of course)
-            if (!aCas.select(DocumentMetaData.class.getName()).isEmpty()) {
-                aCas.select(CAS.TYPE_NAME_DOCUMENT_ANNOTATION).filter(
-                        fs -> !DocumentMetaData.class.getName().equals(fs.getType().getName()))
-                        .forEach(aCas::removeFsFromIndexes);
-            }
+            removeSurplusDocumentAnnotations(aCas);
         }
         catch (ClassNotFoundException e) {
             throw new IOException(e);
         }
     }
 
+    private static void readBinaryCas(CAS aCas, InputStream aIn, TypeSystemStore aTypeSystemStore,
+            File aTypeSystemFolder)
+        throws IOException
+    {
+        var dis = new DataInputStream(aIn);
+        dis.readFully(new byte[BINARY_MAGIC.length]);
+        var hash = dis.readUTF();
+        var tsi = aTypeSystemStore.load(aTypeSystemFolder, hash);
+        CasIOUtils.load(aIn, new ByteArrayInputStream(tsi), aCas, CasLoadMode.REINIT);
+        removeSurplusDocumentAnnotations(aCas);
+    }
+
+    private static void removeSurplusDocumentAnnotations(CAS aCas)
+    {
+        // Workaround for UIMA adding back deleted DocumentAnnotations
+        // https://issues.apache.org/jira/browse/UIMA-6199
+        // If there is a DocumentMetaData annotation, then we can drop any of the default UIMA
+        // DocumentAnnotation instances (excluding the DocumentMetaData of course)
+        if (!aCas.select(DocumentMetaData.class.getName()).isEmpty()) {
+            aCas.select(CAS.TYPE_NAME_DOCUMENT_ANNOTATION)
+                    .filter(fs -> !DocumentMetaData.class.getName().equals(fs.getType().getName()))
+                    .forEach(aCas::removeFsFromIndexes);
+        }
+    }
+
+    /**
+     * @param aFile
+     *            a CAS file.
+     * @return whether the file is in the binary format which requires a type system store to be
+     *         read.
+     * @throws IOException
+     *             if the file cannot be read.
+     */
+    static boolean isBinaryCasFile(File aFile) throws IOException
+    {
+        try (var bis = new BufferedInputStream(new FileInputStream(aFile))) {
+            return isBinaryStream(bis);
+        }
+    }
+
+    /**
+     * Reads the hash of the type system referenced by a binary CAS file without loading the CAS.
+     * 
+     * @param aFile
+     *            the file to check.
+     * @return the type system hash or nothing if the file is not a binary CAS file.
+     * @throws IOException
+     *             if the file cannot be read.
+     */
+    static Optional<String> readBinaryCasTypeSystemHash(File aFile) throws IOException
+    {
+        try (var bis = new BufferedInputStream(new FileInputStream(aFile))) {
+            if (!isBinaryStream(bis)) {
+                return Optional.empty();
+            }
+
+            var dis = new DataInputStream(bis);
+            dis.readFully(new byte[BINARY_MAGIC.length]);
+            return Optional.of(dis.readUTF());
+        }
+    }
+
+    private static boolean isBinaryStream(BufferedInputStream bis) throws IOException
+    {
+        byte[] buf = new byte[BINARY_MAGIC.length];
+        bis.mark(buf.length);
+        int bytesRead = bis.readNBytes(buf, 0, buf.length);
+        bis.reset();
+
+        return bytesRead == BINARY_MAGIC.length && Arrays.equals(buf, BINARY_MAGIC);
+    }
+
     private static InputStream maybeUncompress(BufferedInputStream bis) throws IOException
     {
         byte[] buf = new byte[32];
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.annotation.storage.driver.filesystem;
+
+import java.io.IOException;
+
+/**
+ * Signals that a serialized CAS could not be deserialized again or that a written CAS file does not
+ * contain what has been written to it.
+ */
+public class CasVerificationException
+    extends IOException
+{
+    private static final long serialVersionUID = 2150224520536616165L;
+
+    public CasVerificationException(String aMessage)
+    {
+        super(aMessage);
+    }
+
+    public CasVerificationException(Throwable aCause)
+    {
+        super(aCause);
+    }
+}
@@ -17,6 +17,8 @@
  */
 package de.tudarmstadt.ukp.inception.annotation.storage.driver.filesystem;
 
+import static de.tudarmstadt.ukp.inception.annotation.storage.config.CasVerificationMode.READ_BACK;
+import static de.tudarmstadt.ukp.inception.annotation.storage.config.CasVerificationMode.ROUND_TRIP;
 import static de.tudarmstadt.ukp.inception.project.api.ProjectService.ANNOTATION_FOLDER;
 import static de.tudarmstadt.ukp.inception.project.api.ProjectService.DOCUMENT_FOLDER;
 import static de.tudarmstadt.ukp.inception.project.api.ProjectService.PROJECT_FOLDER;
@@ -25,6 +27,7 @@ import static de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil.setDocume
 import static java.lang.System.currentTimeMillis;
 import static java.nio.file.Files.move;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
 import static java.util.regex.Pattern.compile;
 import static java.util.regex.Pattern.quote;
 import static org.apache.commons.io.comparator.LastModifiedFileComparator.LASTMODIFIED_COMPARATOR;
@@ -33,10 +36,13 @@ import static org.apache.commons.lang3.time.DurationFormatUtils.formatDurationHM
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.invoke.MethodHandles;
+import java.lang.ref.WeakReference;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.text.SimpleDateFormat;
 import java.time.Duration;
@@ -46,13 +52,17 @@ import java.util.regex.Matcher;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.commons.lang3.Validate;
 import org.apache.uima.UIMAException;
 import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Marker;
+import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.fit.util.FSUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 
@@ -64,6 +74,9 @@ import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageMetadata;
 import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageBackupProperties;
 import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageProperties;
 import de.tudarmstadt.ukp.inception.annotation.storage.driver.CasStorageDriver;
+import de.tudarmstadt.ukp.inception.annotation.storage.driver.filesystem.CasPersistenceUtils.FileChecksum;
+import de.tudarmstadt.ukp.inception.annotation.storage.metrics.CasStorageMetrics;
+import de.tudarmstadt.ukp.inception.annotation.storage.metrics.CasStorageMetricsImpl;
 import de.tudarmstadt.ukp.inception.documents.api.RepositoryProperties;
 import de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil;
 import de.tudarmstadt.ukp.inception.support.wicket.WicketUtil;
@@ -73,6 +86,8 @@ public class FileSystemCasStorageDriver
 {
     public static final String SER_CAS_EXTENSION = ".ser";
     public static final String OLD_EXTENSION = ".old";
+    public static final String JOURNAL_EXTENSION = ".journal";
+    public static final String TYPE_SYSTEM_FOLDER = "typesystems";
 
     private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
@@ -80,14 +95,34 @@ public class FileSystemCasStorageDriver
     private final CasStorageProperties casStorageProperties;
     private final CasStorageBackupProperties backupProperties;
     private final LoadingCache<File, InternalMetadata> metadataCache;
+    private final TypeSystemStore typeSystemStore;
+    private final Cache<CAS, JournalState> journalStates;
+    private final Cache<File, CasFileFormat> casFileFormats;
+    private final CasStorageMetrics metrics;
 
     public FileSystemCasStorageDriver(RepositoryProperties aRepositoryProperties,
             CasStorageBackupProperties aBackupProperties,
             CasStorageProperties aCasStorageProperties)
+    {
+        this(aRepositoryProperties, aBackupProperties, aCasStorageProperties,
+                new CasStorageMetricsImpl());
+    }
+
+    public FileSystemCasStorageDriver(RepositoryProperties aRepositoryProperties,
+            CasStorageBackupProperties aBackupProperties,
+            CasStorageProperties aCasStorageProperties, CasStorageMetrics aMetrics)
     {
         repositoryProperties = aRepositoryProperties;
         backupProperties = aBackupProperties;
         casStorageProperties = aCasStorageProperties;
+        metrics = aMetrics;
+        typeSystemStore = new TypeSystemStore();
+        journalStates = Caffeine.newBuilder() //
+                .weakKeys() //
+                .build();
+        casFileFormats = Caffeine.newBuilder() //
+                .expireAfterAccess(Duration.ofHours(1)) //
+                .build();
 
         if (casStorageProperties.isTraceAccess()) {
             metadataCache = Caffeine.newBuilder() //
@@ -147,9 +182,22 @@ public class FileSystemCasStorageDriver
         }
 
         try {
-            CasPersistenceUtils.readSerializedCas(cas, casFile);
+            CasPersistenceUtils.readSerializedCas(cas, casFile, typeSystemStore,
+                    getTypeSystemFolder(aDocument.getProject().getId()));
+            var deltas = 0;
+            var journal = getJournalFile(casFile);
+            if (journal.exists()) {
+                deltas = CasPersistenceUtils.replayJournal(cas, journal);
+            }
+            var trackable = isTrackable(cas, casFile);
             // Add/update the CAS metadata
             CasMetadataUtils.addOrUpdateCasMetadata(cas, casFile.lastModified(), aDocument, aUser);
+            if (trackable) {
+                trackChanges(cas, deltas);
+            }
+            else {
+                stopTrackingChanges(cas);
+            }
         }
         catch (Exception e) {
             throw new IOException("Annotation document of user [" + aUser + "] for source document "
@@ -185,6 +233,64 @@ public class FileSystemCasStorageDriver
             failOnConcurrentModification(aCas, currentVersion, aDocument, aUserName, "writing");
         }
 
+        var journal = new File(annotationFolder, aUserName + SER_CAS_EXTENSION + JOURNAL_EXTENSION);
+        var journalState = getJournalStateForDelta(aCas, currentVersion, annotationFolder,
+                aUserName);
+
+        setDocumentId(aCas, aUserName);
+        var delta = journalState != null
+                && writeDeltaCas(aCas, currentVersion, journal, journalState);
+        if (!delta) {
+            writeFullCas(aDocument, aUserName, aCas, currentVersion, oldVersion, journal);
+        }
+        // A delta leaves the format of the current version as it is - and deltas are only written
+        // on top of serialized files
+        rememberCasFileFormat(currentVersion,
+                !delta && casStorageProperties.isBinaryCasSerialization());
+        var trackable = isTrackable(aCas, currentVersion);
+
+        // Update the timestamp in the CAS in case we attempt to save it a second time. This
+        // happens for example in an annotation replacement operation (change layer of existing
+        // annotation) which is implemented as a delete/create operation with an intermediate
+        // save.
+        var lastModified = currentVersion.lastModified();
+        CasMetadataUtils.addOrUpdateCasMetadata(aCas, lastModified, aDocument, aUserName);
+        if (metadataCache != null) {
+            metadataCache.get(currentVersion).writeSuccess(lastModified);
+        }
+
+        if (trackable) {
+            trackChanges(aCas, delta ? journalState.deltas + 1 : 0);
+        }
+        else {
+            stopTrackingChanges(aCas);
+        }
+
+        if (!delta) {
+            manageHistory(currentVersion, aDocument, aUserName);
+        }
+
+        var duration = currentTimeMillis() - t0;
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("Updated annotations for user [{}] on document {} in project {} " //
+                    + "{} bytes in {}ms (file timestamp: {}, compression: {}, delta: {})",
+                    aUserName, aDocument, aDocument.getProject(), currentVersion.length(),
+                    duration, formatTimestamp(lastModified),
+                    casStorageProperties.isCompressedCasSerialization()
+                            || casStorageProperties.isBinaryCasSerialization(),
+                    delta);
+        }
+
+        WicketUtil.serverTiming("realWriteCas", duration);
+    }
+
+    private void writeFullCas(SourceDocument aDocument, String aUserName, CAS aCas,
+            File currentVersion, File oldVersion, File aJournal)
+        throws IOException
+    {
+        var oldJournal = new File(aJournal.getPath() + OLD_EXTENSION);
+
         // Save current version
         try {
             // Make a backup of the current version of the file before overwriting
@@ -192,16 +298,35 @@ public class FileSystemCasStorageDriver
                 move(currentVersion.toPath(), oldVersion.toPath());
             }
 
+            // The journal belongs to the current version, so it must be moved out of the way
+            // together with the current version. Otherwise, it would be replayed on top of the
+            // new version.
+            if (aJournal.exists()) {
+                move(aJournal.toPath(), oldJournal.toPath());
+            }
+
             // Now write the new version to "<username>.ser" or CURATION_USER.ser
-            setDocumentId(aCas, aUserName);
-            if (casStorageProperties.isParanoidCasSerialization()) {
-                CasPersistenceUtils.writeSerializedCasParanoid(aCas, currentVersion);
+            FileChecksum checksum = null;
+            if (casStorageProperties.isBinaryCasSerialization()) {
+                checksum = CasPersistenceUtils.writeBinaryCas(aCas, currentVersion,
+                        typeSystemStore, getTypeSystemFolder(aDocument.getProject().getId()));
+            }
+            else if (casStorageProperties.isParanoidCasSerialization()
+                    && casStorageProperties.getParanoidCasVerification() == ROUND_TRIP) {
+                writeSerializedCasParanoid(aCas, currentVersion);
             }
             else if (casStorageProperties.isCompressedCasSerialization()) {
-                CasPersistenceUtils.writeSerializedCasCompressed(aCas, currentVersion);
+                checksum = CasPersistenceUtils.writeSerializedCasCompressed(aCas, currentVersion);
             }
             else {
-                CasPersistenceUtils.writeSerializedCas(aCas, currentVersion);
+                checksum = CasPersistenceUtils.writeSerializedCas(aCas, currentVersion);
+            }
+
+            // The caller holds exclusive access to the CAS, so the file can be checked and the
+            // previous version restored without interfering with other writes
+            if (checksum != null && casStorageProperties.isParanoidCasSerialization()
+                    && casStorageProperties.getParanoidCasVerification() == READ_BACK) {
+                readBack(currentVersion, checksum);
             }
         }
         catch (Exception e) {
@@ -220,6 +345,9 @@ public class FileSystemCasStorageDriver
                     aUserName, aDocument, aDocument.getProject(), oldVersion);
             try {
                 move(oldVersion.toPath(), currentVersion.toPath(), REPLACE_EXISTING);
+                if (oldJournal.exists()) {
+                    move(oldJournal.toPath(), aJournal.toPath(), REPLACE_EXISTING);
+                }
             }
             catch (Exception ex) {
                 LOG.error("Unable to restore previous annotations: [{}]", oldVersion, ex);
@@ -229,8 +357,10 @@ public class FileSystemCasStorageDriver
             throw e;
         }
 
-        if (oldVersion.exists() && (currentVersion.length() < (oldVersion.length()
-                * (casStorageProperties.isCompressedCasSerialization() ? 0.95d : 1.0d)))) {
+        var compressed = casStorageProperties.isCompressedCasSerialization()
+                || casStorageProperties.isBinaryCasSerialization();
+        var slip = compressed ? 0.95d : 1.0d;
+        if (oldVersion.exists() && (currentVersion.length() < (oldVersion.length() * slip))) {
             // If compression is enabled, then it is not so uncommon that the file size may also
             // become smaller at times, so we allow a bit of slip
             LOG.debug(
@@ -245,29 +375,223 @@ public class FileSystemCasStorageDriver
             FileUtils.forceDelete(oldVersion);
         }
 
-        // Update the timestamp in the CAS in case we attempt to save it a second time. This
-        // happens for example in an annotation replacement operation (change layer of existing
-        // annotation) which is implemented as a delete/create operation with an intermediate
-        // save.
-        var lastModified = currentVersion.lastModified();
-        CasMetadataUtils.addOrUpdateCasMetadata(aCas, lastModified, aDocument, aUserName);
-        if (metadataCache != null) {
-            metadataCache.get(currentVersion).writeSuccess(lastModified);
+        if (oldJournal.exists()) {
+            FileUtils.forceDelete(oldJournal);
         }
+    }
 
-        manageHistory(currentVersion, aDocument, aUserName);
+    private void writeSerializedCasParanoid(CAS aCas, File aCurrentVersion) throws IOException
+    {
+        var t0 = currentTimeMillis();
+        try {
+            CasPersistenceUtils.writeSerializedCasParanoid(aCas, aCurrentVersion);
+            metrics.verificationSucceeded(currentTimeMillis() - t0);
+        }
+        catch (CasVerificationException e) {
+            metrics.verificationFailed(currentTimeMillis() - t0);
+            throw e;
+        }
+    }
 
-        var duration = currentTimeMillis() - t0;
+    /**
+     * Reads back a CAS file after it has been written and compares it to the size and checksum of
+     * the data that was written. The CAS is not deserialized again. If the file does not match, an
+     * exception is thrown so that the caller restores the previous version.
+     */
+    private void readBack(File aCasFile, FileChecksum aChecksum) throws CasVerificationException
+    {
+        var t0 = currentTimeMillis();
+        try {
+            CasPersistenceUtils.verifyChecksum(aCasFile, aChecksum);
+            metrics.verificationSucceeded(currentTimeMillis() - t0);
+        }
+        catch (CasVerificationException e) {
+            metrics.verificationFailed(currentTimeMillis() - t0);
+            throw e;
+        }
+    }
 
-        if (LOG.isDebugEnabled()) {
-            LOG.debug("Updated annotations for user [{}] on document {} in project {} " //
-                    + "{} bytes in {}ms (file timestamp: {}, compression: {})", aUserName,
-                    aDocument, aDocument.getProject(), currentVersion.length(), duration,
-                    formatTimestamp(lastModified),
-                    casStorageProperties.isCompressedCasSerialization());
+    /**
+     * Appends the changes made to the CAS since it was last read or written to the journal of the
+     * current version. The current version itself remains untouched except for its timestamp which
+     * is updated such that the concurrent modification detection keeps working.
+     * <p>
+     * If paranoid serialization is enabled, the appended segment is read back from the journal and
+     * compared to the size and checksum of the data that was written. If they do not match or if
+     * the timestamp of the current version cannot be updated, the appended segment is removed again
+     * and the caller needs to write a full version instead.
+     * 
+     * @return whether the delta was written.
+     */
+    private boolean writeDeltaCas(CAS aCas, File aCurrentVersion, File aJournal,
+            JournalState aJournalState)
+        throws IOException
+    {
+        var journalLength = aJournal.exists() ? aJournal.length() : 0L;
+        FileChecksum checksum;
+        try (var os = new FileOutputStream(aJournal, true)) {
+            checksum = CasPersistenceUtils.writeDelta(aCas, os, aJournalState.getMarker());
+        }
+        catch (Exception e) {
+            LOG.error("There was an error while trying to append to the journal [{}] - "
+                    + "truncating journal to its previous state", aJournal);
+            truncateJournal(aJournal, journalLength);
+            throw e;
         }
 
-        WicketUtil.serverTiming("realWriteCas", duration);
+        if (casStorageProperties.isParanoidCasSerialization()
+                && !verifyDelta(aJournal, journalLength, checksum)) {
+            truncateJournal(aJournal, journalLength);
+            return false;
+        }
+
+        // The concurrent modification detection relies on the timestamp of the current version,
+        // so if it cannot be updated, the delta must not be kept
+        var now = currentTimeMillis();
+        if (!aCurrentVersion.setLastModified(now)) {
+            LOG.error("Unable to update the timestamp of [{}] - truncating journal to its previous "
+                    + "state and writing a full version instead", aCurrentVersion);
+            truncateJournal(aJournal, journalLength);
+            return false;
+        }
+
+        if (!aJournal.setLastModified(now)) {
+            LOG.warn("Unable to update the timestamp of the journal [{}]", aJournal);
+        }
+
+        return true;
+    }
+
+    private void truncateJournal(File aJournal, long aLength)
+    {
+        try (var channel = FileChannel.open(aJournal.toPath(), WRITE)) {
+            channel.truncate(aLength);
+        }
+        catch (Exception ex) {
+            LOG.error("Unable to truncate journal: [{}]", aJournal, ex);
+        }
+    }
+
+    /**
+     * Checks that the segment appended to the journal at the given offset can be read back from the
+     * journal as it was written. Only the appended segment is read - the current version and the
+     * rest of the journal have already been checked when they were written.
+     */
+    private boolean verifyDelta(File aJournal, long aOffset, FileChecksum aChecksum)
+    {
+        var t0 = currentTimeMillis();
+        try {
+            CasPersistenceUtils.verifyChecksum(aJournal, aOffset, aChecksum);
+            metrics.verificationSucceeded(currentTimeMillis() - t0);
+            return true;
+        }
+        catch (CasVerificationException e) {
+            LOG.warn("Unable to read back the delta appended to the journal [{}] - writing a full "
+                    + "version instead", aJournal, e);
+            metrics.verificationFailed(currentTimeMillis() - t0);
+            return false;
+        }
+    }
+
+    /**
+     * Delta segments refer to the feature structures of the CAS by the addresses they have in the
+     * form 0 serialization of the current version and the journal. These addresses are only known
+     * if the CAS corresponds exactly to what has been read from or written to such a file. This is
+     * not the case if the file is a binary CAS file (form 6 does not retain the addresses) or if
+     * the CAS metadata is about to be added to the CAS without being in the file.
+     */
+    private boolean isTrackable(CAS aCas, File aCasFile) throws IOException
+    {
+        if (!casStorageProperties.isDeltaCasSerialization()) {
+            return false;
+        }
+
+        if (aCas.getTypeSystem().getType(CASMetadata._TypeName) != null
+                && aCas.select(CASMetadata._TypeName).isEmpty()) {
+            return false;
+        }
+
+        return !isBinaryCasFile(aCasFile);
+    }
+
+    /**
+     * Checking the format requires opening the file, so the format is remembered together with the
+     * timestamp and size the file had at the time. Once the file changes, it is checked again.
+     */
+    private boolean isBinaryCasFile(File aCasFile) throws IOException
+    {
+        var lastModified = aCasFile.lastModified();
+        var length = aCasFile.length();
+        var format = casFileFormats.getIfPresent(aCasFile);
+        if (format != null && format.lastModified() == lastModified && format.length() == length) {
+            return format.binary();
+        }
+
+        var binary = CasPersistenceUtils.isBinaryCasFile(aCasFile);
+        casFileFormats.put(aCasFile, new CasFileFormat(lastModified, length, binary));
+        return binary;
+    }
+
+    private void rememberCasFileFormat(File aCasFile, boolean aBinary)
+    {
+        if (casStorageProperties.isDeltaCasSerialization()) {
+            casFileFormats.put(aCasFile,
+                    new CasFileFormat(aCasFile.lastModified(), aCasFile.length(), aBinary));
+        }
+    }
+
+    /**
+     * Starts tracking changes to the CAS so that the next write can be a delta write. This must be
+     * called right after the CAS has been read or written and its metadata has been updated, but
+     * before any further changes are made to the CAS.
+     */
+    private void trackChanges(CAS aCas, int aDeltas)
+    {
+        var realCas = WebAnnoCasUtil.getRealCas(aCas);
+        journalStates.put(realCas,
+                new JournalState(realCas.getTypeSystem(), realCas.createMarker(), aDeltas));
+    }
+
+    private void stopTrackingChanges(CAS aCas)
+    {
+        if (casStorageProperties.isDeltaCasSerialization()) {
+            journalStates.invalidate(WebAnnoCasUtil.getRealCas(aCas));
+        }
+    }
+
+    private JournalState getJournalStateForDelta(CAS aCas, File aCurrentVersion,
+            File aAnnotationFolder, String aUserName)
+    {
+        if (!casStorageProperties.isDeltaCasSerialization() || !aCurrentVersion.exists()) {
+            return null;
+        }
+
+        var realCas = WebAnnoCasUtil.getRealCas(aCas);
+        var state = journalStates.getIfPresent(realCas);
+        if (state == null) {
+            return null;
+        }
+
+        // If the CAS has been reset or upgraded to a new type system since we started tracking
+        // changes, we cannot write a delta
+        var marker = state.getMarker();
+        if (marker == null || !marker.isValid()
+                || state.getTypeSystem() != realCas.getTypeSystem()) {
+            return null;
+        }
+
+        // Compact the journal into a new version once it becomes too long
+        if (state.deltas >= casStorageProperties.getDeltaCasCompactionThreshold()) {
+            return null;
+        }
+
+        // Backups are copies of the current version, so if a backup is due, we need to write a
+        // full version
+        if (isHistoryDue(aAnnotationFolder, aUserName)) {
+            return null;
+        }
+
+        return state;
     }
 
     /**
@@ -292,6 +616,12 @@ public class FileSystemCasStorageDriver
         return annotationFolder;
     }
 
+    private File getTypeSystemFolder(long aProjectId)
+    {
+        return new File(repositoryProperties.getPath(),
+                "/" + PROJECT_FOLDER + "/" + aProjectId + "/" + TYPE_SYSTEM_FOLDER);
+    }
+
     private void manageHistory(File aCurrentVersion, SourceDocument aDocument, String aUserName)
         throws IOException
     {
@@ -305,18 +635,7 @@ public class FileSystemCasStorageDriver
         long now = aCurrentVersion.lastModified();
 
         // Get all history files for the current user
-        var history = annotationFolder.listFiles(new FileFilter()
-        {
-            private final Matcher matcher = compile(quote(aUserName) + "\\.ser\\.[0-9]+\\.bak")
-                    .matcher("");
-
-            @Override
-            public boolean accept(File aFile)
-            {
-                // Check if the filename matches the pattern given above.
-                return matcher.reset(aFile.getName()).matches();
-            }
-        });
+        var history = listHistory(annotationFolder, aUserName);
 
         // Sort the files (oldest one first)
         Arrays.sort(history, LASTMODIFIED_COMPARATOR);
@@ -385,6 +704,43 @@ public class FileSystemCasStorageDriver
         }
     }
 
+    private File[] listHistory(File aAnnotationFolder, String aUserName)
+    {
+        return aAnnotationFolder.listFiles(new FileFilter()
+        {
+            private final Matcher matcher = compile(quote(aUserName) + "\\.ser\\.[0-9]+\\.bak")
+                    .matcher("");
+
+            @Override
+            public boolean accept(File aFile)
+            {
+                // Check if the filename matches the pattern given above.
+                return matcher.reset(aFile.getName()).matches();
+            }
+        });
+    }
+
+    private boolean isHistoryDue(File aAnnotationFolder, String aUserName)
+    {
+        if (backupProperties.getInterval() <= 0) {
+            return false;
+        }
+
+        var history = listHistory(aAnnotationFolder, aUserName);
+        if (history.length == 0) {
+            return true;
+        }
+
+        var latestHistory = Arrays.stream(history).max(LASTMODIFIED_COMPARATOR).get();
+        return latestHistory.lastModified()
+                + (backupProperties.getInterval() * 1000) < currentTimeMillis();
+    }
+
+    private File getJournalFile(File aCasFile)
+    {
+        return new File(aCasFile.getPath() + JOURNAL_EXTENSION);
+    }
+
     // Public for testing
     public File getCasFile(SourceDocument aDocument, String aUser) throws IOException
     {
@@ -401,7 +757,31 @@ public class FileSystemCasStorageDriver
         Validate.notNull(aDocument, "Source document must be specified");
         Validate.notBlank(aUser, "User must be specified");
 
-        try (var is = Files.newInputStream(getCasFile(aDocument, aUser).toPath())) {
+        var casFile = getCasFile(aDocument, aUser);
+
+        // Binary CAS files refer to the type system store of the project and CAS files with a
+        // journal need to be combined with the journal, so we cannot export them as they are.
+        // Instead, we convert them to a self-contained serialized CAS.
+        var journal = getJournalFile(casFile);
+        if (CasPersistenceUtils.isBinaryCasFile(casFile) || journal.exists()) {
+            CAS cas;
+            try {
+                cas = WebAnnoCasUtil.createCas();
+            }
+            catch (UIMAException e) {
+                throw new IOException("Unable to create empty CAS", e);
+            }
+
+            CasPersistenceUtils.readSerializedCas(cas, casFile, typeSystemStore,
+                    getTypeSystemFolder(aDocument.getProject().getId()));
+            if (journal.exists()) {
+                CasPersistenceUtils.replayJournal(cas, journal);
+            }
+            CasPersistenceUtils.writeSnappyCompressed(CloseShieldOutputStream.wrap(aStream), cas);
+            return;
+        }
+
+        try (var is = Files.newInputStream(casFile.toPath())) {
             IOUtils.copyLarge(is, aStream);
         }
     }
@@ -413,7 +793,12 @@ public class FileSystemCasStorageDriver
         Validate.notNull(aDocument, "Source document must be specified");
         Validate.notBlank(aUser, "User must be specified");
 
-        try (var os = Files.newOutputStream(getCasFile(aDocument, aUser).toPath())) {
+        var casFile = getCasFile(aDocument, aUser);
+
+        // Any existing journal belongs to the file being replaced
+        Files.deleteIfExists(getJournalFile(casFile).toPath());
+
+        try (var os = Files.newOutputStream(casFile.toPath())) {
             IOUtils.copyLarge(aStream, os);
         }
     }
@@ -432,6 +817,9 @@ public class FileSystemCasStorageDriver
             metadataCache.invalidate(casFile);
         }
 
+        casFileFormats.invalidate(casFile);
+        Files.deleteIfExists(getJournalFile(casFile).toPath());
+
         return casFile.delete();
     }
 
@@ -446,12 +834,27 @@ public class FileSystemCasStorageDriver
     {
         var file = getCasFile(aDocument, aUser);
         if (file.exists()) {
-            return Optional.of(file.length());
+            var journal = getJournalFile(file);
+            return Optional.of(file.length() + (journal.exists() ? journal.length() : 0L));
         }
 
         return Optional.empty();
     }
 
+    @Override
+    public Optional<String> getCasTypeSystemHash(SourceDocument aDocument, String aUser)
+        throws IOException
+    {
+        var file = getCasFile(aDocument, aUser);
+        // A journal may have been written against a different state than the one recorded in
+        // the header of the base file, so in this case we do not report a hash
+        if (!file.exists() || getJournalFile(file).exists()) {
+            return Optional.empty();
+        }
+
+        return CasPersistenceUtils.readBinaryCasTypeSystemHash(file);
+    }
+
     @Override
     public Optional<CasStorageMetadata> getCasMetadata(SourceDocument aDocument, String aUser)
         throws IOException
@@ -576,6 +979,38 @@ public class FileSystemCasStorageDriver
         }
     }
 
+    /**
+     * The marker references its CAS. Since the journal states are weakly keyed by the CAS, the
+     * state must not hold on to the marker strongly - otherwise, the CAS could never be garbage
+     * collected. While the marker is the current marker of the CAS, the CAS itself keeps it alive.
+     * Should the marker be collected anyway, the next write is simply a full write.
+     */
+    private static class JournalState
+    {
+        private final WeakReference<TypeSystem> typeSystem;
+        private final WeakReference<Marker> marker;
+        private final int deltas;
+
+        private JournalState(TypeSystem aTypeSystem, Marker aMarker, int aDeltas)
+        {
+            typeSystem = new WeakReference<>(aTypeSystem);
+            marker = new WeakReference<>(aMarker);
+            deltas = aDeltas;
+        }
+
+        private TypeSystem getTypeSystem()
+        {
+            return typeSystem.get();
+        }
+
+        private Marker getMarker()
+        {
+            return marker.get();
+        }
+    }
+
+    private record CasFileFormat(long lastModified, long length, boolean binary) {}
+
     public static class Metadata
         implements CasStorageMetadata
     {
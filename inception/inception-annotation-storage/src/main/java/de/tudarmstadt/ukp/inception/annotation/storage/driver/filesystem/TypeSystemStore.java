@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.annotation.storage.driver.filesystem;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.util.CasIOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Content-addressed storage for the type systems referenced by binary CAS files. Each type system
+ * (including its index definitions) is stored exactly once per folder under the SHA-256 hash of
+ * its serialized form, so all CASes of a project sharing the same type system also share the same
+ * type system file.
+ */
+public class TypeSystemStore
+{
+    public static final String TYPE_SYSTEM_EXTENSION = ".tsi";
+
+    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private static final int MAX_CACHED_TYPE_SYSTEMS = 100;
+
+    private final Cache<TypeSystem, String> hashCache;
+    private final Cache<String, byte[]> typeSystemCache;
+
+    public TypeSystemStore()
+    {
+        // Type systems are compared by identity here - UIMA returns the same committed type system
+        // instance for equal type systems, so this avoids re-serializing the type system on every
+        // write
+        hashCache = Caffeine.newBuilder() //
+                .weakKeys() //
+                .build();
+        typeSystemCache = Caffeine.newBuilder() //
+                .maximumSize(MAX_CACHED_TYPE_SYSTEMS) //
+                .build();
+    }
+
+    /**
+     * Stores the type system of the given CAS in the given folder unless it is already present.
+     *
+     * @param aCas
+     *            the CAS whose type system should be stored.
+     * @param aFolder
+     *            the type system folder.
+     * @return the hash under which the type system has been stored.
+     * @throws IOException
+     *             if the type system could not be written.
+     */
+    public String store(CAS aCas, File aFolder) throws IOException
+    {
+        byte[] tsi = null;
+
+        var hash = hashCache.getIfPresent(aCas.getTypeSystem());
+        if (hash == null) {
+            tsi = serializeTypeSystem(aCas);
+            hash = hash(tsi);
+            hashCache.put(aCas.getTypeSystem(), hash);
+        }
+
+        var file = getTypeSystemFile(aFolder, hash);
+        if (!file.exists()) {
+            if (tsi == null) {
+                tsi = serializeTypeSystem(aCas);
+            }
+
+            // Write to a temporary file first and then move it into place so that concurrent
+            // readers never see a partially written type system
+            FileUtils.forceMkdir(aFolder);
+            var tmpFile = File.createTempFile(hash, ".tmp", aFolder);
+            try {
+                Files.write(tmpFile.toPath(), tsi);
+                Files.move(tmpFile.toPath(), file.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+            }
+            finally {
+                Files.deleteIfExists(tmpFile.toPath());
+            }
+
+            typeSystemCache.put(hash, tsi);
+
+            LOG.debug("Stored new type system [{}] in [{}]", hash, aFolder);
+        }
+
+        return hash;
+    }
+
+    /**
+     * @param aFolder
+     *            the type system folder.
+     * @param aHash
+     *            the type system hash.
+     * @return the serialized type system and index definitions stored under the given hash.
+     * @throws IOException
+     *             if the type system could not be read.
+     */
+    public byte[] load(File aFolder, String aHash) throws IOException
+    {
+        var tsi = typeSystemCache.getIfPresent(aHash);
+        if (tsi != null) {
+            return tsi;
+        }
+
+        var file = getTypeSystemFile(aFolder, aHash);
+        if (!file.exists()) {
+            throw new FileNotFoundException(
+                    "Type system [" + aHash + "] not found in [" + aFolder + "]");
+        }
+
+        tsi = Files.readAllBytes(file.toPath());
+        typeSystemCache.put(aHash, tsi);
+        return tsi;
+    }
+
+    private File getTypeSystemFile(File aFolder, String aHash)
+    {
+        return new File(aFolder, aHash + TYPE_SYSTEM_EXTENSION);
+    }
+
+    private static byte[] serializeTypeSystem(CAS aCas) throws IOException
+    {
+        try (var bos = new ByteArrayOutputStream()) {
+            CasIOUtils.writeTypeSystem(aCas, bos, true);
+            return bos.toByteArray();
+        }
+    }
+
+    private static String hash(byte[] aData)
+    {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(aData));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.annotation.storage.metrics;
+
+import static org.springframework.jmx.support.MetricType.COUNTER;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.jmx.export.annotation.ManagedMetric;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource
+public class CasStorageMetricsImpl
+    implements CasStorageMetrics
+{
+    private final AtomicLong verificationCount = new AtomicLong();
+    private final AtomicLong verificationFailureCount = new AtomicLong();
+    private final AtomicLong verificationDuration = new AtomicLong();
+
+    @Override
+    public void verificationSucceeded(long aDurationMs)
+    {
+        verificationCount.incrementAndGet();
+        verificationDuration.addAndGet(aDurationMs);
+    }
+
+    @Override
+    public void verificationFailed(long aDurationMs)
+    {
+        verificationCount.incrementAndGet();
+        verificationFailureCount.incrementAndGet();
+        verificationDuration.addAndGet(aDurationMs);
+    }
+
+    @ManagedMetric(metricType = COUNTER)
+    public long getVerificationCount()
+    {
+        return verificationCount.get();
+    }
+
+    @ManagedMetric(metricType = COUNTER)
+    public long getVerificationFailureCount()
+    {
+        return verificationFailureCount.get();
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ms")
+    public long getVerificationDuration()
+    {
+        return verificationDuration.get();
+    }
+
+    @ManagedOperation
+    public void reset()
+    {
+        verificationCount.set(0);
+        verificationFailureCount.set(0);
+        verificationDuration.set(0);
+    }
+}
@@ -19,13 +19,18 @@ package de.tudarmstadt.ukp.inception.annotation.storage.driver.filesystem;
 
 import static org.apache.uima.fit.factory.TypeSystemDescriptionFactory.createTypeSystemDescription;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
 import java.nio.file.Path;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.impl.CASImpl;
 import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.jcas.tcas.Annotation;
 import org.apache.uima.jcas.tcas.DocumentAnnotation;
 import org.apache.uima.resource.metadata.TypeSystemDescription;
 import org.apache.uima.util.CasCreationUtils;
@@ -116,4 +121,162 @@ public class CasPersistenceUtilsTest
         assertThat(actualCas.getDocumentText()).isEqualTo(originalCas.getDocumentText());
         assertThat(actualCas.getDocumentLanguage()).isEqualTo(originalCas.getDocumentLanguage());
     }
+
+    @Test
+    void thatBinaryCasCanBeSavedAndLoaded(@TempDir Path aTempDir) throws Exception
+    {
+        File target = aTempDir.resolve("out.ser").toFile();
+        File tsFolder = aTempDir.resolve("typesystems").toFile();
+        var typeSystemStore = new TypeSystemStore();
+
+        CAS originalCas = WebAnnoCasUtil.createCas(createTypeSystemDescription());
+        originalCas.setDocumentText("This is a test.");
+        originalCas.setDocumentLanguage("en");
+        CasPersistenceUtils.writeBinaryCas(originalCas, target, typeSystemStore, tsFolder);
+
+        assertThat(CasPersistenceUtils.isBinaryCasFile(target)).isTrue();
+
+        CAS actualCas = WebAnnoCasUtil.createCas();
+        CasPersistenceUtils.readSerializedCas(actualCas, target, new TypeSystemStore(), tsFolder);
+
+        assertThat(actualCas.getDocumentText()).isEqualTo(originalCas.getDocumentText());
+        assertThat(actualCas.getDocumentLanguage()).isEqualTo(originalCas.getDocumentLanguage());
+    }
+
+    @Test
+    void thatBinaryCasesShareTypeSystem(@TempDir Path aTempDir) throws Exception
+    {
+        File tsFolder = aTempDir.resolve("typesystems").toFile();
+        var typeSystemStore = new TypeSystemStore();
+
+        for (int i = 0; i < 3; i++) {
+            CAS cas = WebAnnoCasUtil.createCas(createTypeSystemDescription());
+            cas.setDocumentText("Document " + i);
+            CasPersistenceUtils.writeBinaryCas(cas, aTempDir.resolve(i + ".ser").toFile(),
+                    typeSystemStore, tsFolder);
+        }
+
+        assertThat(tsFolder.listFiles()).hasSize(1);
+    }
+
+    @Test
+    void thatTypeSystemHashCanBeReadWithoutLoadingCas(@TempDir Path aTempDir) throws Exception
+    {
+        File binary = aTempDir.resolve("binary.ser").toFile();
+        File serialized = aTempDir.resolve("serialized.ser").toFile();
+        File tsFolder = aTempDir.resolve("typesystems").toFile();
+
+        CAS cas = WebAnnoCasUtil.createCas(createTypeSystemDescription());
+        cas.setDocumentText("This is a test.");
+        var hash = new TypeSystemStore().store(cas, tsFolder);
+        CasPersistenceUtils.writeBinaryCas(cas, binary, new TypeSystemStore(), tsFolder);
+        CasPersistenceUtils.writeSerializedCasCompressed(cas, serialized);
+
+        assertThat(CasPersistenceUtils.readBinaryCasTypeSystemHash(binary)).contains(hash);
+        assertThat(CasPersistenceUtils.readBinaryCasTypeSystemHash(serialized)).isEmpty();
+    }
+
+    @Test
+    void thatChecksumIsVerifiedWithoutLoadingCas(@TempDir Path aTempDir) throws Exception
+    {
+        File target = aTempDir.resolve("out.ser").toFile();
+        File tsFolder = aTempDir.resolve("typesystems").toFile();
+
+        CAS cas = WebAnnoCasUtil.createCas(createTypeSystemDescription());
+        cas.setDocumentText("This is a test.");
+        var checksum = CasPersistenceUtils.writeBinaryCas(cas, target, new TypeSystemStore(),
+                tsFolder);
+
+        assertThat(checksum.size()).isEqualTo(target.length());
+
+        // Loading the CAS would require its type system, checking the file does not
+        FileUtils.deleteDirectory(tsFolder);
+        CasPersistenceUtils.verifyChecksum(target, checksum);
+    }
+
+    @Test
+    void thatChecksumDetectsModifiedFile(@TempDir Path aTempDir) throws Exception
+    {
+        File target = aTempDir.resolve("out.ser").toFile();
+
+        CAS cas = WebAnnoCasUtil.createCas(createTypeSystemDescription());
+        cas.setDocumentText("This is a test.");
+        var checksum = CasPersistenceUtils.writeSerializedCasCompressed(cas, target);
+        CasPersistenceUtils.verifyChecksum(target, checksum);
+
+        try (var raf = new RandomAccessFile(target, "rw")) {
+            raf.seek(target.length() / 2);
+            var b = raf.read();
+            raf.seek(target.length() / 2);
+            raf.write(b ^ 0xff);
+        }
+
+        assertThatExceptionOfType(CasVerificationException.class)
+                .isThrownBy(() -> CasPersistenceUtils.verifyChecksum(target, checksum));
+
+        try (var raf = new RandomAccessFile(target, "rw")) {
+            raf.setLength(target.length() - 1);
+        }
+
+        assertThatExceptionOfType(CasVerificationException.class)
+                .isThrownBy(() -> CasPersistenceUtils.verifyChecksum(target, checksum));
+    }
+
+    @Test
+    void thatSerializedCasCanBeReadWithTypeSystemStore(@TempDir Path aTempDir) throws Exception
+    {
+        File target = aTempDir.resolve("out.ser").toFile();
+
+        CAS originalCas = WebAnnoCasUtil.createCas(createTypeSystemDescription());
+        originalCas.setDocumentText("This is a test.");
+        CasPersistenceUtils.writeSerializedCasCompressed(originalCas, target);
+
+        assertThat(CasPersistenceUtils.isBinaryCasFile(target)).isFalse();
+
+        CAS actualCas = WebAnnoCasUtil.createCas();
+        CasPersistenceUtils.readSerializedCas(actualCas, target, new TypeSystemStore(),
+                aTempDir.resolve("typesystems").toFile());
+
+        assertThat(actualCas.getDocumentText()).isEqualTo(originalCas.getDocumentText());
+    }
+
+    @Test
+    void thatDeltaJournalCanBeReplayed(@TempDir Path aTempDir) throws Exception
+    {
+        File target = aTempDir.resolve("out.ser").toFile();
+        File journal = aTempDir.resolve("out.ser.journal").toFile();
+
+        CAS originalCas = WebAnnoCasUtil.createCas(createTypeSystemDescription());
+        originalCas.setDocumentText("This is a test.");
+        originalCas.setDocumentLanguage("en");
+        CasPersistenceUtils.writeSerializedCasCompressed(originalCas, target);
+
+        var marker = originalCas.createMarker();
+        originalCas.addFsToIndexes(
+                originalCas.createAnnotation(originalCas.getAnnotationType(), 0, 4));
+        try (var os = new FileOutputStream(journal, true)) {
+            CasPersistenceUtils.writeDelta(originalCas, os, marker);
+        }
+
+        var offset = journal.length();
+        marker = originalCas.createMarker();
+        originalCas.addFsToIndexes(
+                originalCas.createAnnotation(originalCas.getAnnotationType(), 5, 7));
+        CasPersistenceUtils.FileChecksum checksum;
+        try (var os = new FileOutputStream(journal, true)) {
+            checksum = CasPersistenceUtils.writeDelta(originalCas, os, marker);
+        }
+
+        // Only the segment which was appended last needs to be checked
+        CasPersistenceUtils.verifyChecksum(journal, offset, checksum);
+
+        CAS actualCas = WebAnnoCasUtil.createCas(createTypeSystemDescription());
+        CasPersistenceUtils.readSerializedCas(actualCas, target);
+        var deltas = CasPersistenceUtils.replayJournal(actualCas, journal);
+
+        assertThat(deltas).isEqualTo(2);
+        assertThat(actualCas.select(Annotation.class).map(a -> a.getCoveredText()).asList())
+                .containsExactlyElementsOf(originalCas.select(Annotation.class)
+                        .map(a -> a.getCoveredText()).asList());
+    }
 }
@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.annotation.storage.driver.filesystem;
+
+import static de.tudarmstadt.ukp.inception.annotation.storage.CasMetadataUtils.addOrUpdateCasMetadata;
+import static de.tudarmstadt.ukp.inception.annotation.storage.CasMetadataUtils.getInternalTypeSystem;
+import static de.tudarmstadt.ukp.inception.annotation.storage.config.CasVerificationMode.READ_BACK;
+import static java.util.Arrays.asList;
+import static org.apache.uima.fit.factory.TypeSystemDescriptionFactory.createTypeSystemDescription;
+import static org.apache.uima.util.CasCreationUtils.mergeTypeSystems;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.util.List;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.impl.CASImpl;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.resource.metadata.impl.TypeSystemDescription_impl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageBackupProperties;
+import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStoragePropertiesImpl;
+import de.tudarmstadt.ukp.inception.annotation.storage.metrics.CasStorageMetricsImpl;
+import de.tudarmstadt.ukp.inception.documents.api.RepositoryPropertiesImpl;
+import de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil;
+
+public class FileSystemCasStorageDriverTest
+{
+    private static final String USER = "annotator";
+    private static final String SPAN_TYPE = "test.Span";
+    private static final String VALUE_FEATURE = "value";
+
+    {
+        System.setProperty(CASImpl.ALWAYS_HOLD_ONTO_FSS, "true");
+    }
+
+    private @TempDir File repositoryFolder;
+
+    private CasStoragePropertiesImpl properties;
+    private CasStorageMetricsImpl metrics;
+    private SourceDocument document;
+    private FileSystemCasStorageDriver sut;
+
+    @BeforeEach
+    void setup()
+    {
+        properties = new CasStoragePropertiesImpl();
+        properties.setDeltaCasSerialization(true);
+        metrics = new CasStorageMetricsImpl();
+
+        var project = new Project();
+        project.setId(1l);
+        project.setName("project");
+
+        document = new SourceDocument();
+        document.setProject(project);
+        document.setId(1l);
+        document.setName("document");
+
+        var repositoryProperties = new RepositoryPropertiesImpl();
+        repositoryProperties.setPath(repositoryFolder);
+
+        sut = new FileSystemCasStorageDriver(repositoryProperties,
+                new CasStorageBackupProperties(), properties, metrics);
+    }
+
+    @Test
+    void thatDeletionsAndFeatureEditsAreReplayed() throws Exception
+    {
+        var cas = createCas("This is a test .");
+        addSpan(cas, 0, 4, "a");
+        addSpan(cas, 5, 7, "b");
+        addSpan(cas, 8, 9, "c");
+        sut.writeCas(document, USER, cas);
+
+        cas = sut.readCas(document, USER);
+        cas.removeFsFromIndexes(spanAt(cas, 5));
+        setValue(spanAt(cas, 0), "changed");
+        addSpan(cas, 10, 14, "d");
+        sut.writeCas(document, USER, cas);
+
+        assertThat(journalFile()).exists();
+        assertThat(spans(sut.readCas(document, USER))) //
+                .containsExactly("0-4=changed", "8-9=c", "10-14=d");
+        assertThat(CasPersistenceUtils.fingerprint(sut.readCas(document, USER)))
+                .isEqualTo(CasPersistenceUtils.fingerprint(cas));
+    }
+
+    @Test
+    void thatDeltasAreReplayedOnBaseWithIdGaps() throws Exception
+    {
+        var cas = createCas("This is a test .");
+        for (int i = 0; i < 10; i++) {
+            // Feature structures which are never indexed are not part of the base file, so the
+            // IDs in the CAS and the addresses in the base file diverge
+            cas.createAnnotation(cas.getTypeSystem().getType(SPAN_TYPE), 0, 1);
+            addSpan(cas, i, i + 1, "v" + i);
+        }
+        for (int i = 0; i < 10; i += 2) {
+            cas.removeFsFromIndexes(spanAt(cas, i));
+        }
+        sut.writeCas(document, USER, cas);
+        assertThat(journalFile()).doesNotExist();
+
+        // Delta written from the CAS which wrote the base file
+        setValue(spanAt(cas, 1), "first");
+        sut.writeCas(document, USER, cas);
+        assertThat(journalFile()).exists();
+
+        // Deltas written from a CAS that has been reloaded from the base file and the journal
+        var reloaded = sut.readCas(document, USER);
+        setValue(spanAt(reloaded, 3), "second");
+        reloaded.removeFsFromIndexes(spanAt(reloaded, 5));
+        sut.writeCas(document, USER, reloaded);
+
+        addSpan(reloaded, 12, 14, "third");
+        sut.writeCas(document, USER, reloaded);
+
+        assertThat(spans(sut.readCas(document, USER))) //
+                .containsExactly("1-2=first", "3-4=second", "7-8=v7", "9-10=v9", "12-14=third");
+    }
+
+    @Test
+    void thatBinaryBaseIsAlwaysWrittenInFull() throws Exception
+    {
+        properties.setBinaryCasSerialization(true);
+
+        var cas = createCas("This is a test .");
+        addSpan(cas, 0, 4, "a");
+        sut.writeCas(document, USER, cas);
+
+        cas = sut.readCas(document, USER);
+        setValue(spanAt(cas, 0), "changed");
+        addSpan(cas, 5, 7, "b");
+        sut.writeCas(document, USER, cas);
+
+        assertThat(journalFile()).doesNotExist();
+        assertThat(spans(sut.readCas(document, USER))) //
+                .containsExactly("0-4=changed", "5-7=b");
+    }
+
+    @Test
+    void thatDeltasAreVerifiedInParanoidMode() throws Exception
+    {
+        properties.setParanoidCasSerialization(true);
+
+        var cas = createCas("This is a test .");
+        addSpan(cas, 0, 4, "a");
+        sut.writeCas(document, USER, cas);
+        var verificationsOfFullWrite = metrics.getVerificationCount();
+
+        cas = sut.readCas(document, USER);
+        cas.removeFsFromIndexes(spanAt(cas, 0));
+        addSpan(cas, 5, 7, "b");
+        sut.writeCas(document, USER, cas);
+
+        assertThat(journalFile()).exists();
+        assertThat(metrics.getVerificationCount()).isEqualTo(verificationsOfFullWrite + 1);
+        assertThat(metrics.getVerificationFailureCount()).isZero();
+        assertThat(spans(sut.readCas(document, USER))).containsExactly("5-7=b");
+    }
+
+    @Test
+    void thatWrittenCasIsReadBackBeforeWriteCompletes() throws Exception
+    {
+        properties.setDeltaCasSerialization(false);
+        properties.setParanoidCasSerialization(true);
+        properties.setParanoidCasVerification(READ_BACK);
+
+        var cas = createCas("This is a test .");
+        addSpan(cas, 0, 4, "a");
+        sut.writeCas(document, USER, cas);
+        addSpan(cas, 5, 7, "b");
+        sut.writeCas(document, USER, cas);
+
+        assertThat(metrics.getVerificationCount()).isEqualTo(2);
+        assertThat(metrics.getVerificationFailureCount()).isZero();
+        assertThat(new File(sut.getCasFile(document, USER).getPath()
+                + FileSystemCasStorageDriver.OLD_EXTENSION)).doesNotExist();
+        assertThat(spans(sut.readCas(document, USER))).containsExactly("0-4=a", "5-7=b");
+    }
+
+    @Test
+    void thatJournalIsCompacted() throws Exception
+    {
+        properties.setDeltaCasCompactionThreshold(2);
+
+        var cas = createCas("This is a test .");
+        sut.writeCas(document, USER, cas);
+
+        addSpan(cas, 0, 4, "a");
+        sut.writeCas(document, USER, cas);
+        addSpan(cas, 5, 7, "b");
+        sut.writeCas(document, USER, cas);
+        assertThat(journalFile()).exists();
+
+        addSpan(cas, 8, 9, "c");
+        sut.writeCas(document, USER, cas);
+        assertThat(journalFile()).doesNotExist();
+
+        assertThat(spans(sut.readCas(document, USER))) //
+                .containsExactly("0-4=a", "5-7=b", "8-9=c");
+    }
+
+    private File journalFile() throws Exception
+    {
+        return new File(sut.getCasFile(document, USER).getPath()
+                + FileSystemCasStorageDriver.JOURNAL_EXTENSION);
+    }
+
+    private CAS createCas(String aText) throws Exception
+    {
+        var tsd = new TypeSystemDescription_impl();
+        var type = tsd.addType(SPAN_TYPE, "", CAS.TYPE_NAME_ANNOTATION);
+        type.addFeature(VALUE_FEATURE, "", CAS.TYPE_NAME_STRING);
+
+        var cas = WebAnnoCasUtil.createCas(mergeTypeSystems(
+                asList(createTypeSystemDescription(), getInternalTypeSystem(), tsd)));
+        cas.setDocumentText(aText);
+        addOrUpdateCasMetadata(cas, 0, document, USER);
+        return cas;
+    }
+
+    private static AnnotationFS addSpan(CAS aCas, int aBegin, int aEnd, String aValue)
+    {
+        var span = aCas.createAnnotation(aCas.getTypeSystem().getType(SPAN_TYPE), aBegin, aEnd);
+        setValue(span, aValue);
+        aCas.addFsToIndexes(span);
+        return span;
+    }
+
+    private static void setValue(AnnotationFS aSpan, String aValue)
+    {
+        aSpan.setFeatureValueFromString(aSpan.getType().getFeatureByBaseName(VALUE_FEATURE),
+                aValue);
+    }
+
+    private static AnnotationFS spanAt(CAS aCas, int aBegin)
+    {
+        return aCas.<AnnotationFS> select(SPAN_TYPE).asList().stream() //
+                .filter(span -> span.getBegin() == aBegin) //
+                .findFirst() //
+                .get();
+    }
+
+    private static List<String> spans(CAS aCas)
+    {
+        return aCas.<AnnotationFS> select(SPAN_TYPE).asList().stream() //
+                .map(span -> span.getBegin() + "-" + span.getEnd() + "="
+                        + span.getFeatureValueAsString(
+                                span.getType().getFeatureByBaseName(VALUE_FEATURE)))
+                .toList();
+    }
+}
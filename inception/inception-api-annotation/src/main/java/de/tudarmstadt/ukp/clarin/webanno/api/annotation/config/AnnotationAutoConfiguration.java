@@ -35,6 +35,8 @@ import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.FocusMarkerRen
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.LabelRenderer;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.PreRenderer;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.PreRendererImpl;
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.PreRendererProperties;
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.PreRendererPropertiesImpl;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.RenderNotificationRenderStep;
 import de.tudarmstadt.ukp.clarin.webanno.security.UserDao;
 import de.tudarmstadt.ukp.inception.annotation.layer.relation.RelationEndpointFeatureSupport;
@@ -50,7 +52,8 @@ import de.tudarmstadt.ukp.inception.schema.api.config.AnnotationSchemaProperties
 import de.tudarmstadt.ukp.inception.schema.api.layer.LayerSupportRegistry;
 
 @Configuration
-@EnableConfigurationProperties(AnnotationEditorDefaultPreferencesPropertiesImpl.class)
+@EnableConfigurationProperties({ AnnotationEditorDefaultPreferencesPropertiesImpl.class,
+        PreRendererPropertiesImpl.class })
 public class AnnotationAutoConfiguration
 {
     @Bean
@@ -61,9 +64,9 @@ public class AnnotationAutoConfiguration
 
     @Bean
     public PreRenderer preRenderer(LayerSupportRegistry aLayerSupportRegistry,
-            AnnotationSchemaService aAnnotationService)
+            AnnotationSchemaService aAnnotationService, PreRendererProperties aProperties)
     {
-        return new PreRendererImpl(aLayerSupportRegistry, aAnnotationService);
+        return new PreRendererImpl(aLayerSupportRegistry, aAnnotationService, aProperties);
     }
 
     @Bean
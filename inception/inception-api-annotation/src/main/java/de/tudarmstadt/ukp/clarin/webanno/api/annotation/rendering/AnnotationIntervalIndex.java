@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering;
+
+import static de.tudarmstadt.ukp.inception.support.uima.ICasUtil.getAddr;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.jcas.tcas.Annotation;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import de.tudarmstadt.ukp.inception.support.text.IntervalTree;
+import de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil;
+
+/**
+ * Interval index over the annotations of a type in a CAS which allows finding all annotations
+ * overlapping a given window in {@code O(log n + k)}. The intervals are kept in an
+ * {@link IntervalTree}.
+ * <p>
+ * Indexes are built lazily on first use and cached per CAS. The cache only refers to the CAS
+ * weakly and the indexes only record the addresses of the annotations, so the cache does not keep
+ * any CAS alive. A cached index is rebuilt if the number of annotations of any of the types it
+ * watches has changed or if the CAS has been {@link #invalidate invalidated} since the index was
+ * built. Changes that do not add or remove annotations (e.g. moving a span or changing the
+ * endpoint of a relation) are only noticed through invalidation. The {@link PreRendererImpl}
+ * invalidates the indexes of a CAS when an annotation event is published for it and when it is
+ * written.
+ */
+public class AnnotationIntervalIndex
+{
+    private static final String OFFSETS = "offsets";
+
+    private static final Cache<CAS, Map<Key, AnnotationIntervalIndex>> INDEXES = Caffeine
+            .newBuilder() //
+            .weakKeys() //
+            .build();
+
+    private final String[] watchedTypes;
+    private final int[] watchedSizes;
+    private final int[] addresses;
+    private final IntervalTree tree;
+
+    /**
+     * Selects the annotations of the given type overlapping the given window. The annotations are
+     * returned in the order of the annotation index.
+     * 
+     * @param aCas
+     *            the CAS.
+     * @param aType
+     *            the annotation type.
+     * @param aBegin
+     *            the window begin.
+     * @param aEnd
+     *            the window end.
+     * @return the overlapping annotations.
+     */
+    public static List<Annotation> selectOverlapping(CAS aCas, Type aType, int aBegin, int aEnd)
+    {
+        return get(aCas, aType, OFFSETS, ann -> new Interval(ann.getBegin(), ann.getEnd()), aType)
+                .selectOverlapping(aCas, aBegin, aEnd);
+    }
+
+    /**
+     * Obtains a cached index over the annotations of the given type using custom intervals, e.g.
+     * the range spanned by the endpoints of a relation. The index is built if it has not been
+     * built yet or if the CAS has changed since.
+     * 
+     * @param aCas
+     *            the CAS.
+     * @param aType
+     *            the annotation type.
+     * @param aVariant
+     *            identifies the interval function. Indexes for the same type with different
+     *            interval functions must use different variants.
+     * @param aIntervalFunction
+     *            function returning the interval of an annotation or {@code null} if the
+     *            annotation should not be indexed.
+     * @param aWatchedTypes
+     *            the types whose annotations affect the intervals. If annotations of any of them
+     *            are added or removed, the index is rebuilt.
+     * @return the index.
+     */
+    public static AnnotationIntervalIndex get(CAS aCas, Type aType, String aVariant,
+            Function<Annotation, Interval> aIntervalFunction, Type... aWatchedTypes)
+    {
+        var cas = WebAnnoCasUtil.getRealCas(aCas);
+        var indexes = INDEXES.get(cas, $ -> new ConcurrentHashMap<>());
+        var key = new Key(aType.getName(), aVariant);
+
+        var index = indexes.get(key);
+        if (index == null || !index.isUpToDate(cas)) {
+            index = new AnnotationIntervalIndex(cas, aType, aIntervalFunction, aWatchedTypes);
+            indexes.put(key, index);
+        }
+
+        return index;
+    }
+
+    /**
+     * Builds an index over the annotations of the given type using custom intervals without
+     * caching it.
+     * 
+     * @param aCas
+     *            the CAS.
+     * @param aType
+     *            the annotation type.
+     * @param aIntervalFunction
+     *            function returning the interval of an annotation or {@code null} if the
+     *            annotation should not be indexed.
+     * @return the index.
+     */
+    public static AnnotationIntervalIndex build(CAS aCas, Type aType,
+            Function<Annotation, Interval> aIntervalFunction)
+    {
+        return new AnnotationIntervalIndex(aCas, aType, aIntervalFunction);
+    }
+
+    /**
+     * Drops the cached indexes of the given CAS. This must be called when annotations in the CAS
+     * have been changed in a way that does not add or remove annotations.
+     * 
+     * @param aCas
+     *            the CAS.
+     */
+    public static void invalidate(CAS aCas)
+    {
+        INDEXES.invalidate(WebAnnoCasUtil.getRealCas(aCas));
+    }
+
+    private AnnotationIntervalIndex(CAS aCas, Type aType,
+            Function<Annotation, Interval> aIntervalFunction, Type... aWatchedTypes)
+    {
+        // Record the sizes before reading the annotations so that a concurrent modification cannot
+        // go unnoticed
+        watchedTypes = new String[aWatchedTypes.length];
+        watchedSizes = new int[aWatchedTypes.length];
+        for (int i = 0; i < aWatchedTypes.length; i++) {
+            watchedTypes[i] = aWatchedTypes[i].getName();
+            watchedSizes[i] = aCas.getAnnotationIndex(aWatchedTypes[i]).size();
+        }
+
+        var max = aCas.getAnnotationIndex(aType).size();
+        var selected = new int[max];
+        var begins = new int[max];
+        var ends = new int[max];
+        var n = 0;
+        for (var ann : aCas.<Annotation> select(aType)) {
+            var interval = aIntervalFunction.apply(ann);
+            if (interval != null) {
+                selected[n] = getAddr(ann);
+                begins[n] = interval.begin();
+                ends[n] = interval.end();
+                n++;
+            }
+        }
+
+        addresses = Arrays.copyOf(selected, n);
+        tree = new IntervalTree(Arrays.copyOf(begins, n), Arrays.copyOf(ends, n));
+    }
+
+    private boolean isUpToDate(CAS aCas)
+    {
+        var ts = aCas.getTypeSystem();
+        for (int i = 0; i < watchedTypes.length; i++) {
+            var type = ts.getType(watchedTypes[i]);
+            if (type == null || aCas.getAnnotationIndex(type).size() != watchedSizes[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @param aCas
+     *            the CAS the index was built from.
+     * @param aBegin
+     *            the window begin.
+     * @param aEnd
+     *            the window end.
+     * @return the annotations whose interval overlaps the given window in annotation index order.
+     */
+    public List<Annotation> selectOverlapping(CAS aCas, int aBegin, int aEnd)
+    {
+        var lowLevelCas = aCas.getLowLevelCAS();
+        var hits = tree.selectOverlapping(aBegin, aEnd);
+        var result = new ArrayList<Annotation>(hits.length);
+        for (var position : hits) {
+            result.add(lowLevelCas.ll_getFSForRef(addresses[position]));
+        }
+        return result;
+    }
+
+    public int size()
+    {
+        return addresses.length;
+    }
+
+    public record Interval(int begin, int end)
+    {}
+
+    private record Key(String type, String variant)
+    {}
+}
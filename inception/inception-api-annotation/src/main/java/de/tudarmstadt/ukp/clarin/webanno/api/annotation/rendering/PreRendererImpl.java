@@ -17,17 +17,23 @@
  */
 package de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering;
 
+import static de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil.getRealCas;
 import static java.lang.System.currentTimeMillis;
 import static java.util.concurrent.TimeUnit.MINUTES;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 
 import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.apache.commons.lang3.Validate;
+import org.apache.uima.cas.FeatureStructure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
 import org.springframework.core.annotation.Order;
@@ -37,7 +43,14 @@ import com.github.benmanes.caffeine.cache.LoadingCache;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.config.AnnotationAutoConfiguration;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.inception.annotation.events.AnnotationEvent;
+import de.tudarmstadt.ukp.inception.annotation.events.FeatureValueUpdatedEvent;
+import de.tudarmstadt.ukp.inception.annotation.layer.chain.ChainEvent;
+import de.tudarmstadt.ukp.inception.annotation.layer.relation.RelationEvent;
+import de.tudarmstadt.ukp.inception.annotation.layer.span.SpanEvent;
+import de.tudarmstadt.ukp.inception.documents.event.AfterCasWrittenEvent;
 import de.tudarmstadt.ukp.inception.rendering.pipeline.RenderStep;
 import de.tudarmstadt.ukp.inception.rendering.request.RenderRequest;
 import de.tudarmstadt.ukp.inception.rendering.vmodel.VDocument;
@@ -50,10 +63,16 @@ import de.tudarmstadt.ukp.inception.schema.api.layer.LayerSupportRegistry;
  * <p>
  * This class is exposed as a Spring Component via {@link AnnotationAutoConfiguration#preRenderer}.
  * </p>
+ * <p>
+ * If parallel rendering is enabled, each visible layer is rendered into a separate
+ * {@link VDocument} fragment on a shared fork-join pool. The fragments are merged into the response
+ * in the order of the visible layers, so the result is the same as when rendering sequentially.
+ * See {@link LayerSupport#createRenderer} for the thread-safety contract renderers need to follow.
+ * </p>
  */
 @Order(RenderStep.RENDER_STRUCTURE)
 public class PreRendererImpl
-    implements PreRenderer
+    implements PreRenderer, DisposableBean
 {
     public static final String ID = "PreRenderer";
 
@@ -65,13 +84,31 @@ public class PreRendererImpl
     private LoadingCache<Project, List<AnnotationFeature>> supportedFeaturesCache;
     private LoadingCache<Project, List<AnnotationFeature>> allFeaturesCache;
 
-    @Autowired
+    private final int minParallelLayers;
+    private final ForkJoinPool renderPool;
+
     public PreRendererImpl(LayerSupportRegistry aLayerSupportRegistry,
             AnnotationSchemaService aAnnotationService)
+    {
+        this(aLayerSupportRegistry, aAnnotationService, null);
+    }
+
+    @Autowired
+    public PreRendererImpl(LayerSupportRegistry aLayerSupportRegistry,
+            AnnotationSchemaService aAnnotationService, PreRendererProperties aProperties)
     {
         layerSupportRegistry = aLayerSupportRegistry;
         annotationService = aAnnotationService;
 
+        if (aProperties != null && aProperties.isParallel()) {
+            minParallelLayers = Math.max(2, aProperties.getMinParallelLayers());
+            renderPool = new ForkJoinPool(Math.max(1, aProperties.getParallelism()));
+        }
+        else {
+            minParallelLayers = Integer.MAX_VALUE;
+            renderPool = null;
+        }
+
         supportedFeaturesCache = Caffeine.newBuilder() //
                 .expireAfterAccess(5, MINUTES) //
                 .maximumSize(10 * 1024) //
@@ -82,6 +119,14 @@ public class PreRendererImpl
                 .build(annotationService::listAnnotationFeature);
     }
 
+    @Override
+    public void destroy()
+    {
+        if (renderPool != null) {
+            renderPool.shutdownNow();
+        }
+    }
+
     @Override
     public String getId()
     {
@@ -116,19 +161,13 @@ public class PreRendererImpl
         var allFeatures = allFeaturesCache.get(project);
 
         // Render (custom) layers
-        for (var layer : aRequest.getVisibleLayers()) {
-            var layerSupportedFeatures = supportedFeatures.stream() //
-                    .filter(feature -> feature.getLayer().equals(layer)) //
-                    .toList();
-            var layerAllFeatures = allFeatures.stream() //
-                    .filter(feature -> feature.getLayer().equals(layer)) //
-                    .toList();
-            // We need to pass in *all* the annotation features here because we also to that in
-            // other places where we create renderers - and the set of features must always be
-            // the same because otherwise the IDs of armed slots would be inconsistent
-            LayerSupport<?, ?> layerSupport = layerSupportRegistry.getLayerSupport(layer);
-            var renderer = layerSupport.createRenderer(layer, () -> layerAllFeatures);
-            renderer.render(aRequest, layerSupportedFeatures, aResponse);
+        if (aRequest.getVisibleLayers().size() >= minParallelLayers) {
+            renderLayersInParallel(aRequest, supportedFeatures, allFeatures, aResponse);
+        }
+        else {
+            for (var layer : aRequest.getVisibleLayers()) {
+                renderLayer(aRequest, layer, supportedFeatures, allFeatures, aResponse);
+            }
         }
 
         if (LOG.isTraceEnabled()) {
@@ -140,6 +179,83 @@ public class PreRendererImpl
         }
     }
 
+    private void renderLayersInParallel(RenderRequest aRequest,
+            List<AnnotationFeature> aSupportedFeatures, List<AnnotationFeature> aAllFeatures,
+            VDocument aResponse)
+    {
+        // The CAS proxy is bound to the current thread, so the workers need the real CAS
+        var request = aRequest.toBuilder() //
+                .withCas(getRealCas(aRequest.getCas())) //
+                .build();
+
+        var fragments = new ArrayList<ForkJoinTask<VDocument>>();
+        for (var layer : request.getVisibleLayers()) {
+            fragments.add(renderPool.submit(() -> {
+                var fragment = new VDocument();
+                fragment.setText(aResponse.getText());
+                fragment.setWindow(aResponse.getWindowBegin(), aResponse.getWindowEnd());
+                renderLayer(request, layer, aSupportedFeatures, aAllFeatures, fragment);
+                return fragment;
+            }));
+        }
+
+        // Merge in the order of the visible layers, independent of the order in which the
+        // fragments were completed
+        for (var fragment : fragments) {
+            aResponse.merge(fragment.join());
+        }
+    }
+
+    private void renderLayer(RenderRequest aRequest, AnnotationLayer aLayer,
+            List<AnnotationFeature> aSupportedFeatures, List<AnnotationFeature> aAllFeatures,
+            VDocument aResponse)
+    {
+        var layerSupportedFeatures = aSupportedFeatures.stream() //
+                .filter(feature -> feature.getLayer().equals(aLayer)) //
+                .toList();
+        var layerAllFeatures = aAllFeatures.stream() //
+                .filter(feature -> feature.getLayer().equals(aLayer)) //
+                .toList();
+        // We need to pass in *all* the annotation features here because we also to that in
+        // other places where we create renderers - and the set of features must always be
+        // the same because otherwise the IDs of armed slots would be inconsistent
+        LayerSupport<?, ?> layerSupport = layerSupportRegistry.getLayerSupport(aLayer);
+        var renderer = layerSupport.createRenderer(aLayer, () -> layerAllFeatures);
+        renderer.render(aRequest, layerSupportedFeatures, aResponse);
+    }
+
+    @EventListener
+    public void onAnnotationEvent(AnnotationEvent aEvent)
+    {
+        // Moving annotations or changing relation endpoints does not change the number of
+        // annotations in the CAS, so the cached interval indexes have to be dropped explicitly
+        FeatureStructure fs = null;
+        if (aEvent instanceof SpanEvent event) {
+            fs = event.getAnnotation();
+        }
+        else if (aEvent instanceof RelationEvent event) {
+            fs = event.getAnnotation();
+        }
+        else if (aEvent instanceof ChainEvent event) {
+            fs = event.getAnnotation();
+        }
+        else if (aEvent instanceof FeatureValueUpdatedEvent event) {
+            fs = event.getFS();
+        }
+
+        if (fs != null) {
+            AnnotationIntervalIndex.invalidate(fs.getCAS());
+        }
+    }
+
+    @EventListener
+    public void onAfterCasWritten(AfterCasWrittenEvent aEvent)
+    {
+        // Covers changes for which no annotation event carrying the CAS is published, e.g. bulk
+        // operations
+        AnnotationIntervalIndex.invalidate(aEvent.getCas());
+    }
+
     @EventListener
     public void beforeLayerConfigurationChanged(LayerConfigurationChangedEvent aEvent)
     {
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering;
+
+import de.tudarmstadt.ukp.inception.schema.api.layer.LayerSupport;
+
+public interface PreRendererProperties
+{
+    /**
+     * Parallel rendering is disabled by default. The built-in span, relation and chain renderers
+     * follow the thread-safety contract described at {@link LayerSupport#createRenderer}, but they
+     * call into the feature supports and layer behaviors to render labels and errors. Renderers and
+     * feature supports provided by extensions may not follow the contract.
+     * 
+     * @return whether the visible layers are rendered in parallel.
+     */
+    boolean isParallel();
+
+    /**
+     * @return the number of threads used for parallel rendering.
+     */
+    int getParallelism();
+
+    /**
+     * @return the minimum number of visible layers for which parallel rendering is used. Rendering
+     *         only a few layers in parallel does not pay off.
+     */
+    int getMinParallelLayers();
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties("annotation.rendering")
+public class PreRendererPropertiesImpl
+    implements PreRendererProperties
+{
+    private boolean parallel = false;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int minParallelLayers = 4;
+
+    @Override
+    public boolean isParallel()
+    {
+        return parallel;
+    }
+
+    public void setParallel(boolean aParallel)
+    {
+        parallel = aParallel;
+    }
+
+    @Override
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    public void setParallelism(int aParallelism)
+    {
+        parallelism = aParallelism;
+    }
+
+    @Override
+    public int getMinParallelLayers()
+    {
+        return minParallelLayers;
+    }
+
+    public void setMinParallelLayers(int aMinParallelLayers)
+    {
+        minParallelLayers = aMinParallelLayers;
+    }
+}
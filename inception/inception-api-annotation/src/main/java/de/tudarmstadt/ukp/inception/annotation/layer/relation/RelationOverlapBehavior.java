@@ -24,10 +24,7 @@ import static org.apache.uima.fit.util.CasUtil.getType;
 import static org.apache.uima.fit.util.CasUtil.select;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -143,11 +140,9 @@ public class RelationOverlapBehavior
             // Nothing to check
             break;
         case NO_OVERLAP: {
-            Set<AnnotationFS> overlapping = new HashSet<>();
-            Set<AnnotationFS> stacking = new HashSet<>();
-
-            overlappingOrStackingRelations(sortedRelations, sourceFeature, targetFeature, stacking,
-                    overlapping);
+            var groups = new RelationOverlapGroups(sortedRelations, sourceFeature, targetFeature);
+            Set<AnnotationFS> overlapping = groups.getOverlapping();
+            Set<AnnotationFS> stacking = groups.getStacking();
 
             overlapping.forEach(fs -> aResponse
                     .add(new VComment(VID.of(fs), ERROR, "Overlap is not permitted.")));
@@ -158,20 +153,19 @@ public class RelationOverlapBehavior
         }
         case STACKING_ONLY: {
             // Here, we must find all overlapping relations because they are not permitted
-            overlappingNonStackingRelations(sortedRelations, sourceFeature, targetFeature)
-                    .forEach(fs -> aResponse
+            new RelationOverlapGroups(sortedRelations, sourceFeature, targetFeature)
+                    .getOverlapping().forEach(fs -> aResponse
                             .add(new VComment(VID.of(fs), ERROR, "Only stacking is permitted.")));
             break;
         }
         case OVERLAP_ONLY:
             // Here, we must find all stacked relations because they are not permitted.
-            // We go through all relations based on the their offsets. Stacked relations must have
-            // the same offsets (at least if we consider relations as having a direction, i.e.
-            // that a relation A->B does not count as stacked on a relation B->A). But since there
-            // can be multiple relations going out from the same sourceFS, we need to consider all
-            // of them for potential stacking.
-            stackingRelations(sortedRelations, sourceFeature, targetFeature).forEach(fs -> aResponse
-                    .add(new VComment(VID.of(fs), ERROR, "Stacking is not permitted.")));
+            // Stacked relations must have the same source and the same target (at least if we
+            // consider relations as having a direction, i.e. that a relation A->B does not count
+            // as stacked on a relation B->A).
+            new RelationOverlapGroups(sortedRelations, sourceFeature, targetFeature)
+                    .getStacking().forEach(fs -> aResponse
+                            .add(new VComment(VID.of(fs), ERROR, "Stacking is not permitted.")));
             break;
         }
     }
@@ -191,17 +185,13 @@ public class RelationOverlapBehavior
         case ANY_OVERLAP:
             return emptyList();
         case NO_OVERLAP: {
-            var overlapping = new HashSet<AnnotationFS>();
-            var stacking = new HashSet<AnnotationFS>();
+            var groups = RelationOverlapGroups.of(aCas, type, sourceFeature, targetFeature);
 
-            overlappingOrStackingRelations(select(aCas, type), sourceFeature, targetFeature,
-                    stacking, overlapping);
-
-            for (var fs : overlapping) {
+            for (var fs : groups.getOverlapping()) {
                 messages.add(Pair.of(LogMessage.error(this, "Overlapping relation at [%d-%d]",
                         fs.getBegin(), fs.getEnd()), fs));
             }
-            for (var fs : stacking) {
+            for (var fs : groups.getStacking()) {
                 messages.add(Pair.of(LogMessage.error(this, "Stacked relation at [%d-%d]",
                         fs.getBegin(), fs.getEnd()), fs));
             }
@@ -209,18 +199,16 @@ public class RelationOverlapBehavior
         }
         case STACKING_ONLY:
             // Here, we must find all overlapping relations because they are not permitted
-            overlappingNonStackingRelations(select(aCas, type), sourceFeature, targetFeature)
+            RelationOverlapGroups.of(aCas, type, sourceFeature, targetFeature).getOverlapping()
                     .forEach(fs -> messages.add(Pair.of(LogMessage.error(this,
                             "Overlapping relation at [%d-%d]", fs.getBegin(), fs.getEnd()), fs)));
             break;
         case OVERLAP_ONLY:
             // Here, we must find all stacked relations because they are not permitted.
-            // We go through all relations based on the their offsets. Stacked relations must have
-            // the same offsets (at least if we consider relations as having a direction, i.e.
-            // that a relation A->B does not count as stacked on a relation B->A). But since there
-            // can be multiple relations going out from the same sourceFS, we need to consider all
-            // of them for potential stacking.
-            stackingRelations(select(aCas, type), sourceFeature, targetFeature)
+            // Stacked relations must have the same source and the same target (at least if we
+            // consider relations as having a direction, i.e. that a relation A->B does not count
+            // as stacked on a relation B->A).
+            RelationOverlapGroups.of(aCas, type, sourceFeature, targetFeature).getStacking()
                     .forEach(fs -> messages.add(Pair.of(LogMessage.error(this,
                             "Stacked relation at [%d-%d]", fs.getBegin(), fs.getEnd()), fs)));
             break;
@@ -229,93 +217,6 @@ public class RelationOverlapBehavior
         return messages;
     }
 
-    private void overlappingOrStackingRelations(Collection<AnnotationFS> aRelations,
-            Feature sourceFeature, Feature targetFeature, Collection<AnnotationFS> aStacking,
-            Collection<AnnotationFS> aOverlapping)
-    {
-        for (var rel1 : aRelations) {
-            for (var rel2 : aRelations) {
-                if (rel1.equals(rel2)) {
-                    continue;
-                }
-
-                if (stacking(rel1, rel2, sourceFeature, targetFeature)) {
-                    aStacking.add(rel1);
-                    aStacking.add(rel2);
-                }
-                else if (overlapping(rel1, rel2, sourceFeature, targetFeature)) {
-                    aOverlapping.add(rel1);
-                    aOverlapping.add(rel2);
-                }
-            }
-        }
-    }
-
-    private Set<AnnotationFS> overlappingNonStackingRelations(Collection<AnnotationFS> aRelations,
-            Feature sourceFeature, Feature targetFeature)
-    {
-        var overlapping = new HashSet<AnnotationFS>();
-        for (var rel1 : aRelations) {
-            for (var rel2 : aRelations) {
-                if (rel1.equals(rel2)) {
-                    continue;
-                }
-
-                if (overlapping(rel1, rel2, sourceFeature, targetFeature)
-                        && !stacking(rel1, rel2, sourceFeature, targetFeature)) {
-                    overlapping.add(rel1);
-                    overlapping.add(rel2);
-                }
-            }
-        }
-        return overlapping;
-    }
-
-    private Set<AnnotationFS> stackingRelations(Collection<AnnotationFS> aRelations,
-            Feature sourceFeature, Feature targetFeature)
-    {
-        // Here, we must find all stacked relations because they are not permitted.
-        // We go through all relations based on the their offsets. Stacked relations must have
-        // the same offsets (at least if we consider relations as having a direction, i.e.
-        // that a relation A->B does not count as stacked on a relation B->A). But since there
-        // can be multiple relations going out from the same sourceFS, we need to consider all
-        // of them for potential stacking.
-        var stacking = new HashSet<AnnotationFS>();
-        var candidates = new ArrayList<AnnotationFS>();
-        for (var fs : aRelations) {
-            var sourceFs = (AnnotationFS) fs.getFeatureValue(sourceFeature);
-            var targetFs = (AnnotationFS) fs.getFeatureValue(targetFeature);
-
-            // If there are no stacking candidates at the current position yet, collect the
-            // first
-            if (candidates.isEmpty()) {
-                candidates.add(fs);
-            }
-            // If the current FS is at a different position from the current candidates, clear
-            // the candidates list and add the current one as the first new candidate
-            else if (candidates.get(0).getBegin() != fs.getBegin()
-                    || candidates.get(0).getEnd() != fs.getEnd()) {
-                candidates.clear();
-                candidates.add(fs);
-            }
-            // If there are already stacking candidates, check if the current FS is stacking on
-            // any of them. If yes, generate an error message
-            else {
-                for (var cand : candidates) {
-                    var candidateOriginFS = cand.getFeatureValue(sourceFeature);
-                    var candidateTargetFS = cand.getFeatureValue(targetFeature);
-
-                    if (stacking(candidateOriginFS, candidateTargetFS, sourceFs, targetFs)) {
-                        stacking.add(fs);
-                        stacking.add(cand);
-                    }
-                }
-            }
-        }
-
-        return stacking;
-    }
-
     public static boolean stacking(FeatureStructure aRel1Src, FeatureStructure aRel1Tgt,
             FeatureStructure aRel2Src, FeatureStructure aRel2Tgt)
     {
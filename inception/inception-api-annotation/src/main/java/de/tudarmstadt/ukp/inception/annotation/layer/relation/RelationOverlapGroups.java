@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.annotation.layer.relation;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.FeatureStructure;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+
+import de.tudarmstadt.ukp.inception.support.uima.ICasUtil;
+
+/**
+ * Finds the stacked and overlapping relations of a type. Instead of comparing every pair of
+ * relations, the relations are grouped by their end-points and by their pairs of end-points, so the
+ * check takes {@code O(n)}. Relations sharing an end-point overlap unless they have the same pair
+ * of end-points, in which case they stack. Every check goes over all relations again. The result
+ * must not be kept beyond the check because it refers to the relations.
+ */
+final class RelationOverlapGroups
+{
+    private static final int NONE = -1;
+
+    private final AnnotationFS[] relations;
+    private final int[] sources;
+    private final int[] targets;
+    private final Set<AnnotationFS> stacking = new HashSet<>();
+    private final Set<AnnotationFS> overlapping = new HashSet<>();
+
+    /**
+     * @param aCas
+     *            the CAS.
+     * @param aType
+     *            the relation type.
+     * @param aSourceFeature
+     *            the source feature.
+     * @param aTargetFeature
+     *            the target feature.
+     * @return the grouped relations.
+     */
+    static RelationOverlapGroups of(CAS aCas, Type aType, Feature aSourceFeature,
+            Feature aTargetFeature)
+    {
+        return new RelationOverlapGroups(aCas.<AnnotationFS> select(aType).asList(),
+                aSourceFeature, aTargetFeature);
+    }
+
+    /**
+     * @param aRelations
+     *            the relations.
+     * @param aSourceFeature
+     *            the source feature.
+     * @param aTargetFeature
+     *            the target feature.
+     */
+    RelationOverlapGroups(Collection<? extends AnnotationFS> aRelations, Feature aSourceFeature,
+            Feature aTargetFeature)
+    {
+        relations = aRelations.toArray(AnnotationFS[]::new);
+        sources = new int[relations.length];
+        targets = new int[relations.length];
+        for (int i = 0; i < relations.length; i++) {
+            sources[i] = addr(relations[i].getFeatureValue(aSourceFeature));
+            targets[i] = addr(relations[i].getFeatureValue(aTargetFeature));
+        }
+
+        var endpointGroups = new HashMap<Integer, EndpointGroup>();
+        var pairCounts = new HashMap<Long, Integer>();
+        for (int i = 0; i < relations.length; i++) {
+            group(endpointGroups, sources[i], i);
+            if (targets[i] != sources[i]) {
+                group(endpointGroups, targets[i], i);
+            }
+
+            if (hasBothEndpoints(i)) {
+                pairCounts.merge(pairKey(i), 1, Integer::sum);
+            }
+        }
+
+        for (int i = 0; i < relations.length; i++) {
+            if (isMixed(endpointGroups, sources[i]) || isMixed(endpointGroups, targets[i])) {
+                overlapping.add(relations[i]);
+            }
+
+            if (hasBothEndpoints(i) && pairCounts.get(pairKey(i)) > 1) {
+                stacking.add(relations[i]);
+            }
+        }
+    }
+
+    private void group(Map<Integer, EndpointGroup> aGroups, int aEndpoint, int aRelation)
+    {
+        if (aEndpoint == NONE) {
+            return;
+        }
+
+        var group = aGroups.get(aEndpoint);
+        if (group == null) {
+            aGroups.put(aEndpoint, new EndpointGroup(pairKey(aRelation)));
+        }
+        else if (group.pairKey != pairKey(aRelation)) {
+            group.mixed = true;
+        }
+    }
+
+    private static boolean isMixed(Map<Integer, EndpointGroup> aGroups, int aEndpoint)
+    {
+        var group = aEndpoint != NONE ? aGroups.get(aEndpoint) : null;
+        return group != null && group.mixed;
+    }
+
+    private boolean hasBothEndpoints(int aRelation)
+    {
+        return sources[aRelation] != NONE && targets[aRelation] != NONE;
+    }
+
+    /**
+     * @return a key identifying the pair of end-points of the given relation. Relations lacking an
+     *         end-point never stack, so they get a unique key.
+     */
+    private long pairKey(int aRelation)
+    {
+        if (!hasBothEndpoints(aRelation)) {
+            return -1l - aRelation;
+        }
+
+        return ((long) sources[aRelation] << 32) | (targets[aRelation] & 0xffffffffl);
+    }
+
+    private static int addr(FeatureStructure aFS)
+    {
+        return aFS != null ? ICasUtil.getAddr(aFS) : NONE;
+    }
+
+    /**
+     * @return the relations stacking with at least one other relation.
+     */
+    Set<AnnotationFS> getStacking()
+    {
+        return stacking;
+    }
+
+    /**
+     * @return the relations sharing an end-point with at least one other relation which does not
+     *         stack with them.
+     */
+    Set<AnnotationFS> getOverlapping()
+    {
+        return overlapping;
+    }
+
+    /**
+     * The relations sharing an end-point. As long as all of them have the same pair of end-points,
+     * they only stack. Once two of them have different pairs of end-points, all of them overlap.
+     */
+    private static class EndpointGroup
+    {
+        private final long pairKey;
+        private boolean mixed;
+
+        EndpointGroup(long aPairKey)
+        {
+            pairKey = aPairKey;
+        }
+    }
+}
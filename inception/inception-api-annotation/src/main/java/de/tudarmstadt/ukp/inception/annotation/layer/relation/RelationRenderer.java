@@ -22,7 +22,6 @@ import static java.lang.Math.min;
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.groupingBy;
 import static org.apache.commons.lang3.StringUtils.abbreviate;
-import static org.apache.uima.cas.text.AnnotationPredicates.overlapping;
 
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayDeque;
@@ -46,6 +45,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.AnnotationIntervalIndex;
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.AnnotationIntervalIndex.Interval;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.Renderer_ImplBase;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 import de.tudarmstadt.ukp.inception.rendering.request.RenderRequest;
@@ -75,6 +76,8 @@ public class RelationRenderer
 
     public static final String REL_EXTENSION_ID = "rel";
 
+    private static final String ENDPOINTS = "endpoints";
+
     public static final VID VID_BEFORE = VID.builder() //
             .withExtensionId(REL_EXTENSION_ID) //
             .withAnnotationId(0) //
@@ -148,22 +151,22 @@ public class RelationRenderer
                     .toList();
         }
 
-        var result = new ArrayList<Annotation>();
-        for (var rel : cas.<Annotation> select(type)) {
-            var sourceFs = getSourceFs(rel);
-            var targetFs = getTargetFs(rel);
-
-            if (sourceFs instanceof Annotation source && targetFs instanceof Annotation target) {
-                var relBegin = min(source.getBegin(), target.getBegin());
-                var relEnd = max(source.getEnd(), target.getEnd());
+        // The relations are indexed by the range spanned by their endpoints. This range changes
+        // with the endpoints, so the index also watches the endpoint types.
+        return AnnotationIntervalIndex.get(cas, type, ENDPOINTS, this::getEndpointRange, type,
+                sourceFeature.getRange(), spanType) //
+                .selectOverlapping(cas, aWindowBegin, aWindowEnd);
+    }
 
-                if (overlapping(relBegin, relEnd, aWindowBegin, aWindowEnd)) {
-                    result.add(rel);
-                }
-            }
+    private Interval getEndpointRange(Annotation aRelation)
+    {
+        if (getSourceFs(aRelation) instanceof Annotation source
+                && getTargetFs(aRelation) instanceof Annotation target) {
+            return new Interval(min(source.getBegin(), target.getBegin()),
+                    max(source.getEnd(), target.getEnd()));
         }
 
-        return result;
+        return null;
     }
 
     @Override
@@ -359,14 +362,12 @@ public class RelationRenderer
 
         if (aEndpoint.getEnd() < windowBegin) {
             if (aRequest.isClipArcs()) {
-                if (aVDocument.getSpan(VID_BEFORE) == null) {
-                    var beforeAnchor = VSpan.builder() //
-                            .withVid(VID_BEFORE) //
-                            .withLayer(aTypeAdapter.getLayer()) //
-                            .withRange(new VRange(0, 0)) //
-                            .build();
-                    aVDocument.add(beforeAnchor);
-                }
+                var beforeAnchor = VSpan.builder() //
+                        .withVid(VID_BEFORE) //
+                        .withLayer(aTypeAdapter.getLayer()) //
+                        .withRange(new VRange(0, 0)) //
+                        .build();
+                aVDocument.addShared(beforeAnchor);
                 return VID_BEFORE;
             }
 
@@ -383,14 +384,12 @@ public class RelationRenderer
 
         if (aEndpoint.getBegin() >= windowEnd) {
             if (aRequest.isClipArcs()) {
-                if (aVDocument.getSpan(VID_AFTER) == null) {
-                    var afterAnchor = VSpan.builder() //
-                            .withVid(VID_AFTER) //
-                            .withLayer(aTypeAdapter.getLayer()) //
-                            .withRange(new VRange(windowEnd - windowBegin, windowEnd - windowBegin)) //
-                            .build();
-                    aVDocument.add(afterAnchor);
-                }
+                var afterAnchor = VSpan.builder() //
+                        .withVid(VID_AFTER) //
+                        .withLayer(aTypeAdapter.getLayer()) //
+                        .withRange(new VRange(windowEnd - windowBegin, windowEnd - windowBegin)) //
+                        .build();
+                aVDocument.addShared(afterAnchor);
                 return VID_AFTER;
             }
 
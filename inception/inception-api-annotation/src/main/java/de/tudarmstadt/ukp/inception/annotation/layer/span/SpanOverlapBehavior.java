@@ -20,10 +20,10 @@ package de.tudarmstadt.ukp.inception.annotation.layer.span;
 import static de.tudarmstadt.ukp.inception.rendering.vmodel.VCommentType.ERROR;
 import static de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil.selectOverlapping;
 import static org.apache.uima.fit.util.CasUtil.getType;
-import static org.apache.uima.fit.util.CasUtil.select;
 import static org.apache.uima.fit.util.CasUtil.selectAt;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -193,10 +193,9 @@ public class SpanOverlapBehavior
             // Nothing to check
             break;
         case NO_OVERLAP: {
-            Set<AnnotationFS> overlapping = new HashSet<>();
-            Set<AnnotationFS> stacking = new HashSet<>();
-
-            overlappingOrStackingSpans(select(aCas, type), stacking, overlapping);
+            var sweep = SpanOverlapSweep.of(aCas, type);
+            Set<AnnotationFS> overlapping = sweep.getOverlapping();
+            Set<AnnotationFS> stacking = sweep.getStacking();
 
             overlapping.forEach(fs -> Pair.of(LogMessage.error(this,
                     "Overlapping annotation at [%d-%d]", fs.getBegin(), fs.getEnd()), fs));
@@ -207,12 +206,12 @@ public class SpanOverlapBehavior
         }
         case STACKING_ONLY:
             // Here, we must find all overlapping relations because they are not permitted
-            overlappingNonStackingSpans(select(aCas, type))
+            SpanOverlapSweep.of(aCas, type).getOverlapping()
                     .forEach(fs -> Pair.of(LogMessage.error(this,
                             "Overlapping annotation at [%d-%d]", fs.getBegin(), fs.getEnd()), fs));
             break;
         case OVERLAP_ONLY:
-            stackingSpans(select(aCas, type))
+            SpanOverlapSweep.of(aCas, type).getStacking()
                     .forEach(fs -> messages.add(Pair.of(LogMessage.error(this,
                             "Stacked annotation at [%d-%d]", fs.getBegin(), fs.getEnd()), fs)));
             break;
@@ -221,70 +220,28 @@ public class SpanOverlapBehavior
         return messages;
     }
 
+    /**
+     * @return the number of spans which were checked.
+     */
     static int overlappingOrStackingSpans(Collection<? extends AnnotationFS> aSpans,
             Collection<AnnotationFS> aStacking, Collection<AnnotationFS> aOverlapping)
     {
-        AnnotationFS[] spans = aSpans.toArray(AnnotationFS[]::new);
-
-        int n = 0;
-
-        outer: for (int o = 0; o < spans.length - 1; o++) {
-            AnnotationFS span1 = spans[o];
-
-            inner: for (int i = o + 1; i < spans.length; i++) {
-                AnnotationFS span2 = spans[i];
-
-                n++;
-
-                if (span2.getBegin() > span1.getEnd()) {
-                    continue outer;
-                }
-
-                if (span1.equals(span2)) {
-                    continue inner;
-                }
-
-                if (stacking(span1, span2)) {
-                    aStacking.add(span1);
-                    aStacking.add(span2);
-                }
-                else if (overlapping(span1, span2)) {
-                    aOverlapping.add(span1);
-                    aOverlapping.add(span2);
-                }
-            }
-        }
-
-        return n;
+        var sweep = new SpanOverlapSweep(sorted(aSpans));
+        aStacking.addAll(sweep.getStacking());
+        aOverlapping.addAll(sweep.getOverlapping());
+        return aSpans.size();
     }
 
     static Set<AnnotationFS> overlappingNonStackingSpans(Collection<? extends AnnotationFS> aSpans)
     {
-        Set<AnnotationFS> overlapping = new HashSet<>();
-
-        AnnotationFS[] spans = aSpans.toArray(AnnotationFS[]::new);
-
-        outer: for (int o = 0; o < spans.length - 1; o++) {
-            AnnotationFS span1 = spans[o];
-
-            inner: for (int i = o + 1; i < spans.length; i++) {
-                AnnotationFS span2 = spans[i];
-
-                if (span2.getBegin() > span1.getEnd()) {
-                    continue outer;
-                }
-
-                if (span1.equals(span2)) {
-                    continue inner;
-                }
+        return new SpanOverlapSweep(sorted(aSpans)).getOverlapping();
+    }
 
-                if (overlapping(span1, span2) && !stacking(span1, span2)) {
-                    overlapping.add(span1);
-                    overlapping.add(span2);
-                }
-            }
-        }
-        return overlapping;
+    private static AnnotationFS[] sorted(Collection<? extends AnnotationFS> aSpans)
+    {
+        var spans = aSpans.toArray(AnnotationFS[]::new);
+        Arrays.sort(spans, new AnnotationComparator());
+        return spans;
     }
 
     static Set<AnnotationFS> stackingSpans(Collection<? extends AnnotationFS> aSpans)
@@ -306,22 +263,11 @@ public class SpanOverlapBehavior
         return stacking;
     }
 
-    private static boolean overlapping(AnnotationFS aFS1, AnnotationFS aFS2)
-    {
-        return (aFS1.getBegin() <= aFS2.getBegin() && aFS2.getBegin() < aFS1.getEnd())
-                || (aFS1.getBegin() < aFS2.getEnd() && aFS2.getEnd() <= aFS1.getEnd());
-    }
-
     private static boolean stacking(SpanAnnotationRequest_ImplBase<?> aRequest, AnnotationFS aSpan)
     {
         return stacking(aRequest.getBegin(), aRequest.getEnd(), aSpan.getBegin(), aSpan.getEnd());
     }
 
-    private static boolean stacking(AnnotationFS aFS1, AnnotationFS aFS2)
-    {
-        return stacking(aFS1.getBegin(), aFS1.getEnd(), aFS2.getBegin(), aFS2.getEnd());
-    }
-
     private static boolean stacking(int aBegin1, int aEnd1, int aBegin2, int aEnd2)
     {
         return aBegin1 == aBegin2 && aEnd1 == aEnd2;
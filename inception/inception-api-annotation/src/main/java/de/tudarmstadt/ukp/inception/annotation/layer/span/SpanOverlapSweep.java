@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.annotation.layer.span;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.cas.text.AnnotationFS;
+
+/**
+ * Finds the stacked and overlapping spans of a type. The spans are checked by sweeping over them in
+ * annotation index order, so the check takes {@code O(n log n)} instead of comparing every pair of
+ * spans. Every check goes over all spans again. The result must not be kept beyond the check
+ * because it refers to the spans.
+ */
+final class SpanOverlapSweep
+{
+    private final AnnotationFS[] spans;
+    private final int[] begins;
+    private final int[] ends;
+    private final Set<AnnotationFS> stacking = new HashSet<>();
+    private final Set<AnnotationFS> overlapping = new HashSet<>();
+
+    /**
+     * @param aCas
+     *            the CAS.
+     * @param aType
+     *            the span type.
+     * @return the result of the sweep.
+     */
+    static SpanOverlapSweep of(CAS aCas, Type aType)
+    {
+        var spans = aCas.<AnnotationFS> select(aType).asList().toArray(AnnotationFS[]::new);
+        return new SpanOverlapSweep(spans);
+    }
+
+    /**
+     * @param aSpans
+     *            the spans sorted ascending by begin and descending by end.
+     */
+    SpanOverlapSweep(AnnotationFS[] aSpans)
+    {
+        spans = aSpans;
+        begins = new int[spans.length];
+        ends = new int[spans.length];
+        for (int i = 0; i < spans.length; i++) {
+            begins[i] = spans[i].getBegin();
+            ends[i] = spans[i].getEnd();
+        }
+
+        sweep(0, spans.length);
+    }
+
+    /**
+     * Sweeps over the given spans and records the stacked and overlapping ones. Spans with the same
+     * offsets are adjacent and are handled as a group. Every group is compared against the maximum
+     * end of all earlier groups. Earlier groups which are not known to overlap with anything yet
+     * are kept in a queue ordered by their end, so each of them is taken out of the queue at most
+     * once.
+     */
+    private void sweep(int aFrom, int aTo)
+    {
+        var candidates = new PriorityQueue<int[]>(
+                (a, b) -> Integer.compare(ends[b[0]], ends[a[0]]));
+
+        int maxEnd = 0;
+        int i = aFrom;
+        while (i < aTo) {
+            int j = i + 1;
+            while (j < aTo && begins[j] == begins[i] && ends[j] == ends[i]) {
+                j++;
+            }
+
+            if (j - i > 1) {
+                addAll(stacking, i, j);
+            }
+
+            var zeroWidth = begins[i] == ends[i];
+            var overlapsEarlier = i > aFrom && overlaps(maxEnd, begins[i], zeroWidth);
+
+            while (!candidates.isEmpty()
+                    && overlaps(ends[candidates.peek()[0]], begins[i], zeroWidth)) {
+                var group = candidates.poll();
+                addAll(overlapping, group[0], group[1]);
+            }
+
+            if (overlapsEarlier) {
+                addAll(overlapping, i, j);
+            }
+            else {
+                candidates.add(new int[] { i, j });
+            }
+
+            maxEnd = i > aFrom ? Math.max(maxEnd, ends[i]) : ends[i];
+            i = j;
+        }
+    }
+
+    private static boolean overlaps(int aEarlierEnd, int aBegin, boolean aZeroWidth)
+    {
+        // A zero-width span also overlaps with a span ending at its position
+        return aBegin < aEarlierEnd || (aZeroWidth && aBegin == aEarlierEnd);
+    }
+
+    private void addAll(Collection<AnnotationFS> aTarget, int aFrom, int aTo)
+    {
+        for (int i = aFrom; i < aTo; i++) {
+            aTarget.add(spans[i]);
+        }
+    }
+
+    /**
+     * @return the spans stacking with at least one other span.
+     */
+    Set<AnnotationFS> getStacking()
+    {
+        return stacking;
+    }
+
+    /**
+     * @return the spans overlapping with at least one other span which does not stack with them.
+     */
+    Set<AnnotationFS> getOverlapping()
+    {
+        return overlapping;
+    }
+}
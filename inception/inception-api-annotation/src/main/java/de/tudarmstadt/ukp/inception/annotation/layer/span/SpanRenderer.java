@@ -34,10 +34,10 @@ import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.text.AnnotationFS;
-import org.apache.uima.cas.text.AnnotationPredicates;
 import org.apache.uima.jcas.tcas.Annotation;
 import org.springframework.core.annotation.AnnotationAwareOrderComparator;
 
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.AnnotationIntervalIndex;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.Renderer_ImplBase;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
 import de.tudarmstadt.ukp.inception.annotation.feature.link.LinkFeatureTraits;
@@ -102,11 +102,7 @@ public class SpanRenderer
         var cas = aRequest.getCas();
 
         if (!aRequest.isLongArcs()) {
-            return cas.<Annotation> select(type) //
-                    .coveredBy(0, aWindowEnd) //
-                    .includeAnnotationsWithEndBeyondBounds() //
-                    .filter(ann -> AnnotationPredicates.overlapping(ann, aWindowBegin, aWindowEnd))
-                    .toList();
+            return AnnotationIntervalIndex.selectOverlapping(cas, type, aWindowBegin, aWindowEnd);
         }
 
         return aRequest.getCas().<Annotation> select(type).toList();
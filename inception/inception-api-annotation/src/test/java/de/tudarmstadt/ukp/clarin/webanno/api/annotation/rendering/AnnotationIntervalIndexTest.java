@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering;
+
+import static org.apache.uima.cas.text.AnnotationPredicates.overlapping;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Random;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.tcas.Annotation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.AnnotationIntervalIndex.Interval;
+import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
+
+class AnnotationIntervalIndexTest
+{
+    private JCas jcas;
+
+    @BeforeEach
+    void setup() throws Exception
+    {
+        jcas = JCasFactory.createJCas();
+        jcas.setDocumentText(StringUtils.repeat("a", 1000));
+    }
+
+    @Test
+    void thatOverlappingAnnotationsAreFoundInIndexOrder()
+    {
+        var rnd = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            var begin = rnd.nextInt(1000);
+            var end = Math.min(1000, begin + (rnd.nextInt(10) == 0 ? rnd.nextInt(1000)
+                    : rnd.nextInt(20)));
+            new NamedEntity(jcas, begin, end).addToIndexes();
+        }
+
+        var type = jcas.getCasType(NamedEntity.class);
+        for (int i = 0; i < 200; i++) {
+            var windowBegin = rnd.nextInt(1000);
+            var windowEnd = Math.min(1000, windowBegin + rnd.nextInt(100));
+
+            var expected = jcas.getCas().<Annotation> select(type) //
+                    .filter(ann -> overlapping(ann, windowBegin, windowEnd)) //
+                    .toList();
+
+            assertThat(AnnotationIntervalIndex.selectOverlapping(jcas.getCas(), type,
+                    windowBegin, windowEnd)) //
+                            .as("Window [%d-%d]", windowBegin, windowEnd) //
+                            .containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void thatZeroWidthAnnotationsAtWindowBoundariesAreFound()
+    {
+        var atBegin = new NamedEntity(jcas, 10, 10);
+        atBegin.addToIndexes();
+        var inside = new NamedEntity(jcas, 15, 15);
+        inside.addToIndexes();
+        new NamedEntity(jcas, 20, 20).addToIndexes();
+
+        assertThat(AnnotationIntervalIndex.selectOverlapping(jcas.getCas(),
+                jcas.getCasType(NamedEntity.class), 10, 20)) //
+                        .containsExactly(atBegin, inside);
+    }
+
+    @Test
+    void thatIndexIsReusedWhileCasIsUnchanged()
+    {
+        var type = jcas.getCasType(NamedEntity.class);
+        new NamedEntity(jcas, 0, 100).addToIndexes();
+
+        var index = AnnotationIntervalIndex.get(jcas.getCas(), type, "test",
+                ann -> new Interval(ann.getBegin(), ann.getEnd()), type);
+
+        assertThat(AnnotationIntervalIndex.get(jcas.getCas(), type, "test",
+                ann -> new Interval(ann.getBegin(), ann.getEnd()), type)).isSameAs(index);
+
+        AnnotationIntervalIndex.invalidate(jcas.getCas());
+
+        assertThat(AnnotationIntervalIndex.get(jcas.getCas(), type, "test",
+                ann -> new Interval(ann.getBegin(), ann.getEnd()), type)).isNotSameAs(index);
+    }
+
+    @Test
+    void thatSelectionReflectsAddedAndRemovedAnnotations()
+    {
+        var type = jcas.getCasType(NamedEntity.class);
+
+        var ne1 = new NamedEntity(jcas, 0, 100);
+        ne1.addToIndexes();
+
+        assertThat(AnnotationIntervalIndex.selectOverlapping(jcas.getCas(), type, 50, 60))
+                .containsExactly(ne1);
+
+        var ne2 = new NamedEntity(jcas, 55, 58);
+        ne2.addToIndexes();
+
+        assertThat(AnnotationIntervalIndex.selectOverlapping(jcas.getCas(), type, 50, 60))
+                .containsExactly(ne1, ne2);
+
+        ne1.removeFromIndexes();
+
+        assertThat(AnnotationIntervalIndex.selectOverlapping(jcas.getCas(), type, 50, 60))
+                .containsExactly(ne2);
+    }
+
+    @Test
+    void thatSelectionReflectsMovedAnnotationsAfterInvalidation()
+    {
+        var type = jcas.getCasType(NamedEntity.class);
+
+        var ne1 = new NamedEntity(jcas, 0, 100);
+        ne1.addToIndexes();
+        var ne2 = new NamedEntity(jcas, 55, 58);
+        ne2.addToIndexes();
+
+        assertThat(AnnotationIntervalIndex.selectOverlapping(jcas.getCas(), type, 50, 60))
+                .containsExactly(ne1, ne2);
+
+        ne1.removeFromIndexes();
+        ne1.setEnd(10);
+        ne1.addToIndexes();
+        AnnotationIntervalIndex.invalidate(jcas.getCas());
+
+        assertThat(AnnotationIntervalIndex.selectOverlapping(jcas.getCas(), type, 50, 60))
+                .containsExactly(ne2);
+    }
+
+    @Test
+    void thatCustomIntervalsAreFoundInIndexOrder()
+    {
+        var ne1 = new NamedEntity(jcas, 0, 10);
+        ne1.addToIndexes();
+        var ne2 = new NamedEntity(jcas, 20, 30);
+        ne2.addToIndexes();
+        var ne3 = new NamedEntity(jcas, 40, 50);
+        ne3.addToIndexes();
+
+        // Map the annotations to intervals in reverse order of their offsets
+        var index = AnnotationIntervalIndex.build(jcas.getCas(),
+                jcas.getCasType(NamedEntity.class),
+                ann -> new Interval(100 - ann.getEnd(), 100 - ann.getBegin()));
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.selectOverlapping(jcas.getCas(), 55, 85)).containsExactly(ne2, ne3);
+        assertThat(index.selectOverlapping(jcas.getCas(), 85, 95)).containsExactly(ne1);
+    }
+}
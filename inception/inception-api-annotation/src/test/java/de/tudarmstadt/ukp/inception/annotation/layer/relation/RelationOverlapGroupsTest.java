@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.annotation.layer.relation;
+
+import static de.tudarmstadt.ukp.inception.annotation.layer.relation.RelationOverlapBehavior.overlapping;
+import static de.tudarmstadt.ukp.inception.annotation.layer.relation.RelationOverlapBehavior.stacking;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.uima.cas.Feature;
+import org.apache.uima.cas.text.AnnotationFS;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
+
+class RelationOverlapGroupsTest
+{
+    private Random rnd = new Random();
+
+    private JCas jcas;
+    private List<Token> tokens;
+    private Feature sourceFeature;
+    private Feature targetFeature;
+
+    @BeforeEach
+    void setup() throws Exception
+    {
+        jcas = JCasFactory.createJCas();
+        // Few tokens so that random relations also stack
+        tokens = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            var token = new Token(jcas, i * 2, i * 2 + 1);
+            token.addToIndexes();
+            tokens.add(token);
+        }
+
+        var type = jcas.getCasType(Dependency.type);
+        sourceFeature = type.getFeatureByBaseName("Governor");
+        targetFeature = type.getFeatureByBaseName("Dependent");
+    }
+
+    @Test
+    void thatOverlappingAndStackingRelationsAreFound()
+    {
+        for (int i = 0; i < 1000; i++) {
+            addRandomRelation();
+        }
+
+        var relations = jcas.select(Dependency.class).asList();
+
+        var sut = new RelationOverlapGroups(relations, sourceFeature, targetFeature);
+
+        assertMatchesPairwiseCheck(sut, relations);
+    }
+
+    private void assertMatchesPairwiseCheck(RelationOverlapGroups aGroups,
+            List<Dependency> aRelations)
+    {
+        var expectedStacking = new HashSet<AnnotationFS>();
+        var expectedOverlapping = new HashSet<AnnotationFS>();
+        for (var rel1 : aRelations) {
+            for (var rel2 : aRelations) {
+                if (rel1.equals(rel2)) {
+                    continue;
+                }
+
+                if (stacking(rel1, rel2, sourceFeature, targetFeature)) {
+                    expectedStacking.add(rel1);
+                    expectedStacking.add(rel2);
+                }
+                else if (overlapping(rel1, rel2, sourceFeature, targetFeature)) {
+                    expectedOverlapping.add(rel1);
+                    expectedOverlapping.add(rel2);
+                }
+            }
+        }
+
+        assertThat(aGroups.getStacking()).containsExactlyInAnyOrderElementsOf(expectedStacking);
+        assertThat(aGroups.getOverlapping())
+                .containsExactlyInAnyOrderElementsOf(expectedOverlapping);
+    }
+
+    private void addRandomRelation()
+    {
+        var source = tokens.get(rnd.nextInt(tokens.size()));
+        var target = tokens.get(rnd.nextInt(tokens.size()));
+        var rel = new Dependency(jcas, target.getBegin(), target.getEnd());
+        rel.setGovernor(source);
+        rel.setDependent(target);
+        rel.addToIndexes();
+    }
+}
@@ -29,8 +29,10 @@ import java.util.Random;
 import java.util.Set;
 
 import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.fit.factory.CasFactory;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
 import org.apache.uima.jcas.tcas.Annotation;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.junit.jupiter.api.Test;
@@ -120,6 +122,38 @@ public class SpanOverlapBehaviorTest
         assertThat(actualOverlapping).containsExactlyInAnyOrderElementsOf(expectedOverlapping);
     }
 
+    @Test
+    public void thatOverlappingAndStackedSpansOfTypeAreFound() throws Exception
+    {
+        var tsd = TypeSystemDescriptionFactory.createTypeSystemDescription();
+        tsd.addType("custom.Span", "", CAS.TYPE_NAME_ANNOTATION);
+        var cas = CasFactory.createCas(tsd);
+        var type = cas.getTypeSystem().getType("custom.Span");
+
+        // Clusters of overlapping and of stacked spans far apart from each other
+        for (int i = 0; i < 10; i++) {
+            int offset = i * 1000;
+            addSpan(cas, type, offset, offset + 10);
+            addSpan(cas, type, offset + 5, offset + 15);
+            addSpan(cas, type, offset + 20, offset + 30);
+            addSpan(cas, type, offset + 20, offset + 30);
+        }
+        // Spans of other types are not considered
+        addSpan(cas, cas.getAnnotationType(), 0, 30);
+
+        var sut = SpanOverlapSweep.of(cas, type);
+
+        assertThat(sut.getOverlapping()).hasSize(20);
+        assertThat(sut.getStacking()).hasSize(20);
+    }
+
+    private static AnnotationFS addSpan(CAS aCas, Type aType, int aBegin, int aEnd)
+    {
+        var span = aCas.createAnnotation(aType, aBegin, aEnd);
+        aCas.addFsToIndexes(span);
+        return span;
+    }
+
     private CAS generateCas() throws ResourceInitializationException
     {
         CAS cas = CasFactory.createCas();
@@ -162,6 +162,30 @@ public class RenderRequest
         return new Builder();
     }
 
+    /**
+     * @return a builder initialized with the settings of this request.
+     */
+    public Builder toBuilder()
+    {
+        var builder = new Builder();
+        builder.windowBeginOffset = windowBeginOffset;
+        builder.windowEndOffset = windowEndOffset;
+        builder.includeText = includeText;
+        builder.clipSpans = clipSpans;
+        builder.clipArcs = clipArcs;
+        builder.longArcs = longArcs;
+        builder.state = state;
+        builder.constraints = constraints;
+        builder.sourceDocument = sourceDocument;
+        builder.annotationUser = annotationUser;
+        builder.sessionOwner = sessionOwner;
+        builder.cas = cas;
+        builder.allLayers = allLayers;
+        builder.visibleLayers = visibleLayers;
+        builder.coloringStrategyOverride = coloringStrategyOverride;
+        return builder;
+    }
+
     public static final class Builder
     {
         private int windowBeginOffset;
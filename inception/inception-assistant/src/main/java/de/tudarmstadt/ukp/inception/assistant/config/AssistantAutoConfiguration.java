@@ -37,6 +37,7 @@ import de.tudarmstadt.ukp.inception.assistant.AssistantServiceImpl;
 import de.tudarmstadt.ukp.inception.assistant.documents.DocumentContextRetriever;
 import de.tudarmstadt.ukp.inception.assistant.documents.DocumentQueryService;
 import de.tudarmstadt.ukp.inception.assistant.documents.DocumentQueryServiceImpl;
+import de.tudarmstadt.ukp.inception.assistant.embedding.EmbeddingCache;
 import de.tudarmstadt.ukp.inception.assistant.embedding.EmbeddingService;
 import de.tudarmstadt.ukp.inception.assistant.embedding.EmbeddingServiceImpl;
 import de.tudarmstadt.ukp.inception.assistant.retriever.CurrentDateTimeRetriever;
@@ -88,11 +89,22 @@ public class AssistantAutoConfiguration
         return Encodings.newLazyEncodingRegistry();
     }
 
+    @Bean
+    public EmbeddingCache embeddingCache(RepositoryProperties aRepositoryProperties,
+            AssistantProperties aProperties)
+    {
+        var path = aRepositoryProperties.getPath().toPath() //
+                .resolve("assistant") //
+                .resolve("embedding-cache");
+        return new EmbeddingCache(path, aProperties.getEmbedding().getCacheMaxEntries(),
+                aProperties.getEmbedding().getCacheMaxAge());
+    }
+
     @Bean
     public EmbeddingService EmbeddingService(AssistantProperties aProperties,
-            OllamaClient aOllamaClient)
+            OllamaClient aOllamaClient, EmbeddingCache aEmbeddingCache)
     {
-        return new EmbeddingServiceImpl(aProperties, aOllamaClient);
+        return new EmbeddingServiceImpl(aProperties, aOllamaClient, aEmbeddingCache);
     }
 
     @Bean
@@ -52,4 +52,10 @@ public interface AssistantDocumentIndexProperties
     double getMinScore();
 
     int getChunkSize();
+
+    /**
+     * @return whether the chunk embeddings should be scalar quantized in the index to reduce the
+     *         memory required for searching.
+     */
+    boolean isQuantizeVectors();
 }
@@ -33,6 +33,7 @@ public class AssistantDocumentIndexPropertiesImpl
     private int maxChunks = 10;
     private int chunkSize = 128;
     private double minScore = 0.6;
+    private boolean quantizeVectors = false;
 
     @Override
     public Duration getIdleEvictionDelay()
@@ -100,4 +101,15 @@ public class AssistantDocumentIndexPropertiesImpl
     {
         chunkSize = aChunkSize;
     }
+
+    @Override
+    public boolean isQuantizeVectors()
+    {
+        return quantizeVectors;
+    }
+
+    public void setQuantizeVectors(boolean aQuantizeVectors)
+    {
+        quantizeVectors = aQuantizeVectors;
+    }
 }
@@ -17,6 +17,8 @@
  */
 package de.tudarmstadt.ukp.inception.assistant.config;
 
+import java.time.Duration;
+
 public interface AssistantEmbeddingProperties
 {
     public static final int AUTO_DETECT_DIMENSION = 0;
@@ -40,4 +42,14 @@ public interface AssistantEmbeddingProperties
     int getDimension();
 
     void setDimension(int aI);
+
+    /**
+     * @return maximum number of embeddings kept in the embedding cache
+     */
+    int getCacheMaxEntries();
+
+    /**
+     * @return time after which an embedding that has not been used is removed from the cache
+     */
+    Duration getCacheMaxAge();
 }
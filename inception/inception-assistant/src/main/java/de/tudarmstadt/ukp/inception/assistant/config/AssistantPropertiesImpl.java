@@ -17,10 +17,14 @@
  */
 package de.tudarmstadt.ukp.inception.assistant.config;
 
+import java.time.Duration;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import de.tudarmstadt.ukp.inception.assistant.embedding.EmbeddingCache;
+
 @ConfigurationProperties("assistant")
 public class AssistantPropertiesImpl
     implements AssistantProperties
@@ -239,6 +243,8 @@ public class AssistantPropertiesImpl
         private int batchSize = 16;
         private String encoding = "cl100k_base";
         private int dimension = AUTO_DETECT_DIMENSION;
+        private int cacheMaxEntries = EmbeddingCache.DEFAULT_MAX_ENTRIES;
+        private Duration cacheMaxAge = EmbeddingCache.DEFAULT_MAX_AGE;
 
         @Override
         public String getModel()
@@ -306,5 +312,27 @@ public class AssistantPropertiesImpl
         {
             dimension = aDimension;
         }
+
+        @Override
+        public int getCacheMaxEntries()
+        {
+            return cacheMaxEntries;
+        }
+
+        public void setCacheMaxEntries(int aCacheMaxEntries)
+        {
+            cacheMaxEntries = aCacheMaxEntries;
+        }
+
+        @Override
+        public Duration getCacheMaxAge()
+        {
+            return cacheMaxAge;
+        }
+
+        public void setCacheMaxAge(Duration aCacheMaxAge)
+        {
+            cacheMaxAge = aCacheMaxAge;
+        }
     }
 }
@@ -77,6 +77,7 @@ public class DocumentQueryServiceImpl
                 .withEvictionDelay(aIndexProperties.getIdleEvictionDelay()) //
                 .withMinIdleTime(aIndexProperties.getMinIdleTime()) //
                 .withRepositoryPath(repositoryProperties.getPath().toPath()) //
+                .withQuantizedVectors(aIndexProperties.isQuantizeVectors()) //
                 .build();
     }
 
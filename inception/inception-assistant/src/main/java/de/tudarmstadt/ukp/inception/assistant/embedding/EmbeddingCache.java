@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.assistant.embedding;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldExistsQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent cache of embeddings keyed by a hash of the embedding scope (endpoint, model and model
+ * options, see {@link #scope}) and the embedded text. It allows rebuilding an index without having
+ * to embed those texts again which have been embedded before.
+ * <p>
+ * Entries which have not been accessed for longer than the maximum age are evicted. If the cache
+ * holds more than the maximum number of entries, the least recently accessed entries are evicted.
+ */
+public class EmbeddingCache
+    implements AutoCloseable
+{
+    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private static final String FIELD_KEY = "key";
+    private static final String FIELD_VECTOR = "vector";
+    private static final String FIELD_ACCESSED = "accessed";
+
+    /**
+     * Number of access time updates after which they are committed even if nothing is added to the
+     * cache.
+     */
+    private static final int ACCESS_COMMIT_INTERVAL = 1000;
+
+    public static final int DEFAULT_MAX_ENTRIES = 100_000;
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofDays(30);
+
+    private final Path path;
+    private final int maxEntries;
+    private final Duration maxAge;
+    private final Clock clock;
+
+    private Directory directory;
+    private IndexWriter indexWriter;
+    private SearcherManager searcherManager;
+    private boolean broken;
+    private int uncommittedAccesses;
+
+    public EmbeddingCache(Path aPath)
+    {
+        this(aPath, DEFAULT_MAX_ENTRIES, DEFAULT_MAX_AGE);
+    }
+
+    public EmbeddingCache(Path aPath, int aMaxEntries, Duration aMaxAge)
+    {
+        this(aPath, aMaxEntries, aMaxAge, Clock.systemUTC());
+    }
+
+    EmbeddingCache(Path aPath, int aMaxEntries, Duration aMaxAge, Clock aClock)
+    {
+        path = aPath;
+        maxEntries = aMaxEntries;
+        maxAge = aMaxAge;
+        clock = aClock;
+    }
+
+    /**
+     * @param aEndpoint
+     *            the URL of the service providing the embeddings.
+     * @param aModel
+     *            the embedding model.
+     * @param aOptions
+     *            the model options affecting the embeddings.
+     * @return the scope under which embeddings obtained with the given settings are cached.
+     */
+    public static String scope(String aEndpoint, String aModel, Map<String, ?> aOptions)
+    {
+        var scope = new StringBuilder();
+        scope.append(aEndpoint).append('\0').append(aModel);
+        // Sort the options to obtain the same scope independent of the map implementation
+        for (var option : new TreeMap<>(aOptions).entrySet()) {
+            scope.append('\0').append(option.getKey()).append('=').append(option.getValue());
+        }
+        return scope.toString();
+    }
+
+    /**
+     * @param aScope
+     *            the embedding scope.
+     * @param aTexts
+     *            the texts to look up.
+     * @return the cached embeddings of those texts for which an embedding is cached.
+     */
+    public synchronized Map<String, float[]> getAll(String aScope, Collection<String> aTexts)
+    {
+        var result = new HashMap<String, float[]>();
+        if (!open()) {
+            return result;
+        }
+
+        try {
+            searcherManager.maybeRefresh();
+            var searcher = searcherManager.acquire();
+            try {
+                var now = clock.millis();
+                for (var text : aTexts) {
+                    var key = key(aScope, text);
+                    var hits = searcher.search(new TermQuery(key), 1);
+                    if (hits.scoreDocs.length > 0) {
+                        var doc = searcher.storedFields().document(hits.scoreDocs[0].doc);
+                        result.put(text, decode(doc.getBinaryValue(FIELD_VECTOR).bytes));
+                        // Only updates the doc values - the stored vector is not rewritten
+                        indexWriter.updateNumericDocValue(key, FIELD_ACCESSED, now);
+                        uncommittedAccesses++;
+                    }
+                }
+            }
+            finally {
+                searcherManager.release(searcher);
+            }
+
+            // Without committing, the access times would be lost on restart and entries which
+            // are still in use would be evicted
+            if (uncommittedAccesses >= ACCESS_COMMIT_INTERVAL) {
+                commit();
+            }
+        }
+        catch (IOException e) {
+            LOG.error("Unable to read from embedding cache", e);
+        }
+
+        return result;
+    }
+
+    /**
+     * @param aScope
+     *            the embedding scope.
+     * @param aEmbeddings
+     *            the embeddings by the texts they were created from.
+     */
+    public synchronized void putAll(String aScope, Map<String, float[]> aEmbeddings)
+    {
+        if (aEmbeddings.isEmpty() || !open()) {
+            return;
+        }
+
+        try {
+            var now = clock.millis();
+            for (var entry : aEmbeddings.entrySet()) {
+                var key = key(aScope, entry.getKey());
+                var doc = new Document();
+                doc.add(new StringField(FIELD_KEY, key.text(), Store.YES));
+                doc.add(new StoredField(FIELD_VECTOR, encode(entry.getValue())));
+                doc.add(new NumericDocValuesField(FIELD_ACCESSED, now));
+                indexWriter.updateDocument(key, doc);
+            }
+            evict();
+        }
+        catch (IOException e) {
+            LOG.error("Unable to write to embedding cache", e);
+        }
+    }
+
+    private boolean open()
+    {
+        if (indexWriter != null) {
+            return true;
+        }
+
+        // If the cache cannot be opened, we simply embed everything
+        if (broken) {
+            return false;
+        }
+
+        try {
+            directory = new MMapDirectory(path);
+            indexWriter = new IndexWriter(directory, new IndexWriterConfig());
+            searcherManager = new SearcherManager(indexWriter, null);
+            evict();
+            return true;
+        }
+        catch (IOException e) {
+            LOG.error("Unable to open embedding cache at [{}] - embeddings are not cached", path,
+                    e);
+            broken = true;
+            return false;
+        }
+    }
+
+    /**
+     * Removes entries which have not been accessed within the maximum age and then the least
+     * recently accessed entries exceeding the maximum number of entries. Entries without an access
+     * time stem from an older cache format and can no longer be looked up, so they are removed as
+     * well.
+     */
+    private void evict() throws IOException
+    {
+        var cutoff = clock.millis() - maxAge.toMillis();
+        indexWriter.deleteDocuments(NumericDocValuesField.newSlowRangeQuery(FIELD_ACCESSED,
+                Long.MIN_VALUE, cutoff - 1));
+        indexWriter.deleteDocuments(new BooleanQuery.Builder() //
+                .add(new MatchAllDocsQuery(), Occur.MUST) //
+                .add(new FieldExistsQuery(FIELD_ACCESSED), Occur.MUST_NOT) //
+                .build());
+
+        searcherManager.maybeRefreshBlocking();
+        var searcher = searcherManager.acquire();
+        try {
+            var excess = searcher.getIndexReader().numDocs() - maxEntries;
+            if (excess > 0) {
+                var oldest = searcher.search(new MatchAllDocsQuery(), excess,
+                        new Sort(new SortField(FIELD_ACCESSED, SortField.Type.LONG)));
+                for (var hit : oldest.scoreDocs) {
+                    var doc = searcher.storedFields().document(hit.doc);
+                    indexWriter.deleteDocuments(new Term(FIELD_KEY, doc.get(FIELD_KEY)));
+                }
+                LOG.debug("Evicted {} least recently used entries from embedding cache", excess);
+            }
+        }
+        finally {
+            searcherManager.release(searcher);
+        }
+
+        commit();
+    }
+
+    private void commit() throws IOException
+    {
+        indexWriter.commit();
+        uncommittedAccesses = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        if (indexWriter == null) {
+            return;
+        }
+
+        searcherManager.close();
+        commit();
+        indexWriter.close();
+        directory.close();
+        indexWriter = null;
+    }
+
+    static Term key(String aScope, String aText)
+    {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(aScope.getBytes(UTF_8));
+            digest.update((byte) 0);
+            digest.update(aText.getBytes(UTF_8));
+            return new Term(FIELD_KEY, HexFormat.of().formatHex(digest.digest()));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static byte[] encode(float[] aVector)
+    {
+        var buffer = ByteBuffer.allocate(aVector.length * Float.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(aVector);
+        return buffer.array();
+    }
+
+    static float[] decode(byte[] aBytes)
+    {
+        var vector = new float[aBytes.length / Float.BYTES];
+        ByteBuffer.wrap(aBytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(vector);
+        return vector;
+    }
+}
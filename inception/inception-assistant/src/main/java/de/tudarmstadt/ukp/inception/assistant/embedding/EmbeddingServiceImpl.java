@@ -20,7 +20,11 @@ package de.tudarmstadt.ukp.inception.assistant.embedding;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
 
@@ -42,11 +46,28 @@ public class EmbeddingServiceImpl
 
     private final AssistantProperties properties;
     private final OllamaClient ollamaClient;
+    private final EmbeddingCache cache;
 
     public EmbeddingServiceImpl(AssistantProperties aProperties, OllamaClient aOllamaClient)
+    {
+        this(aProperties, aOllamaClient, null);
+    }
+
+    /**
+     * @param aProperties
+     *            the assistant properties.
+     * @param aOllamaClient
+     *            the client used to obtain embeddings.
+     * @param aCache
+     *            cache of previously obtained embeddings or {@code null} to always obtain the
+     *            embeddings from the embedding model.
+     */
+    public EmbeddingServiceImpl(AssistantProperties aProperties, OllamaClient aOllamaClient,
+            EmbeddingCache aCache)
     {
         properties = aProperties;
         ollamaClient = aOllamaClient;
+        cache = aCache;
     }
 
     @EventListener
@@ -93,25 +114,64 @@ public class EmbeddingServiceImpl
             objects.add(o);
         }
 
-        var request = OllamaEmbedRequest.builder() //
+        var embeddings = embedCached(strings);
+
+        var result = new ArrayList<Pair<T, float[]>>();
+        for (var i = 0; i < strings.size(); i++) {
+            var embedding = embeddings.get(strings.get(i));
+            if (embedding != null) {
+                result.add(Pair.of(objects.get(i), embedding));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Obtains the embeddings of the given strings. Only those strings which are not in the cache
+     * yet are sent to the embedding model.
+     */
+    private Map<String, float[]> embedCached(List<String> aStrings) throws IOException
+    {
+        var settings = OllamaEmbedRequest.builder() //
                 .withModel(properties.getEmbedding().getModel()) //
-                .withInput(strings.toArray(String[]::new)) //
                 .withOption(OllamaOptions.NUM_CTX, properties.getEmbedding().getContextLength()) //
                 .withOption(OllamaOptions.SEED, properties.getEmbedding().getSeed()) //
-                // The following options should not be relevant for embeddings
-                // .withOption(OllamaOptions.TEMPERATURE, 0.0) //
-                // .withOption(OllamaOptions.TOP_P, 0.0) //
-                // .withOption(OllamaOptions.TOP_K, 0) //
-                // .withOption(OllamaOptions.REPEAT_PENALTY, 1.0) //
+                .build();
+
+        // Embeddings obtained from a different endpoint or with different options do not match
+        var scope = EmbeddingCache.scope(properties.getUrl(), settings.model(),
+                settings.options());
+
+        var embeddings = new HashMap<String, float[]>();
+        if (cache != null) {
+            embeddings.putAll(cache.getAll(scope, aStrings));
+        }
+
+        var missing = new LinkedHashSet<String>(aStrings);
+        missing.removeAll(embeddings.keySet());
+        if (missing.isEmpty()) {
+            return embeddings;
+        }
+
+        var request = OllamaEmbedRequest.builder() //
+                .withModel(settings.model()) //
+                .withInput(missing.toArray(String[]::new)) //
+                .withOptions(settings.options()) //
                 .build();
 
         var response = ollamaClient.embed(properties.getUrl(), request);
-        
-        var result = new ArrayList<Pair<T, float[]>>();
-        for (var i = 0; i < response.size(); i++) {
-            result.add(Pair.of(objects.get(i), response.get(i).getValue()));
+
+        var fresh = new LinkedHashMap<String, float[]>();
+        for (var r : response) {
+            fresh.put(r.getKey(), r.getValue());
         }
-        return result;
+
+        if (cache != null) {
+            cache.putAll(scope, fresh);
+        }
+
+        embeddings.putAll(fresh);
+        return embeddings;
     }
 
     @Override
@@ -23,6 +23,7 @@ import org.apache.lucene.codecs.KnnVectorsFormat;
 import org.apache.lucene.codecs.KnnVectorsReader;
 import org.apache.lucene.codecs.KnnVectorsWriter;
 import org.apache.lucene.codecs.lucene99.Lucene99Codec;
+import org.apache.lucene.codecs.lucene99.Lucene99HnswScalarQuantizedVectorsFormat;
 import org.apache.lucene.codecs.lucene99.Lucene99HnswVectorsFormat;
 import org.apache.lucene.index.SegmentReadState;
 import org.apache.lucene.index.SegmentWriteState;
@@ -34,7 +35,22 @@ public class HighDimensionLucene99Codec
 
     public HighDimensionLucene99Codec(int aDimension)
     {
-        var knnFormat = new Lucene99HnswVectorsFormat();
+        this(aDimension, false);
+    }
+
+    /**
+     * @param aDimension
+     *            the dimension of the vectors.
+     * @param aQuantized
+     *            whether the vectors should be scalar quantized in the HNSW graph. This reduces the
+     *            memory required for searching at a small loss of recall. The full vectors are
+     *            still stored to allow re-quantizing when merging segments. Since the format is
+     *            recorded per segment, existing segments remain readable when changing this.
+     */
+    public HighDimensionLucene99Codec(int aDimension, boolean aQuantized)
+    {
+        var knnFormat = aQuantized ? new Lucene99HnswScalarQuantizedVectorsFormat()
+                : new Lucene99HnswVectorsFormat();
         defaultKnnVectorsFormat = new HighDimensionKnnVectorsFormat(knnFormat, aDimension);
     }
 
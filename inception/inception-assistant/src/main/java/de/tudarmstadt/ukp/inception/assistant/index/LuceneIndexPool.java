@@ -50,6 +50,7 @@ public class LuceneIndexPool
     private final Duration minIdleTime;
     private final Duration borrowWaitTimeout;
     private final Path repositoryPath;
+    private final boolean quantizedVectors;
 
     private final GenericKeyedObjectPool<Long, PooledIndex> indexPool;
 
@@ -61,6 +62,7 @@ public class LuceneIndexPool
         minIdleTime = builder.minIdleTime;
         borrowWaitTimeout = builder.borrowWaitTimeout;
         repositoryPath = builder.path;
+        quantizedVectors = builder.quantizedVectors;
 
         var indexPoolConfig = new GenericKeyedObjectPoolConfig<PooledIndex>();
         // We only ever want one pooled index per project
@@ -152,7 +154,8 @@ public class LuceneIndexPool
         {
             var dir = new MMapDirectory(getIndexDirectory(aKey));
             var iwc = new IndexWriterConfig();
-            iwc.setCodec(new HighDimensionLucene99Codec(embeddingService.getDimension()));
+            iwc.setCodec(new HighDimensionLucene99Codec(embeddingService.getDimension(),
+                    quantizedVectors));
             return new PooledIndex(aKey, dir, new IndexWriter(dir, iwc));
         }
 
@@ -197,6 +200,7 @@ public class LuceneIndexPool
         private Duration minIdleTime;
         private Duration borrowWaitTimeout;
         private Path path;
+        private boolean quantizedVectors;
 
         private Builder()
         {
@@ -238,6 +242,12 @@ public class LuceneIndexPool
             return this;
         }
 
+        public Builder withQuantizedVectors(boolean aQuantizedVectors)
+        {
+            quantizedVectors = aQuantizedVectors;
+            return this;
+        }
+
         public LuceneIndexPool build()
         {
             return new LuceneIndexPool(this);
@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.assistant.embedding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EmbeddingCacheTest
+{
+    private static final String SCOPE = EmbeddingCache.scope("http://localhost:11434",
+            "granite-embedding", Map.of("num_ctx", 768));
+
+    private @TempDir Path cacheDir;
+
+    private ManualClock clock;
+    private EmbeddingCache sut;
+
+    @BeforeEach
+    void setup()
+    {
+        clock = new ManualClock();
+        sut = new EmbeddingCache(cacheDir, 2, Duration.ofDays(1), clock);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        sut.close();
+    }
+
+    @Test
+    void thatScopeDependsOnEndpointModelAndOptions()
+    {
+        assertThat(EmbeddingCache.scope("http://localhost:11434", "granite-embedding",
+                Map.of("num_ctx", 768))).isEqualTo(SCOPE);
+        assertThat(EmbeddingCache.scope("http://other-host:11434", "granite-embedding",
+                Map.of("num_ctx", 768))).isNotEqualTo(SCOPE);
+        assertThat(EmbeddingCache.scope("http://localhost:11434", "other-model",
+                Map.of("num_ctx", 768))).isNotEqualTo(SCOPE);
+        assertThat(EmbeddingCache.scope("http://localhost:11434", "granite-embedding",
+                Map.of("num_ctx", 256))).isNotEqualTo(SCOPE);
+    }
+
+    @Test
+    void thatLeastRecentlyUsedEntriesAreEvicted()
+    {
+        sut.putAll(SCOPE, Map.of("Waldi", new float[] { 1 }));
+        clock.advance(Duration.ofMinutes(1));
+        sut.putAll(SCOPE, Map.of("Miau", new float[] { 2 }));
+        clock.advance(Duration.ofMinutes(1));
+        // Using Waldi makes Miau the least recently used entry
+        assertThat(sut.getAll(SCOPE, List.of("Waldi"))).containsKey("Waldi");
+        clock.advance(Duration.ofMinutes(1));
+        sut.putAll(SCOPE, Map.of("Tweety", new float[] { 3 }));
+
+        assertThat(sut.getAll(SCOPE, List.of("Waldi", "Miau", "Tweety"))) //
+                .containsOnlyKeys("Waldi", "Tweety");
+    }
+
+    @Test
+    void thatExpiredEntriesAreEvicted() throws Exception
+    {
+        sut.putAll(SCOPE, Map.of("Waldi", new float[] { 1 }));
+        clock.advance(Duration.ofHours(12));
+        sut.putAll(SCOPE, Map.of("Miau", new float[] { 2 }));
+        clock.advance(Duration.ofHours(13));
+        sut.close();
+
+        sut = new EmbeddingCache(cacheDir, 2, Duration.ofDays(1), clock);
+
+        assertThat(sut.getAll(SCOPE, List.of("Waldi", "Miau"))).containsOnlyKeys("Miau");
+    }
+
+    @Test
+    void thatAccessTimesSurviveRestart() throws Exception
+    {
+        sut.putAll(SCOPE, Map.of("Waldi", new float[] { 1 }, "Miau", new float[] { 2 }));
+        clock.advance(Duration.ofHours(20));
+        // Only hits - nothing is added to the cache anymore
+        assertThat(sut.getAll(SCOPE, List.of("Waldi"))).containsKey("Waldi");
+        sut.close();
+
+        clock.advance(Duration.ofHours(10));
+        sut = new EmbeddingCache(cacheDir, 2, Duration.ofDays(1), clock);
+
+        assertThat(sut.getAll(SCOPE, List.of("Waldi", "Miau"))).containsOnlyKeys("Waldi");
+    }
+
+    private static class ManualClock
+        extends Clock
+    {
+        private Instant instant = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration aDuration)
+        {
+            instant = instant.plus(aDuration);
+        }
+
+        @Override
+        public ZoneId getZone()
+        {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId aZone)
+        {
+            return this;
+        }
+
+        @Override
+        public Instant instant()
+        {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.assistant.embedding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import de.tudarmstadt.ukp.inception.assistant.config.AssistantDocumentIndexPropertiesImpl;
+import de.tudarmstadt.ukp.inception.assistant.config.AssistantProperties;
+import de.tudarmstadt.ukp.inception.assistant.config.AssistantPropertiesImpl;
+import de.tudarmstadt.ukp.inception.assistant.config.AssistantPropertiesImpl.AssistantEmbeddingPropertiesImpl;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.ollama.client.OllamaClient;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.ollama.client.OllamaEmbedRequest;
+
+@ExtendWith(MockitoExtension.class)
+class EmbeddingServiceImplTest
+{
+    private static final int DIMENSION = 4;
+
+    private @Mock OllamaClient ollamaClient;
+    private @TempDir Path cacheDir;
+
+    private AssistantProperties properties;
+    private EmbeddingCache cache;
+    private EmbeddingServiceImpl sut;
+
+    @BeforeEach
+    void setup() throws Exception
+    {
+        properties = new AssistantPropertiesImpl(new AssistantDocumentIndexPropertiesImpl());
+        properties.getEmbedding().setDimension(DIMENSION);
+
+        // Deterministic fake embedder deriving the vector from the text
+        when(ollamaClient.embed(any(), any())).thenAnswer(call -> {
+            OllamaEmbedRequest request = call.getArgument(1);
+            var result = new ArrayList<Pair<String, float[]>>();
+            for (var text : request.input()) {
+                result.add(Pair.of(text, fakeEmbedding(text)));
+            }
+            return result;
+        });
+
+        cache = new EmbeddingCache(cacheDir);
+        sut = new EmbeddingServiceImpl(properties, ollamaClient, cache);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        cache.close();
+    }
+
+    @Test
+    void thatOnlyNewTextsAreEmbedded() throws Exception
+    {
+        var first = sut.embed(s -> s, List.of("Waldi barks loudly", "Miau purrs softly"));
+
+        assertThat(first) //
+                .extracting(Pair::getKey) //
+                .containsExactly("Waldi barks loudly", "Miau purrs softly");
+        assertThat(first.get(0).getValue()).containsExactly(fakeEmbedding("Waldi barks loudly"));
+
+        var second = sut.embed(s -> s,
+                List.of("Waldi barks loudly", "Tweety sings happily", "Miau purrs softly"));
+
+        assertThat(second) //
+                .extracting(Pair::getKey) //
+                .containsExactly("Waldi barks loudly", "Tweety sings happily",
+                        "Miau purrs softly");
+        assertThat(second) //
+                .extracting(Pair::getValue) //
+                .containsExactly(fakeEmbedding("Waldi barks loudly"),
+                        fakeEmbedding("Tweety sings happily"), fakeEmbedding("Miau purrs softly"));
+
+        var requests = ArgumentCaptor.forClass(OllamaEmbedRequest.class);
+        verify(ollamaClient, times(2)).embed(any(), requests.capture());
+        assertThat(requests.getAllValues()) //
+                .extracting(OllamaEmbedRequest::input) //
+                .containsExactly( //
+                        List.of("Waldi barks loudly", "Miau purrs softly"), //
+                        List.of("Tweety sings happily"));
+    }
+
+    @Test
+    void thatCacheSurvivesRestart() throws Exception
+    {
+        sut.embed(s -> s, List.of("Waldi barks loudly"));
+        cache.close();
+
+        cache = new EmbeddingCache(cacheDir);
+        sut = new EmbeddingServiceImpl(properties, ollamaClient, cache);
+
+        var result = sut.embed(s -> s, List.of("Waldi barks loudly"));
+
+        assertThat(result.get(0).getValue()).containsExactly(fakeEmbedding("Waldi barks loudly"));
+        verify(ollamaClient, times(1)).embed(any(), any());
+    }
+
+    @Test
+    void thatCacheIsSpecificToModel() throws Exception
+    {
+        sut.embed(s -> s, List.of("Waldi barks loudly"));
+
+        ((AssistantEmbeddingPropertiesImpl) properties.getEmbedding()).setModel("other-model");
+        sut.embed(s -> s, List.of("Waldi barks loudly"));
+
+        verify(ollamaClient, times(2)).embed(any(), any());
+    }
+
+    @Test
+    void thatCacheIsSpecificToEndpoint() throws Exception
+    {
+        sut.embed(s -> s, List.of("Waldi barks loudly"));
+
+        ((AssistantPropertiesImpl) properties).setUrl("http://other-host:11434");
+        sut.embed(s -> s, List.of("Waldi barks loudly"));
+
+        verify(ollamaClient, times(2)).embed(any(), any());
+    }
+
+    @Test
+    void thatCacheIsSpecificToOptions() throws Exception
+    {
+        sut.embed(s -> s, List.of("Waldi barks loudly"));
+
+        ((AssistantEmbeddingPropertiesImpl) properties.getEmbedding()).setContextLength(256);
+        sut.embed(s -> s, List.of("Waldi barks loudly"));
+
+        verify(ollamaClient, times(2)).embed(any(), any());
+    }
+
+    private static float[] fakeEmbedding(String aText)
+    {
+        var bytes = aText.getBytes(StandardCharsets.UTF_8);
+        var vector = new float[DIMENSION];
+        for (int i = 0; i < bytes.length; i++) {
+            vector[i % DIMENSION] += bytes[i];
+        }
+        return vector;
+    }
+}
@@ -50,6 +50,7 @@ import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.ColorRenderer;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.LabelRenderer;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.PreRenderer;
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.PreRendererImpl;
+import de.tudarmstadt.ukp.clarin.webanno.api.annotation.rendering.PreRendererPropertiesImpl;
 import de.tudarmstadt.ukp.clarin.webanno.brat.config.BratAnnotationEditorPropertiesImpl;
 import de.tudarmstadt.ukp.clarin.webanno.constraints.ConstraintsService;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
@@ -281,6 +282,60 @@ class BratSerializerImplTest
                 .isEqualToNormalizingNewlines(contentOf(new File(jsonFilePath), UTF_8));
     }
 
+    @Test
+    void thatParallelRenderingProducesSameResultAsSequentialRendering() throws Exception
+    {
+        when(schemaService.getAdapter(any(AnnotationLayer.class))).then(_call -> {
+            AnnotationLayer layer = _call.getArgument(0);
+            return layerRegistry.getLayerSupport(layer).createAdapter(layer,
+                    () -> asList(posFeature));
+        });
+
+        var file = "src/test/resources/tcf04-karin-wl.xml";
+
+        var cas = JCasFactory.createJCas().getCas();
+        var reader = createReader(TcfReader.class, TcfReader.PARAM_SOURCE_LOCATION, file);
+        reader.getNext(cas);
+        var state = new AnnotatorStateImpl(Mode.ANNOTATION);
+        state.setAllAnnotationLayers(schemaService.listAnnotationLayer(project));
+        state.setPagingStrategy(new SentenceOrientedPagingStrategy());
+        state.getPreferences().setWindowSize(10);
+        state.setFirstVisibleUnit(getFirstSentence(cas));
+        state.setProject(project);
+        state.setDocument(sourceDocument, asList(sourceDocument));
+
+        var request = RenderRequest.builder() //
+                .withState(state) //
+                .withWindow(state.getWindowBeginOffset(), state.getWindowEndOffset()) //
+                .withCas(cas) //
+                .withVisibleLayers(asList(tokenLayer, posLayer)) //
+                .build();
+
+        var properties = new PreRendererPropertiesImpl();
+        properties.setParallel(true);
+        properties.setParallelism(2);
+        properties.setMinParallelLayers(2);
+        var parallelPreRenderer = new PreRendererImpl(layerRegistry, schemaService, properties);
+
+        try {
+            var sequentialVdoc = new VDocument();
+            preRenderer.render(sequentialVdoc, request);
+            labelRenderer.render(sequentialVdoc, request);
+            colorRenderer.render(sequentialVdoc, request);
+
+            var parallelVdoc = new VDocument();
+            parallelPreRenderer.render(parallelVdoc, request);
+            labelRenderer.render(parallelVdoc, request);
+            colorRenderer.render(parallelVdoc, request);
+
+            assertThat(JSONUtil.toPrettyJsonString(sut.render(parallelVdoc, request)))
+                    .isEqualTo(JSONUtil.toPrettyJsonString(sut.render(sequentialVdoc, request)));
+        }
+        finally {
+            parallelPreRenderer.destroy();
+        }
+    }
+
     static AnnotationFS getFirstSentence(CAS aCas)
     {
         return aCas.select(Sentence.class).nullOK().get();
@@ -17,10 +17,17 @@
  */
 package de.tudarmstadt.ukp.inception.conceptlinking.config;
 
+import java.time.Duration;
+
 public interface EntityLinkingProperties
 {
     int getCacheSize();
 
+    /**
+     * @return time after which cached semantic signatures expire.
+     */
+    Duration getCacheExpiry();
+
     int getMentionContextSize();
 
     int getCandidateQueryLimit();
@@ -28,4 +35,15 @@ public interface EntityLinkingProperties
     int getCandidateDisplayLimit();
 
     int getSignatureQueryLimit();
+
+    /**
+     * @return maximum time to wait for candidates when querying multiple knowledge bases. Knowledge
+     *         bases which do not respond in time do not contribute candidates.
+     */
+    Duration getCandidateQueryTimeout();
+
+    /**
+     * @return maximum number of knowledge bases queried in parallel for candidates.
+     */
+    int getCandidateQueryThreads();
 }
@@ -17,6 +17,8 @@
  */
 package de.tudarmstadt.ukp.inception.conceptlinking.config;
 
+import java.time.Duration;
+
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -30,11 +32,14 @@ public class EntityLinkingPropertiesImpl
     implements EntityLinkingProperties
 {
     private int cacheSize = 1024;
+    private Duration cacheExpiry = Duration.ofMinutes(30);
 
     private int mentionContextSize = 5;
     private int candidateQueryLimit = 2500;
     private int candidateDisplayLimit = 100;
     private int signatureQueryLimit = Integer.MAX_VALUE;
+    private Duration candidateQueryTimeout = Duration.ofSeconds(5);
+    private int candidateQueryThreads = 4;
 
     @Override
     public int getCacheSize()
@@ -47,6 +52,17 @@ public class EntityLinkingPropertiesImpl
         this.cacheSize = cacheSize;
     }
 
+    @Override
+    public Duration getCacheExpiry()
+    {
+        return cacheExpiry;
+    }
+
+    public void setCacheExpiry(Duration cacheExpiry)
+    {
+        this.cacheExpiry = cacheExpiry;
+    }
+
     @Override
     public int getMentionContextSize()
     {
@@ -90,4 +106,26 @@ public class EntityLinkingPropertiesImpl
     {
         this.signatureQueryLimit = signatureQueryLimit;
     }
+
+    @Override
+    public Duration getCandidateQueryTimeout()
+    {
+        return candidateQueryTimeout;
+    }
+
+    public void setCandidateQueryTimeout(Duration candidateQueryTimeout)
+    {
+        this.candidateQueryTimeout = candidateQueryTimeout;
+    }
+
+    @Override
+    public int getCandidateQueryThreads()
+    {
+        return candidateQueryThreads;
+    }
+
+    public void setCandidateQueryThreads(int candidateQueryThreads)
+    {
+        this.candidateQueryThreads = candidateQueryThreads;
+    }
 }
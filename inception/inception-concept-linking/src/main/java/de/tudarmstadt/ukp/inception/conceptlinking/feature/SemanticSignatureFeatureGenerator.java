@@ -104,7 +104,9 @@ public class SemanticSignatureFeatureGenerator
         kbService = aKbService;
         properties = aProperties;
 
-        semanticSignatureCache = Caffeine.newBuilder().maximumSize(properties.getCacheSize())
+        semanticSignatureCache = Caffeine.newBuilder() //
+                .maximumSize(properties.getCacheSize()) //
+                .expireAfterWrite(properties.getCacheExpiry()) //
                 .build(key -> loadSemanticSignature(key));
 
         propertyBlacklist = FileUtils.loadPropertyBlacklist(
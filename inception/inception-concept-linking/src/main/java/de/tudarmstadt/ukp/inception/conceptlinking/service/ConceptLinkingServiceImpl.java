@@ -27,6 +27,8 @@ import static java.util.Collections.emptySet;
 import static java.util.Collections.unmodifiableList;
 import static java.util.Comparator.comparingInt;
 import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Collectors.toCollection;
 import static org.apache.uima.fit.util.CasUtil.getType;
 import static org.apache.uima.fit.util.CasUtil.select;
@@ -38,19 +40,30 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.commons.lang3.ClassUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.text.AnnotationFS;
 import org.apache.uima.fit.util.CasUtil;
 import org.eclipse.rdf4j.common.net.ParsedIRI;
+import org.eclipse.rdf4j.query.QueryInterruptedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
@@ -85,7 +98,7 @@ import de.tudarmstadt.ukp.inception.support.wicket.WicketUtil;
  * </p>
  */
 public class ConceptLinkingServiceImpl
-    implements InitializingBean, ConceptLinkingService
+    implements InitializingBean, DisposableBean, ConceptLinkingService
 {
     private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
@@ -98,6 +111,8 @@ public class ConceptLinkingServiceImpl
     private final List<EntityRankingFeatureGenerator> featureGeneratorsProxy;
     private List<EntityRankingFeatureGenerator> featureGenerators;
 
+    private final ThreadPoolExecutor candidateQueryExecutor;
+
     @Autowired
     public ConceptLinkingServiceImpl(KnowledgeBaseService aKbService,
             EntityLinkingPropertiesImpl aProperties, RepositoryProperties aRepoProperties,
@@ -110,6 +125,14 @@ public class ConceptLinkingServiceImpl
         properties = aProperties;
         featureGeneratorsProxy = aFeatureGenerators;
         repoProperties = aRepoProperties;
+
+        var threads = aProperties.getCandidateQueryThreads();
+        candidateQueryExecutor = new ThreadPoolExecutor(threads, threads, 60, SECONDS,
+                new LinkedBlockingQueue<>(), new BasicThreadFactory.Builder() //
+                        .daemon(true) //
+                        .namingPattern("concept-linking-%d") //
+                        .build());
+        candidateQueryExecutor.allowCoreThreadTimeOut(true);
     }
 
     @Override
@@ -146,24 +169,44 @@ public class ConceptLinkingServiceImpl
     }
 
     private SPARQLQueryPrimaryConditions newQueryBuilder(ConceptFeatureValueType aValueType,
-            KnowledgeBase aKB)
+            KnowledgeBase aKB, int aMaxExecutionTime)
     {
+        SPARQLQueryBuilder builder;
         switch (aValueType) {
         case ANY_OBJECT:
-            return SPARQLQueryBuilder.forItems(aKB);
+            builder = SPARQLQueryBuilder.forItems(aKB);
+            break;
         case CONCEPT:
-            return SPARQLQueryBuilder.forClasses(aKB);
+            builder = SPARQLQueryBuilder.forClasses(aKB);
+            break;
         case INSTANCE:
-            return SPARQLQueryBuilder.forInstances(aKB);
+            builder = SPARQLQueryBuilder.forInstances(aKB);
+            break;
         case PROPERTY:
-            return SPARQLQueryBuilder.forProperties(aKB);
+            builder = SPARQLQueryBuilder.forProperties(aKB);
+            break;
         default:
             throw new IllegalArgumentException("Unknown item type: [" + aValueType + "]");
         }
+
+        builder.maxExecutionTime(aMaxExecutionTime);
+        return builder;
     }
 
     public Set<KBHandle> generateCandidates(KnowledgeBase aKB, String aConceptScope,
             ConceptFeatureValueType aValueType, String aQuery, String aMention)
+    {
+        return generateCandidates(aKB, aConceptScope, aValueType, aQuery, aMention, 0);
+    }
+
+    /**
+     * @param aMaxExecutionTime
+     *            the maximum time in seconds each of the candidate queries may take or {@code 0}
+     *            for no limit.
+     */
+    private Set<KBHandle> generateCandidates(KnowledgeBase aKB, String aConceptScope,
+            ConceptFeatureValueType aValueType, String aQuery, String aMention,
+            int aMaxExecutionTime)
     {
         // If the query of the user is smaller or equal to this threshold, then we only use it
         // for exact matching. If it is longer, we look for concepts which start with or which
@@ -178,7 +221,8 @@ public class ConceptLinkingServiceImpl
         var startTime = currentTimeMillis();
         try {
             if (aQuery != null) {
-                var exactMatches = findExactIriMatches(aKB, aConceptScope, aValueType, aQuery);
+                var exactMatches = findExactIriMatches(aKB, aConceptScope, aValueType, aQuery,
+                        aMaxExecutionTime);
 
                 // If there was an exact IRI match, there is probably little point in searching for
                 // matching labels... I mean, who would use an IRI as a concept label...?
@@ -193,20 +237,20 @@ public class ConceptLinkingServiceImpl
             // the exact matches separately to ensure we have them.
             // Mind, we use the query and the mention text here - of course we don't only want
             // exact matches of the query but also of the mention :)
-            var exactMatches = supplyAsync(
-                    () -> findExactMatches(aKB, aConceptScope, aValueType, aQuery, aMention));
+            var exactMatches = supplyAsync(() -> findExactMatches(aKB, aConceptScope, aValueType,
+                    aQuery, aMention, aMaxExecutionTime));
 
             // Next we also do a "starting with" search - but only if the user's query is longer
             // than the threshold - this is because for short queries, we'd get way too many results
             // which would be slow - and also the results would likely not be very accurate
             var startingWithMatches = supplyAsync(() -> findStartingWithMatches(aKB, aConceptScope,
-                    aValueType, aQuery, threshold));
+                    aValueType, aQuery, threshold, aMaxExecutionTime));
 
             // Finally, we use the query and mention also for a "containing" search - but only if
             // they are longer than the threshold. Again, for very short query/mention, we'd
             // otherwise get way too many matches, being slow and not accurate.
             var containingMatches = supplyAsync(() -> findContainingMatches(aKB, aConceptScope,
-                    aValueType, aQuery, aMention, threshold));
+                    aValueType, aQuery, aMention, threshold, aMaxExecutionTime));
 
             results.addAll(exactMatches.join());
             results.addAll(startingWithMatches.join());
@@ -222,7 +266,8 @@ public class ConceptLinkingServiceImpl
     }
 
     private List<KBHandle> findExactMatches(KnowledgeBase aKB, String aConceptScope,
-            ConceptFeatureValueType aValueType, String aQuery, String aMention)
+            ConceptFeatureValueType aValueType, String aQuery, String aMention,
+            int aMaxExecutionTime)
     {
         var exactLabels = asList(aQuery, aMention).stream() //
                 .filter(StringUtils::isNotBlank) //
@@ -234,7 +279,7 @@ public class ConceptLinkingServiceImpl
 
         var startTime = currentTimeMillis();
 
-        var query = newQueryBuilder(aValueType, aKB);
+        var query = newQueryBuilder(aValueType, aKB, aMaxExecutionTime);
 
         if (aConceptScope != null) {
             // Scope-limiting must always happen before label matching!
@@ -262,7 +307,8 @@ public class ConceptLinkingServiceImpl
     }
 
     private List<KBHandle> findContainingMatches(KnowledgeBase aKB, String aConceptScope,
-            ConceptFeatureValueType aValueType, String aQuery, String aMention, final int threshold)
+            ConceptFeatureValueType aValueType, String aQuery, String aMention, final int threshold,
+            int aMaxExecutionTime)
     {
         var longLabels = asList(aQuery, aMention).stream() //
                 .filter(Objects::nonNull) //
@@ -279,7 +325,7 @@ public class ConceptLinkingServiceImpl
         var startTime = currentTimeMillis();
 
         // Collect containing matches
-        var query = newQueryBuilder(aValueType, aKB);
+        var query = newQueryBuilder(aValueType, aKB, aMaxExecutionTime);
 
         if (aConceptScope != null) {
             // Scope-limiting must always happen before label matching!
@@ -312,7 +358,8 @@ public class ConceptLinkingServiceImpl
     }
 
     private List<KBHandle> findStartingWithMatches(KnowledgeBase aKB, String aConceptScope,
-            ConceptFeatureValueType aValueType, String aQuery, final int threshold)
+            ConceptFeatureValueType aValueType, String aQuery, final int threshold,
+            int aMaxExecutionTime)
     {
         if (aQuery == null || aQuery.trim().length() < threshold) {
             LOG.debug("Not searching for candidates matching query because it is too short");
@@ -321,7 +368,7 @@ public class ConceptLinkingServiceImpl
 
         var startTime = currentTimeMillis();
 
-        var query = newQueryBuilder(aValueType, aKB);
+        var query = newQueryBuilder(aValueType, aKB, aMaxExecutionTime);
 
         if (aConceptScope != null) {
             // Scope-limiting must always happen before label matching!
@@ -351,7 +398,7 @@ public class ConceptLinkingServiceImpl
     }
 
     private Set<KBHandle> findExactIriMatches(KnowledgeBase aKB, String aConceptScope,
-            ConceptFeatureValueType aValueType, String aQuery)
+            ConceptFeatureValueType aValueType, String aQuery, int aMaxExecutionTime)
     {
         var startTime = currentTimeMillis();
 
@@ -367,7 +414,8 @@ public class ConceptLinkingServiceImpl
             return emptySet();
         }
 
-        var iriMatchBuilder = newQueryBuilder(aValueType, aKB).withIdentifier(aQuery);
+        var iriMatchBuilder = newQueryBuilder(aValueType, aKB, aMaxExecutionTime)
+                .withIdentifier(aQuery);
 
         if (aConceptScope != null) {
             iriMatchBuilder.descendantsOf(aConceptScope);
@@ -400,35 +448,53 @@ public class ConceptLinkingServiceImpl
         return rankCandidates(aQuery, aMention, candidates, aCas, aMentionBeginOffset);
     }
 
+    /**
+     * Collects the tokens surrounding the mention. These are the same for all candidates, so they
+     * are collected only once per ranking request instead of once per candidate.
+     * 
+     * @return the covered texts of the tokens left and right of the mention or {@code null} if
+     *         the mention context could not be determined.
+     */
+    private List<String> collectMentionContextTokens(String aMention, CAS aCas, int aBegin)
+    {
+        if (aCas == null || aMention == null) {
+            return null;
+        }
+
+        var sentence = selectSentenceCovering(aCas, aBegin);
+        if (sentence == null) {
+            LOG.warn("Mention sentence could not be determined. Skipping.");
+            return null;
+        }
+
+        var mentionContext = new ArrayList<String>();
+        var tokens = selectTokensCovered(sentence);
+        // Collect left context
+        tokens.stream().filter(t -> t.getEnd() <= aBegin)
+                .sorted(comparingInt(AnnotationFS::getBegin).reversed())
+                .limit(properties.getMentionContextSize()) //
+                .map(AnnotationFS::getCoveredText) //
+                .forEach(mentionContext::add);
+        // Collect right context
+        tokens.stream().filter(t -> t.getBegin() >= (aBegin + aMention.length()))
+                .limit(properties.getMentionContextSize()) //
+                .map(AnnotationFS::getCoveredText) //
+                .forEach(mentionContext::add);
+        return mentionContext;
+    }
+
     private CandidateEntity initCandidate(CandidateEntity candidate, String aQuery, String aMention,
-            CAS aCas, int aBegin)
+            List<String> aMentionContextTokens)
     {
         candidate.withMention(aMention);
         candidate.withQuery(aQuery);
 
-        if (aCas != null && aMention != null) {
-            var sentence = selectSentenceCovering(aCas, aBegin);
-            if (sentence != null) {
-                var mentionContext = new ArrayList<String>();
-                var tokens = selectTokensCovered(sentence);
-                // Collect left context
-                tokens.stream().filter(t -> t.getEnd() <= aBegin)
-                        .sorted(comparingInt(AnnotationFS::getBegin).reversed())
-                        .limit(properties.getMentionContextSize())
-                        .map(t -> t.getCoveredText().toLowerCase(candidate.getLocale()))
-                        .filter(s -> !stopwords.contains(s)) //
-                        .forEach(mentionContext::add);
-                // Collect right context
-                tokens.stream().filter(t -> t.getBegin() >= (aBegin + aMention.length()))
-                        .limit(properties.getMentionContextSize())
-                        .map(t -> t.getCoveredText().toLowerCase(candidate.getLocale()))
-                        .filter(s -> !stopwords.contains(s)) //
-                        .forEach(mentionContext::add);
-                candidate.put(KEY_MENTION_CONTEXT, mentionContext);
-            }
-            else {
-                LOG.warn("Mention sentence could not be determined. Skipping.");
-            }
+        if (aMentionContextTokens != null) {
+            var mentionContext = aMentionContextTokens.stream() //
+                    .map(t -> t.toLowerCase(candidate.getLocale())) //
+                    .filter(s -> !stopwords.contains(s)) //
+                    .collect(toCollection(ArrayList::new));
+            candidate.put(KEY_MENTION_CONTEXT, mentionContext);
         }
 
         return candidate;
@@ -440,10 +506,12 @@ public class ConceptLinkingServiceImpl
     {
         var startTime = currentTimeMillis();
 
+        var mentionContextTokens = collectMentionContextTokens(aMention, aCas, aBegin);
+
         // Set the feature values
         var candidates = aCandidates.stream() //
                 .map(CandidateEntity::new) //
-                .map(candidate -> initCandidate(candidate, aQuery, aMention, aCas, aBegin))
+                .map(candidate -> initCandidate(candidate, aQuery, aMention, mentionContextTokens))
                 .map(candidate -> {
                     for (EntityRankingFeatureGenerator generator : featureGenerators) {
                         generator.apply(candidate);
@@ -503,14 +571,91 @@ public class ConceptLinkingServiceImpl
 
         // Query the knowledge bases for candidates
         var candidates = new HashSet<KBHandle>();
-        for (var kb : knowledgeBases) {
-            candidates.addAll(generateCandidates(kb, aConceptScope, aValueType, query, aMention));
+        if (knowledgeBases.size() == 1) {
+            candidates.addAll(generateCandidates(knowledgeBases.get(0), aConceptScope, aValueType,
+                    query, aMention));
+        }
+        else {
+            candidates.addAll(generateCandidatesConcurrently(knowledgeBases, aConceptScope,
+                    aValueType, query, aMention));
         }
 
         // Rank the candidates and return them
         return rankCandidates(query, aMention, candidates, aCas, aMentionBeginOffset);
     }
 
+    /**
+     * Queries the given knowledge bases concurrently. Knowledge bases which do not respond within
+     * the candidate query timeout do not contribute any candidates, so a single slow knowledge base
+     * does not hold up the candidates from all the others. The timeout is also passed on to the
+     * queries themselves as their maximum execution time, so the knowledge bases stop working on
+     * queries whose results are no longer waited for.
+     */
+    private Set<KBHandle> generateCandidatesConcurrently(List<KnowledgeBase> aKnowledgeBases,
+            String aConceptScope, ConceptFeatureValueType aValueType, String aQuery,
+            String aMention)
+    {
+        var timeout = properties.getCandidateQueryTimeout();
+        var maxExecutionTime = (int) Math.max(1, (timeout.toMillis() + 999) / 1000);
+
+        var futures = new LinkedHashMap<KnowledgeBase, CompletableFuture<Set<KBHandle>>>();
+        for (var kb : aKnowledgeBases) {
+            futures.put(kb, supplyAsync(() -> generateCandidates(kb, aConceptScope, aValueType,
+                    aQuery, aMention, maxExecutionTime), candidateQueryExecutor));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new))
+                    .get(timeout.toMillis(), MILLISECONDS);
+        }
+        catch (TimeoutException e) {
+            // Use the candidates from those knowledge bases which did respond in time
+        }
+        catch (ExecutionException e) {
+            // Handled below when collecting the results of the individual knowledge bases
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        var candidates = new HashSet<KBHandle>();
+        for (var entry : futures.entrySet()) {
+            var future = entry.getValue();
+            if (!future.isDone()) {
+                LOG.warn("Knowledge base {} did not provide candidates within {} - skipping",
+                        entry.getKey(), timeout);
+                // This does not interrupt the query - it is aborted once it exceeds its maximum
+                // execution time
+                future.cancel(false);
+                continue;
+            }
+
+            try {
+                candidates.addAll(future.join());
+            }
+            catch (CompletionException e) {
+                if (ExceptionUtils.indexOfType(e, QueryInterruptedException.class) != -1) {
+                    LOG.warn("Knowledge base {} did not provide candidates within {} - skipping",
+                            entry.getKey(), timeout);
+                    continue;
+                }
+
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        return candidates;
+    }
+
+    @Override
+    public void destroy()
+    {
+        candidateQueryExecutor.shutdownNow();
+    }
+
     /**
      * Find KB items (classes and instances) matching the given query.
      */
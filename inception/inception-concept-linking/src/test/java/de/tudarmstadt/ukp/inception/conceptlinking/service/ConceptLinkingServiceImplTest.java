@@ -24,6 +24,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import java.io.File;
 
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -36,6 +37,7 @@ import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.transaction.annotation.Transactional;
 
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.inception.conceptlinking.config.EntityLinkingPropertiesImpl;
 import de.tudarmstadt.ukp.inception.conceptlinking.util.TestFixtures;
 import de.tudarmstadt.ukp.inception.documents.api.RepositoryPropertiesImpl;
@@ -65,20 +67,23 @@ public class ConceptLinkingServiceImplTest
     @Autowired
     private TestEntityManager testEntityManager;
 
+    private RepositoryPropertiesImpl repoProps;
     private KnowledgeBaseService kbService;
     private ConceptLinkingServiceImpl sut;
 
+    private TestFixtures testFixtures;
+    private Project project;
     private KnowledgeBase kb;
 
     @BeforeEach
     public void setUp() throws Exception
     {
-        var repoProps = new RepositoryPropertiesImpl();
+        repoProps = new RepositoryPropertiesImpl();
         var kbProperties = new KnowledgeBasePropertiesImpl();
         repoProps.setPath(temporaryFolder);
 
         var entityManager = testEntityManager.getEntityManager();
-        var testFixtures = new TestFixtures(testEntityManager);
+        testFixtures = new TestFixtures(testEntityManager);
         kbService = new KnowledgeBaseServiceImpl(repoProps, kbProperties, entityManager);
 
         sut = new ConceptLinkingServiceImpl(kbService, new EntityLinkingPropertiesImpl(), repoProps,
@@ -86,10 +91,16 @@ public class ConceptLinkingServiceImplTest
         sut.afterPropertiesSet();
         sut.init();
 
-        var project = testFixtures.createProject(PROJECT_NAME);
+        project = testFixtures.createProject(PROJECT_NAME);
         kb = testFixtures.buildKnowledgeBase(project, KB_NAME, Reification.NONE);
     }
 
+    @AfterEach
+    public void tearDown()
+    {
+        sut.destroy();
+    }
+
     @Test
     public void thatLuceneSailIndexedConceptIsRetrievableWithFullTextSearch() throws Exception
     {
@@ -124,6 +135,62 @@ public class ConceptLinkingServiceImplTest
         kbService.removeKnowledgeBase(kb);
     }
 
+    @Test
+    public void thatCandidatesFromAllKnowledgeBasesAreRetrieved() throws Exception
+    {
+        kbService.registerKnowledgeBase(kb, kbService.getNativeConfig());
+        importKnowledgeBase("data/pets.ttl");
+
+        var otherKb = testFixtures.buildKnowledgeBase(project, "Other " + KB_NAME,
+                Reification.NONE);
+        kbService.registerKnowledgeBase(otherKb, kbService.getNativeConfig());
+        var concept = new KBConcept();
+        concept.setName("Sockenpuppe");
+        kbService.createConcept(otherKb, concept);
+
+        var handles = sut.getLinkingInstancesInKBScope(null, null, ANY_OBJECT, "soc", null, 0,
+                null, project);
+
+        assertThat(handles.stream().map(KBHandle::getName))
+                .as("Check whether candidates from both knowledge bases have been retrieved.") //
+                .contains("Socke", "Sockenpuppe");
+
+        kbService.removeKnowledgeBase(otherKb);
+        kbService.removeKnowledgeBase(kb);
+    }
+
+    @Test
+    public void thatKnowledgeBasesExceedingTheQueryThreadsAreQueued() throws Exception
+    {
+        var properties = new EntityLinkingPropertiesImpl();
+        properties.setCandidateQueryThreads(1);
+        sut.destroy();
+        sut = new ConceptLinkingServiceImpl(kbService, properties, repoProps,
+                emptyList());
+        sut.afterPropertiesSet();
+        sut.init();
+
+        kbService.registerKnowledgeBase(kb, kbService.getNativeConfig());
+        importKnowledgeBase("data/pets.ttl");
+
+        var otherKb = testFixtures.buildKnowledgeBase(project, "Other " + KB_NAME,
+                Reification.NONE);
+        kbService.registerKnowledgeBase(otherKb, kbService.getNativeConfig());
+        var concept = new KBConcept();
+        concept.setName("Sockenpuppe");
+        kbService.createConcept(otherKb, concept);
+
+        var handles = sut.getLinkingInstancesInKBScope(null, null, ANY_OBJECT, "soc", null, 0,
+                null, project);
+
+        assertThat(handles.stream().map(KBHandle::getName))
+                .as("Check whether candidates from both knowledge bases have been retrieved.") //
+                .contains("Socke", "Sockenpuppe");
+
+        kbService.removeKnowledgeBase(otherKb);
+        kbService.removeKnowledgeBase(kb);
+    }
+
     private void importKnowledgeBase(String resourceName) throws Exception
     {
         var classLoader = getClass().getClassLoader();
@@ -183,6 +183,36 @@ public class CasDiff
         return new DiffResult(this);
     }
 
+    /**
+     * Derives the diff for a subset of the CAS groups from this diff. The result is the same as if
+     * the diff had been calculated only over the CASes of the given CAS groups, but the CASes do
+     * not need to be analyzed again. This is useful when the diffs for many combinations of CAS
+     * groups are needed, e.g. when calculating pairwise agreement.
+     * 
+     * @param aCasGroupIds
+     *            the CAS groups to retain.
+     * @return a diff restricted to the given CAS groups.
+     */
+    public CasDiff restrictedTo(Collection<String> aCasGroupIds)
+    {
+        var diff = new CasDiff(begin, end, diffAdapters.values());
+
+        for (var e : casses.entrySet()) {
+            if (aCasGroupIds.contains(e.getKey())) {
+                diff.casses.put(e.getKey(), e.getValue());
+            }
+        }
+
+        for (var e : configSets.entrySet()) {
+            var cfgSet = e.getValue().restrictedTo(aCasGroupIds);
+            if (cfgSet != null) {
+                diff.configSets.put(e.getKey(), cfgSet);
+            }
+        }
+
+        return diff;
+    }
+
     /**
      * CASes are added to the diff one after another, building the diff iteratively. A CAS can be
      * added multiple times for different types. Make sure a CAS is not added twice with the same
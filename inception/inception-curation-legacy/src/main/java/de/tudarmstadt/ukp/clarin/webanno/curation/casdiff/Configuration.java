@@ -22,6 +22,7 @@ import static java.util.stream.Collectors.joining;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -103,6 +104,39 @@ public class Configuration
         add(aCasGroupId, new AID(ICasUtil.getAddr(aFS), aFeature, aSlot));
     }
 
+    /**
+     * @param aCasGroupIds
+     *            the CAS groups to retain.
+     * @return a copy of this configuration only containing the annotations from the given CAS
+     *         groups or {@code null} if the configuration has not been observed in any of them.
+     */
+    Configuration restrictedTo(Collection<String> aCasGroupIds)
+    {
+        var copy = new Configuration(position);
+        for (var e : fsAddresses.entrySet()) {
+            if (aCasGroupIds.contains(e.getKey())) {
+                copy.fsAddresses.put(e.getKey(), e.getValue());
+            }
+        }
+
+        if (copy.fsAddresses.isEmpty()) {
+            return null;
+        }
+
+        if (duplicates != null) {
+            for (var e : duplicates.entrySet()) {
+                if (aCasGroupIds.contains(e.getKey())) {
+                    if (copy.duplicates == null) {
+                        copy.duplicates = new TreeMap<>();
+                    }
+                    copy.duplicates.put(e.getKey(), new ArrayList<>(e.getValue()));
+                }
+            }
+        }
+
+        return copy;
+    }
+
     public AID getRepresentativeAID()
     {
         var e = fsAddresses.entrySet().iterator().next();
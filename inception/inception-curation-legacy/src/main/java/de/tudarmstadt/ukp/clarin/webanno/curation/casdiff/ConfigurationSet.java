@@ -21,6 +21,7 @@ import static java.util.Arrays.asList;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -132,6 +133,36 @@ public class ConfigurationSet
         configurations.add(aCfg);
     }
 
+    /**
+     * @param aCasGroupIds
+     *            the CAS groups to retain.
+     * @return a copy of this set only containing the configurations observed in the given CAS
+     *         groups or {@code null} if none of them has been observed at this position. Tags and
+     *         values added during agreement calculation are not copied.
+     */
+    ConfigurationSet restrictedTo(Collection<String> aCasGroupIds)
+    {
+        var copy = new ConfigurationSet(position);
+        for (var cfg : configurations) {
+            var cfgCopy = cfg.restrictedTo(aCasGroupIds);
+            if (cfgCopy != null) {
+                copy.configurations.add(cfgCopy);
+            }
+        }
+
+        if (copy.configurations.isEmpty()) {
+            return null;
+        }
+
+        for (var casGroupId : casGroupIds) {
+            if (aCasGroupIds.contains(casGroupId)) {
+                copy.casGroupIds.add(casGroupId);
+            }
+        }
+
+        return copy;
+    }
+
     public Optional<Configuration> findConfiguration(String aCasGroupId, FeatureStructure aFS)
     {
         return configurations.stream().filter(cfg -> cfg.contains(aCasGroupId, aFS)).findFirst();
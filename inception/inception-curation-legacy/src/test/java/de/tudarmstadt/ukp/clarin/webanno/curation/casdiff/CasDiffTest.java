@@ -205,6 +205,40 @@ public class CasDiffTest
         assertThat(calculateState(result)).isEqualTo(DISAGREE);
     }
 
+    @Test
+    public void thatRestrictedDiffMatchesDiffOverSubset() throws Exception
+    {
+        var casByUser = load( //
+                "casdiff/someDifferences/user1.conll", //
+                "casdiff/someDifferences/user2.conll", //
+                "casdiff/someDifferences/user1.conll");
+
+        var diffAdapters = asList(POS_DIFF_ADAPTER);
+
+        var diff = doDiff(diffAdapters, casByUser);
+
+        for (var pair : asList(asList("user1", "user2"), asList("user1", "user3"),
+                asList("user2", "user3"))) {
+            var pairCasByUser = new LinkedHashMap<String, CAS>();
+            pair.forEach(user -> pairCasByUser.put(user, casByUser.get(user)));
+
+            var expected = doDiff(diffAdapters, pairCasByUser).toResult();
+            var actual = diff.restrictedTo(pair).toResult();
+
+            assertThat(actual.getCasGroupIds()).containsExactlyElementsOf(pair);
+            assertThat(actual.size()).isEqualTo(expected.size());
+            assertThat(actual.getDifferingConfigurationSets().keySet())
+                    .containsExactlyInAnyOrderElementsOf(
+                            expected.getDifferingConfigurationSets().keySet());
+            assertThat(actual.getIncompleteConfigurationSets().keySet())
+                    .containsExactlyInAnyOrderElementsOf(
+                            expected.getIncompleteConfigurationSets().keySet());
+        }
+
+        assertThat(diff.restrictedTo(asList("user1", "user3")).toResult()
+                .getDifferingConfigurationSets()).isEmpty();
+    }
+
     @Test
     public void singleNoDifferencesTest() throws Exception
     {
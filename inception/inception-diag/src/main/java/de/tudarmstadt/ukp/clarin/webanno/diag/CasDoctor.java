@@ -20,6 +20,7 @@ package de.tudarmstadt.ukp.clarin.webanno.diag;
 import static de.tudarmstadt.ukp.inception.support.wicket.WicketUtil.serverTiming;
 import static java.lang.System.currentTimeMillis;
 import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.HOURS;
 import static org.apache.commons.collections4.CollectionUtils.isNotEmpty;
 
 import java.util.ArrayList;
@@ -27,6 +28,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.uima.cas.CAS;
 import org.slf4j.Logger;
@@ -34,7 +36,13 @@ import org.slf4j.LoggerFactory;
 import org.springframework.boot.context.event.ApplicationStartedEvent;
 import org.springframework.context.event.EventListener;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import de.tudarmstadt.ukp.clarin.webanno.diag.checks.CheckCost;
 import de.tudarmstadt.ukp.clarin.webanno.diag.config.CasDoctorProperties;
+import de.tudarmstadt.ukp.clarin.webanno.diag.metrics.CasDoctorMetrics;
+import de.tudarmstadt.ukp.clarin.webanno.diag.metrics.CasDoctorMetricsImpl;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.inception.support.SettingsUtil;
 import de.tudarmstadt.ukp.inception.support.logging.LogMessage;
@@ -45,21 +53,39 @@ public class CasDoctor
 
     private final ChecksRegistry checksRegistry;
     private final RepairsRegistry repairsRegistry;
+    private final CasDoctorMetrics metrics;
+
+    /**
+     * Number of writes per CAS used to decide when the expensive checks are due again.
+     */
+    private final Cache<CasKey, AtomicLong> writeCounts = Caffeine.newBuilder() //
+            .expireAfterAccess(1, HOURS) //
+            .maximumSize(10_000) //
+            .build();
 
     private Set<String> activeChecks;
     private Set<String> activeRepairs;
 
     private boolean fatalChecks = true;
     private boolean disableAutoScan = false;
+    private int expensiveChecksInterval = 1;
 
     public CasDoctor(CasDoctorProperties aProperties, ChecksRegistry aChecksRegistry,
             RepairsRegistry aRepairsRegistry)
+    {
+        this(aProperties, aChecksRegistry, aRepairsRegistry, new CasDoctorMetricsImpl());
+    }
+
+    public CasDoctor(CasDoctorProperties aProperties, ChecksRegistry aChecksRegistry,
+            RepairsRegistry aRepairsRegistry, CasDoctorMetrics aMetrics)
     {
         checksRegistry = aChecksRegistry;
         repairsRegistry = aRepairsRegistry;
+        metrics = aMetrics;
 
         fatalChecks = aProperties.isFatal();
         disableAutoScan = aProperties.isForceReleaseBehavior();
+        expensiveChecksInterval = aProperties.getExpensiveChecksInterval();
 
         activeChecks = new LinkedHashSet<>();
         if (isNotEmpty(aProperties.getChecks())) {
@@ -76,6 +102,7 @@ public class CasDoctor
     {
         checksRegistry = aChecksRegistry;
         repairsRegistry = aRepairsRegistry;
+        metrics = new CasDoctorMetricsImpl();
 
         fatalChecks = false;
         disableAutoScan = true;
@@ -163,6 +190,57 @@ public class CasDoctor
     public boolean analyze(SourceDocument aDocument, String aDataOwner, CAS aCas,
             List<LogMessage> aMessages, boolean aFatalChecks)
         throws CasDoctorException
+    {
+        return analyze(aDocument, aDataOwner, aCas, aMessages, aFatalChecks, true);
+    }
+
+    /**
+     * Analyzes a CAS which is about to be written. The {@link CheckCost#CHEAP cheap} checks are run
+     * on every write. The {@link CheckCost#EXPENSIVE expensive} checks are only run on the first
+     * and then on every n-th write of the CAS as configured by
+     * {@link CasDoctorProperties#getExpensiveChecksInterval()}. To run all checks regardless of
+     * their cost, use {@link #analyze(SourceDocument, String, CAS)}.
+     * 
+     * @param aDocument
+     *            the document.
+     * @param aDataOwner
+     *            the owner of the CAS.
+     * @param aCas
+     *            the CAS.
+     * @return whether all checks that were run passed.
+     * @throws CasDoctorException
+     *             if a check failed and checks are fatal.
+     */
+    public boolean analyzeOnWrite(SourceDocument aDocument, String aDataOwner, CAS aCas)
+        throws CasDoctorException
+    {
+        var messages = new ArrayList<LogMessage>();
+        var result = analyze(aDocument, aDataOwner, aCas, messages, isFatalChecks(),
+                isExpensiveChecksDue(aDocument, aDataOwner));
+        if (LOG.isDebugEnabled()) {
+            messages.forEach(s -> LOG.debug("{}", s));
+        }
+        return result;
+    }
+
+    private boolean isExpensiveChecksDue(SourceDocument aDocument, String aDataOwner)
+    {
+        if (expensiveChecksInterval == 1) {
+            return true;
+        }
+
+        if (expensiveChecksInterval <= 0) {
+            return false;
+        }
+
+        var key = new CasKey(aDocument.getId(), aDataOwner);
+        var writes = writeCounts.get(key, _key -> new AtomicLong()).getAndIncrement();
+        return writes % expensiveChecksInterval == 0;
+    }
+
+    private boolean analyze(SourceDocument aDocument, String aDataOwner, CAS aCas,
+            List<LogMessage> aMessages, boolean aFatalChecks, boolean aExpensiveChecks)
+        throws CasDoctorException
     {
         if (activeChecks.isEmpty()) {
             return true;
@@ -176,11 +254,19 @@ public class CasDoctor
                 var check = checksRegistry.getExtension(checkId).orElseThrow(
                         () -> new NoSuchElementException("Unknown check [" + checkId + "]"));
 
+                if (!aExpensiveChecks && check.getCost() == CheckCost.EXPENSIVE) {
+                    LOG.debug("CasDoctor analysis [" + check.getId() + "] not due - skipping");
+                    metrics.checkSkipped(check.getId());
+                    continue;
+                }
+
                 var tStartTask = currentTimeMillis();
                 LOG.debug("CasDoctor analysis [" + check.getId() + "] running...");
                 ok &= check.check(aDocument, aDataOwner, aCas, aMessages);
+                var taskDuration = currentTimeMillis() - tStartTask;
+                metrics.checkCompleted(check.getId(), taskDuration);
                 LOG.debug("CasDoctor analysis [" + check.getId() + "] completed in "
-                        + (currentTimeMillis() - tStartTask) + "ms");
+                        + taskDuration + "ms");
             }
             catch (Exception e) {
                 LOG.error("Cannot apply check [" + checkId + "]", e);
@@ -236,5 +322,15 @@ public class CasDoctor
         for (var repairId : activeRepairs) {
             LOG.info("Repair activated: " + repairId);
         }
+
+        if (expensiveChecksInterval <= 0) {
+            LOG.info("Expensive checks are not run when writing annotations");
+        }
+        else if (expensiveChecksInterval > 1) {
+            LOG.info("Expensive checks are run on the first and then on every [{}] writes of "
+                    + "annotations", expensiveChecksInterval);
+        }
     }
+
+    private record CasKey(Long documentId, String dataOwner) {}
 }
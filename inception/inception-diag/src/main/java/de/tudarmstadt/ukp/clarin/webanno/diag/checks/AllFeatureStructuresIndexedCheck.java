@@ -32,6 +32,12 @@ import de.tudarmstadt.ukp.inception.support.logging.LogMessage;
 public class AllFeatureStructuresIndexedCheck
     implements Check
 {
+    @Override
+    public CheckCost getCost()
+    {
+        return CheckCost.EXPENSIVE;
+    }
+
     @Override
     public boolean check(SourceDocument aDocument, String aDataOwner, CAS aCas,
             List<LogMessage> aMessages)
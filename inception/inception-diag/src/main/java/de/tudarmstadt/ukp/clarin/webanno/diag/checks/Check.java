@@ -37,6 +37,15 @@ public interface Check
         return getClass().getSimpleName();
     }
 
+    /**
+     * @return how expensive it is to run the check. Expensive checks are not necessarily run every
+     *         time a CAS is written.
+     */
+    default CheckCost getCost()
+    {
+        return CheckCost.CHEAP;
+    }
+
     @Override
     default boolean accepts(Void aContext)
     {
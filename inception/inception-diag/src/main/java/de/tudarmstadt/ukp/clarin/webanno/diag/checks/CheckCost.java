@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.diag.checks;
+
+/**
+ * How expensive it is to run a {@link Check}.
+ */
+public enum CheckCost
+{
+    /**
+     * The check only looks at a limited set of annotations and can be run whenever a CAS is
+     * written.
+     */
+    CHEAP,
+
+    /**
+     * The check needs to look at the whole feature structure graph of the CAS or has to load
+     * additional data. When a CAS is written, such checks are only run according to the configured
+     * sampling schedule.
+     */
+    EXPENSIVE;
+}
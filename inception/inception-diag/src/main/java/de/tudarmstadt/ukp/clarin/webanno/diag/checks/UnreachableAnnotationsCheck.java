@@ -41,6 +41,12 @@ import de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil;
 public class UnreachableAnnotationsCheck
     implements Check
 {
+    @Override
+    public CheckCost getCost()
+    {
+        return CheckCost.EXPENSIVE;
+    }
+
     @Override
     public boolean check(SourceDocument aDocument, String aDataOwner, CAS aCas,
             List<LogMessage> aMessages)
@@ -40,6 +40,12 @@ public class XmlStructurePresentInCurationCasCheck
         documentService = aDocumentService;
     }
 
+    @Override
+    public CheckCost getCost()
+    {
+        return CheckCost.EXPENSIVE;
+    }
+
     @Override
     public boolean check(SourceDocument aDocument, String aDataOwner, CAS aCas,
             List<LogMessage> aMessages)
@@ -47,6 +47,8 @@ import de.tudarmstadt.ukp.clarin.webanno.diag.checks.TokensAndSententencedDoNotO
 import de.tudarmstadt.ukp.clarin.webanno.diag.checks.UniqueDocumentAnnotationCheck;
 import de.tudarmstadt.ukp.clarin.webanno.diag.checks.UnreachableAnnotationsCheck;
 import de.tudarmstadt.ukp.clarin.webanno.diag.checks.XmlStructurePresentInCurationCasCheck;
+import de.tudarmstadt.ukp.clarin.webanno.diag.metrics.CasDoctorMetrics;
+import de.tudarmstadt.ukp.clarin.webanno.diag.metrics.CasDoctorMetricsImpl;
 import de.tudarmstadt.ukp.clarin.webanno.diag.repairs.CoverAllTextInSentencesRepair;
 import de.tudarmstadt.ukp.clarin.webanno.diag.repairs.ReattachFeatureAttachedSpanAnnotationsAndDeleteExtrasRepair;
 import de.tudarmstadt.ukp.clarin.webanno.diag.repairs.ReattachFeatureAttachedSpanAnnotationsRepair;
@@ -71,9 +73,15 @@ public class CasDoctorAutoConfiguration
 {
     @Bean
     CasDoctor casDoctor(CasDoctorProperties aProperties, ChecksRegistry aChecksRegistry,
-            RepairsRegistry aRepairsRegistry)
+            RepairsRegistry aRepairsRegistry, CasDoctorMetrics aMetrics)
     {
-        return new CasDoctor(aProperties, aChecksRegistry, aRepairsRegistry);
+        return new CasDoctor(aProperties, aChecksRegistry, aRepairsRegistry, aMetrics);
+    }
+
+    @Bean
+    public CasDoctorMetrics casDoctorMetrics()
+    {
+        return new CasDoctorMetricsImpl();
     }
 
     @Bean
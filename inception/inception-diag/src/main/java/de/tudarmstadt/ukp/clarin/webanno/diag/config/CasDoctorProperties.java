@@ -28,4 +28,12 @@ public interface CasDoctorProperties
     boolean isFatal();
 
     boolean isForceReleaseBehavior();
+
+    /**
+     * @return how often expensive checks are run when a CAS is written. With {@code 1}, they are
+     *         run on every write. With a larger value {@code n}, they are run on the first and then
+     *         on every {@code n}-th write of a CAS. With {@code 0}, they are not run on writes at
+     *         all.
+     */
+    int getExpensiveChecksInterval();
 }
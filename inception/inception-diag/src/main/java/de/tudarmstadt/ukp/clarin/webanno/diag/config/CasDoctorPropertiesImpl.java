@@ -30,6 +30,7 @@ public class CasDoctorPropertiesImpl
     private List<String> repairs = Collections.emptyList();
     private boolean fatal = true;
     private boolean forceReleaseBehavior = false;
+    private int expensiveChecksInterval = 1;
 
     @Override
     public List<String> getChecks()
@@ -74,4 +75,15 @@ public class CasDoctorPropertiesImpl
     {
         forceReleaseBehavior = aForceReleaseBehavior;
     }
+
+    @Override
+    public int getExpensiveChecksInterval()
+    {
+        return expensiveChecksInterval;
+    }
+
+    public void setExpensiveChecksInterval(int aExpensiveChecksInterval)
+    {
+        expensiveChecksInterval = aExpensiveChecksInterval;
+    }
 }
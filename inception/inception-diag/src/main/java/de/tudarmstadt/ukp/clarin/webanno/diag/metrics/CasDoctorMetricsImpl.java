@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.diag.metrics;
+
+import static org.springframework.jmx.support.MetricType.COUNTER;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedMetric;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource
+public class CasDoctorMetricsImpl
+    implements CasDoctorMetrics
+{
+    private final AtomicLong checkCount = new AtomicLong();
+    private final AtomicLong checkDuration = new AtomicLong();
+    private final AtomicLong skippedCheckCount = new AtomicLong();
+
+    private final Map<String, AtomicLong> checkCounts = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> checkDurations = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> maxCheckDurations = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> skippedCheckCounts = new ConcurrentHashMap<>();
+
+    @Override
+    public void checkCompleted(String aCheckId, long aDurationMs)
+    {
+        checkCount.incrementAndGet();
+        checkDuration.addAndGet(aDurationMs);
+        counter(checkCounts, aCheckId).incrementAndGet();
+        counter(checkDurations, aCheckId).addAndGet(aDurationMs);
+        counter(maxCheckDurations, aCheckId).accumulateAndGet(aDurationMs, Math::max);
+    }
+
+    @Override
+    public void checkSkipped(String aCheckId)
+    {
+        skippedCheckCount.incrementAndGet();
+        counter(skippedCheckCounts, aCheckId).incrementAndGet();
+    }
+
+    private static AtomicLong counter(Map<String, AtomicLong> aCounters, String aCheckId)
+    {
+        return aCounters.computeIfAbsent(aCheckId, _key -> new AtomicLong());
+    }
+
+    private static Map<String, Long> snapshot(Map<String, AtomicLong> aCounters)
+    {
+        var result = new TreeMap<String, Long>();
+        aCounters.forEach((checkId, value) -> result.put(checkId, value.get()));
+        return result;
+    }
+
+    @ManagedMetric(metricType = COUNTER)
+    public long getCheckCount()
+    {
+        return checkCount.get();
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ms")
+    public long getCheckDuration()
+    {
+        return checkDuration.get();
+    }
+
+    @ManagedMetric(metricType = COUNTER)
+    public long getSkippedCheckCount()
+    {
+        return skippedCheckCount.get();
+    }
+
+    @ManagedAttribute
+    public Map<String, Long> getCheckCounts()
+    {
+        return snapshot(checkCounts);
+    }
+
+    @ManagedAttribute
+    public Map<String, Long> getCheckDurations()
+    {
+        return snapshot(checkDurations);
+    }
+
+    @ManagedAttribute
+    public Map<String, Long> getMaxCheckDurations()
+    {
+        return snapshot(maxCheckDurations);
+    }
+
+    @ManagedAttribute
+    public Map<String, Long> getSkippedCheckCounts()
+    {
+        return snapshot(skippedCheckCounts);
+    }
+
+    @ManagedOperation
+    public void reset()
+    {
+        checkCount.set(0);
+        checkDuration.set(0);
+        skippedCheckCount.set(0);
+        checkCounts.clear();
+        checkDurations.clear();
+        maxCheckDurations.clear();
+        skippedCheckCounts.clear();
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.clarin.webanno.diag;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.fit.factory.CasFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.diag.checks.Check;
+import de.tudarmstadt.ukp.clarin.webanno.diag.checks.CheckCost;
+import de.tudarmstadt.ukp.clarin.webanno.diag.config.CasDoctorPropertiesImpl;
+import de.tudarmstadt.ukp.clarin.webanno.diag.metrics.CasDoctorMetricsImpl;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.support.logging.LogMessage;
+
+public class CasDoctorTest
+{
+    private CheapCheck cheapCheck;
+    private ExpensiveCheck expensiveCheck;
+    private ChecksRegistryImpl checksRegistry;
+    private RepairsRegistryImpl repairsRegistry;
+    private CasDoctorPropertiesImpl properties;
+    private CasDoctorMetricsImpl metrics;
+    private SourceDocument document;
+    private CAS cas;
+
+    @BeforeEach
+    public void setup() throws Exception
+    {
+        cheapCheck = new CheapCheck();
+        expensiveCheck = new ExpensiveCheck();
+
+        checksRegistry = new ChecksRegistryImpl(asList(cheapCheck, expensiveCheck));
+        checksRegistry.init();
+        repairsRegistry = new RepairsRegistryImpl(emptyList());
+        repairsRegistry.init();
+
+        properties = new CasDoctorPropertiesImpl();
+        properties.setChecks(asList(cheapCheck.getId(), expensiveCheck.getId()));
+
+        metrics = new CasDoctorMetricsImpl();
+
+        var project = new Project("test");
+        project.setId(1l);
+        document = new SourceDocument("doc.txt", project, "text");
+        document.setId(1l);
+
+        cas = CasFactory.createCas();
+    }
+
+    @Test
+    public void thatExpensiveChecksRunOnEveryWriteByDefault() throws Exception
+    {
+        var sut = new CasDoctor(properties, checksRegistry, repairsRegistry, metrics);
+
+        for (int i = 0; i < 5; i++) {
+            sut.analyzeOnWrite(document, "user", cas);
+        }
+
+        assertThat(cheapCheck.runs).isEqualTo(5);
+        assertThat(expensiveCheck.runs).isEqualTo(5);
+        assertThat(metrics.getSkippedCheckCount()).isZero();
+    }
+
+    @Test
+    public void thatExpensiveChecksAreSampledOnWrite() throws Exception
+    {
+        properties.setExpensiveChecksInterval(3);
+        var sut = new CasDoctor(properties, checksRegistry, repairsRegistry, metrics);
+
+        for (int i = 0; i < 7; i++) {
+            sut.analyzeOnWrite(document, "user", cas);
+        }
+
+        // Writes 1, 4 and 7 run the expensive checks
+        assertThat(cheapCheck.runs).isEqualTo(7);
+        assertThat(expensiveCheck.runs).isEqualTo(3);
+        assertThat(metrics.getCheckCounts()) //
+                .containsEntry(cheapCheck.getId(), 7l) //
+                .containsEntry(expensiveCheck.getId(), 3l);
+        assertThat(metrics.getSkippedCheckCounts()) //
+                .containsEntry(expensiveCheck.getId(), 4l) //
+                .doesNotContainKey(cheapCheck.getId());
+
+        // The schedule is tracked separately for every CAS
+        sut.analyzeOnWrite(document, "other", cas);
+        assertThat(expensiveCheck.runs).isEqualTo(4);
+    }
+
+    @Test
+    public void thatExpensiveChecksCanBeDisabledOnWrite() throws Exception
+    {
+        properties.setExpensiveChecksInterval(0);
+        var sut = new CasDoctor(properties, checksRegistry, repairsRegistry, metrics);
+
+        for (int i = 0; i < 3; i++) {
+            sut.analyzeOnWrite(document, "user", cas);
+        }
+
+        assertThat(cheapCheck.runs).isEqualTo(3);
+        assertThat(expensiveCheck.runs).isZero();
+
+        // An explicit analysis still runs all checks
+        sut.analyze(document, "user", cas);
+
+        assertThat(cheapCheck.runs).isEqualTo(4);
+        assertThat(expensiveCheck.runs).isEqualTo(1);
+    }
+
+    private static class CheapCheck
+        implements Check
+    {
+        private int runs;
+
+        @Override
+        public boolean check(SourceDocument aDocument, String aDataOwner, CAS aCas,
+                List<LogMessage> aMessages)
+        {
+            runs++;
+            return true;
+        }
+    }
+
+    private static class ExpensiveCheck
+        implements Check
+    {
+        private int runs;
+
+        @Override
+        public CheckCost getCost()
+        {
+            return CheckCost.EXPENSIVE;
+        }
+
+        @Override
+        public boolean check(SourceDocument aDocument, String aDataOwner, CAS aCas,
+                List<LogMessage> aMessages)
+        {
+            runs++;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.diam.metrics;
+
+import static org.springframework.jmx.support.MetricType.COUNTER;
+import static org.springframework.jmx.support.MetricType.GAUGE;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.jmx.export.annotation.ManagedMetric;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+@ManagedResource
+@Component
+public class DiamMetricsImpl
+    implements DiamMetrics
+{
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final AtomicLong queuedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong renderTime = new AtomicLong();
+    private final AtomicLong maxRenderTime = new AtomicLong();
+    private final AtomicLong latency = new AtomicLong();
+    private final AtomicLong maxLatency = new AtomicLong();
+    private final AtomicLong lastLatency = new AtomicLong();
+
+    @Override
+    public void updateQueued()
+    {
+        queuedCount.incrementAndGet();
+        queueDepth.incrementAndGet();
+    }
+
+    @Override
+    public void updateCoalesced()
+    {
+        coalescedCount.incrementAndGet();
+    }
+
+    @Override
+    public void updateDequeued()
+    {
+        queueDepth.decrementAndGet();
+    }
+
+    @Override
+    public void updateSent(long aLatencyMs, long aRenderTimeMs)
+    {
+        sentCount.incrementAndGet();
+        renderTime.addAndGet(aRenderTimeMs);
+        maxRenderTime.accumulateAndGet(aRenderTimeMs, Math::max);
+        latency.addAndGet(aLatencyMs);
+        maxLatency.accumulateAndGet(aLatencyMs, Math::max);
+        lastLatency.set(aLatencyMs);
+    }
+
+    @ManagedMetric(metricType = GAUGE)
+    public long getQueueDepth()
+    {
+        return queueDepth.get();
+    }
+
+    @ManagedMetric(metricType = COUNTER)
+    public long getQueuedCount()
+    {
+        return queuedCount.get();
+    }
+
+    @ManagedMetric(metricType = COUNTER)
+    public long getCoalescedCount()
+    {
+        return coalescedCount.get();
+    }
+
+    @ManagedMetric(metricType = COUNTER)
+    public long getSentCount()
+    {
+        return sentCount.get();
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ms")
+    public long getRenderTime()
+    {
+        return renderTime.get();
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ms")
+    public long getMaxRenderTime()
+    {
+        return maxRenderTime.get();
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ms")
+    public long getLatency()
+    {
+        return latency.get();
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ms")
+    public long getMaxLatency()
+    {
+        return maxLatency.get();
+    }
+
+    @ManagedMetric(metricType = COUNTER, unit = "ms")
+    public long getLastLatency()
+    {
+        return lastLatency.get();
+    }
+
+    @ManagedOperation
+    public void reset()
+    {
+        queuedCount.set(0);
+        coalescedCount.set(0);
+        sentCount.set(0);
+        renderTime.set(0);
+        maxRenderTime.set(0);
+        latency.set(0);
+        maxLatency.set(0);
+        lastLatency.set(0);
+    }
+}
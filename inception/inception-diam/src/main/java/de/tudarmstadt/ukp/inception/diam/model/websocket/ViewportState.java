@@ -17,12 +17,18 @@
  */
 package de.tudarmstadt.ukp.inception.diam.model.websocket;
 
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.System.currentTimeMillis;
 import static java.util.Collections.newSetFromMap;
 
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.lang3.tuple.Pair;
+import org.springframework.security.core.Authentication;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
@@ -34,6 +40,10 @@ public class ViewportState
             new ConcurrentHashMap<>());
 
     private JsonNode json;
+    private Map<String, Long> layerByVid;
+
+    private PendingUpdate pendingUpdate;
+    private boolean updateScheduled;
 
     public ViewportState(ViewportDefinition aVpd)
     {
@@ -46,8 +56,22 @@ public class ViewportState
     }
 
     public synchronized void setJson(JsonNode aJson)
+    {
+        setJson(aJson, null);
+    }
+
+    /**
+     * @param aJson
+     *            the rendered viewport.
+     * @param aLayerByVid
+     *            the layer of each annotation in the rendered viewport or {@code null} if the
+     *            layers are not known. Updates can only be built from the changed layers if the
+     *            layers are known.
+     */
+    public synchronized void setJson(JsonNode aJson, Map<String, Long> aLayerByVid)
     {
         json = aJson;
+        layerByVid = aLayerByVid;
     }
 
     public synchronized JsonNode getJson()
@@ -55,6 +79,76 @@ public class ViewportState
         return json;
     }
 
+    public synchronized Map<String, Long> getLayerByVid()
+    {
+        return layerByVid;
+    }
+
+    /**
+     * Records that the viewport needs to be updated because the given range has changed. Requests
+     * arriving while an update is already scheduled are merged into the pending update, so only
+     * the latest state is rendered and at most one update is in progress at any time.
+     * 
+     * @param aBegin
+     *            the begin of the changed range.
+     * @param aEnd
+     *            the end of the changed range.
+     * @param aLayers
+     *            the IDs of the changed layers or {@code null} if any layer may have changed.
+     * @param aAuthentication
+     *            the authentication of the user causing the update.
+     * @return whether the caller needs to schedule an update.
+     */
+    public synchronized boolean requestUpdate(int aBegin, int aEnd, Set<Long> aLayers,
+            Authentication aAuthentication)
+    {
+        if (pendingUpdate == null) {
+            pendingUpdate = new PendingUpdate(aBegin, aEnd, aLayers, aAuthentication,
+                    currentTimeMillis());
+        }
+        else {
+            Set<Long> layers = null;
+            if (pendingUpdate.layers() != null && aLayers != null) {
+                layers = new HashSet<>(pendingUpdate.layers());
+                layers.addAll(aLayers);
+            }
+
+            pendingUpdate = new PendingUpdate(min(pendingUpdate.begin(), aBegin),
+                    max(pendingUpdate.end(), aEnd), layers, aAuthentication,
+                    pendingUpdate.requestTime());
+        }
+
+        if (updateScheduled) {
+            return false;
+        }
+
+        updateScheduled = true;
+        return true;
+    }
+
+    /**
+     * @return the pending update or {@code null} if there is none. In the latter case, the next
+     *         call to {@link #requestUpdate} will ask for a new update to be scheduled.
+     */
+    public synchronized PendingUpdate takePendingUpdate()
+    {
+        var update = pendingUpdate;
+        pendingUpdate = null;
+        if (update == null) {
+            updateScheduled = false;
+        }
+        return update;
+    }
+
+    /**
+     * Drops the pending update, e.g. because it could not be scheduled.
+     */
+    public synchronized void cancelPendingUpdate()
+    {
+        pendingUpdate = null;
+        updateScheduled = false;
+    }
+
     public void removeSubscriber(String aId)
     {
         subscriberSessionIds.removeIf(p -> p.getKey().equals(aId));
@@ -75,4 +169,8 @@ public class ViewportState
         subscriberSessionIds.removeIf(
                 p -> p.getKey().equals(aSessionId) && p.getValue().equals(aSubscriptionId));
     }
+
+    public record PendingUpdate(int begin, int end, Set<Long> layers,
+            Authentication authentication, long requestTime)
+    {}
 }
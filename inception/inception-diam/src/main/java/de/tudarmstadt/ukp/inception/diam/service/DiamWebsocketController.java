@@ -17,8 +17,13 @@
  */
 package de.tudarmstadt.ukp.inception.diam.service;
 
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.EXCLUSIVE_WRITE_ACCESS;
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.SHARED_READ_ONLY_ACCESS;
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasUpgradeMode.AUTO_CAS_UPGRADE;
+import static de.tudarmstadt.ukp.inception.support.WebAnnoConst.SPAN_TYPE;
 import static de.tudarmstadt.ukp.inception.support.logging.Logging.KEY_REPOSITORY_PATH;
 import static de.tudarmstadt.ukp.inception.support.logging.Logging.KEY_USERNAME;
+import static de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil.getRealCas;
 import static de.tudarmstadt.ukp.inception.websocket.config.WebSocketConstants.PARAM_DOCUMENT;
 import static de.tudarmstadt.ukp.inception.websocket.config.WebSocketConstants.PARAM_PROJECT;
 import static de.tudarmstadt.ukp.inception.websocket.config.WebSocketConstants.PARAM_USER;
@@ -26,14 +31,31 @@ import static de.tudarmstadt.ukp.inception.websocket.config.WebSocketConstants.T
 import static de.tudarmstadt.ukp.inception.websocket.config.WebSocketConstants.TOPIC_ELEMENT_PROJECT;
 import static de.tudarmstadt.ukp.inception.websocket.config.WebSocketConstants.TOPIC_ELEMENT_USER;
 import static java.lang.Integer.MAX_VALUE;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.System.currentTimeMillis;
 
 import java.io.IOException;
 import java.security.Principal;
 import java.time.Duration;
-
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.impl.CASImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.event.EventListener;
@@ -42,6 +64,7 @@ import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.messaging.simp.annotation.SubscribeMapping;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.transaction.event.TransactionalEventListener;
 import org.springframework.util.PropertyPlaceholderHelper;
@@ -49,29 +72,42 @@ import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 import org.springframework.web.socket.messaging.SessionUnsubscribeEvent;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.flipkart.zjsonpatch.JsonDiff;
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.annotation.preferences.UserPreferencesService;
+import de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode;
 import de.tudarmstadt.ukp.clarin.webanno.constraints.ConstraintsService;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.clarin.webanno.model.LinkMode;
 import de.tudarmstadt.ukp.clarin.webanno.model.Mode;
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.clarin.webanno.security.UserDao;
+import de.tudarmstadt.ukp.inception.annotation.events.AnnotationEvent;
+import de.tudarmstadt.ukp.inception.annotation.events.FeatureValueUpdatedEvent;
+import de.tudarmstadt.ukp.inception.annotation.layer.relation.RelationEvent;
+import de.tudarmstadt.ukp.inception.annotation.layer.span.SpanCreatedEvent;
+import de.tudarmstadt.ukp.inception.annotation.layer.span.SpanMovedEvent;
 import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageSession;
 import de.tudarmstadt.ukp.inception.diam.messages.MViewportInit;
 import de.tudarmstadt.ukp.inception.diam.messages.MViewportUpdate;
+import de.tudarmstadt.ukp.inception.diam.metrics.DiamMetrics;
 import de.tudarmstadt.ukp.inception.diam.model.websocket.ViewportDefinition;
 import de.tudarmstadt.ukp.inception.diam.model.websocket.ViewportState;
+import de.tudarmstadt.ukp.inception.diam.model.websocket.ViewportState.PendingUpdate;
 import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
 import de.tudarmstadt.ukp.inception.documents.api.RepositoryProperties;
 import de.tudarmstadt.ukp.inception.documents.event.AfterCasWrittenEvent;
 import de.tudarmstadt.ukp.inception.project.api.ProjectService;
 import de.tudarmstadt.ukp.inception.recommendation.api.event.TransientAnnotationStateChangedEvent;
+import de.tudarmstadt.ukp.inception.rendering.model.Range;
 import de.tudarmstadt.ukp.inception.rendering.pipeline.RenderingPipeline;
 import de.tudarmstadt.ukp.inception.rendering.request.RenderRequest;
+import de.tudarmstadt.ukp.inception.rendering.vmodel.VDocument;
 import de.tudarmstadt.ukp.inception.rendering.vmodel.serialization.VDocumentSerializerExtensionPoint;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.support.json.JSONUtil;
@@ -85,6 +121,7 @@ import jakarta.servlet.ServletContext;
 @ConditionalOnExpression("${websocket.enabled:true}")
 @Controller
 public class DiamWebsocketController
+    implements DisposableBean
 {
     private final Logger log = LoggerFactory.getLogger(getClass());
 
@@ -117,6 +154,10 @@ public class DiamWebsocketController
     public static final String ANNOTATION_COMMAND_SELECT_TOPIC_TEMPLATE = //
             DOCUMENT_BASE_TOPIC_TEMPLATE + "/select";
 
+    private static final int UPDATE_THREADS = max(1, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int MAX_TRACKED_CHANGES = 100;
+    private static final Range FULL_DOCUMENT = new Range(0, MAX_VALUE);
+
     private final SimpMessagingTemplate msgTemplate;
     private final RenderingPipeline renderingPipeline;
     private final DocumentService documentService;
@@ -127,8 +168,11 @@ public class DiamWebsocketController
     private final VDocumentSerializerExtensionPoint vDocumentSerializerExtensionPoint;
     private final UserPreferencesService userPreferencesService;
     private final ConstraintsService constraintsService;
+    private final DiamMetrics metrics;
 
     private final LoadingCache<ViewportDefinition, ViewportState> activeViewports;
+    private final Cache<CasStorageSession, Map<ChangeKey, List<Change>>> pendingChanges;
+    private final ExecutorService updateExecutor;
 
     public DiamWebsocketController(SimpMessagingTemplate aMsgTemplate,
             RenderingPipeline aRenderingPipeline, DocumentService aDocumentService,
@@ -136,7 +180,7 @@ public class DiamWebsocketController
             ProjectService aProjectService, UserDao aUserRepository,
             VDocumentSerializerExtensionPoint aVDocumentSerializerExtensionPoint,
             UserPreferencesService aUserPreferencesService, ServletContext aServletContext,
-            ConstraintsService aConstraintsService)
+            ConstraintsService aConstraintsService, DiamMetrics aMetrics)
     {
         msgTemplate = aMsgTemplate;
         renderingPipeline = aRenderingPipeline;
@@ -148,10 +192,30 @@ public class DiamWebsocketController
         vDocumentSerializerExtensionPoint = aVDocumentSerializerExtensionPoint;
         userPreferencesService = aUserPreferencesService;
         constraintsService = aConstraintsService;
+        metrics = aMetrics;
 
         activeViewports = Caffeine.newBuilder() //
                 .expireAfterAccess(Duration.ofMinutes(aServletContext.getSessionTimeout())) //
                 .build(this::initState);
+
+        // Changes are collected from the annotation events until the CAS is written. They are bound
+        // to the CAS storage session of the request, so changes of an action that failed or was
+        // rolled back never leak into the update for a write happening in a later request.
+        pendingChanges = Caffeine.newBuilder() //
+                .weakKeys() //
+                .build();
+
+        updateExecutor = Executors.newFixedThreadPool(UPDATE_THREADS,
+                new BasicThreadFactory.Builder() //
+                        .daemon(true) //
+                        .namingPattern("diam-update-%d") //
+                        .build());
+    }
+
+    @Override
+    public void destroy()
+    {
+        updateExecutor.shutdownNow();
     }
 
     @EventListener
@@ -191,17 +255,113 @@ public class DiamWebsocketController
         activeViewports.invalidate(aVpd);
     }
 
+    @EventListener
+    public void onAnnotationEvent(AnnotationEvent aEvent)
+    {
+        if (aEvent.getDocument() == null || aEvent.getDocumentOwner() == null
+                || !CasStorageSession.exists()) {
+            return;
+        }
+
+        var key = new ChangeKey(aEvent.getDocument().getId(), aEvent.getDocumentOwner());
+        var change = getChange(aEvent);
+        var sessionChanges = pendingChanges.get(CasStorageSession.get(),
+                _session -> new ConcurrentHashMap<>());
+        sessionChanges.compute(key, (k, changes) -> {
+            var c = changes != null ? changes : new ArrayList<Change>();
+            if (c.size() < MAX_TRACKED_CHANGES) {
+                c.add(change);
+            }
+            else {
+                c.set(0, Change.ANY);
+            }
+            return c;
+        });
+    }
+
     @TransactionalEventListener(fallbackExecution = true)
     public void onAfterCasWritten(AfterCasWrittenEvent aEvent)
     {
-        sendUpdate(aEvent.getDocument());
+        var doc = aEvent.getDocument();
+        var sessionChanges = CasStorageSession.exists()
+                ? pendingChanges.getIfPresent(CasStorageSession.get())
+                : null;
+        var changes = sessionChanges != null
+                ? sessionChanges.remove(new ChangeKey(doc.getDocument().getId(), doc.getUser()))
+                : null;
+
+        // If we do not know what has changed, we need to update all viewports on the document.
+        // This is also the case if the changes were not recorded in the same request as the write
+        // or if they were recorded on another CAS than the one written. In these cases, the CAS
+        // may have been changed without any annotation events being sent.
+        if (changes == null
+                || changes.stream().anyMatch(c -> !isSameCas(c.cas(), aEvent.getCas()))) {
+            changes = List.of(Change.ANY);
+        }
+
+        // Rendering happens asynchronously so the request that saved the CAS does not have to
+        // wait for all the viewports to be updated
+        forEachAffectedViewport(doc.getDocument().getId(), doc.getUser(), changes,
+                this::scheduleUpdate);
+    }
+
+    private static boolean isSameCas(CAS aCas1, CAS aCas2)
+    {
+        if (aCas1 == null || aCas2 == null) {
+            return false;
+        }
+
+        return ((CASImpl) getRealCas(aCas1)).getBaseCAS() == ((CASImpl) getRealCas(aCas2))
+                .getBaseCAS();
+    }
+
+    /**
+     * Determines the part of the document and the layer in which the rendering may have changed
+     * due to the given event. Changes which may affect annotations outside the range of the
+     * annotation itself (e.g. deleting a span which may also delete attached relations, chain or
+     * link features) are considered to affect the entire document and all layers.
+     */
+    static Change getChange(AnnotationEvent aEvent)
+    {
+        var layer = aEvent.getLayer() != null ? aEvent.getLayer().getId() : null;
+
+        if (aEvent instanceof RelationEvent relationEvent) {
+            var source = relationEvent.getSourceAnnotation();
+            var target = relationEvent.getTargetAnnotation();
+            return new Change(new Range(min(source.getBegin(), target.getBegin()),
+                    max(source.getEnd(), target.getEnd())), layer,
+                    relationEvent.getAnnotation().getCAS());
+        }
+
+        if (aEvent instanceof SpanMovedEvent movedEvent) {
+            var range = movedEvent.getAffectedRange();
+            return new Change(new Range(min(range.getBegin(), movedEvent.getOldBegin()),
+                    max(range.getEnd(), movedEvent.getOldEnd())), layer,
+                    movedEvent.getAnnotation().getCAS());
+        }
+
+        if (aEvent instanceof SpanCreatedEvent createdEvent) {
+            return new Change(createdEvent.getAffectedRange(), layer,
+                    createdEvent.getAnnotation().getCAS());
+        }
+
+        if (aEvent instanceof FeatureValueUpdatedEvent featureEvent
+                && featureEvent.getFeature().getLinkMode() == LinkMode.NONE
+                && SPAN_TYPE.equals(featureEvent.getFeature().getLayer().getType())) {
+            var range = featureEvent.getAffectedRange();
+            return Range.UNDEFINED.equals(range) ? Change.ANY
+                    : new Change(range, layer, featureEvent.getFS().getCAS());
+        }
+
+        return Change.ANY;
     }
 
     @EventListener
     public void onTransientAnnotationStateChanged(TransientAnnotationStateChangedEvent aEvent)
     {
         var doc = aEvent.getDocument();
-        sendUpdate(doc.getProject().getId(), doc.getId(), aEvent.getUser(), 0, MAX_VALUE);
+        forEachAffectedViewport(doc.getId(), aEvent.getUser(), List.of(Change.ANY),
+                this::scheduleUpdate);
     }
 
     @SubscribeMapping(DOCUMENT_VIEWPORT_TOPIC_TEMPLATE)
@@ -231,10 +391,10 @@ public class DiamWebsocketController
             vps.addSubscription(aHeaderAccessor.getSessionId(),
                     aHeaderAccessor.getSubscriptionId());
 
-            var json = render(project, aDocumentId, aDataOwner, aViewportBegin, aViewportEnd,
-                    aFormat);
-            vps.setJson(json);
-            return json;
+            var rendering = render(project, aDocumentId, aDataOwner, aViewportBegin, aViewportEnd,
+                    aFormat, EXCLUSIVE_WRITE_ACCESS, null);
+            vps.setJson(rendering.json(), rendering.layerByVid());
+            return rendering.json();
         }
         finally {
             MDC.remove(KEY_REPOSITORY_PATH);
@@ -273,8 +433,13 @@ public class DiamWebsocketController
     // }
     // }
 
-    private JsonNode render(Project aProject, long aDocumentId, String aDataOwner,
-            int aViewportBegin, int aViewportEnd, String aFormat)
+    /**
+     * @param aLayers
+     *            the IDs of the layers to render or {@code null} to render all visible layers.
+     */
+    private RenderedViewport render(Project aProject, long aDocumentId, String aDataOwner,
+            int aViewportBegin, int aViewportEnd, String aFormat, CasAccessMode aAccessMode,
+            Set<Long> aLayers)
         throws IOException
     {
         var doc = documentService.getSourceDocument(aProject.getId(), aDocumentId);
@@ -283,7 +448,9 @@ public class DiamWebsocketController
 
         var constraints = constraintsService.getMergedConstraints(aProject);
 
-        var cas = documentService.readAnnotationCas(doc, aDataOwner);
+        var cas = SHARED_READ_ONLY_ACCESS.equals(aAccessMode)
+                ? documentService.readAnnotationCas(doc, aDataOwner, AUTO_CAS_UPGRADE, aAccessMode)
+                : documentService.readAnnotationCas(doc, aDataOwner, aAccessMode);
 
         var prefs = userPreferencesService.loadPreferences(doc.getProject(), sessionOwner,
                 Mode.ANNOTATION);
@@ -291,6 +458,7 @@ public class DiamWebsocketController
         var layers = schemaService.listSupportedLayers(aProject).stream()
                 .filter(AnnotationLayer::isEnabled) //
                 .filter(l -> !prefs.getHiddenAnnotationLayerIds().contains(l.getId())) //
+                .filter(l -> aLayers == null || aLayers.contains(l.getId())) //
                 .toList();
 
         var allLayers = schemaService.listAnnotationLayer(aProject);
@@ -308,13 +476,31 @@ public class DiamWebsocketController
         var vdoc = renderingPipeline.render(request);
 
         if (FORMAT_LEGACY.equals(aFormat)) {
-            return JSONUtil.getObjectMapper().valueToTree(new MViewportInit(vdoc));
+            return new RenderedViewport(
+                    JSONUtil.getObjectMapper().valueToTree(new MViewportInit(vdoc)),
+                    getLayerByVid(vdoc));
         }
 
         var serializer = vDocumentSerializerExtensionPoint.getExtension(aFormat).orElseThrow(
                 () -> new IllegalStateException("Unsupported format [" + aFormat + "]"));
 
-        return JSONUtil.getObjectMapper().valueToTree(serializer.render(vdoc, request));
+        return new RenderedViewport(
+                JSONUtil.getObjectMapper().valueToTree(serializer.render(vdoc, request)),
+                getLayerByVid(vdoc));
+    }
+
+    private static Map<String, Long> getLayerByVid(VDocument aVDoc)
+    {
+        var layerByVid = new HashMap<String, Long>();
+        for (var layer : aVDoc.getAnnotationLayers()) {
+            for (var span : aVDoc.spans(layer.getId())) {
+                layerByVid.put(span.getVid().toString(), layer.getId());
+            }
+            for (var arc : aVDoc.arcs(layer.getId())) {
+                layerByVid.put(arc.getVid().toString(), layer.getId());
+            }
+        }
+        return layerByVid;
     }
 
     private ViewportState initState(ViewportDefinition aVpd)
@@ -322,43 +508,133 @@ public class DiamWebsocketController
         return new ViewportState(aVpd);
     }
 
-    private void sendUpdate(AnnotationDocument aDoc)
+    void sendUpdate(AnnotationDocument aDoc, int aUpdateBegin, int aUpdateEnd)
     {
-        sendUpdate(aDoc.getProject().getId(), aDoc.getDocument().getId(), aDoc.getUser(), 0,
-                MAX_VALUE);
+        forEachAffectedViewport(aDoc.getDocument().getId(), aDoc.getUser(),
+                List.of(new Change(new Range(aUpdateBegin, aUpdateEnd), null, null)),
+                (vpd, vps, begin, end, layers) -> sendUpdate(vpd, vps,
+                        new PendingUpdate(begin, end, layers, null, currentTimeMillis())));
     }
 
-    void sendUpdate(AnnotationDocument aDoc, int aUpdateBegin, int aUpdateEnd)
+    private void forEachAffectedViewport(long aDocumentId, String aUser, List<Change> aChanges,
+            ViewportUpdateHandler aHandler)
     {
-        sendUpdate(aDoc.getProject().getId(), aDoc.getDocument().getId(), aDoc.getUser(),
-                aUpdateBegin, aUpdateEnd);
+        for (var e : activeViewports.asMap().entrySet()) {
+            var vpd = e.getKey();
+            var begin = MAX_VALUE;
+            var end = -1;
+            Set<Long> layers = new HashSet<>();
+            for (var change : aChanges) {
+                var range = change.range();
+                if (vpd.matches(aDocumentId, aUser, range.getBegin(), range.getEnd())) {
+                    begin = min(begin, range.getBegin());
+                    end = max(end, range.getEnd());
+                    if (layers != null && change.layer() != null) {
+                        layers.add(change.layer());
+                    }
+                    else {
+                        layers = null;
+                    }
+                }
+            }
+
+            if (end == -1) {
+                log.trace("Viewport {} not affected by changes - skipping update", vpd);
+                continue;
+            }
+
+            aHandler.handle(vpd, e.getValue(), begin, end, layers);
+        }
     }
 
-    private void sendUpdate(long aProjectId, long aDocumentId, String aUser, int aUpdateBegin,
-            int aUpdateEnd)
+    private void scheduleUpdate(ViewportDefinition aVpd, ViewportState aVps, int aUpdateBegin,
+            int aUpdateEnd, Set<Long> aLayers)
     {
-        activeViewports.asMap().entrySet().stream() //
-                .filter(e -> e.getKey().matches(aDocumentId, aUser, aUpdateBegin, aUpdateEnd)) //
-                .forEach(e -> sendUpdate(e.getKey(), e.getValue(), aProjectId, aDocumentId, aUser,
-                        aUpdateBegin, aUpdateEnd));
+        // Rendering uses the current user, so we need to pass the authentication on to the
+        // update thread
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (!aVps.requestUpdate(aUpdateBegin, aUpdateEnd, aLayers, authentication)) {
+            log.trace("Update of viewport {} already scheduled - coalescing", aVpd);
+            metrics.updateCoalesced();
+            return;
+        }
+
+        metrics.updateQueued();
+        try {
+            updateExecutor.execute(() -> {
+                metrics.updateDequeued();
+                processPendingUpdates(aVpd, aVps);
+            });
+        }
+        catch (RejectedExecutionException e) {
+            metrics.updateDequeued();
+            aVps.cancelPendingUpdate();
+            log.debug("Unable to schedule update of viewport {} - shutting down?", aVpd);
+        }
     }
 
-    private void sendUpdate(ViewportDefinition vpd, ViewportState vps, long aProjectId,
-            long aDocumentId, String aUser, int aUpdateBegin, int aUpdateEnd)
+    private void processPendingUpdates(ViewportDefinition aVpd, ViewportState aVps)
+    {
+        PendingUpdate update;
+        while ((update = aVps.takePendingUpdate()) != null) {
+            var context = SecurityContextHolder.createEmptyContext();
+            context.setAuthentication(update.authentication());
+            SecurityContextHolder.setContext(context);
+            try {
+                var start = currentTimeMillis();
+                sendUpdate(aVpd, aVps, update);
+                var now = currentTimeMillis();
+                metrics.updateSent(now - update.requestTime(), now - start);
+            }
+            finally {
+                SecurityContextHolder.clearContext();
+            }
+        }
+    }
+
+    private void sendUpdate(ViewportDefinition vpd, ViewportState vps, PendingUpdate aUpdate)
     {
         // MDC.put(KEY_REPOSITORY_PATH, repositoryProperties.getPath().toString());
 
+        // Rendering only reads the CAS, so we must not hold on to the exclusive access while
+        // rendering - otherwise the user saving the next change would have to wait for us
         try (var session = CasStorageSession.openNested()) {
             var project = projectService.getProject(vpd.getProjectId());
-            var newJson = render(project, vpd.getDocumentId(), vpd.getUser(), vpd.getBegin(),
-                    vpd.getEnd(), vpd.getFormat());
-
-            var diff = JsonDiff.asJson(vps.getJson(), newJson);
-
-            vps.setJson(newJson);
+            var oldJson = vps.getJson();
+            var oldLayerByVid = vps.getLayerByVid();
+
+            // If we know which layers have changed, we only render these and build the patch
+            // directly from their annotations
+            JsonNode diff = null;
+            if (aUpdate.layers() != null && oldLayerByVid != null
+                    && ViewportLayerPatch.supports(vpd.getFormat())) {
+                var rendering = render(project, vpd.getDocumentId(), vpd.getUser(),
+                        vpd.getBegin(), vpd.getEnd(), vpd.getFormat(), SHARED_READ_ONLY_ACCESS,
+                        aUpdate.layers());
+                var patch = ViewportLayerPatch.build(vpd.getFormat(), oldJson, oldLayerByVid,
+                        aUpdate.layers(), rendering.json(), rendering.layerByVid());
+                if (patch != null) {
+                    vps.setJson(patch.getJson(), patch.getLayerByVid());
+                    diff = patch.getPatch();
+                }
+            }
+
+            if (diff == null) {
+                var rendering = render(project, vpd.getDocumentId(), vpd.getUser(),
+                        vpd.getBegin(), vpd.getEnd(), vpd.getFormat(), SHARED_READ_ONLY_ACCESS,
+                        null);
+                var newJson = rendering.json();
+
+                // Avoid running the generic diff if the rendering did not change at all
+                diff = newJson.equals(oldJson) ? JsonNodeFactory.instance.arrayNode()
+                        : JsonDiff.asJson(oldJson, newJson);
+
+                vps.setJson(newJson, rendering.layerByVid());
+            }
 
             msgTemplate.convertAndSend("/topic" + vpd.getTopic(),
-                    new MViewportUpdate(aUpdateBegin, aUpdateEnd, diff));
+                    new MViewportUpdate(aUpdate.begin(), aUpdate.end(), diff));
         }
         catch (Exception ex) {
             log.error("Unable to render update", ex);
@@ -396,4 +672,28 @@ public class DiamWebsocketController
             throw new AccessDeniedException(aMessage);
         }
     }
+
+    private record ChangeKey(long documentId, String user) {}
+
+    /**
+     * @param range
+     *            the part of the document in which the rendering may have changed.
+     * @param layer
+     *            the ID of the changed layer or {@code null} if any layer may have changed.
+     * @param cas
+     *            the CAS in which the change was made or {@code null} if it is unknown.
+     */
+    record Change(Range range, Long layer, CAS cas)
+    {
+        static final Change ANY = new Change(FULL_DOCUMENT, null, null);
+    }
+
+    private record RenderedViewport(JsonNode json, Map<String, Long> layerByVid) {}
+
+    @FunctionalInterface
+    private interface ViewportUpdateHandler
+    {
+        void handle(ViewportDefinition aVpd, ViewportState aVps, int aUpdateBegin,
+                int aUpdateEnd, Set<Long> aLayers);
+    }
 }
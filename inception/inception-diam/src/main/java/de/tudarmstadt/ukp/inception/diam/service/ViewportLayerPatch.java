@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.diam.service;
+
+import static java.util.Collections.unmodifiableMap;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import de.tudarmstadt.ukp.inception.diam.model.compact.CompactSerializerImpl;
+
+/**
+ * JSON patch updating a rendered viewport from a rendering of only the layers that have changed.
+ * Annotations of the changed layers which are no longer rendered or have been rendered differently
+ * are removed and the new renderings are added. Annotations of other layers are left untouched, so
+ * neither do they need to be rendered again nor does the whole viewport need to be diffed.
+ */
+final class ViewportLayerPatch
+{
+    private static final Map<String, List<AnnotationArray>> ANNOTATION_ARRAYS = Map.of( //
+            DiamWebsocketController.FORMAT_LEGACY, List.of( //
+                    new AnnotationArray("spans", JsonPointer.compile("/vid")), //
+                    new AnnotationArray("arcs", JsonPointer.compile("/vid"))), //
+            CompactSerializerImpl.ID, List.of( //
+                    new AnnotationArray("spans", JsonPointer.compile("/0")), //
+                    new AnnotationArray("relations", JsonPointer.compile("/0"))));
+
+    private final ArrayNode patch;
+    private final ObjectNode json;
+    private final Map<String, Long> layerByVid;
+
+    private ViewportLayerPatch(ArrayNode aPatch, ObjectNode aJson, Map<String, Long> aLayerByVid)
+    {
+        patch = aPatch;
+        json = aJson;
+        layerByVid = unmodifiableMap(aLayerByVid);
+    }
+
+    /**
+     * @return the patch operations.
+     */
+    public ArrayNode getPatch()
+    {
+        return patch;
+    }
+
+    /**
+     * @return the rendered viewport after applying the patch.
+     */
+    public ObjectNode getJson()
+    {
+        return json;
+    }
+
+    /**
+     * @return the layer of each annotation in the rendered viewport after applying the patch.
+     */
+    public Map<String, Long> getLayerByVid()
+    {
+        return layerByVid;
+    }
+
+    /**
+     * @param aFormat
+     *            the format of the rendered viewport.
+     * @return whether patches can be built for the given format. This is only possible for formats
+     *         where it is known where the annotations are located in the rendering.
+     */
+    static boolean supports(String aFormat)
+    {
+        return ANNOTATION_ARRAYS.containsKey(aFormat);
+    }
+
+    /**
+     * @param aFormat
+     *            the format of the rendered viewport.
+     * @param aJson
+     *            the rendered viewport.
+     * @param aLayerByVid
+     *            the layer of each annotation in the rendered viewport.
+     * @param aLayers
+     *            the IDs of the changed layers.
+     * @param aLayerJson
+     *            the rendering of the viewport including only the changed layers.
+     * @param aLayerLayerByVid
+     *            the layer of each annotation in the rendering of the changed layers.
+     * @return the patch or {@code null} if the patch cannot be built from the rendering of the
+     *         changed layers, e.g. because the format is not supported or because parts of the
+     *         rendering other than the annotations differ.
+     */
+    static ViewportLayerPatch build(String aFormat, JsonNode aJson, Map<String, Long> aLayerByVid,
+            Set<Long> aLayers, JsonNode aLayerJson, Map<String, Long> aLayerLayerByVid)
+    {
+        var arrays = ANNOTATION_ARRAYS.get(aFormat);
+        if (arrays == null || !(aJson instanceof ObjectNode oldJson)
+                || !(aLayerJson instanceof ObjectNode layerJson)) {
+            return null;
+        }
+
+        // Everything except for the annotations must be unaffected by the change
+        var names = arrays.stream().map(AnnotationArray::name).toList();
+        if (!oldJson.deepCopy().remove(names).equals(layerJson.deepCopy().remove(names))) {
+            return null;
+        }
+
+        var patch = JsonNodeFactory.instance.arrayNode();
+        var json = oldJson.deepCopy();
+
+        for (var array : arrays) {
+            var added = new LinkedHashMap<String, JsonNode>();
+            var layerElements = layerJson.get(array.name());
+            if (layerElements != null) {
+                for (var element : layerElements) {
+                    added.put(element.at(array.vid()).asText(), element);
+                }
+            }
+
+            if (json.get(array.name()) instanceof ArrayNode elements) {
+                // Remove from the back so the positions of the elements still to be checked as
+                // well as the positions in the patch operations remain valid
+                for (int i = elements.size() - 1; i >= 0; i--) {
+                    var vid = elements.get(i).at(array.vid()).asText();
+                    var layer = aLayerByVid.get(vid);
+                    if (layer == null) {
+                        // We do not know if the annotation belongs to a changed layer
+                        return null;
+                    }
+
+                    if (!aLayers.contains(layer)) {
+                        continue;
+                    }
+
+                    // Annotations that did not change stay where they are
+                    if (elements.get(i).equals(added.get(vid))) {
+                        added.remove(vid);
+                        continue;
+                    }
+
+                    elements.remove(i);
+                    patch.addObject() //
+                            .put("op", "remove") //
+                            .put("path", "/" + array.name() + "/" + i);
+                }
+
+                for (var element : added.values()) {
+                    elements.add(element);
+                    patch.addObject() //
+                            .put("op", "add") //
+                            .put("path", "/" + array.name() + "/-") //
+                            .set("value", element);
+                }
+            }
+            else if (!added.isEmpty()) {
+                var elements = json.putArray(array.name()).addAll(added.values());
+                patch.addObject() //
+                        .put("op", "add") //
+                        .put("path", "/" + array.name()) //
+                        .set("value", elements.deepCopy());
+            }
+        }
+
+        var layerByVid = new HashMap<>(aLayerByVid);
+        layerByVid.values().removeIf(aLayers::contains);
+        layerByVid.putAll(aLayerLayerByVid);
+
+        return new ViewportLayerPatch(patch, json, layerByVid);
+    }
+
+    /**
+     * @param name
+     *            the name of the array holding annotations in the rendered viewport.
+     * @param vid
+     *            the location of the VID within each annotation.
+     */
+    private record AnnotationArray(String name, JsonPointer vid) {}
+}
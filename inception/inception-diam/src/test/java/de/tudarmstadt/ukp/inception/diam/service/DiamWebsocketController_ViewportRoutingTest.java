@@ -20,17 +20,24 @@ package de.tudarmstadt.ukp.inception.diam.service;
 import static de.tudarmstadt.ukp.clarin.webanno.model.PermissionLevel.ANNOTATOR;
 import static de.tudarmstadt.ukp.clarin.webanno.security.model.Role.ROLE_USER;
 import static de.tudarmstadt.ukp.inception.diam.service.DiamWebsocketController.FORMAT_LEGACY;
+import static de.tudarmstadt.ukp.inception.support.WebAnnoConst.SPAN_TYPE;
 import static de.tudarmstadt.ukp.inception.websocket.config.WebsocketConfig.WS_ENDPOINT;
+import static java.lang.Integer.MAX_VALUE;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Collections.emptyMap;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.apache.commons.io.IOUtils.toInputStream;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.security.config.Customizer.withDefaults;
 import static org.springframework.security.config.http.SessionCreationPolicy.STATELESS;
 
 import java.io.File;
 import java.lang.invoke.MethodHandles;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.uima.fit.factory.CasFactory;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -74,13 +81,17 @@ import de.tudarmstadt.ukp.clarin.webanno.security.config.InceptionSecurityAutoCo
 import de.tudarmstadt.ukp.clarin.webanno.security.config.SecurityAutoConfiguration;
 import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.clarin.webanno.text.config.TextFormatsAutoConfiguration;
+import de.tudarmstadt.ukp.inception.annotation.layer.span.SpanCreatedEvent;
 import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageSession;
 import de.tudarmstadt.ukp.inception.annotation.storage.config.CasStorageServiceAutoConfiguration;
 import de.tudarmstadt.ukp.inception.diam.messages.MViewportUpdate;
+import de.tudarmstadt.ukp.inception.diam.metrics.DiamMetrics;
+import de.tudarmstadt.ukp.inception.diam.metrics.DiamMetricsImpl;
 import de.tudarmstadt.ukp.inception.diam.model.websocket.ViewportDefinition;
 import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
 import de.tudarmstadt.ukp.inception.documents.api.RepositoryAutoConfiguration;
 import de.tudarmstadt.ukp.inception.documents.api.RepositoryProperties;
+import de.tudarmstadt.ukp.inception.documents.event.AfterCasWrittenEvent;
 import de.tudarmstadt.ukp.inception.documents.config.DocumentServiceAutoConfiguration;
 import de.tudarmstadt.ukp.inception.export.config.DocumentImportExportServiceAutoConfiguration;
 import de.tudarmstadt.ukp.inception.preferences.config.PreferencesServiceAutoConfig;
@@ -155,6 +166,8 @@ public class DiamWebsocketController_ViewportRoutingTest
     private static SourceDocument testDoc;
     private static AnnotationDocument testAnnotationDocument;
 
+    private static volatile Runnable renderHook;
+
     @BeforeEach
     public void setup() throws Exception
     {
@@ -196,6 +209,7 @@ public class DiamWebsocketController_ViewportRoutingTest
     @AfterEach
     public void tearDown()
     {
+        renderHook = null;
         entityManager.clear();
     }
 
@@ -232,6 +246,191 @@ public class DiamWebsocketController_ViewportRoutingTest
         }
     }
 
+    @WithMockUser(username = "user", roles = { "USER" })
+    @Test
+    public void thatOnlyViewportsAffectedByChangesAreUpdated() throws Exception
+    {
+        var emptyListNode = JsonNodeFactory.instance.arrayNode();
+
+        var vpd1 = new ViewportDefinition(testAnnotationDocument, 10, 20, FORMAT_LEGACY);
+        var vpd2 = new ViewportDefinition(testAnnotationDocument, 30, 40, FORMAT_LEGACY);
+
+        var layer = new AnnotationLayer();
+        layer.setId(1l);
+        layer.setType(SPAN_TYPE);
+
+        var cas = CasFactory.createText("This is a test. ".repeat(10).trim());
+        var annotation = cas.createAnnotation(cas.getAnnotationType(), 12, 15);
+
+        try (var client1 = new WebSocketStompTestClient(USER, PASS);
+                var client2 = new WebSocketStompTestClient(USER, PASS)) {
+            client1.expectSuccessfulConnection().connect(websocketUrl);
+            client1.subscribe("/topic" + vpd1.getTopic());
+            client1.expect(new MViewportUpdate(0, 0, null)).subscribe("/app" + vpd1.getTopic());
+
+            client2.expectSuccessfulConnection().connect(websocketUrl);
+            client2.subscribe("/topic" + vpd2.getTopic());
+            client2.expect(new MViewportUpdate(0, 0, null)).subscribe("/app" + vpd2.getTopic());
+
+            client1.expect(new MViewportUpdate(12, 15, emptyListNode));
+
+            try (var session = CasStorageSession.open()) {
+                sut.onAnnotationEvent(
+                        new SpanCreatedEvent(this, testDoc, USER, layer, annotation));
+                sut.onAfterCasWritten(
+                        new AfterCasWrittenEvent(this, testAnnotationDocument, cas));
+            }
+
+            client1.assertExpectations();
+            client2.assertExpectations();
+        }
+    }
+
+    @WithMockUser(username = "user", roles = { "USER" })
+    @Test
+    public void thatChangesFromAnotherRequestDoNotLimitTheUpdate() throws Exception
+    {
+        var emptyListNode = JsonNodeFactory.instance.arrayNode();
+
+        var vpd1 = new ViewportDefinition(testAnnotationDocument, 10, 20, FORMAT_LEGACY);
+        var vpd2 = new ViewportDefinition(testAnnotationDocument, 30, 40, FORMAT_LEGACY);
+
+        var layer = new AnnotationLayer();
+        layer.setId(1l);
+        layer.setType(SPAN_TYPE);
+
+        var cas = CasFactory.createText("This is a test. ".repeat(10).trim());
+        var annotation = cas.createAnnotation(cas.getAnnotationType(), 12, 15);
+
+        try (var client1 = new WebSocketStompTestClient(USER, PASS);
+                var client2 = new WebSocketStompTestClient(USER, PASS)) {
+            client1.expectSuccessfulConnection().connect(websocketUrl);
+            client1.subscribe("/topic" + vpd1.getTopic());
+            client1.expect(new MViewportUpdate(0, 0, null)).subscribe("/app" + vpd1.getTopic());
+
+            client2.expectSuccessfulConnection().connect(websocketUrl);
+            client2.subscribe("/topic" + vpd2.getTopic());
+            client2.expect(new MViewportUpdate(0, 0, null)).subscribe("/app" + vpd2.getTopic());
+
+            client1.expect(new MViewportUpdate(0, MAX_VALUE, emptyListNode));
+            client2.expect(new MViewportUpdate(0, MAX_VALUE, emptyListNode));
+
+            // The action of the first request fails before the CAS is written
+            try (var session = CasStorageSession.open()) {
+                sut.onAnnotationEvent(
+                        new SpanCreatedEvent(this, testDoc, USER, layer, annotation));
+            }
+
+            // The write of the second request comes without any recorded changes
+            try (var session = CasStorageSession.open()) {
+                sut.onAfterCasWritten(
+                        new AfterCasWrittenEvent(this, testAnnotationDocument, cas));
+            }
+
+            client1.assertExpectations();
+            client2.assertExpectations();
+        }
+    }
+
+    @WithMockUser(username = "user", roles = { "USER" })
+    @Test
+    public void thatChangesRecordedOnAnotherCasDoNotLimitTheUpdate() throws Exception
+    {
+        var emptyListNode = JsonNodeFactory.instance.arrayNode();
+
+        var vpd1 = new ViewportDefinition(testAnnotationDocument, 10, 20, FORMAT_LEGACY);
+        var vpd2 = new ViewportDefinition(testAnnotationDocument, 30, 40, FORMAT_LEGACY);
+
+        var layer = new AnnotationLayer();
+        layer.setId(1l);
+        layer.setType(SPAN_TYPE);
+
+        var changedCas = CasFactory.createText("This is a test. ".repeat(10).trim());
+        var annotation = changedCas.createAnnotation(changedCas.getAnnotationType(), 12, 15);
+
+        var writtenCas = CasFactory.createText("This is a test. ".repeat(10).trim());
+
+        try (var client1 = new WebSocketStompTestClient(USER, PASS);
+                var client2 = new WebSocketStompTestClient(USER, PASS)) {
+            client1.expectSuccessfulConnection().connect(websocketUrl);
+            client1.subscribe("/topic" + vpd1.getTopic());
+            client1.expect(new MViewportUpdate(0, 0, null)).subscribe("/app" + vpd1.getTopic());
+
+            client2.expectSuccessfulConnection().connect(websocketUrl);
+            client2.subscribe("/topic" + vpd2.getTopic());
+            client2.expect(new MViewportUpdate(0, 0, null)).subscribe("/app" + vpd2.getTopic());
+
+            client1.expect(new MViewportUpdate(0, MAX_VALUE, emptyListNode));
+            client2.expect(new MViewportUpdate(0, MAX_VALUE, emptyListNode));
+
+            // The written CAS may have been changed without any annotation events, so the range
+            // of the change recorded on the other CAS must not limit the update
+            try (var session = CasStorageSession.open()) {
+                sut.onAnnotationEvent(
+                        new SpanCreatedEvent(this, testDoc, USER, layer, annotation));
+                sut.onAfterCasWritten(
+                        new AfterCasWrittenEvent(this, testAnnotationDocument, writtenCas));
+            }
+
+            client1.assertExpectations();
+            client2.assertExpectations();
+        }
+    }
+
+    @WithMockUser(username = "user", roles = { "USER" })
+    @Test
+    public void thatSavingIsNotBlockedByRenderingUpdate() throws Exception
+    {
+        var emptyListNode = JsonNodeFactory.instance.arrayNode();
+
+        var vpd = new ViewportDefinition(testAnnotationDocument, 10, 20, FORMAT_LEGACY);
+
+        var renderingStarted = new CountDownLatch(1);
+        var saved = new CountDownLatch(1);
+        var savedWhileRendering = new AtomicBoolean();
+
+        try (var client = new WebSocketStompTestClient(USER, PASS)) {
+            client.expectSuccessfulConnection().connect(websocketUrl);
+            client.subscribe("/topic" + vpd.getTopic());
+            client.expect(new MViewportUpdate(0, 0, null)).subscribe("/app" + vpd.getTopic());
+
+            // Keep the first update rendering until the CAS has been saved
+            renderHook = () -> {
+                if (!Thread.currentThread().getName().startsWith("diam-update")
+                        || renderingStarted.getCount() == 0) {
+                    return;
+                }
+
+                renderingStarted.countDown();
+                try {
+                    savedWhileRendering.set(saved.await(10, SECONDS));
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            };
+
+            // One update for the change triggering the rendering and one for the save
+            client.expect(new MViewportUpdate(0, MAX_VALUE, emptyListNode))
+                    .expect(new MViewportUpdate(0, MAX_VALUE, emptyListNode));
+
+            sut.onAfterCasWritten(new AfterCasWrittenEvent(this, testAnnotationDocument,
+                    CasFactory.createText("This is a test. ".repeat(10).trim())));
+
+            assertThat(renderingStarted.await(10, SECONDS)).as("rendering started").isTrue();
+
+            try (var session = CasStorageSession.open()) {
+                var cas = documentService.readAnnotationCas(testDoc, USER);
+                documentService.writeAnnotationCas(cas, testAnnotationDocument);
+            }
+            saved.countDown();
+
+            client.assertExpectations();
+        }
+
+        assertThat(savedWhileRendering).as("saved while rendering").isTrue();
+    }
+
     @SpringBootConfiguration
     public static class WebsocketBrokerTestConfig
     {
@@ -244,6 +443,12 @@ public class DiamWebsocketController_ViewportRoutingTest
             };
         }
 
+        @Bean
+        public DiamMetrics diamMetrics()
+        {
+            return new DiamMetricsImpl();
+        }
+
         @Bean
         public ApplicationContextProvider applicationContextProvider()
         {
@@ -289,6 +494,11 @@ public class DiamWebsocketController_ViewportRoutingTest
                 @Override
                 public void render(VDocument aResponse, RenderRequest aRequest)
                 {
+                    var hook = renderHook;
+                    if (hook != null) {
+                        hook.run();
+                    }
+
                     var layer = new AnnotationLayer();
                     layer.setId(1l);
                     aResponse.add(
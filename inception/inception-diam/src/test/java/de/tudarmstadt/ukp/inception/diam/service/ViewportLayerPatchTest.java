@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.diam.service;
+
+import static de.tudarmstadt.ukp.inception.diam.service.DiamWebsocketController.FORMAT_LEGACY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.flipkart.zjsonpatch.JsonPatch;
+
+import de.tudarmstadt.ukp.inception.diam.model.compact.CompactSerializerImpl;
+import de.tudarmstadt.ukp.inception.support.json.JSONUtil;
+
+class ViewportLayerPatchTest
+{
+    @Test
+    void thatOnlyAnnotationsOfChangedLayersArePatched() throws Exception
+    {
+        var json = json("""
+                { "text": "abc", "spans": [
+                  { "vid": "1", "label": "A", "begin": 0, "end": 1 },
+                  { "vid": "2", "label": "B", "begin": 1, "end": 2 },
+                  { "vid": "3", "label": "C", "begin": 2, "end": 3 } ] }
+                """);
+        var layerJson = json("""
+                { "text": "abc", "spans": [
+                  { "vid": "1", "label": "A", "begin": 0, "end": 1 },
+                  { "vid": "4", "label": "D", "begin": 2, "end": 3 } ] }
+                """);
+
+        var sut = ViewportLayerPatch.build(FORMAT_LEGACY, json,
+                Map.of("1", 10l, "2", 20l, "3", 10l), Set.of(10l), layerJson,
+                Map.of("1", 10l, "4", 10l));
+
+        assertThat(sut.getPatch()).isEqualTo(json("""
+                [ { "op": "remove", "path": "/spans/2" },
+                  { "op": "add", "path": "/spans/-",
+                    "value": { "vid": "4", "label": "D", "begin": 2, "end": 3 } } ]
+                """));
+        assertThat(sut.getJson()).isEqualTo(JsonPatch.apply(sut.getPatch(), json));
+        assertThat(sut.getLayerByVid()) //
+                .containsOnly(entry("1", 10l), entry("2", 20l), entry("4", 10l));
+    }
+
+    @Test
+    void thatAnnotationArrayMissingFromViewportIsAdded() throws Exception
+    {
+        var json = json("""
+                { "window": [0, 3], "spans": [ [ "1", [[0, 1]], {} ] ] }
+                """);
+        var layerJson = json("""
+                { "window": [0, 3], "relations": [ [ "2", [], {} ] ] }
+                """);
+
+        var sut = ViewportLayerPatch.build(CompactSerializerImpl.ID, json, Map.of("1", 10l),
+                Set.of(20l), layerJson, Map.of("2", 20l));
+
+        assertThat(sut.getJson()).isEqualTo(json("""
+                { "window": [0, 3], "spans": [ [ "1", [[0, 1]], {} ] ],
+                  "relations": [ [ "2", [], {} ] ] }
+                """));
+        assertThat(sut.getJson()).isEqualTo(JsonPatch.apply(sut.getPatch(), json));
+    }
+
+    @Test
+    void thatNoPatchIsBuiltIfMoreThanTheAnnotationsChanged() throws Exception
+    {
+        var json = json("""
+                { "text": "abc", "spans": [] }
+                """);
+        var layerJson = json("""
+                { "text": "xyz", "spans": [] }
+                """);
+
+        assertThat(ViewportLayerPatch.build(FORMAT_LEGACY, json, Map.of(), Set.of(10l),
+                layerJson, Map.of())).isNull();
+    }
+
+    @Test
+    void thatNoPatchIsBuiltIfTheLayerOfAnAnnotationIsUnknown() throws Exception
+    {
+        var json = json("""
+                { "text": "abc", "spans": [ { "vid": "1", "label": "A", "begin": 0, "end": 1 } ] }
+                """);
+        var layerJson = json("""
+                { "text": "abc", "spans": [] }
+                """);
+
+        assertThat(ViewportLayerPatch.build(FORMAT_LEGACY, json, Map.of(), Set.of(10l),
+                layerJson, Map.of())).isNull();
+    }
+
+    @Test
+    void thatNoPatchIsBuiltForUnsupportedFormats() throws Exception
+    {
+        var json = json("""
+                { "spans": [] }
+                """);
+
+        assertThat(ViewportLayerPatch.supports("other")).isFalse();
+        assertThat(ViewportLayerPatch.build("other", json, Map.of(), Set.of(10l), json,
+                Map.of())).isNull();
+    }
+
+    private static JsonNode json(String aJson) throws Exception
+    {
+        return JSONUtil.getObjectMapper().readTree(aJson);
+    }
+}
@@ -782,6 +782,16 @@ public interface DocumentService
      */
     long countAnnotationDocuments();
 
+    /**
+     * Schedules a forced upgrade of all annotator and curation CASes in the given project. The
+     * upgrade runs in the background and this method returns immediately. An upgrade which is
+     * interrupted by a restart is resumed when the application starts up again.
+     * 
+     * @param aProject
+     *            the project.
+     * @throws IOException
+     *             if the upgrade could not be scheduled.
+     */
     void upgradeAllAnnotationDocuments(Project aProject) throws IOException;
 
     Map<AnnotationDocumentState, Long> getAnnotationDocumentStats(SourceDocument aDocument);
@@ -36,7 +36,6 @@ import static de.tudarmstadt.ukp.clarin.webanno.security.ValidationUtils.FILESYS
 import static de.tudarmstadt.ukp.clarin.webanno.security.ValidationUtils.RELAXED_SHELL_SPECIAL_CHARACTERS;
 import static de.tudarmstadt.ukp.inception.annotation.storage.CasMetadataUtils.addOrUpdateCasMetadata;
 import static de.tudarmstadt.ukp.inception.project.api.ProjectService.withProjectLogger;
-import static de.tudarmstadt.ukp.inception.support.WebAnnoConst.CURATION_USER;
 import static de.tudarmstadt.ukp.inception.support.WebAnnoConst.INITIAL_CAS_PSEUDO_USER;
 import static de.tudarmstadt.ukp.inception.support.text.TextUtils.containsAnyCharacterMatching;
 import static de.tudarmstadt.ukp.inception.support.text.TextUtils.endsWithMatching;
@@ -53,7 +52,6 @@ import static org.apache.commons.lang3.StringUtils.contains;
 import static org.apache.commons.lang3.StringUtils.containsAny;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -88,6 +86,7 @@ import org.apache.wicket.validation.ValidationError;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
 import org.springframework.transaction.annotation.Transactional;
@@ -118,8 +117,10 @@ import de.tudarmstadt.ukp.inception.documents.event.AfterDocumentResetEvent;
 import de.tudarmstadt.ukp.inception.documents.event.AnnotationStateChangeEvent;
 import de.tudarmstadt.ukp.inception.documents.event.BeforeDocumentRemovedEvent;
 import de.tudarmstadt.ukp.inception.documents.event.DocumentStateChangedEvent;
+import de.tudarmstadt.ukp.inception.documents.task.CasUpgradeTask;
 import de.tudarmstadt.ukp.inception.project.api.ProjectService;
 import de.tudarmstadt.ukp.inception.project.api.event.BeforeProjectRemovedEvent;
+import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 import de.tudarmstadt.ukp.inception.support.logging.BaseLoggers;
 import de.tudarmstadt.ukp.inception.support.text.TextUtils;
 import jakarta.persistence.EntityManager;
@@ -157,12 +158,14 @@ public class DocumentServiceImpl
     private final ApplicationEventPublisher applicationEventPublisher;
     private final RepositoryProperties repositoryProperties;
     private final DocumentStorageService documentStorageService;
+    private final SchedulingService schedulingService;
 
     @Autowired
     public DocumentServiceImpl(RepositoryProperties aRepositoryProperties,
             CasStorageService aCasStorageService, DocumentImportExportService aImportExportService,
             ProjectService aProjectService, ApplicationEventPublisher aApplicationEventPublisher,
-            EntityManager aEntityManager, DocumentStorageService aDocumentStorageService)
+            EntityManager aEntityManager, DocumentStorageService aDocumentStorageService,
+            SchedulingService aSchedulingService)
     {
         repositoryProperties = aRepositoryProperties;
         casStorageService = aCasStorageService;
@@ -171,6 +174,7 @@ public class DocumentServiceImpl
         applicationEventPublisher = aApplicationEventPublisher;
         entityManager = aEntityManager;
         documentStorageService = aDocumentStorageService;
+        schedulingService = aSchedulingService;
 
         if (repositoryProperties != null) {
             BaseLoggers.BOOT_LOG.info("Document repository path: {}",
@@ -1534,31 +1538,31 @@ public class DocumentServiceImpl
     }
 
     @Override
-    @Transactional(noRollbackFor = NoResultException.class)
     public void upgradeAllAnnotationDocuments(Project aProject) throws IOException
     {
-        // Perform a forced upgrade on all CASes in the project. This action affects all users
-        // currently logged in and working on the project. E.g. an annotator working on a
-        // document will be unable to make changes to the document anymore until the user
-        // re-opens the document because the force upgrade invalidates the VIDs used in the
-        // annotation editor. How exactly (if at all) the user gets information of this is
-        // currently undefined.
-        for (SourceDocument doc : listSourceDocuments(aProject)) {
-            for (AnnotationDocument ann : listAllAnnotationDocuments(doc)) {
-                try {
-                    casStorageService.upgradeCas(doc, ann.getUser());
-                }
-                catch (FileNotFoundException e) {
-                    // If there is no CAS file, we do not have to upgrade it. Ignoring.
-                }
-            }
+        // Perform a forced upgrade on all CASes in the project in the background. See
+        // CasUpgradeTask for the implications this has on users currently working on the project.
+        schedulingService.enqueue(CasUpgradeTask.builder() //
+                .withProject(aProject) //
+                .withTrigger("Upgrade all annotation documents") //
+                .build());
+    }
 
-            // Also upgrade the curation CAS if it exists
-            try {
-                casStorageService.upgradeCas(doc, CURATION_USER);
-            }
-            catch (FileNotFoundException e) {
-                // If there is no CAS file, we do not have to upgrade it. Ignoring.
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedCasUpgrades()
+    {
+        if (repositoryProperties == null) {
+            return;
+        }
+
+        for (var project : projectService.listProjects()) {
+            if (CasUpgradeTask.getCheckpointFile(repositoryProperties, project).exists()) {
+                LOG.info("Resuming interrupted CAS upgrade in project {}", project);
+                schedulingService.enqueue(CasUpgradeTask.builder() //
+                        .withProject(project) //
+                        .withTrigger("Resume interrupted CAS upgrade") //
+                        .withResume(true) //
+                        .build());
             }
         }
     }
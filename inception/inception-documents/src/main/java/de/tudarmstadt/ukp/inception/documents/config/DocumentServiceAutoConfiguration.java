@@ -20,6 +20,7 @@ package de.tudarmstadt.ukp.inception.documents.config;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasStorageService;
 import de.tudarmstadt.ukp.clarin.webanno.api.export.DocumentImportExportService;
@@ -33,6 +34,7 @@ import de.tudarmstadt.ukp.inception.documents.api.DocumentStorageService;
 import de.tudarmstadt.ukp.inception.documents.api.RepositoryProperties;
 import de.tudarmstadt.ukp.inception.documents.exporters.SourceDocumentExporter;
 import de.tudarmstadt.ukp.inception.project.api.ProjectService;
+import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
 
@@ -45,11 +47,12 @@ public class DocumentServiceAutoConfiguration
     public DocumentService documentService(RepositoryProperties aRepositoryProperties,
             CasStorageService aCasStorageService, DocumentImportExportService aImportExportService,
             ProjectService aProjectService, ApplicationEventPublisher aApplicationEventPublisher,
-            DocumentStorageService aDocumentStorageService)
+            DocumentStorageService aDocumentStorageService,
+            @Lazy SchedulingService aSchedulingService)
     {
         return new DocumentServiceImpl(aRepositoryProperties, aCasStorageService,
                 aImportExportService, aProjectService, aApplicationEventPublisher, entityManager,
-                aDocumentStorageService);
+                aDocumentStorageService, aSchedulingService);
     }
 
     @Bean
@@ -0,0 +1,423 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.documents.task;
+
+import static de.tudarmstadt.ukp.inception.project.api.ProjectService.PROJECT_FOLDER;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskScope.PROJECT;
+import static de.tudarmstadt.ukp.inception.support.WebAnnoConst.CURATION_USER;
+import static java.lang.System.currentTimeMillis;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasStorageService;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageSession;
+import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
+import de.tudarmstadt.ukp.inception.documents.api.RepositoryProperties;
+import de.tudarmstadt.ukp.inception.scheduling.ProjectTask;
+import de.tudarmstadt.ukp.inception.scheduling.Task;
+import de.tudarmstadt.ukp.inception.support.logging.LogMessage;
+
+/**
+ * Performs a forced upgrade on all annotator and curation CASes in a project. The CASes are
+ * upgraded by a pool of worker threads. Every CAS that has been dealt with is recorded in a
+ * checkpoint file in the project folder so that an interrupted upgrade (e.g. by a restart) can be
+ * resumed without upgrading the same CASes again. The checkpoint file is removed once all CASes
+ * have been upgraded. It is kept if the upgrade is cancelled or if some CASes could not be
+ * upgraded. CASes which have already been written with the current type system of the project
+ * are skipped.
+ * <p>
+ * This action affects all users currently logged in and working on the project. E.g. an annotator
+ * working on a document will be unable to make changes to the document anymore until the user
+ * re-opens the document because the force upgrade invalidates the VIDs used in the annotation
+ * editor.
+ */
+public class CasUpgradeTask
+    extends Task
+    implements ProjectTask
+{
+    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    public static final String TYPE = "CasUpgradeTask";
+
+    public static final String CHECKPOINT_FILE = "cas-upgrade.checkpoint";
+
+    private static final String TYPE_SYSTEM_HASH_PREFIX = "#";
+    private static final long REPORT_INTERVAL = 10_000;
+    private static final int DEFAULT_PARALLELISM = Math.max(1,
+            Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+    private @Autowired DocumentService documentService;
+    private @Autowired CasStorageService casStorageService;
+    private @Autowired RepositoryProperties repositoryProperties;
+
+    private final boolean resume;
+    private final int parallelism;
+
+    private final AtomicInteger upgradedCount = new AtomicInteger();
+    private final AtomicInteger skippedCount = new AtomicInteger();
+    private final AtomicInteger failedCount = new AtomicInteger();
+    private final AtomicLong upgradedBytes = new AtomicLong();
+    private long startTime;
+    private long lastReportTime;
+
+    private Writer checkpoint;
+    private volatile boolean typeSystemHashKnown;
+    private volatile String typeSystemHash;
+
+    public CasUpgradeTask(Builder<? extends Builder<?>> aBuilder)
+    {
+        super(aBuilder.withType(TYPE).withCancellable(true).withScope(PROJECT));
+
+        resume = aBuilder.resume;
+        parallelism = aBuilder.parallelism;
+    }
+
+    @Override
+    public String getTitle()
+    {
+        return "Upgrading annotations...";
+    }
+
+    @Override
+    public void execute() throws IOException
+    {
+        var checkpointFile = getCheckpointFile(repositoryProperties, getProject()).toPath();
+
+        var completed = new HashSet<String>();
+        if (resume && Files.exists(checkpointFile)) {
+            readCheckpoint(checkpointFile.toFile(), completed);
+            LOG.info("Resuming CAS upgrade in project {} - {} CASes already done", getProject(),
+                    completed.size());
+        }
+        else {
+            Files.deleteIfExists(checkpointFile);
+        }
+
+        var queue = new ConcurrentLinkedQueue<CasKey>();
+        var total = 0;
+        for (var doc : documentService.listSourceDocuments(getProject())) {
+            var users = new ArrayList<String>();
+            for (var ann : documentService.listAllAnnotationDocuments(doc)) {
+                users.add(ann.getUser());
+            }
+            users.add(CURATION_USER);
+
+            for (var user : users) {
+                var key = new CasKey(doc, user);
+                if (!completed.contains(key.id())) {
+                    queue.add(key);
+                }
+                total++;
+            }
+        }
+
+        var monitor = getMonitor();
+        var progress = new AtomicInteger(total - queue.size());
+        monitor.setProgress(progress.get());
+        monitor.setMaxProgress(total);
+
+        startTime = currentTimeMillis();
+        lastReportTime = startTime;
+
+        Files.createDirectories(checkpointFile.getParent());
+        try (var writer = Files.newBufferedWriter(checkpointFile, UTF_8, CREATE, APPEND)) {
+            checkpoint = writer;
+
+            // All CASes are upgraded to the same type system, so we upgrade sequentially until
+            // we have learned the hash of that type system from the first upgraded CAS. From then
+            // on, the workers can skip any CAS that has been stored with that type system already.
+            while (!typeSystemHashKnown && !monitor.isCancelled()) {
+                var key = queue.poll();
+                if (key == null) {
+                    break;
+                }
+                process(key, progress, total);
+            }
+
+            if (!queue.isEmpty() && !monitor.isCancelled()) {
+                processInParallel(queue, progress, total);
+            }
+        }
+        finally {
+            checkpoint = null;
+        }
+
+        // Keep the checkpoint if the upgrade was cancelled or some CASes could not be upgraded,
+        // so that the remaining CASes are upgraded when the upgrade is resumed
+        if (!monitor.isCancelled() && queue.isEmpty() && failedCount.get() == 0) {
+            Files.deleteIfExists(checkpointFile);
+        }
+
+        monitor.setProgressWithMessage(progress.get(), total, throughputMessage());
+    }
+
+    private void processInParallel(Queue<CasKey> aQueue, AtomicInteger aProgress, int aTotal)
+        throws IOException
+    {
+        var monitor = getMonitor();
+
+        var threadFactory = new BasicThreadFactory.Builder() //
+                .daemon(true) //
+                .namingPattern("cas-upgrade-" + getProject().getId() + "-%d") //
+                .build();
+        var executor = Executors.newFixedThreadPool(parallelism, threadFactory);
+        try {
+            var workers = new ArrayList<Future<?>>();
+            for (int i = 0; i < Math.min(parallelism, aQueue.size()); i++) {
+                workers.add(executor.submit(() -> {
+                    CasKey key;
+                    while (!monitor.isCancelled() && (key = aQueue.poll()) != null) {
+                        process(key, aProgress, aTotal);
+                    }
+                    return null;
+                }));
+            }
+
+            for (var worker : workers) {
+                worker.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void process(CasKey aKey, AtomicInteger aProgress, int aTotal) throws IOException
+    {
+        try {
+            switch (upgrade(aKey)) {
+            case UPGRADED:
+                upgradedCount.incrementAndGet();
+                if (!typeSystemHashKnown) {
+                    learnTypeSystemHash(aKey);
+                }
+                break;
+            case SKIPPED:
+                skippedCount.incrementAndGet();
+                break;
+            case MISSING:
+                // If there is no CAS file, we do not have to upgrade it. Ignoring.
+                break;
+            }
+        }
+        catch (IOException e) {
+            LOG.error("Unable to upgrade CAS of user [{}] on document {} in project {}",
+                    aKey.user(), aKey.document(), getProject(), e);
+            getMonitor().addMessage(LogMessage.error(this,
+                    "Unable to upgrade CAS of user [%s] on document [%s]: %s", aKey.user(),
+                    aKey.document().getName(), e.getMessage()));
+            failedCount.incrementAndGet();
+            aProgress.incrementAndGet();
+            return;
+        }
+
+        recordCompleted(aKey.id());
+        getMonitor().setProgress(aProgress.incrementAndGet());
+        maybeReportThroughput();
+    }
+
+    private Outcome upgrade(CasKey aKey) throws IOException
+    {
+        var doc = aKey.document();
+        var user = aKey.user();
+
+        var size = casStorageService.getCasFileSize(doc, user);
+        if (size.isEmpty()) {
+            return Outcome.MISSING;
+        }
+
+        if (typeSystemHash != null && typeSystemHash
+                .equals(casStorageService.getCasTypeSystemHash(doc, user).orElse(null))) {
+            return Outcome.SKIPPED;
+        }
+
+        try (var session = CasStorageSession.openNested()) {
+            casStorageService.upgradeCas(doc, user);
+        }
+        catch (FileNotFoundException e) {
+            return Outcome.MISSING;
+        }
+
+        upgradedBytes.addAndGet(size.get());
+        return Outcome.UPGRADED;
+    }
+
+    private synchronized void learnTypeSystemHash(CasKey aKey) throws IOException
+    {
+        // If the storage does not record type system hashes, we cannot skip anything
+        var hash = casStorageService.getCasTypeSystemHash(aKey.document(), aKey.user());
+        if (hash.isPresent()) {
+            recordTypeSystemHash(hash.get());
+        }
+        typeSystemHashKnown = true;
+    }
+
+    private synchronized void recordTypeSystemHash(String aHash) throws IOException
+    {
+        typeSystemHash = aHash;
+        typeSystemHashKnown = true;
+        if (checkpoint != null) {
+            checkpoint.write(TYPE_SYSTEM_HASH_PREFIX + aHash + "\n");
+            checkpoint.flush();
+        }
+    }
+
+    private synchronized void recordCompleted(String aId) throws IOException
+    {
+        checkpoint.write(aId + "\n");
+        checkpoint.flush();
+    }
+
+    private void readCheckpoint(File aFile, Set<String> aCompleted) throws IOException
+    {
+        for (var line : Files.readAllLines(aFile.toPath(), UTF_8)) {
+            if (line.startsWith(TYPE_SYSTEM_HASH_PREFIX)) {
+                typeSystemHash = line.substring(TYPE_SYSTEM_HASH_PREFIX.length());
+                typeSystemHashKnown = true;
+            }
+            else if (!line.isBlank()) {
+                aCompleted.add(line);
+            }
+        }
+    }
+
+    private synchronized void maybeReportThroughput()
+    {
+        var now = currentTimeMillis();
+        if (now - lastReportTime < REPORT_INTERVAL) {
+            return;
+        }
+
+        lastReportTime = now;
+        getMonitor().addMessage(throughputMessage());
+    }
+
+    private LogMessage throughputMessage()
+    {
+        var seconds = Math.max(1, currentTimeMillis() - startTime) / 1000.0;
+        return LogMessage.info(this,
+                "%d CASes upgraded, %d already up-to-date (%.1f CASes/s, %.2f MB/s)",
+                upgradedCount.get(), skippedCount.get(), upgradedCount.get() / seconds,
+                upgradedBytes.get() / (1024.0 * 1024.0) / seconds);
+    }
+
+    /**
+     * @param aRepositoryProperties
+     *            the repository properties.
+     * @param aProject
+     *            the project.
+     * @return the file in which the progress of an upgrade of the given project is recorded. If
+     *         this file exists, an upgrade is pending.
+     */
+    public static File getCheckpointFile(RepositoryProperties aRepositoryProperties,
+            Project aProject)
+    {
+        return new File(aRepositoryProperties.getPath(),
+                "/" + PROJECT_FOLDER + "/" + aProject.getId() + "/" + CHECKPOINT_FILE);
+    }
+
+    private enum Outcome
+    {
+        UPGRADED, SKIPPED, MISSING
+    }
+
+    private record CasKey(SourceDocument document, String user)
+    {
+        String id()
+        {
+            return document.getId() + "\t" + user;
+        }
+    }
+
+    public static Builder<Builder<?>> builder()
+    {
+        return new Builder<>();
+    }
+
+    public static class Builder<T extends Builder<?>>
+        extends Task.Builder<T>
+    {
+        private boolean resume;
+        private int parallelism = DEFAULT_PARALLELISM;
+
+        /**
+         * @param aResume
+         *            whether to continue from the checkpoint left by a previous run instead of
+         *            starting over.
+         */
+        @SuppressWarnings("unchecked")
+        public T withResume(boolean aResume)
+        {
+            resume = aResume;
+            return (T) this;
+        }
+
+        @SuppressWarnings("unchecked")
+        public T withParallelism(int aParallelism)
+        {
+            parallelism = aParallelism;
+            return (T) this;
+        }
+
+        public CasUpgradeTask build()
+        {
+            Validate.notNull(project, "CasUpgradeTask requires a project");
+            Validate.isTrue(parallelism > 0, "CasUpgradeTask requires a parallelism of at least 1");
+
+            return new CasUpgradeTask(this);
+        }
+    }
+}
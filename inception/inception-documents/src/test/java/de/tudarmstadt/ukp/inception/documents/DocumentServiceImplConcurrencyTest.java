@@ -130,7 +130,7 @@ public class DocumentServiceImplConcurrencyTest
 
         var realSut = new DocumentServiceImpl(repositoryProperties, casStorageService,
                 importExportService, projectService, applicationEventPublisher, entityManager,
-                docStorageService);
+                docStorageService, null);
         sut = Mockito.mock(DocumentServiceImpl.class, Mockito.withSettings().spiedInstance(realSut)
                 .stubOnly().defaultAnswer(Answers.CALLS_REAL_METHODS));
 
@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.documents.task;
+
+import static de.tudarmstadt.ukp.inception.support.WebAnnoConst.CURATION_USER;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasStorageService;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
+import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
+import de.tudarmstadt.ukp.inception.documents.api.RepositoryPropertiesImpl;
+
+@ExtendWith(MockitoExtension.class)
+class CasUpgradeTaskTest
+{
+    private @Mock DocumentService documentService;
+    private @Mock CasStorageService casStorageService;
+
+    private @TempDir File repositoryDir;
+
+    private AnnotationConfigApplicationContext context;
+    private Project project;
+    private SourceDocument document;
+    private File checkpointFile;
+
+    @BeforeEach
+    void setup() throws Exception
+    {
+        var repositoryProperties = new RepositoryPropertiesImpl();
+        repositoryProperties.setPath(repositoryDir);
+
+        context = new AnnotationConfigApplicationContext();
+        context.getBeanFactory().registerSingleton("documentService", documentService);
+        context.getBeanFactory().registerSingleton("casStorageService", casStorageService);
+        context.getBeanFactory().registerSingleton("repositoryProperties", repositoryProperties);
+        context.refresh();
+
+        project = Project.builder() //
+                .withId(1l) //
+                .withName("Test Project") //
+                .build();
+        document = SourceDocument.builder() //
+                .withId(2l) //
+                .withName("doc.txt") //
+                .withProject(project) //
+                .build();
+        checkpointFile = CasUpgradeTask.getCheckpointFile(repositoryProperties, project);
+
+        when(documentService.listSourceDocuments(project)).thenReturn(asList(document));
+        when(documentService.listAllAnnotationDocuments(document)).thenReturn(asList( //
+                new AnnotationDocument("user1", document), //
+                new AnnotationDocument("user2", document), //
+                new AnnotationDocument("user3", document)));
+        when(casStorageService.getCasFileSize(any(), any())).thenReturn(Optional.of(100l));
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        context.close();
+    }
+
+    @Test
+    void thatCheckpointIsRemovedAfterCompletedUpgrade() throws Exception
+    {
+        createTask(false).execute();
+
+        for (var user : asList("user1", "user2", "user3", CURATION_USER)) {
+            verify(casStorageService).upgradeCas(document, user);
+        }
+        assertThat(checkpointFile).doesNotExist();
+    }
+
+    @Test
+    void thatCancelledUpgradeIsResumedFromCheckpoint() throws Exception
+    {
+        var task = createTask(false);
+        doAnswer(call -> {
+            task.getMonitor().cancel();
+            return null;
+        }).when(casStorageService).upgradeCas(any(), any());
+
+        task.execute();
+
+        verify(casStorageService).upgradeCas(document, "user1");
+        verify(casStorageService, times(1)).upgradeCas(any(), any());
+        assertThat(checkpointFile).exists();
+        assertThat(Files.readAllLines(checkpointFile.toPath(), UTF_8)) //
+                .containsExactly(document.getId() + "\tuser1");
+
+        doAnswer(call -> null).when(casStorageService).upgradeCas(any(), any());
+
+        createTask(true).execute();
+
+        for (var user : asList("user1", "user2", "user3", CURATION_USER)) {
+            verify(casStorageService).upgradeCas(document, user);
+        }
+        assertThat(checkpointFile).doesNotExist();
+    }
+
+    @Test
+    void thatCheckpointIsIgnoredIfNotResuming() throws Exception
+    {
+        Files.createDirectories(checkpointFile.getParentFile().toPath());
+        Files.writeString(checkpointFile.toPath(), document.getId() + "\tuser1\n", UTF_8);
+
+        createTask(false).execute();
+
+        verify(casStorageService).upgradeCas(document, "user1");
+        assertThat(checkpointFile).doesNotExist();
+    }
+
+    @Test
+    void thatCasesWithCurrentTypeSystemAreSkipped() throws Exception
+    {
+        when(casStorageService.getCasTypeSystemHash(any(), any())).thenReturn(Optional.of("hash"));
+
+        createTask(false).execute();
+
+        verify(casStorageService).upgradeCas(document, "user1");
+        verify(casStorageService, never()).upgradeCas(document, "user2");
+        verify(casStorageService, never()).upgradeCas(document, "user3");
+        verify(casStorageService, never()).upgradeCas(document, CURATION_USER);
+    }
+
+    @Test
+    void thatCheckpointIsKeptIfCasCannotBeUpgraded() throws Exception
+    {
+        doAnswer(call -> {
+            if ("user2".equals(call.getArgument(1))) {
+                throw new IOException("Broken CAS");
+            }
+            return null;
+        }).when(casStorageService).upgradeCas(any(), any());
+
+        createTask(false).execute();
+
+        assertThat(checkpointFile).exists();
+        assertThat(Files.readAllLines(checkpointFile.toPath(), UTF_8)) //
+                .containsExactlyInAnyOrder( //
+                        document.getId() + "\tuser1", //
+                        document.getId() + "\tuser3", //
+                        document.getId() + "\t" + CURATION_USER);
+    }
+
+    private CasUpgradeTask createTask(boolean aResume)
+    {
+        var task = CasUpgradeTask.builder() //
+                .withProject(project) //
+                .withTrigger("test") //
+                .withResume(aResume) //
+                .withParallelism(2) //
+                .build();
+        context.getAutowireCapableBeanFactory().autowireBean(task);
+        task.afterPropertiesSet();
+        return task;
+    }
+}
@@ -320,18 +320,13 @@ public class DocumentImportExportServiceImpl
             TypeSystemDescription aFullProjectTypeSystem)
         throws UIMAException, IOException
     {
-        var tsd = aFullProjectTypeSystem;
-
-        if (tsd == null) {
-            tsd = annotationService.getFullProjectTypeSystem(aDocument.getProject());
-        }
-
         // Convert the source document to CAS
         var format = getReadableFormatById(aFormat).orElseThrow(
                 () -> new IOException("No reader available for format [" + aFormat + "]"));
 
         // Prepare a CAS with the project type system
-        var cas = WebAnnoCasUtil.createCas(tsd);
+        var cas = aFullProjectTypeSystem != null ? WebAnnoCasUtil.createCas(aFullProjectTypeSystem)
+                : annotationService.createCas(aDocument.getProject());
         format.read(aDocument.getProject(), WebAnnoCasUtil.getRealCas(cas), aFile);
 
         // Create sentence / token annotations if they are missing - sentences first because
@@ -44,7 +44,6 @@ import de.tudarmstadt.ukp.inception.externalsearch.pubmed.traits.PubMedProviderT
 import de.tudarmstadt.ukp.inception.io.bioc.BioCFormatSupport;
 import de.tudarmstadt.ukp.inception.io.bioc.model.BioCToCas;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
-import de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil;
 
 public class PubMedCentralProvider
     implements ExternalSearchProvider<PubMedProviderTraits>
@@ -121,7 +120,7 @@ public class PubMedCentralProvider
 
         try {
             var project = aDocumentRepository.getProject();
-            var cas = WebAnnoCasUtil.createCas(schemaService.getFullProjectTypeSystem(project));
+            var cas = schemaService.createCas(project);
             new BioCToCas().parseXml(new ByteArrayInputStream(biocXml), cas.getJCas());
             return cas.getDocumentText();
         }
@@ -37,6 +37,7 @@ import de.tudarmstadt.ukp.inception.externalsearch.pubmed.entrez.EntrezClient;
 import de.tudarmstadt.ukp.inception.externalsearch.pubmed.pmcoa.PmcOaClient;
 import de.tudarmstadt.ukp.inception.externalsearch.pubmed.traits.PubMedProviderTraits;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
+import de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil;
 
 @ExtendWith(MockitoExtension.class)
 @Tag("slow")
@@ -71,8 +72,8 @@ public class PubMedProviderTest
     @Test
     public void thatGetDocumentTextWorks() throws Exception
     {
-        when(annotationService.getFullProjectTypeSystem(any()))
-                .thenReturn(createTypeSystemDescription());
+        when(annotationService.createCas(any()))
+                .thenReturn(WebAnnoCasUtil.createCas(createTypeSystemDescription()));
 
         String results = sut.getDocumentText(repo, traits, "PMC", "7096989");
 
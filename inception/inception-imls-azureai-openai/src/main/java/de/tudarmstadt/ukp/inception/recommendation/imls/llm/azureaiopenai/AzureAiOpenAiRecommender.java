@@ -27,6 +27,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.azureaiopenai.client.AzureAiOpenAiClient;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.azureaiopenai.client.ChatCompletionRequest;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.azureaiopenai.client.GenerateResponseFormat;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.dispatch.LlmPromptDispatcher;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.traits.LlmRecommenderImplBase;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.security.client.auth.apikey.ApiKeyAuthenticationTraits;
@@ -47,6 +48,15 @@ public class AzureAiOpenAiRecommender
         client = aClient;
     }
 
+    public AzureAiOpenAiRecommender(Recommender aRecommender,
+            AzureAiOpenAiRecommenderTraits aTraits, AzureAiOpenAiClient aClient,
+            AnnotationSchemaService aSchemaService, LlmPromptDispatcher aDispatcher)
+    {
+        super(aRecommender, aTraits, aSchemaService, aDispatcher);
+
+        client = aClient;
+    }
+
     @Override
     protected String exchange(String aPrompt) throws IOException
     {
@@ -30,6 +30,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngine;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineFactoryImplBase;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.azureaiopenai.client.AzureAiOpenAiClient;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.dispatch.LlmPromptDispatcher;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.preset.Presets;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.ui.core.docanno.layer.DocumentMetadataLayerSupport;
@@ -42,13 +43,15 @@ public class AzureAiOpenAiRecommenderFactory
     public static final String ID = "de.tudarmstadt.ukp.inception.recommendation.imls.azureaiopenai.AzureAiOpenAiRecommender";
 
     private final AzureAiOpenAiClient client;
+    private final LlmPromptDispatcher dispatcher;
     private final AnnotationSchemaService schemaService;
 
     public AzureAiOpenAiRecommenderFactory(AzureAiOpenAiClient aClient,
-            AnnotationSchemaService aSchemaService)
+            AnnotationSchemaService aSchemaService, LlmPromptDispatcher aDispatcher)
     {
         client = aClient;
         schemaService = aSchemaService;
+        dispatcher = aDispatcher;
     }
 
     @Override
@@ -67,7 +70,8 @@ public class AzureAiOpenAiRecommenderFactory
     public RecommendationEngine build(Recommender aRecommender)
     {
         AzureAiOpenAiRecommenderTraits traits = readTraits(aRecommender);
-        return new AzureAiOpenAiRecommender(aRecommender, traits, client, schemaService);
+        return new AzureAiOpenAiRecommender(aRecommender, traits, client, schemaService,
+                dispatcher);
     }
 
     @Override
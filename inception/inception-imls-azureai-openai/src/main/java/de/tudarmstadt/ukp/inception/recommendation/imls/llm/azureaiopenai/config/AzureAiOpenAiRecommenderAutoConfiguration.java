@@ -24,6 +24,7 @@ import org.springframework.context.annotation.Configuration;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.azureaiopenai.AzureAiOpenAiRecommenderFactory;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.azureaiopenai.client.AzureAiOpenAiClient;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.azureaiopenai.client.AzureAiOpenAiClientImpl;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.dispatch.LlmPromptDispatcher;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 
 @Configuration
@@ -39,8 +40,9 @@ public class AzureAiOpenAiRecommenderAutoConfiguration
 
     @Bean
     public AzureAiOpenAiRecommenderFactory azureAiOpenAiRecommenderFactory(
-            AzureAiOpenAiClient aClient, AnnotationSchemaService aSchemaService)
+            AzureAiOpenAiClient aClient, AnnotationSchemaService aSchemaService,
+            LlmPromptDispatcher aDispatcher)
     {
-        return new AzureAiOpenAiRecommenderFactory(aClient, aSchemaService);
+        return new AzureAiOpenAiRecommenderFactory(aClient, aSchemaService, aDispatcher);
     }
 }
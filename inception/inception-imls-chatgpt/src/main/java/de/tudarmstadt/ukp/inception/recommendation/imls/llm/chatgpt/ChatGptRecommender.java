@@ -30,6 +30,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.chatgpt.client.ChatCompletionRequest;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.chatgpt.client.ChatGptClient;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.chatgpt.client.ResponseFormat;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.dispatch.LlmPromptDispatcher;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.traits.LlmRecommenderImplBase;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.security.client.auth.apikey.ApiKeyAuthenticationTraits;
@@ -49,6 +50,15 @@ public class ChatGptRecommender
         client = aClient;
     }
 
+    public ChatGptRecommender(Recommender aRecommender, ChatGptRecommenderTraits aTraits,
+            ChatGptClient aClient, AnnotationSchemaService aSchemaService,
+            LlmPromptDispatcher aDispatcher)
+    {
+        super(aRecommender, aTraits, aSchemaService, aDispatcher);
+
+        client = aClient;
+    }
+
     @Override
     protected String exchange(String aPrompt) throws IOException
     {
@@ -31,6 +31,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.recommender.Recommendatio
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineFactoryImplBase;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.chatgpt.client.ChatCompletionRequest;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.chatgpt.client.ChatGptClient;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.dispatch.LlmPromptDispatcher;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.preset.Presets;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.ui.core.docanno.layer.DocumentMetadataLayerSupport;
@@ -43,12 +44,15 @@ public class ChatGptRecommenderFactory
     public static final String ID = "de.tudarmstadt.ukp.inception.recommendation.imls.chatgpt.ChatGptRecommender";
 
     private final ChatGptClient client;
+    private final LlmPromptDispatcher dispatcher;
     private final AnnotationSchemaService schemaService;
 
-    public ChatGptRecommenderFactory(ChatGptClient aClient, AnnotationSchemaService aSchemaService)
+    public ChatGptRecommenderFactory(ChatGptClient aClient, AnnotationSchemaService aSchemaService,
+            LlmPromptDispatcher aDispatcher)
     {
         client = aClient;
         schemaService = aSchemaService;
+        dispatcher = aDispatcher;
     }
 
     @Override
@@ -67,7 +71,8 @@ public class ChatGptRecommenderFactory
     public RecommendationEngine build(Recommender aRecommender)
     {
         ChatGptRecommenderTraits traits = readTraits(aRecommender);
-        return new ChatGptRecommender(aRecommender, traits, client, schemaService);
+        return new ChatGptRecommender(aRecommender, traits, client, schemaService,
+                dispatcher);
     }
 
     @Override
@@ -24,6 +24,7 @@ import org.springframework.context.annotation.Configuration;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.chatgpt.ChatGptRecommenderFactory;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.chatgpt.client.ChatGptClient;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.chatgpt.client.ChatGptClientImpl;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.dispatch.LlmPromptDispatcher;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 
 @Configuration
@@ -39,8 +40,8 @@ public class ChatGptRecommenderAutoConfiguration
 
     @Bean
     public ChatGptRecommenderFactory chatGptRecommenderFactory(ChatGptClient aClient,
-            AnnotationSchemaService aSchemaService)
+            AnnotationSchemaService aSchemaService, LlmPromptDispatcher aDispatcher)
     {
-        return new ChatGptRecommenderFactory(aClient, aSchemaService);
+        return new ChatGptRecommenderFactory(aClient, aSchemaService, aDispatcher);
     }
 }
@@ -23,12 +23,18 @@ import static java.lang.String.format;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.stream;
 import static org.apache.commons.lang3.StringUtils.appendIfMissing;
+import static org.apache.uima.cas.impl.Serialization.serializeWithCompression;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_OCTET_STREAM_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_XML_VALUE;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringWriter;
 import java.lang.invoke.MethodHandles;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpRequest.BodyPublishers;
@@ -39,7 +45,9 @@ import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManager;
@@ -49,9 +57,12 @@ import org.apache.commons.io.IOUtils;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.CASException;
 import org.apache.uima.cas.CASRuntimeException;
+import org.apache.uima.cas.impl.CASImpl;
 import org.apache.uima.cas.impl.XmiCasDeserializer;
 import org.apache.uima.cas.impl.XmiCasSerializer;
 import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.CasIOUtils;
 import org.apache.uima.util.TypeSystemUtil;
 import org.apache.uima.util.XMLSerializer;
 import org.slf4j.Logger;
@@ -75,6 +86,9 @@ import de.tudarmstadt.ukp.inception.recommendation.imls.external.v1.messages.Pre
 import de.tudarmstadt.ukp.inception.recommendation.imls.external.v1.messages.TrainingRequest;
 import de.tudarmstadt.ukp.inception.recommendation.imls.external.v1.model.Document;
 import de.tudarmstadt.ukp.inception.recommendation.imls.external.v1.model.Metadata;
+import de.tudarmstadt.ukp.inception.recommendation.imls.external.v2.CompactTypeSystem;
+import de.tudarmstadt.ukp.inception.recommendation.imls.external.v2.CompactTypeSystemRegistry;
+import de.tudarmstadt.ukp.inception.recommendation.imls.external.v2.ProtocolVersion;
 import de.tudarmstadt.ukp.inception.rendering.model.Range;
 import de.tudarmstadt.ukp.inception.support.json.JSONUtil;
 import de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil;
@@ -89,19 +103,29 @@ public class ExternalRecommender
 
     private static final int HTTP_TOO_MANY_REQUESTS = 429;
     private static final int HTTP_BAD_REQUEST = 400;
+    private static final int HTTP_PRECONDITION_FAILED = 412;
 
     private final ExternalRecommenderProperties properties;
     private final ExternalRecommenderTraits traits;
 
     private HttpClient _client;
 
+    private final CompactTypeSystemRegistry typeSystemRegistry;
+
     public ExternalRecommender(ExternalRecommenderProperties aProperties, Recommender aRecommender,
             ExternalRecommenderTraits aTraits)
+    {
+        this(aProperties, aRecommender, aTraits, new CompactTypeSystemRegistry());
+    }
+
+    public ExternalRecommender(ExternalRecommenderProperties aProperties, Recommender aRecommender,
+            ExternalRecommenderTraits aTraits, CompactTypeSystemRegistry aTypeSystemRegistry)
     {
         super(aRecommender);
 
         properties = aProperties;
         traits = aTraits;
+        typeSystemRegistry = aTypeSystemRegistry;
     }
 
     private HttpClient getClient() throws RecommendationException
@@ -164,6 +188,13 @@ public class ExternalRecommender
         return true;
     }
 
+    @Override
+    public boolean isThreadSafe()
+    {
+        // The model lives in the external service - prediction does not touch the context
+        return true;
+    }
+
     @Override
     public void train(RecommenderContext aContext, List<CAS> aCasses) throws RecommendationException
     {
@@ -219,6 +250,10 @@ public class ExternalRecommender
     public Range predict(PredictionContext aContext, CAS aCas, int aBegin, int aEnd)
         throws RecommendationException
     {
+        if (traits.getProtocolVersion() == ProtocolVersion.V2) {
+            return predictV2(aCas, aBegin, aEnd);
+        }
+
         var client = getClient();
 
         var typeSystem = serializeTypeSystem(aCas);
@@ -259,6 +294,156 @@ public class ExternalRecommender
         return Range.rangeCoveringDocument(aCas);
     }
 
+    private Range predictV2(CAS aCas, int aBegin, int aEnd) throws RecommendationException
+    {
+        var client = getClient();
+
+        var typeSystem = typeSystemRegistry.getCompactTypeSystem(aCas.getTypeSystem(),
+                recommender.getLayer(), recommender.getFeature());
+        if (!typeSystemRegistry.isUploaded(traits.getRemoteUrl(), typeSystem.getHash())) {
+            uploadTypeSystem(client, typeSystem);
+        }
+
+        var request = HttpRequest.newBuilder() //
+                .uri(buildPredictV2Uri(aCas, typeSystem, aBegin, aEnd)) //
+                .header(HttpHeaders.CONTENT_TYPE, APPLICATION_OCTET_STREAM_VALUE) //
+                .header(HttpHeaders.ACCEPT, APPLICATION_OCTET_STREAM_VALUE) //
+                .timeout(properties.getReadTimeout()) //
+                .POST(BodyPublishers.ofByteArray(serializeCompactCas(aCas, typeSystem))) //
+                .build();
+
+        var response = sendStreamingRequest(client, request);
+
+        // The remote side may have forgotten the type system, e.g. because it was restarted
+        if (response.statusCode() == HTTP_PRECONDITION_FAILED) {
+            readResponseBody(response);
+            typeSystemRegistry.forgetUploaded(traits.getRemoteUrl(), typeSystem.getHash());
+            uploadTypeSystem(client, typeSystem);
+            response = sendStreamingRequest(client, request);
+        }
+
+        if (response.statusCode() >= HTTP_BAD_REQUEST) {
+            var msg = format("Request was not successful: [%d] - [%s]", response.statusCode(),
+                    readResponseBody(response));
+            throw new RecommendationException(msg);
+        }
+
+        try (var is = response.body()) {
+            loadCompactCas(aCas, typeSystem, is);
+        }
+        catch (IOException e) {
+            throw new RecommendationException("Error while deserializing CAS!", e);
+        }
+
+        return Range.rangeCoveringDocument(aCas);
+    }
+
+    private void uploadTypeSystem(HttpClient aClient, CompactTypeSystem aTypeSystem)
+        throws RecommendationException
+    {
+        var request = HttpRequest.newBuilder() //
+                .uri(remoteUri("v2/typesystems/" + aTypeSystem.getHash())) //
+                .header(HttpHeaders.CONTENT_TYPE, APPLICATION_XML_VALUE) //
+                .timeout(properties.getReadTimeout()) //
+                .PUT(BodyPublishers.ofByteArray(aTypeSystem.getXml())) //
+                .build();
+
+        var response = sendRequest(aClient, request);
+        if (response.statusCode() >= HTTP_BAD_REQUEST) {
+            var msg = format("Uploading type system was not successful: [%d] - [%s]",
+                    response.statusCode(), getResponseBody(response));
+            throw new RecommendationException(msg);
+        }
+
+        typeSystemRegistry.markUploaded(traits.getRemoteUrl(), aTypeSystem.getHash());
+    }
+
+    private URI buildPredictV2Uri(CAS aCas, CompactTypeSystem aTypeSystem, int aBegin, int aEnd)
+        throws RecommendationException
+    {
+        var casMetadata = getCasMetadata(aCas);
+        var metadata = buildMetadata(aCas, new Range(aBegin, aEnd));
+
+        var params = new LinkedHashMap<String, Object>();
+        params.put("typeSystem", aTypeSystem.getHash());
+        params.put("layer", metadata.getLayer());
+        params.put("feature", metadata.getFeature());
+        params.put("projectId", metadata.getProjectId());
+        params.put("documentId", casMetadata.getSourceDocumentId());
+        params.put("userId", casMetadata.getUsername());
+        params.put("anchoringMode", metadata.getAnchoringMode());
+        params.put("crossSentence", metadata.isCrossSentence());
+        params.put("begin", aBegin);
+        params.put("end", aEnd);
+
+        var query = params.entrySet().stream() //
+                .map(e -> e.getKey() + "=" + URLEncoder.encode(String.valueOf(e.getValue()), UTF_8))
+                .collect(Collectors.joining("&"));
+
+        return remoteUri("v2/predict?" + query);
+    }
+
+    private URI remoteUri(String aPath)
+    {
+        return URI.create(appendIfMissing(traits.getRemoteUrl(), "/")).resolve(aPath);
+    }
+
+    private byte[] serializeCompactCas(CAS aCas, CompactTypeSystem aTypeSystem)
+        throws RecommendationException
+    {
+        var realCas = (CASImpl) getRealCas(aCas);
+        try (var out = new ByteArrayOutputStream()) {
+            // UIMA-6162 Workaround: synchronize CAS during de/serialization
+            synchronized (realCas.getBaseCAS()) {
+                // Workaround for https://github.com/apache/uima-uimaj/issues/238
+                try (var context = realCas.ll_enableV2IdRefs(false)) {
+                    // Only the types from the compact type system are serialized
+                    serializeWithCompression(realCas, out, aTypeSystem.getTypeSystem());
+                }
+            }
+            return out.toByteArray();
+        }
+        catch (IOException | ResourceInitializationException e) {
+            throw new RecommendationException("Error while serializing CAS!", e);
+        }
+    }
+
+    private void loadCompactCas(CAS aCas, CompactTypeSystem aTypeSystem, InputStream aStream)
+        throws IOException
+    {
+        var realCas = (CASImpl) getRealCas(aCas);
+        // UIMA-6162 Workaround: synchronize CAS during de/serialization
+        synchronized (realCas.getBaseCAS()) {
+            // The response has been serialized using the compact type system, so it is loaded
+            // leniently into the CAS with the full type system. As with the V1 protocol, the
+            // response replaces the content of the CAS, so types which were not sent are dropped.
+            // This is fine because the prediction CAS is a throw-away copy.
+            CasIOUtils.load(aStream, realCas, aTypeSystem.getTypeSystem());
+        }
+    }
+
+    private HttpResponse<InputStream> sendStreamingRequest(HttpClient aClient,
+            HttpRequest aRequest)
+        throws RecommendationException
+    {
+        try {
+            return aClient.send(aRequest, BodyHandlers.ofInputStream());
+        }
+        catch (IOException | InterruptedException e) {
+            throw new RecommendationException("Error while sending request: " + e.getMessage(), e);
+        }
+    }
+
+    private String readResponseBody(HttpResponse<InputStream> aResponse)
+    {
+        try (var is = aResponse.body()) {
+            return is != null ? IOUtils.toString(is, UTF_8) : "";
+        }
+        catch (IOException e) {
+            return "";
+        }
+    }
+
     private String serializeTypeSystem(CAS aCas) throws RecommendationException
     {
         var layer = recommender.getLayer();
@@ -29,6 +29,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.recommender.Recommendatio
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineFactoryImplBase;
 import de.tudarmstadt.ukp.inception.recommendation.imls.external.v1.config.ExternalRecommenderAutoConfiguration;
 import de.tudarmstadt.ukp.inception.recommendation.imls.external.v1.config.ExternalRecommenderProperties;
+import de.tudarmstadt.ukp.inception.recommendation.imls.external.v2.CompactTypeSystemRegistry;
 
 /**
  * <p>
@@ -45,9 +46,14 @@ public class ExternalRecommenderFactory
 
     private final ExternalRecommenderProperties properties;
 
+    // Recommender instances are built for every prediction run, so the state of the V2 protocol
+    // is shared via the factory
+    private final CompactTypeSystemRegistry typeSystemRegistry;
+
     public ExternalRecommenderFactory(ExternalRecommenderProperties aProperties)
     {
         properties = aProperties;
+        typeSystemRegistry = new CompactTypeSystemRegistry();
     }
 
     @Override
@@ -60,7 +66,7 @@ public class ExternalRecommenderFactory
     public RecommendationEngine build(Recommender aRecommender)
     {
         ExternalRecommenderTraits traits = readTraits(aRecommender);
-        return new ExternalRecommender(properties, aRecommender, traits);
+        return new ExternalRecommender(properties, aRecommender, traits, typeSystemRegistry);
     }
 
     @Override
@@ -23,6 +23,7 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.TrainingCapability;
+import de.tudarmstadt.ukp.inception.recommendation.imls.external.v2.ProtocolVersion;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class ExternalRecommenderTraits
@@ -34,6 +35,7 @@ public class ExternalRecommenderTraits
     private boolean verifyCertificates = true;
     private boolean ranker;
     private TrainingCapability trainingCapability;
+    private ProtocolVersion protocolVersion = ProtocolVersion.V1;
 
     @Deprecated
     @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
@@ -101,4 +103,14 @@ public class ExternalRecommenderTraits
     {
         trainingCapability = aTrainingCapability;
     }
+
+    public ProtocolVersion getProtocolVersion()
+    {
+        return protocolVersion;
+    }
+
+    public void setProtocolVersion(ProtocolVersion aProtocolVersion)
+    {
+        protocolVersion = aProtocolVersion;
+    }
 }
@@ -37,6 +37,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.DefaultTrainableRecommenderTraitsEditor;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineFactory;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.TrainingCapability;
+import de.tudarmstadt.ukp.inception.recommendation.imls.external.v2.ProtocolVersion;
 import de.tudarmstadt.ukp.inception.support.lambda.LambdaAjaxFormComponentUpdatingBehavior;
 
 public class ExternalRecommenderTraitsEditor
@@ -89,6 +90,13 @@ public class ExternalRecommenderTraitsEditor
         getTrainingStatesChoice().add(
                 visibleWhen(() -> trainingCapability.getModelObject() != TRAINING_NOT_SUPPORTED));
 
+        var protocolVersion = new DropDownChoice<ProtocolVersion>("protocolVersion");
+        protocolVersion.setOutputMarkupId(true);
+        protocolVersion.setChoiceRenderer(new EnumChoiceRenderer<>(protocolVersion));
+        protocolVersion.setChoices(asList(ProtocolVersion.values()));
+        protocolVersion.setRequired(true);
+        form.add(protocolVersion);
+
         var ranker = new CheckBox("ranker");
         ranker.setOutputMarkupId(true);
         form.add(ranker);
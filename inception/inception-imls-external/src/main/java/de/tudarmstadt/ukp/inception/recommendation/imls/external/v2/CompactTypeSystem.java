@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.imls.external.v2;
+
+import static java.util.Arrays.stream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.metadata.TypeDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.TypeSystemUtil;
+import org.xml.sax.SAXException;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.type.CASMetadata;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationException;
+
+/**
+ * The part of a type system which is sent to an external recommender using the
+ * {@link ProtocolVersion#V2 V2} protocol. It contains the layer to predict, tokens, sentences, the
+ * document and CAS metadata as well as all types these refer to. The remote side learns about the
+ * type system once and afterwards it is only referenced by its hash.
+ * <p>
+ * A compact type system does not refer to the type system it was derived from, so it can be cached
+ * in {@link CompactTypeSystemRegistry} without keeping the full type system alive.
+ */
+public final class CompactTypeSystem
+{
+    private static final String TYPE_NAME_TOKEN = //
+            "de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token";
+    private static final String TYPE_NAME_SENTENCE = //
+            "de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence";
+
+    private final TypeSystem typeSystem;
+    private final byte[] xml;
+    private final String hash;
+
+    private CompactTypeSystem(TypeSystem aTypeSystem, byte[] aXml, String aHash)
+    {
+        typeSystem = aTypeSystem;
+        xml = aXml;
+        hash = aHash;
+    }
+
+    public static CompactTypeSystem of(TypeSystem aTypeSystem, AnnotationLayer aLayer,
+            AnnotationFeature aFeature)
+        throws RecommendationException
+    {
+        var source = TypeSystemUtil.typeSystem2TypeSystemDescription(aTypeSystem);
+
+        // Collect the required types and all types they depend on. Built-in types are not part of
+        // the description and are skipped.
+        var selected = new LinkedHashMap<String, TypeDescription>();
+        var queue = new ArrayDeque<String>(List.of(CAS.TYPE_NAME_DOCUMENT_ANNOTATION,
+                CASMetadata.class.getName(), TYPE_NAME_SENTENCE, TYPE_NAME_TOKEN,
+                aLayer.getName()));
+        while (!queue.isEmpty()) {
+            var typeName = queue.poll();
+            if (typeName == null || selected.containsKey(typeName)) {
+                continue;
+            }
+
+            var type = source.getType(typeName);
+            if (type == null) {
+                continue;
+            }
+
+            selected.put(typeName, type);
+            queue.add(type.getSupertypeName());
+            for (var feature : type.getFeatures()) {
+                queue.add(feature.getRangeTypeName());
+                queue.add(feature.getElementType());
+            }
+        }
+
+        var layerType = selected.get(aLayer.getName());
+        if (layerType == null) {
+            throw new RecommendationException(
+                    "Layer [" + aLayer.getName() + "] not found in type system");
+        }
+        layerType.setDescription(aLayer.getDescription());
+        stream(layerType.getFeatures()) //
+                .filter(f -> f.getName().equals(aFeature.getName())) //
+                .forEach(f -> f.setDescription(aFeature.getDescription()));
+
+        var tsd = UIMAFramework.getResourceSpecifierFactory().createTypeSystemDescription();
+        tsd.setTypes(selected.values().toArray(TypeDescription[]::new));
+
+        try (var out = new ByteArrayOutputStream()) {
+            tsd.toXML(out);
+            var xml = out.toByteArray();
+            var hash = sha256(xml);
+            var typeSystem = CasCreationUtils.createCas(tsd, null, null).getTypeSystem();
+            return new CompactTypeSystem(typeSystem, xml, hash);
+        }
+        catch (SAXException | IOException | ResourceInitializationException e) {
+            throw new RecommendationException("Could not prepare type system", e);
+        }
+    }
+
+    private static String sha256(byte[] aData) throws RecommendationException
+    {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(aData));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new RecommendationException("Could not hash type system", e);
+        }
+    }
+
+    /**
+     * @return the compact type system.
+     */
+    public TypeSystem getTypeSystem()
+    {
+        return typeSystem;
+    }
+
+    /**
+     * @return the compact type system as a UIMA type system description XML document.
+     */
+    public byte[] getXml()
+    {
+        return xml;
+    }
+
+    /**
+     * @return the SHA-256 hash of the XML representation in lower-case hex encoding.
+     */
+    public String getHash()
+    {
+        return hash;
+    }
+}
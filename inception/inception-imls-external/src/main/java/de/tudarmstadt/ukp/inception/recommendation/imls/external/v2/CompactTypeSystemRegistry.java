@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.imls.external.v2;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.uima.cas.TypeSystem;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationException;
+
+/**
+ * Keeps track of the compact type systems across all external recommender instances. Recommender
+ * instances are created for every prediction run, so the compact type systems and the knowledge
+ * which remote recommender already has which type system must not be held by the instances.
+ */
+public class CompactTypeSystemRegistry
+{
+    private static final int MAX_UPLOADS = 1024;
+
+    // Keyed weakly by the full type system - the compact type systems do not refer back to it, so
+    // entries go away together with the full type system
+    private final Cache<TypeSystem, Map<Key, CompactTypeSystem>> compactTypeSystems = Caffeine
+            .newBuilder() //
+            .weakKeys() //
+            .build();
+
+    // If an upload is evicted, the type system is simply uploaded again
+    private final Cache<Upload, Boolean> uploads = Caffeine.newBuilder() //
+            .maximumSize(MAX_UPLOADS) //
+            .build();
+
+    /**
+     * @param aTypeSystem
+     *            the full type system.
+     * @param aLayer
+     *            the layer to predict.
+     * @param aFeature
+     *            the feature to predict.
+     * @return the compact type system for the given layer and feature.
+     * @throws RecommendationException
+     *             if the compact type system cannot be created.
+     */
+    public CompactTypeSystem getCompactTypeSystem(TypeSystem aTypeSystem, AnnotationLayer aLayer,
+            AnnotationFeature aFeature)
+        throws RecommendationException
+    {
+        var byKey = compactTypeSystems.get(aTypeSystem, _ts -> new ConcurrentHashMap<>());
+
+        // The descriptions are part of the compact type system and thereby of its hash
+        var key = new Key(aLayer.getName(), aLayer.getDescription(), aFeature.getName(),
+                aFeature.getDescription());
+
+        var compactTypeSystem = byKey.get(key);
+        if (compactTypeSystem == null) {
+            compactTypeSystem = CompactTypeSystem.of(aTypeSystem, aLayer, aFeature);
+            byKey.put(key, compactTypeSystem);
+        }
+
+        return compactTypeSystem;
+    }
+
+    /**
+     * @param aRemoteUrl
+     *            the URL of the remote recommender.
+     * @param aHash
+     *            the hash of the compact type system.
+     * @return whether the type system has already been uploaded to the remote recommender.
+     */
+    public boolean isUploaded(String aRemoteUrl, String aHash)
+    {
+        return uploads.getIfPresent(new Upload(aRemoteUrl, aHash)) != null;
+    }
+
+    public void markUploaded(String aRemoteUrl, String aHash)
+    {
+        uploads.put(new Upload(aRemoteUrl, aHash), true);
+    }
+
+    /**
+     * Forgets that the type system has been uploaded, e.g. because the remote recommender was
+     * restarted and no longer knows about it.
+     * 
+     * @param aRemoteUrl
+     *            the URL of the remote recommender.
+     * @param aHash
+     *            the hash of the compact type system.
+     */
+    public void forgetUploaded(String aRemoteUrl, String aHash)
+    {
+        uploads.invalidate(new Upload(aRemoteUrl, aHash));
+    }
+
+    private record Key(String layer, String layerDescription, String feature,
+            String featureDescription)
+    {}
+
+    private record Upload(String remoteUrl, String hash)
+    {}
+}
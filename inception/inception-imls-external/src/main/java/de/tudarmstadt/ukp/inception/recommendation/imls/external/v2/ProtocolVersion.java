@@ -0,0 +1,36 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.imls.external.v2;
+
+/**
+ * The protocol used to talk to an external recommender.
+ */
+public enum ProtocolVersion
+{
+    /**
+     * The type system and the full CAS are sent as XML with every request.
+     */
+    V1,
+
+    /**
+     * The type system is uploaded once and then referenced by its hash. The CAS is sent in the
+     * compressed binary UIMA format and only contains the layers relevant to the recommender.
+     * Training still uses the {@link #V1} protocol.
+     */
+    V2;
+}
@@ -0,0 +1,309 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.imls.external.v2;
+
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.EXCLUSIVE_WRITE_ACCESS;
+import static de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService.FEATURE_NAME_IS_PREDICTION;
+import static de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService.FEATURE_NAME_SCORE_SUFFIX;
+import static de.tudarmstadt.ukp.inception.support.test.recommendation.RecommenderTestHelper.getPredictions;
+import static org.apache.uima.fit.factory.TypeSystemDescriptionFactory.createTypeSystemDescription;
+import static org.apache.uima.fit.util.CasUtil.getType;
+import static org.apache.uima.util.CasCreationUtils.mergeTypeSystems;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.uima.UIMAFramework;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.resource.metadata.TypeSystemDescription;
+import org.apache.uima.util.CasCreationUtils;
+import org.apache.uima.util.CasIOUtils;
+import org.apache.uima.util.SerialFormat;
+import org.apache.uima.util.XMLInputSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.clarin.webanno.api.type.CASMetadata;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnchoringMode;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
+import de.tudarmstadt.ukp.inception.annotation.storage.CasMetadataUtils;
+import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageSession;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.PredictionContext;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
+import de.tudarmstadt.ukp.inception.recommendation.imls.external.v1.ExternalRecommender;
+import de.tudarmstadt.ukp.inception.recommendation.imls.external.v1.ExternalRecommenderTraits;
+import de.tudarmstadt.ukp.inception.recommendation.imls.external.v1.config.ExternalRecommenderPropertiesImpl;
+import de.tudarmstadt.ukp.inception.support.test.recommendation.RecommenderTestHelper;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.QueueDispatcher;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+public class ExternalRecommenderV2Test
+{
+    private static final String TYPE_NAME_TOKEN = //
+            "de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token";
+    private static final String TYPE_NAME_SENTENCE = //
+            "de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence";
+    private static final String TYPE_NAME_POS = //
+            "de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS";
+
+    private static final String USER_NAME = "test_user";
+    private static final long PROJECT_ID = 42L;
+
+    private Recommender recommender;
+    private RecommenderContext context;
+    private ExternalRecommenderTraits traits;
+    private CompactTypeSystemRegistry typeSystemRegistry;
+    private ExternalRecommender sut;
+    private MockWebServer server;
+    private CasStorageSession casStorageSession;
+
+    private Map<String, byte[]> typeSystems;
+    private AtomicInteger uploadCount;
+    private AtomicInteger predictCount;
+
+    @BeforeEach
+    public void setUp() throws Exception
+    {
+        casStorageSession = CasStorageSession.open();
+        recommender = buildRecommender();
+        context = new RecommenderContext();
+
+        typeSystems = new ConcurrentHashMap<>();
+        uploadCount = new AtomicInteger();
+        predictCount = new AtomicInteger();
+
+        server = new MockWebServer();
+        server.setDispatcher(buildDispatcher());
+        server.start();
+
+        traits = new ExternalRecommenderTraits();
+        traits.setRemoteUrl(server.url("/").toString());
+        traits.setProtocolVersion(ProtocolVersion.V2);
+        typeSystemRegistry = new CompactTypeSystemRegistry();
+        sut = new ExternalRecommender(new ExternalRecommenderPropertiesImpl(), recommender, traits,
+                typeSystemRegistry);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception
+    {
+        casStorageSession.close();
+        server.shutdown();
+    }
+
+    @Test
+    public void thatPredictingWorks() throws Exception
+    {
+        var cas = buildCas();
+
+        sut.predict(new PredictionContext(context), cas);
+
+        var predictions = getPredictions(cas, NamedEntity.class);
+        assertThat(predictions) //
+                .extracting(NamedEntity::getCoveredText, NamedEntity::getValue) //
+                .containsExactly(tuple("John", "PER"));
+        assertThat(cas.select(TYPE_NAME_TOKEN).asList()).hasSize(3);
+    }
+
+    @Test
+    public void thatTypeSystemIsUploadedOnlyOnce() throws Exception
+    {
+        var cas = buildCas();
+
+        sut.predict(new PredictionContext(context), cas);
+        sut.predict(new PredictionContext(context), cas);
+
+        assertThat(uploadCount).hasValue(1);
+        assertThat(predictCount).hasValue(2);
+    }
+
+    @Test
+    public void thatTypeSystemIsSharedBetweenRecommenderInstances() throws Exception
+    {
+        var cas = buildCas();
+
+        sut.predict(new PredictionContext(context), cas);
+
+        // The factory builds a new recommender instance for every prediction run
+        var other = new ExternalRecommender(new ExternalRecommenderPropertiesImpl(), recommender,
+                traits, typeSystemRegistry);
+        other.predict(new PredictionContext(context), cas);
+
+        assertThat(uploadCount).hasValue(1);
+        assertThat(predictCount).hasValue(2);
+    }
+
+    @Test
+    public void thatTypeSystemIsUploadedAgainWhenRemoteForgetsIt() throws Exception
+    {
+        var cas = buildCas();
+
+        sut.predict(new PredictionContext(context), cas);
+        typeSystems.clear();
+        sut.predict(new PredictionContext(context), cas);
+
+        assertThat(uploadCount).hasValue(2);
+        assertThat(getPredictions(cas, NamedEntity.class)).hasSize(1);
+    }
+
+    @Test
+    public void thatOnlyRequiredTypesAreSent() throws Exception
+    {
+        var cas = buildCas();
+
+        sut.predict(new PredictionContext(context), cas);
+
+        var tsd = parseTypeSystem(typeSystems.values().iterator().next());
+        assertThat(tsd.getType(NamedEntity.class.getName())).isNotNull();
+        assertThat(tsd.getType(TYPE_NAME_TOKEN)).isNotNull();
+        assertThat(tsd.getType(TYPE_NAME_SENTENCE)).isNotNull();
+        assertThat(tsd.getType(CASMetadata.class.getName())).isNotNull();
+        assertThat(tsd.getType(TYPE_NAME_POS)).isNull();
+    }
+
+    private CAS buildCas() throws Exception
+    {
+        var jcas = JCasFactory.createJCas(mergeTypeSystems(
+                List.of(createTypeSystemDescription(), CasMetadataUtils.getInternalTypeSystem())));
+        var cas = jcas.getCas();
+        cas.setDocumentText("John likes trains");
+
+        var tokenType = getType(cas, TYPE_NAME_TOKEN);
+        var posType = getType(cas, TYPE_NAME_POS);
+        for (var offsets : new int[][] { { 0, 4 }, { 5, 10 }, { 11, 17 } }) {
+            cas.addFsToIndexes(cas.createAnnotation(tokenType, offsets[0], offsets[1]));
+            cas.addFsToIndexes(cas.createAnnotation(posType, offsets[0], offsets[1]));
+        }
+        cas.addFsToIndexes(cas.createAnnotation(getType(cas, TYPE_NAME_SENTENCE), 0, 17));
+
+        var cmd = new CASMetadata(jcas);
+        cmd.setUsername(USER_NAME);
+        cmd.setProjectId(PROJECT_ID);
+        cmd.setSourceDocumentId(1L);
+        jcas.addFsToIndexes(cmd);
+
+        casStorageSession.add("testDataCas", EXCLUSIVE_WRITE_ACCESS, cas);
+        RecommenderTestHelper.addPredictionFeatures(cas, NamedEntity.class, "value");
+        return cas;
+    }
+
+    private static Recommender buildRecommender()
+    {
+        var layer = new AnnotationLayer();
+        layer.setName(NamedEntity.class.getName());
+        layer.setCrossSentence(false);
+        layer.setAnchoringMode(AnchoringMode.TOKENS);
+
+        var feature = new AnnotationFeature();
+        feature.setName("value");
+
+        var recommender = new Recommender();
+        recommender.setLayer(layer);
+        recommender.setFeature(feature);
+        recommender.setMaxRecommendations(3);
+
+        return recommender;
+    }
+
+    private static TypeSystemDescription parseTypeSystem(byte[] aXml) throws Exception
+    {
+        return UIMAFramework.getXMLParser().parseTypeSystemDescription(
+                new XMLInputSource(new ByteArrayInputStream(aXml), null));
+    }
+
+    /**
+     * Stub of a remote recommender implementing the V2 protocol. It labels the first token of the
+     * document as a person.
+     */
+    private QueueDispatcher buildDispatcher()
+    {
+        return new QueueDispatcher()
+        {
+            @Override
+            public MockResponse dispatch(RecordedRequest request)
+            {
+                try {
+                    var url = request.getRequestUrl();
+                    var path = url.encodedPath();
+
+                    if ("PUT".equals(request.getMethod())
+                            && path.startsWith("/v2/typesystems/")) {
+                        var hash = path.substring("/v2/typesystems/".length());
+                        typeSystems.put(hash, request.getBody().readByteArray());
+                        uploadCount.incrementAndGet();
+                        return new MockResponse().setResponseCode(204);
+                    }
+
+                    if ("POST".equals(request.getMethod()) && path.equals("/v2/predict")) {
+                        var xml = typeSystems.get(url.queryParameter("typeSystem"));
+                        if (xml == null) {
+                            return new MockResponse().setResponseCode(412)
+                                    .setBody("Unknown type system");
+                        }
+
+                        predictCount.incrementAndGet();
+                        var response = predict(xml, request.getBody().readByteArray(),
+                                url.queryParameter("layer"), url.queryParameter("feature"));
+                        return new MockResponse().setResponseCode(200)
+                                .setBody(new Buffer().write(response));
+                    }
+                }
+                catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+
+                System.err.println("Unknown URL: " + request.getPath());
+                return new MockResponse().setResponseCode(404);
+            }
+        };
+    }
+
+    private static byte[] predict(byte[] aTypeSystem, byte[] aCas, String aLayer, String aFeature)
+        throws Exception
+    {
+        var cas = CasCreationUtils.createCas(parseTypeSystem(aTypeSystem), null, null);
+        CasIOUtils.load(new ByteArrayInputStream(aCas), cas, cas.getTypeSystem());
+
+        var type = getType(cas, aLayer);
+        var token = cas.select(TYPE_NAME_TOKEN).get();
+        var prediction = cas.createAnnotation(type, token.getBegin(), token.getEnd());
+        prediction.setStringValue(type.getFeatureByBaseName(aFeature), "PER");
+        prediction.setBooleanValue(type.getFeatureByBaseName(FEATURE_NAME_IS_PREDICTION), true);
+        prediction.setDoubleValue(
+                type.getFeatureByBaseName(aFeature + FEATURE_NAME_SCORE_SUFFIX), 0.9);
+        cas.addFsToIndexes(prediction);
+
+        var out = new ByteArrayOutputStream();
+        CasIOUtils.save(cas, out, SerialFormat.COMPRESSED_FILTERED);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.config;
+
+import java.time.Duration;
+
+public interface LlmRecommenderProperties
+{
+    /**
+     * @return maximum number of prompts sent concurrently to the same endpoint.
+     */
+    int getMaxConcurrentRequestsPerEndpoint();
+
+    /**
+     * @return maximum number of responses kept in the response cache. Set to {@code 0} to disable
+     *         the cache.
+     */
+    long getResponseCacheSize();
+
+    /**
+     * @return time after which an unused response is removed from the response cache.
+     */
+    Duration getResponseCacheExpiry();
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.config;
+
+import static java.time.temporal.ChronoUnit.HOURS;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * <p>
+ * This class is exposed as a Spring Component via {@link LlmRecommenderSupportAutoConfiguration}.
+ * </p>
+ */
+@ConfigurationProperties("recommender.llm")
+public class LlmRecommenderPropertiesImpl
+    implements LlmRecommenderProperties
+{
+    private int maxConcurrentRequestsPerEndpoint = 4;
+    private long responseCacheSize = 10_000;
+    private Duration responseCacheExpiry = Duration.of(24, HOURS);
+
+    @Override
+    public int getMaxConcurrentRequestsPerEndpoint()
+    {
+        return maxConcurrentRequestsPerEndpoint;
+    }
+
+    public void setMaxConcurrentRequestsPerEndpoint(int aMaxConcurrentRequestsPerEndpoint)
+    {
+        maxConcurrentRequestsPerEndpoint = aMaxConcurrentRequestsPerEndpoint;
+    }
+
+    @Override
+    public long getResponseCacheSize()
+    {
+        return responseCacheSize;
+    }
+
+    public void setResponseCacheSize(long aResponseCacheSize)
+    {
+        responseCacheSize = aResponseCacheSize;
+    }
+
+    @Override
+    public Duration getResponseCacheExpiry()
+    {
+        return responseCacheExpiry;
+    }
+
+    public void setResponseCacheExpiry(Duration aResponseCacheExpiry)
+    {
+        responseCacheExpiry = aResponseCacheExpiry;
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.dispatch;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.apache.commons.lang3.exception.ExceptionUtils.getRootCauseMessage;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.config.LlmRecommenderProperties;
+
+/**
+ * Sends prompts to LLM endpoints concurrently and caches the responses. Each endpoint has its own
+ * thread pool, so the number of prompts which are in flight at the same time is limited per
+ * endpoint, no matter how many recommenders use the endpoint. Prompts beyond that limit wait in
+ * the queue of the pool and do not occupy a thread. Responses are cached by the
+ * {@link ExchangeSettings settings} of the exchange and the prompt, so prompts which have been sent
+ * before with the same settings do not cause another request.
+ * <p>
+ * This class is exposed as a Spring Component via
+ * {@link de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.config.LlmRecommenderSupportAutoConfiguration}.
+ * </p>
+ */
+public class LlmPromptDispatcher
+    implements DisposableBean
+{
+    private final static Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final LlmRecommenderProperties properties;
+    private final ThreadFactory threadFactory;
+    private final Map<String, ExecutorService> endpointExecutors = new ConcurrentHashMap<>();
+    private final Cache<ResponseKey, String> responseCache;
+
+    public LlmPromptDispatcher(LlmRecommenderProperties aProperties)
+    {
+        properties = aProperties;
+
+        threadFactory = new BasicThreadFactory.Builder() //
+                .daemon(true) //
+                .namingPattern("llm-prompt-%d") //
+                .build();
+
+        responseCache = Caffeine.newBuilder() //
+                .maximumSize(aProperties.getResponseCacheSize()) //
+                .expireAfterAccess(aProperties.getResponseCacheExpiry()) //
+                .build();
+    }
+
+    @Override
+    public void destroy()
+    {
+        endpointExecutors.values().forEach(ExecutorService::shutdownNow);
+    }
+
+    private ExecutorService getExecutor(String aEndpoint)
+    {
+        return endpointExecutors.computeIfAbsent(aEndpoint, $ -> {
+            var threads = Math.max(1, properties.getMaxConcurrentRequestsPerEndpoint());
+            var executor = new ThreadPoolExecutor(threads, threads, 60, SECONDS,
+                    new LinkedBlockingQueue<>(), threadFactory);
+            // Pools of endpoints which are no longer used do not keep any threads around
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        });
+    }
+
+    /**
+     * Sends the given prompts to the endpoint. Prompts for which a cached response exists and
+     * duplicate prompts are not sent again.
+     *
+     * @param aSettings
+     *            the settings used by the exchange - only responses obtained with the same
+     *            settings are taken from the cache.
+     * @param aPrompts
+     *            the prompts.
+     * @param aExchange
+     *            the function sending a single prompt to the endpoint. It is called from multiple
+     *            threads concurrently. If the dispatch is aborted, the threads are interrupted.
+     * @return one result per prompt in the order of the prompts.
+     * @throws InterruptedException
+     *             if the calling thread was interrupted while waiting for the responses.
+     */
+    public List<Result> dispatch(ExchangeSettings aSettings, List<String> aPrompts,
+            Exchange aExchange)
+        throws InterruptedException
+    {
+        var executor = getExecutor(aSettings.endpoint());
+
+        var pending = new LinkedHashMap<String, Future<String>>();
+        for (var prompt : aPrompts) {
+            pending.computeIfAbsent(prompt, p -> {
+                var key = new ResponseKey(aSettings, p);
+                var cached = responseCache.getIfPresent(key);
+                if (cached != null) {
+                    return CompletableFuture.completedFuture(cached);
+                }
+
+                return executor.submit(() -> {
+                    var response = aExchange.exchange(p);
+                    responseCache.put(key, response);
+                    return response;
+                });
+            });
+        }
+
+        try {
+            var results = new ArrayList<Result>(aPrompts.size());
+            for (var prompt : aPrompts) {
+                results.add(await(pending.get(prompt)));
+            }
+            return results;
+        }
+        finally {
+            // If we were interrupted, there is no point in sending the remaining prompts. Queued
+            // prompts are skipped and the threads sending the others are interrupted which aborts
+            // their requests.
+            pending.values().forEach(future -> future.cancel(true));
+        }
+    }
+
+    private Result await(Future<String> aFuture) throws InterruptedException
+    {
+        try {
+            return new Result(aFuture.get(), null);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                return new Result(null, ioException);
+            }
+
+            LOG.error("Unable to obtain response: {}", getRootCauseMessage(e), e);
+            return new Result(null, new IOException(e.getCause()));
+        }
+    }
+
+    @FunctionalInterface
+    public interface Exchange
+    {
+        String exchange(String aPrompt) throws IOException;
+    }
+
+    /**
+     * Everything besides the prompt which affects the response of an exchange.
+     *
+     * @param endpoint
+     *            the URL of the endpoint.
+     * @param service
+     *            the kind of service, e.g. the class of the recommender.
+     * @param model
+     *            the model.
+     * @param options
+     *            any further options, e.g. the response format or generation parameters.
+     */
+    public record ExchangeSettings(String endpoint, String service, String model,
+            Map<String, Object> options)
+    {}
+
+    /**
+     * The response to a prompt or the error raised when trying to obtain it.
+     */
+    public record Result(String response, IOException error)
+    {}
+
+    private record ResponseKey(ExchangeSettings settings, String prompt)
+    {}
+}
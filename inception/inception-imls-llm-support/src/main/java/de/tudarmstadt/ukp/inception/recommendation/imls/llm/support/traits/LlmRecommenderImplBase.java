@@ -27,6 +27,7 @@ import static org.apache.commons.lang3.exception.ExceptionUtils.getRootCauseMess
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -38,6 +39,9 @@ import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.NonTrainableRecommenderEngineImplBase;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.PredictionContext;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationException;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.dispatch.LlmPromptDispatcher;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.dispatch.LlmPromptDispatcher.ExchangeSettings;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.dispatch.LlmPromptDispatcher.Result;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.prompt.JinjaPromptRenderer;
 import de.tudarmstadt.ukp.inception.rendering.model.Range;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
@@ -53,15 +57,29 @@ public abstract class LlmRecommenderImplBase<T extends LlmRecommenderTraits>
     protected final T traits;
     protected final AnnotationSchemaService schemaService;
     protected final JinjaPromptRenderer promptRenderer;
+    private final LlmPromptDispatcher dispatcher;
 
     public LlmRecommenderImplBase(Recommender aRecommender, T aTraits,
             AnnotationSchemaService aSchemaService)
+    {
+        this(aRecommender, aTraits, aSchemaService, null);
+    }
+
+    /**
+     * @param aDispatcher
+     *            dispatcher used to send the prompts concurrently and to cache the responses. If
+     *            this is {@code null}, the prompts are sent one after another and nothing is
+     *            cached.
+     */
+    public LlmRecommenderImplBase(Recommender aRecommender, T aTraits,
+            AnnotationSchemaService aSchemaService, LlmPromptDispatcher aDispatcher)
     {
         super(aRecommender);
 
         traits = aTraits;
         schemaService = aSchemaService;
         promptRenderer = new JinjaPromptRenderer();
+        dispatcher = aDispatcher;
     }
 
     protected Map<String, Object> prepareGlobalBindings(CAS aCas)
@@ -89,22 +107,70 @@ public abstract class LlmRecommenderImplBase<T extends LlmRecommenderTraits>
         var globalBindings = prepareGlobalBindings(aCas);
 
         var responseExtractor = getResponseExtractor(traits.getExtractionMode());
-        getPromptContextGenerator(traits.getPromptingMode())
-                .generate(this, aCas, aBegin, aEnd, globalBindings).forEach(promptContext -> {
-                    try {
-                        var prompt = promptRenderer.render(traits.getPrompt(), promptContext);
-                        var response = exchange(prompt);
-                        responseExtractor.extract(this, aCas, promptContext, response);
-                    }
-                    catch (IOException e) {
-                        aContext.log(LogMessage.warn(getRecommender().getName(),
-                                "Remote failed to respond: %s", getRootCauseMessage(e)));
-                        LOG.error("Remote failed to respond: {}", getRootCauseMessage(e));
-                    }
-                });
+        var promptContexts = getPromptContextGenerator(traits.getPromptingMode())
+                .generate(this, aCas, aBegin, aEnd, globalBindings).toList();
+        var prompts = promptContexts.stream() //
+                .map(promptContext -> promptRenderer.render(traits.getPrompt(), promptContext)) //
+                .toList();
+
+        var results = sendPrompts(prompts);
+
+        // The responses are processed in the order of the prompts and on the calling thread since
+        // the CAS must not be accessed concurrently
+        for (int i = 0; i < promptContexts.size(); i++) {
+            var result = results.get(i);
+            if (result.error() != null) {
+                aContext.log(LogMessage.warn(getRecommender().getName(),
+                        "Remote failed to respond: %s", getRootCauseMessage(result.error())));
+                LOG.error("Remote failed to respond: {}", getRootCauseMessage(result.error()));
+                continue;
+            }
+
+            responseExtractor.extract(this, aCas, promptContexts.get(i), result.response());
+        }
 
         return new Range(aBegin, aEnd);
     }
 
+    private List<Result> sendPrompts(List<String> aPrompts) throws RecommendationException
+    {
+        if (dispatcher != null) {
+            try {
+                return dispatcher.dispatch(getExchangeSettings(), aPrompts, this::exchange);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RecommendationException("Interrupted while waiting for responses", e);
+            }
+        }
+
+        return aPrompts.stream().map(prompt -> {
+            try {
+                return new Result(exchange(prompt), null);
+            }
+            catch (IOException e) {
+                return new Result(null, e);
+            }
+        }).toList();
+    }
+
+    /**
+     * @return everything besides the prompt which affects the response of the remote side. Only
+     *         cached responses which have been obtained with the same settings are re-used.
+     *         Subclasses which send additional settings to the remote side need to include them
+     *         here.
+     */
+    protected ExchangeSettings getExchangeSettings()
+    {
+        var options = new LinkedHashMap<String, Object>(traits.getOptions());
+        options.put("format", traits.getFormat());
+        return new ExchangeSettings(traits.getUrl(), getClass().getName(), traits.getModel(),
+                options);
+    }
+
+    /**
+     * Sends a single prompt to the remote side. When a dispatcher is used, this method is called
+     * from multiple threads concurrently.
+     */
     protected abstract String exchange(String aPrompt) throws IOException;
 }
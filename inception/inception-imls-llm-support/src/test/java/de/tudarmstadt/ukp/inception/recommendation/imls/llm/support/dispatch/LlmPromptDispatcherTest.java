@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.dispatch;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.config.LlmRecommenderPropertiesImpl;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.dispatch.LlmPromptDispatcher.ExchangeSettings;
+
+class LlmPromptDispatcherTest
+{
+    private static final int MAX_CONCURRENT_REQUESTS = 3;
+
+    private static final ExchangeSettings SETTINGS = new ExchangeSettings("http://localhost",
+            "test", "model", Map.of());
+
+    private LlmPromptDispatcher sut;
+
+    @BeforeEach
+    void setup()
+    {
+        var properties = new LlmRecommenderPropertiesImpl();
+        properties.setMaxConcurrentRequestsPerEndpoint(MAX_CONCURRENT_REQUESTS);
+        sut = new LlmPromptDispatcher(properties);
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        sut.destroy();
+    }
+
+    @Test
+    void thatOnlyLimitedNumberOfThreadsIsUsedPerEndpoint() throws Exception
+    {
+        var threads = ConcurrentHashMap.<Thread> newKeySet();
+        var inFlight = new AtomicInteger();
+        var maxInFlight = new AtomicInteger();
+
+        var prompts = IntStream.range(0, 100).mapToObj(i -> "prompt " + i).toList();
+        var results = sut.dispatch(SETTINGS, prompts, prompt -> {
+            threads.add(Thread.currentThread());
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            }
+            catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            finally {
+                inFlight.decrementAndGet();
+            }
+            return prompt.toUpperCase();
+        });
+
+        assertThat(results).extracting(LlmPromptDispatcher.Result::response) //
+                .containsExactlyElementsOf(prompts.stream().map(String::toUpperCase).toList());
+        assertThat(threads).hasSizeLessThanOrEqualTo(MAX_CONCURRENT_REQUESTS);
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(MAX_CONCURRENT_REQUESTS);
+    }
+
+    @Test
+    void thatInterruptedDispatchAbortsRunningExchanges() throws Exception
+    {
+        var started = new CountDownLatch(MAX_CONCURRENT_REQUESTS);
+        var interrupted = new CountDownLatch(MAX_CONCURRENT_REQUESTS);
+        var exchanges = new AtomicInteger();
+
+        var prompts = IntStream.range(0, 100).mapToObj(i -> "prompt " + i).toList();
+        var caller = new Thread(() -> {
+            try {
+                sut.dispatch(SETTINGS, prompts, prompt -> {
+                    exchanges.incrementAndGet();
+                    started.countDown();
+                    try {
+                        Thread.sleep(60_000);
+                    }
+                    catch (InterruptedException e) {
+                        interrupted.countDown();
+                        throw new IOException(e);
+                    }
+                    return prompt;
+                });
+            }
+            catch (InterruptedException e) {
+                // Expected
+            }
+        });
+        caller.start();
+
+        assertThat(started.await(10, SECONDS)).isTrue();
+        caller.interrupt();
+        caller.join(10_000);
+
+        assertThat(caller.isAlive()).isFalse();
+        assertThat(interrupted.await(10, SECONDS)).isTrue();
+
+        // The queued prompts are never sent
+        Thread.sleep(100);
+        assertThat(exchanges.get()).isEqualTo(MAX_CONCURRENT_REQUESTS);
+    }
+
+    @Test
+    void thatCachedResponsesAreNotRequestedAgain() throws Exception
+    {
+        var exchanges = new AtomicInteger();
+        LlmPromptDispatcher.Exchange exchange = prompt -> {
+            exchanges.incrementAndGet();
+            return prompt;
+        };
+
+        sut.dispatch(SETTINGS, List.of("a", "b", "a"), exchange);
+        var results = sut.dispatch(SETTINGS, List.of("b", "a"), exchange);
+
+        assertThat(results).extracting(LlmPromptDispatcher.Result::response) //
+                .containsExactly("b", "a");
+        assertThat(exchanges).hasValue(2);
+    }
+}
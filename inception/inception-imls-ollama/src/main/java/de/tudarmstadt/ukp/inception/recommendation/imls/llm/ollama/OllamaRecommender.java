@@ -29,6 +29,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.ollama.client.OllamaClient;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.ollama.client.OllamaGenerateRequest;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.ollama.client.OllamaGenerateResponseFormat;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.dispatch.LlmPromptDispatcher;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.traits.LlmRecommenderImplBase;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 
@@ -47,6 +48,15 @@ public class OllamaRecommender
         client = aClient;
     }
 
+    public OllamaRecommender(Recommender aRecommender, OllamaRecommenderTraits aTraits,
+            OllamaClient aClient, AnnotationSchemaService aSchemaService,
+            LlmPromptDispatcher aDispatcher)
+    {
+        super(aRecommender, aTraits, aSchemaService, aDispatcher);
+
+        client = aClient;
+    }
+
     @Override
     protected String exchange(String aPrompt) throws IOException
     {
@@ -30,6 +30,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngine;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineFactoryImplBase;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.ollama.client.OllamaClient;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.dispatch.LlmPromptDispatcher;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.preset.Presets;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.ui.core.docanno.layer.DocumentMetadataLayerSupport;
@@ -43,11 +44,14 @@ public class OllamaRecommenderFactory
 
     private final AnnotationSchemaService schemaService;
     private final OllamaClient client;
+    private final LlmPromptDispatcher dispatcher;
 
-    public OllamaRecommenderFactory(OllamaClient aClient, AnnotationSchemaService aSchemaService)
+    public OllamaRecommenderFactory(OllamaClient aClient, AnnotationSchemaService aSchemaService,
+            LlmPromptDispatcher aDispatcher)
     {
         client = aClient;
         schemaService = aSchemaService;
+        dispatcher = aDispatcher;
     }
 
     @Override
@@ -66,7 +70,8 @@ public class OllamaRecommenderFactory
     public RecommendationEngine build(Recommender aRecommender)
     {
         OllamaRecommenderTraits traits = readTraits(aRecommender);
-        return new OllamaRecommender(aRecommender, traits, client, schemaService);
+        return new OllamaRecommender(aRecommender, traits, client, schemaService,
+                dispatcher);
     }
 
     @Override
@@ -28,6 +28,7 @@ import de.tudarmstadt.ukp.inception.recommendation.imls.llm.ollama.client.Ollama
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.ollama.client.OllamaClientImpl;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.ollama.client.OllamaMetrics;
 import de.tudarmstadt.ukp.inception.recommendation.imls.llm.ollama.client.OllamaMetricsImpl;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.dispatch.LlmPromptDispatcher;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 
 @Configuration
@@ -50,8 +51,8 @@ public class OllamaRecommenderAutoConfiguration
             matchIfMissing = false)
     @Bean
     public OllamaRecommenderFactory ollamaRecommenderFactory(OllamaClient aClient,
-            AnnotationSchemaService aSchemaService)
+            AnnotationSchemaService aSchemaService, LlmPromptDispatcher aDispatcher)
     {
-        return new OllamaRecommenderFactory(aClient, aSchemaService);
+        return new OllamaRecommenderFactory(aClient, aSchemaService, aDispatcher);
     }
 }
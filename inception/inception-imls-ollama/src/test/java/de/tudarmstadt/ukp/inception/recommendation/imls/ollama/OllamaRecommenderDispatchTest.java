@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.imls.ollama;
+
+import static de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService.FEATURE_NAME_IS_PREDICTION;
+import static de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.prompt.PromptingMode.PER_SENTENCE;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.joining;
+import static org.apache.uima.fit.util.FSUtil.getFeature;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.fit.factory.CasFactory;
+import org.apache.uima.fit.factory.TypeSystemDescriptionFactory;
+import org.apache.uima.fit.testing.factory.TokenBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
+import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationLayer;
+import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.inception.recommendation.api.RecommenderTypeSystemUtils;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.PredictionContext;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.ollama.OllamaRecommender;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.ollama.OllamaRecommenderTraits;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.ollama.client.OllamaClientImpl;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.config.LlmRecommenderPropertiesImpl;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.dispatch.LlmPromptDispatcher;
+import de.tudarmstadt.ukp.inception.recommendation.imls.llm.support.response.ExtractionMode;
+import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Runs the recommender against a fake Ollama server which responds with the upper-cased prompt.
+ */
+@ExtendWith(MockitoExtension.class)
+class OllamaRecommenderDispatchTest
+{
+    private static final int SENTENCES = 20;
+    private static final int MAX_CONCURRENT_REQUESTS = 4;
+
+    private @Mock AnnotationSchemaService schemaSerivce;
+
+    private AnnotationFeature feature;
+    private Recommender recommender;
+    private MockWebServer server;
+    private LlmPromptDispatcher dispatcher;
+
+    private AtomicInteger requests;
+    private AtomicInteger inFlight;
+    private AtomicInteger maxInFlight;
+
+    @BeforeEach
+    void setup() throws Exception
+    {
+        var layer = AnnotationLayer.builder().forJCasClass(NamedEntity.class).build();
+        feature = AnnotationFeature.builder().withLayer(layer)
+                .withName(NamedEntity._FeatName_value).build();
+
+        recommender = new Recommender();
+        recommender.setLayer(layer);
+        recommender.setFeature(feature);
+
+        requests = new AtomicInteger();
+        inFlight = new AtomicInteger();
+        maxInFlight = new AtomicInteger();
+
+        server = new MockWebServer();
+        server.setDispatcher(new FakeOllama());
+        server.start();
+
+        var properties = new LlmRecommenderPropertiesImpl();
+        properties.setMaxConcurrentRequestsPerEndpoint(MAX_CONCURRENT_REQUESTS);
+        dispatcher = new LlmPromptDispatcher(properties);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception
+    {
+        dispatcher.destroy();
+        server.shutdown();
+    }
+
+    @Test
+    void thatPromptsAreSentConcurrently() throws Exception
+    {
+        var cas = buildCas();
+
+        buildRecommender("mistral").predict(new PredictionContext(new RecommenderContext()), cas);
+
+        var predictions = getPredictions(cas);
+        assertThat(predictions).hasSize(SENTENCES);
+        assertThat(predictions) //
+                .allSatisfy(ne -> assertThat(ne.getValue())
+                        .isEqualTo(ne.getCoveredText().toUpperCase()));
+        assertThat(requests).hasValue(SENTENCES);
+        assertThat(maxInFlight.get()).isBetween(2, MAX_CONCURRENT_REQUESTS);
+    }
+
+    @Test
+    void thatCachedResponsesAreReused() throws Exception
+    {
+        var sut = buildRecommender("mistral");
+
+        var cas1 = buildCas();
+        sut.predict(new PredictionContext(new RecommenderContext()), cas1);
+        var cas2 = buildCas();
+        sut.predict(new PredictionContext(new RecommenderContext()), cas2);
+
+        assertThat(requests).hasValue(SENTENCES);
+        assertThat(getPredictions(cas2)).hasSize(SENTENCES);
+    }
+
+    @Test
+    void thatResponsesAreNotSharedBetweenModels() throws Exception
+    {
+        buildRecommender("mistral").predict(new PredictionContext(new RecommenderContext()),
+                buildCas());
+        buildRecommender("llama").predict(new PredictionContext(new RecommenderContext()),
+                buildCas());
+
+        assertThat(requests).hasValue(2 * SENTENCES);
+    }
+
+    private OllamaRecommender buildRecommender(String aModel)
+    {
+        var traits = new OllamaRecommenderTraits();
+        traits.setUrl(server.url("/").toString());
+        traits.setModel(aModel);
+        traits.setPrompt("{{ text }}");
+        traits.setPromptingMode(PER_SENTENCE);
+        traits.setExtractionMode(ExtractionMode.RESPONSE_AS_LABEL);
+
+        return new OllamaRecommender(recommender, traits, new OllamaClientImpl(), schemaSerivce,
+                dispatcher);
+    }
+
+    private CAS buildCas() throws Exception
+    {
+        var tsd = TypeSystemDescriptionFactory.createTypeSystemDescription();
+        RecommenderTypeSystemUtils.addPredictionFeaturesToTypeSystem(tsd, asList(feature));
+        var cas = CasFactory.createCas(tsd);
+
+        var text = IntStream.range(0, SENTENCES) //
+                .mapToObj(i -> "This is sentence " + i + " .") //
+                .collect(joining("\n"));
+        TokenBuilder.create(Token.class, Sentence.class).buildTokens(cas.getJCas(), text);
+        return cas;
+    }
+
+    private static List<NamedEntity> getPredictions(CAS aCas)
+    {
+        return aCas.select(NamedEntity.class)
+                .filter(ne -> getFeature(ne, FEATURE_NAME_IS_PREDICTION, Boolean.class)).toList();
+    }
+
+    private class FakeOllama
+        extends Dispatcher
+    {
+        private final ObjectMapper mapper = new ObjectMapper();
+
+        @Override
+        public MockResponse dispatch(RecordedRequest aRequest) throws InterruptedException
+        {
+            if (!"/api/generate".equals(aRequest.getPath())) {
+                return new MockResponse().setResponseCode(404);
+            }
+
+            requests.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                var prompt = mapper.readTree(aRequest.getBody().readUtf8()).get("prompt")
+                        .asText();
+
+                // Give the other requests a chance to arrive while this one is in flight
+                Thread.sleep(50);
+
+                var response = mapper.createObjectNode() //
+                        .put("response", prompt.toUpperCase()) //
+                        .put("done", true);
+                return new MockResponse().setResponseCode(200) //
+                        .setHeader("Content-Type", "application/json") //
+                        .setBody(mapper.writeValueAsString(response));
+            }
+            catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+            finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
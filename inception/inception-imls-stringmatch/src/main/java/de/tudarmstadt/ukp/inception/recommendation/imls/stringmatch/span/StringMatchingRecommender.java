@@ -34,6 +34,7 @@ import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
@@ -278,10 +279,16 @@ public class StringMatchingRecommender
             text = text.toLowerCase(Locale.ROOT);
         }
 
+        // Matches which may cross sentence boundaries may end at any token in the document
+        var documentTokenEnds = requireEndAtTokenBoundary && !requireSingleSentence
+                ? tokenEnds(aCas.<Annotation> select(tokenType).asList())
+                : null;
+
         for (var sampleUnit : units) {
             var spans = new ArrayList<Span>();
 
             var tokens = aCas.<Annotation> select(tokenType).coveredBy(sampleUnit).asList();
+            var tokenEnds = documentTokenEnds != null ? documentTokenEnds : tokenEnds(tokens);
             for (var token : tokens) {
                 var match = aDict.getNode(text, token.getBegin());
                 if (match != null) {
@@ -294,8 +301,7 @@ public class StringMatchingRecommender
                     }
 
                     // Need to check that the match actually ends at a token boundary!
-                    if (requireEndAtTokenBoundary && !aCas.<Annotation> select(tokenType)
-                            .startAt(token).filter(t -> t.getEnd() == end).findAny().isPresent()) {
+                    if (requireEndAtTokenBoundary && !tokenEnds.get(end)) {
                         continue;
                     }
 
@@ -312,6 +318,15 @@ public class StringMatchingRecommender
         return data;
     }
 
+    private static BitSet tokenEnds(Collection<? extends AnnotationFS> aTokens)
+    {
+        var tokenEnds = new BitSet();
+        for (var token : aTokens) {
+            tokenEnds.set(token.getEnd());
+        }
+        return tokenEnds;
+    }
+
     @Override
     public int estimateSampleCount(List<CAS> aCasses)
     {
@@ -502,6 +517,7 @@ public class StringMatchingRecommender
         private final int docNo;
         private final String text;
         private final List<TokenSpan> tokens;
+        private final BitSet tokenEnds;
         private final List<Span> spans;
 
         public Sample(int aDocNo, String aText, Collection<? extends AnnotationFS> aTokens,
@@ -511,6 +527,7 @@ public class StringMatchingRecommender
             docNo = aDocNo;
             text = aText;
             tokens = aTokens.stream().map(fs -> new TokenSpan(fs.getBegin(), fs.getEnd())).toList();
+            tokenEnds = tokenEnds(aTokens);
             spans = asList(aSpans.toArray(Span[]::new));
         }
 
@@ -544,7 +561,7 @@ public class StringMatchingRecommender
 
         public boolean hasTokenEndingAt(int aOffset)
         {
-            return tokens.stream().filter(t -> t.end == aOffset).findAny().isPresent();
+            return tokenEnds.get(aOffset);
         }
     }
 
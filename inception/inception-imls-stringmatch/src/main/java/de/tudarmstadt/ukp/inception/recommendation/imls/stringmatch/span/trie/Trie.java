@@ -18,17 +18,24 @@
 package de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.trie;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.Stack;
-import java.util.TreeMap;
 
 /**
- * A HashMap-based Trie. Zero-length or null keys are not allowed. Null values are allowed.
+ * A compact Trie. Zero-length or null keys are not allowed. Null values are allowed.
+ * <p>
+ * The nodes are stored in primitive arrays instead of one object per node. The children of a node
+ * are found through a single open-addressing hash table which maps a node and a character to the
+ * child node. Additionally, the children of every node are kept as a linked list sorted by their
+ * character, so the keys can be enumerated in order. This allows loading large gazeteers with a
+ * fraction of the memory needed for a trie of node objects with a map of children each.
  *
  * @param <V>
  *            the value type.
@@ -36,9 +43,28 @@ import java.util.TreeMap;
 public class Trie<V>
 // implements Map<CharSequence, V>
 {
+    private static final int ROOT = 0;
+    private static final int NONE = -1;
+    private static final long NO_EDGE = -1l;
+    private static final int INITIAL_CAPACITY = 16;
+
     private int size = 0;
     private KeySanitizerFactory sanitizerFactory;
 
+    // Node storage - the index into these arrays is the node
+    private int nodeCount;
+    private char[] chars;
+    private int[] levels;
+    private int[] firstChild;
+    private int[] nextSibling;
+    private Object[] values;
+    private BitSet set;
+
+    // Edge storage - maps (parent node, character) to the child node
+    private int edgeCount;
+    private long[] edgeKeys;
+    private int[] edgeTargets;
+
     public class MatchedNode
     {
         public final Node node;
@@ -51,23 +77,22 @@ public class Trie<V>
         }
     }
 
+    /**
+     * A read-only view on a node of the trie.
+     */
     public class Node
     {
-        final Map<Character, Node> children;
-        public V value;
+        public final V value;
         public final int level;
-        boolean set;
 
-        Node(final int l)
+        @SuppressWarnings("unchecked")
+        Node(int aNode)
         {
-            children = new TreeMap<Character, Node>();
-            level = l;
-            set = false;
+            value = (V) values[aNode];
+            level = levels[aNode];
         }
     }
 
-    private Node root;
-
     /**
      * Create an empty Trie.
      */
@@ -93,10 +118,123 @@ public class Trie<V>
      */
     public void clear()
     {
-        root = new Node(0);
+        chars = new char[INITIAL_CAPACITY];
+        levels = new int[INITIAL_CAPACITY];
+        firstChild = new int[INITIAL_CAPACITY];
+        nextSibling = new int[INITIAL_CAPACITY];
+        values = new Object[INITIAL_CAPACITY];
+        set = new BitSet();
+        nodeCount = 0;
+
+        edgeKeys = new long[INITIAL_CAPACITY];
+        Arrays.fill(edgeKeys, NO_EDGE);
+        edgeTargets = new int[INITIAL_CAPACITY];
+        edgeCount = 0;
+
+        newNode((char) 0, 0);
         size = 0;
     }
 
+    private int newNode(char aChar, int aLevel)
+    {
+        if (nodeCount == chars.length) {
+            var capacity = chars.length * 2;
+            chars = Arrays.copyOf(chars, capacity);
+            levels = Arrays.copyOf(levels, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            nextSibling = Arrays.copyOf(nextSibling, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        var node = nodeCount++;
+        chars[node] = aChar;
+        levels[node] = aLevel;
+        firstChild[node] = NONE;
+        nextSibling[node] = NONE;
+        return node;
+    }
+
+    private static long edgeKey(int aParent, char aChar)
+    {
+        return ((long) aParent << 16) | aChar;
+    }
+
+    private static int slot(long aEdgeKey, int aMask)
+    {
+        var hash = aEdgeKey * 0x9E3779B97F4A7C15l;
+        return (int) (hash ^ (hash >>> 32)) & aMask;
+    }
+
+    private int child(int aParent, char aChar)
+    {
+        var key = edgeKey(aParent, aChar);
+        var mask = edgeKeys.length - 1;
+        for (int i = slot(key, mask);; i = (i + 1) & mask) {
+            if (edgeKeys[i] == key) {
+                return edgeTargets[i];
+            }
+
+            if (edgeKeys[i] == NO_EDGE) {
+                return NONE;
+            }
+        }
+    }
+
+    private int addChild(int aParent, char aChar)
+    {
+        var node = newNode(aChar, levels[aParent] + 1);
+
+        // Keep the children sorted by character so the keys can be enumerated in order
+        var prev = NONE;
+        var next = firstChild[aParent];
+        while (next != NONE && chars[next] < aChar) {
+            prev = next;
+            next = nextSibling[next];
+        }
+        nextSibling[node] = next;
+        if (prev == NONE) {
+            firstChild[aParent] = node;
+        }
+        else {
+            nextSibling[prev] = node;
+        }
+
+        if ((edgeCount + 1) * 4 > edgeKeys.length * 3) {
+            rehash(edgeKeys.length * 2);
+        }
+        putEdge(edgeKey(aParent, aChar), node);
+        edgeCount++;
+
+        return node;
+    }
+
+    private void putEdge(long aEdgeKey, int aTarget)
+    {
+        var mask = edgeKeys.length - 1;
+        var i = slot(aEdgeKey, mask);
+        while (edgeKeys[i] != NO_EDGE) {
+            i = (i + 1) & mask;
+        }
+        edgeKeys[i] = aEdgeKey;
+        edgeTargets[i] = aTarget;
+    }
+
+    private void rehash(int aCapacity)
+    {
+        var oldKeys = edgeKeys;
+        var oldTargets = edgeTargets;
+
+        edgeKeys = new long[aCapacity];
+        Arrays.fill(edgeKeys, NO_EDGE);
+        edgeTargets = new int[aCapacity];
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != NO_EDGE) {
+                putEdge(oldKeys[i], oldTargets[i]);
+            }
+        }
+    }
+
     /**
      * @param aKey
      *            the key.
@@ -105,6 +243,7 @@ public class Trie<V>
      * @return the old value.
      * @see java.util.Map#put(java.lang.Object, java.lang.Object)
      */
+    @SuppressWarnings("unchecked")
     public V put(final CharSequence aKey, final V value)
     {
         CharSequence key = aKey;
@@ -117,38 +256,29 @@ public class Trie<V>
             throw new IllegalArgumentException("Zero-length keys are illegal");
         }
 
-        // if (key.length() == 0) {
-        // V oldval = _root.value;
-        // _root.value = value;
-        // return oldval;
-        // }
-
-        Node last = root;
-        int level = 1;
+        var last = ROOT;
         for (int i = 0; i < key.length(); i++) {
             final char k = key.charAt(i);
-            Node cur = last.children.get(k);
-            if (cur == null) {
-                cur = new Node(level);
-                last.children.put(k, cur);
+            var cur = child(last, k);
+            if (cur == NONE) {
+                cur = addChild(last, k);
             }
             last = cur;
-            level++;
         }
 
-        if (!last.set) {
+        if (!set.get(last)) {
             size++;
         }
 
-        final V oldval = last.value;
-        last.value = value;
-        last.set = true;
+        final V oldval = (V) values[last];
+        values[last] = value;
+        set.set(last);
         return oldval;
     }
 
     /**
      * Try to match the character sequence given in key against the trie starting at the given
-     * offset in the key string.
+     * offset in the key string. The longest key matching at the offset is returned.
      *
      * @param key
      *            the key.
@@ -164,17 +294,17 @@ public class Trie<V>
         }
 
         if (key.length() == 0) {
-            return new MatchedNode(root, 0);
+            return new MatchedNode(new Node(ROOT), 0);
         }
 
         KeySanitizer sanitizer = null;
         if (sanitizerFactory != null) {
             sanitizer = sanitizerFactory.create();
         }
-        Node last = root;
-        Node match = null;
-        int i = offset;
-        for (; i < key.length(); i++) {
+        var last = ROOT;
+        var match = NONE;
+        var matchEnd = offset;
+        for (int i = offset; i < key.length(); i++) {
             char k = key.charAt(i);
 
             if (sanitizer != null) {
@@ -184,19 +314,19 @@ public class Trie<V>
                 }
             }
 
-            final Node cur = last.children.get(k);
-            if (cur == null) {
+            final var cur = child(last, k);
+            if (cur == NONE) {
                 break;
             }
-            else {
-                if (cur.set) {
-                    match = cur;
-                }
+
+            if (set.get(cur)) {
+                match = cur;
+                matchEnd = i + 1;
             }
             last = cur;
         }
 
-        return match != null ? new MatchedNode(match, i - offset) : null;
+        return match != NONE ? new MatchedNode(new Node(match), matchEnd - offset) : null;
     }
 
     /**
@@ -224,28 +354,25 @@ public class Trie<V>
      *            the offset.
      * @param length
      *            the length to match.
-     * @return the node.
+     * @return the node or {@link #NONE}.
      */
-    private MatchedNode get_node(final CharSequence key, final int offset, final int length)
+    private int get_node(final CharSequence key, final int offset, final int length)
     {
         // offset or length outside range
         if ((offset > key.length() - 1) || (offset + length > key.length())) {
-            return null;
+            return NONE;
         }
 
         if (key.length() == 0) {
-            return new MatchedNode(root, 0);
+            return ROOT;
         }
 
         KeySanitizer sanitizer = null;
         if (sanitizerFactory != null) {
             sanitizer = sanitizerFactory.create();
         }
-        Node last = root;
-        Node match = null;
-        int acceptedKeyChars = 0;
-        int i = offset;
-        for (i = offset; i < offset + length; i++) {
+        var last = ROOT;
+        for (int i = offset; i < offset + length; i++) {
             char k = key.charAt(i);
 
             if (sanitizer != null) {
@@ -255,23 +382,13 @@ public class Trie<V>
                 }
             }
 
-            acceptedKeyChars++;
-
-            final Node cur = last.children.get(k);
-            if (cur == null) {
-                break;
-            }
-            else {
-                match = cur;
+            last = child(last, k);
+            if (last == NONE) {
+                return NONE;
             }
-            last = cur;
-        }
-
-        if (match != null && acceptedKeyChars == match.level) {
-            return new MatchedNode(match, i - offset);
         }
 
-        return null;
+        return last == ROOT ? NONE : last;
     }
 
     /**
@@ -292,8 +409,8 @@ public class Trie<V>
             return null;
         }
 
-        final MatchedNode match = get_node(key, offset, length);
-        return ((match != null) && match.node.set) ? match : null;
+        var node = get_node(key, offset, length);
+        return (node != NONE && set.get(node)) ? new MatchedNode(new Node(node), length) : null;
     }
 
     public boolean containsKey(final Object key)
@@ -335,8 +452,7 @@ public class Trie<V>
             return false;
         }
 
-        final MatchedNode match = get_node(prefix, offset, length);
-        return match != null;
+        return get_node(prefix, offset, length) != NONE;
     }
 
     /*
@@ -377,142 +493,70 @@ public class Trie<V>
         return size;
     }
 
+    @SuppressWarnings("unchecked")
     public Collection<V> values()
     {
         final List<V> vals = new ArrayList<V>(size);
-        values(root, vals);
-        return vals;
-    }
-
-    private void values(final Node cur, final List<V> vals)
-    {
-        if (cur == null) {
-            return;
-        }
-
-        if (cur.set) {
-            vals.add(cur.value);
-        }
-
-        for (final Node n : cur.children.values()) {
-            values(n, vals);
+        for (int node = set.nextSetBit(0); node >= 0; node = set.nextSetBit(node + 1)) {
+            vals.add((V) values[node]);
         }
+        return vals;
     }
 
     public Set<String> keys()
     {
         final Set<String> vals = new HashSet<String>(size);
-        final StringBuilder b = new StringBuilder();
-
-        for (final Character c : root.children.keySet()) {
-            b.setLength(0);
-            keys(c, root.children.get(c), b, vals);
-        }
+        keyIterator().forEachRemaining(vals::add);
         return vals;
     }
 
-    public Iterator<String> keyIterator()
-    {
-        return new KeyIterator();
-    }
-
     /**
-     * Utility method to collect the keys.
-     *
-     * @param c
-     *            the character under which the current node is filed in its parent node.
-     * @param n
-     *            the current node.
-     * @param b
-     *            a re-used string buffer in which the keys are manifested one after the other.
-     * @param vals
-     *            the found key values.
+     * @return an iterator over the keys in the order of their characters.
      */
-    private void keys(final Character c, final Node n, final StringBuilder b,
-            final Set<String> vals)
+    public Iterator<String> keyIterator()
     {
-        b.append(c);
-
-        if (n.set) {
-            vals.add(b.toString());
-        }
-
-        for (final Character cc : n.children.keySet()) {
-            b.setLength(n.level);
-            keys(cc, n.children.get(cc), b, vals);
-        }
+        return new KeyIterator();
     }
 
     public class KeyIterator
         implements Iterator<String>
     {
-        private final StringBuilder sb;
-        private final Stack<Frame> stack;
+        private final StringBuilder sb = new StringBuilder();
+        private int[] stack = new int[INITIAL_CAPACITY];
+        private int stackSize = 0;
+        private String next;
 
-        private class Frame
         {
-            private final Character c;
-            private final Node n;
-            private final Iterator<Character> i;
-            private boolean nodeDone;
-
-            public Frame(final Character aChar, final Node aNode)
-            {
-                c = aChar;
-                n = aNode;
-                i = aNode.children.keySet().iterator();
-                nodeDone = c == null || !n.set;
-            }
+            push(firstChild[ROOT]);
+            step();
+        }
 
-            boolean hasNext()
-            {
-                return i.hasNext() || !nodeDone;
+        private void push(int aNode)
+        {
+            if (aNode == NONE) {
+                return;
             }
 
-            void step()
-            {
-                sb.append(c);
-                sb.setLength(n.level);
-
-                if (!nodeDone) {
-                    // Render the node self once
-                    nodeDone = true;
-                }
-                else {
-                    // Render the children
-                    final Character ch = i.next();
-                    final Frame f = new Frame(ch, n.children.get(ch));
-                    stack.add(f);
-                    f.step();
-                }
+            if (stackSize == stack.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
             }
-        }
-
-        {
-            sb = new StringBuilder();
-            stack = new Stack<Frame>();
-            stack.push(new Frame(null, root));
-            step();
+            stack[stackSize++] = aNode;
         }
 
         private void step()
         {
-            while (true) {
-                // Return when there is nothing more to do.
-                if (stack.isEmpty()) {
-                    break;
-                }
-
-                final Frame f = stack.peek();
-
-                if (f.hasNext()) {
-                    f.step(); // Go to the next
-                    break;
-                }
-
-                // Remove done stuff from the stack.
-                while (!stack.isEmpty() && !stack.peek().hasNext()) {
-                    stack.pop();
+            next = null;
+            while (next == null && stackSize > 0) {
+                // Visit the node and then continue with its children before its next sibling
+                var node = stack[--stackSize];
+                push(nextSibling[node]);
+                push(firstChild[node]);
+
+                sb.setLength(levels[node] - 1);
+                sb.append(chars[node]);
+
+                if (set.get(node)) {
+                    next = sb.toString();
                 }
             }
         }
@@ -520,13 +564,17 @@ public class Trie<V>
         @Override
         public boolean hasNext()
         {
-            return !stack.isEmpty();
+            return next != null;
         }
 
         @Override
         public String next()
         {
-            final String s = sb.toString();
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+
+            final String s = next;
             step();
             return s;
         }
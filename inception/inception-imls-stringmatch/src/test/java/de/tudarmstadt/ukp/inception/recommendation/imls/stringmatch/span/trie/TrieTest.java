@@ -20,7 +20,10 @@ package de.tudarmstadt.ukp.inception.recommendation.imls.stringmatch.span.trie;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Random;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -83,4 +86,60 @@ public class TrieTest
         assertThat(sut.getNode("  this is\ta test  .").node.level).isEqualTo(16);
         assertThat(sut.getNode("  this is\ta test  .").matchLength).isEqualTo(19);
     }
+
+    @Test
+    public void thatMatchLengthIsLengthOfLongestMatchingKey()
+    {
+        var in = new DictEntry("in");
+        sut.put("in", in);
+        sut.put("initially", new DictEntry("initially"));
+
+        var match = sut.getNode("a initial value", 2);
+
+        assertThat(match).isNotNull();
+        assertThat(match.node.value).isSameAs(in);
+        assertThat(match.matchLength).isEqualTo(2);
+    }
+
+    @Test
+    public void thatKeysAreIteratedInOrder()
+    {
+        var keys = asList("b", "ab", "a", "abc", "ba", "c");
+
+        for (var key : keys) {
+            sut.put(key, new DictEntry(key));
+        }
+
+        assertThat(sut.keyIterator()).toIterable() //
+                .containsExactly("a", "ab", "abc", "b", "ba", "c");
+    }
+
+    @Test
+    public void thatManyKeysCanBeAddedAndRetrieved()
+    {
+        var rnd = new Random(42);
+        var expected = new HashMap<String, DictEntry>();
+        for (int i = 0; i < 10_000; i++) {
+            var key = new StringBuilder();
+            var length = 1 + rnd.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                // Include some characters beyond the Latin-1 range
+                key.append(rnd.nextInt(10) == 0 ? (char) ('\u4e00' + rnd.nextInt(100))
+                        : (char) ('a' + rnd.nextInt(5)));
+            }
+            var entry = new DictEntry(key.toString());
+            sut.put(key, entry);
+            expected.put(key.toString(), entry);
+        }
+
+        assertThat(sut.size()).isEqualTo(expected.size());
+        assertThat(sut.keys()).containsExactlyInAnyOrderElementsOf(expected.keySet());
+        for (var e : expected.entrySet()) {
+            assertThat(sut.get(e.getKey())).isSameAs(e.getValue());
+        }
+
+        var keys = new ArrayList<String>();
+        sut.keyIterator().forEachRemaining(keys::add);
+        assertThat(keys).isSorted();
+    }
 }
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb;
+
+/**
+ * Receives progress information from a bulk import and allows cancelling it.
+ * 
+ * @see KnowledgeBaseService#bulkImportData
+ */
+public interface BulkImportMonitor
+{
+    /**
+     * Called whenever a batch of statements has been committed to the knowledge base.
+     * 
+     * @param aStatementCount
+     *            the total number of statements imported so far.
+     */
+    void batchCommitted(long aStatementCount);
+
+    /**
+     * Called when all statements have been imported and the full text index is being rebuilt.
+     */
+    default void rebuildingFullTextIndex()
+    {
+        // Nothing to do by default
+    }
+
+    /**
+     * @return whether the import should stop. The import stops after committing the current batch.
+     */
+    boolean isCancelled();
+}
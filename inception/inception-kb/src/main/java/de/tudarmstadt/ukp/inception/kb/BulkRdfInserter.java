@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb;
+
+import static org.eclipse.rdf4j.common.transaction.IsolationLevels.NONE;
+
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
+import org.eclipse.rdf4j.rio.helpers.AbstractRDFHandler;
+import org.eclipse.rdf4j.sail.SailConnection;
+
+/**
+ * Adds the statements produced by a parser directly to a sail, committing after every batch so
+ * that the memory used by the transaction does not grow with the size of the imported data.
+ */
+class BulkRdfInserter
+    extends AbstractRDFHandler
+{
+    private static final Resource[] NO_CONTEXTS = {};
+
+    private final SailConnection connection;
+    private final int batchSize;
+    private final BulkImportMonitor monitor;
+
+    private long statementCount;
+    private int batchCount;
+    private boolean cancelled;
+
+    BulkRdfInserter(SailConnection aConnection, int aBatchSize, BulkImportMonitor aMonitor)
+    {
+        connection = aConnection;
+        batchSize = aBatchSize;
+        monitor = aMonitor;
+    }
+
+    @Override
+    public void startRDF() throws RDFHandlerException
+    {
+        connection.begin(NONE);
+    }
+
+    @Override
+    public void handleNamespace(String aPrefix, String aUri) throws RDFHandlerException
+    {
+        if (connection.getNamespace(aPrefix) == null) {
+            connection.setNamespace(aPrefix, aUri);
+        }
+    }
+
+    @Override
+    public void handleStatement(Statement aStatement) throws RDFHandlerException
+    {
+        var context = aStatement.getContext();
+        connection.addStatement(aStatement.getSubject(), aStatement.getPredicate(),
+                aStatement.getObject(), context != null ? new Resource[] { context } : NO_CONTEXTS);
+        statementCount++;
+        batchCount++;
+
+        if (batchCount >= batchSize) {
+            connection.commit();
+            batchCount = 0;
+            monitor.batchCommitted(statementCount);
+
+            if (monitor.isCancelled()) {
+                cancelled = true;
+                throw new RDFHandlerException("Import cancelled");
+            }
+
+            connection.begin(NONE);
+        }
+    }
+
+    @Override
+    public void endRDF() throws RDFHandlerException
+    {
+        connection.commit();
+        monitor.batchCommitted(statementCount);
+    }
+
+    /**
+     * Discards the statements of the current batch if the import failed. Afterwards, only the
+     * committed statements are counted.
+     */
+    void abort()
+    {
+        if (connection.isActive()) {
+            connection.rollback();
+        }
+        statementCount -= batchCount;
+        batchCount = 0;
+    }
+
+    long getStatementCount()
+    {
+        return statementCount;
+    }
+
+    boolean isCancelled()
+    {
+        return cancelled;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb;
+
+import static de.tudarmstadt.ukp.inception.kb.RepositoryType.REMOTE;
+
+import java.io.File;
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+
+import de.tudarmstadt.ukp.inception.kb.config.KnowledgeBaseProperties;
+import de.tudarmstadt.ukp.inception.kb.graph.KBHandle;
+import de.tudarmstadt.ukp.inception.kb.model.KnowledgeBase;
+import de.tudarmstadt.ukp.inception.kb.querybuilder.SPARQLQuery;
+
+/**
+ * Caches the results of read-only queries against knowledge bases.
+ * <p>
+ * Results are keyed by the knowledge base, its revision and the
+ * {@link SPARQLQuery#normalizedQuery() normalized query}. The revision of a knowledge base is
+ * incremented whenever it is changed through the {@link KnowledgeBaseService}, so results obtained
+ * before a change are never returned after it, even if they were still being loaded while the
+ * change happened. The in-memory tier is bounded by the total number of cached items.
+ * <p>
+ * Optionally, results from remote read-only knowledge bases are additionally stored on disk so
+ * they survive a restart. Since nothing can change these knowledge bases locally, the results on
+ * disk are only dropped when they expire or when the knowledge base configuration changes.
+ */
+class KnowledgeBaseQueryCache
+{
+    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private final QueryRunner queryRunner;
+    private final PersistentQueryCache persistentCache;
+    private final Map<String, AtomicLong> revisions = new ConcurrentHashMap<>();
+    private final LoadingCache<QueryKey, List<KBHandle>> cache;
+
+    KnowledgeBaseQueryCache(KnowledgeBaseProperties aProperties, File aPersistentCacheRoot,
+            QueryRunner aQueryRunner)
+    {
+        queryRunner = aQueryRunner;
+
+        persistentCache = aProperties.isPersistentCacheEnabled()
+                ? new PersistentQueryCache(aPersistentCacheRoot,
+                        aProperties.getPersistentCacheExpireDelay())
+                : null;
+
+        var cacheBuilder = Caffeine.newBuilder() //
+                .maximumWeight(aProperties.getCacheSize()) //
+                .expireAfterAccess(aProperties.getCacheExpireDelay()) //
+                .refreshAfterWrite(aProperties.getCacheRefreshDelay()) //
+                // Also count empty results so that these cannot pile up without bounds
+                .weigher((QueryKey key, List<KBHandle> value) -> value.size() + 1);
+
+        if (LOG.isTraceEnabled()) {
+            cacheBuilder.recordStats();
+        }
+
+        cache = cacheBuilder.build(new CacheLoader<>()
+        {
+            @Override
+            public List<KBHandle> load(QueryKey aKey)
+            {
+                if (isPersistent(aKey.kb)) {
+                    var results = persistentCache.load(aKey.kb, aKey.query, aKey.all);
+                    if (results.isPresent()) {
+                        return results.get();
+                    }
+                }
+
+                return runQuery(aKey);
+            }
+
+            @Override
+            public List<KBHandle> reload(QueryKey aKey, List<KBHandle> aOldValue)
+            {
+                // Refreshing must bypass the persistent cache - otherwise we would never see
+                // changes in the remote knowledge base until the results on disk expire
+                return runQuery(aKey);
+            }
+        });
+    }
+
+    List<KBHandle> get(KnowledgeBase aKB, SPARQLQuery aQuery, boolean aAll)
+    {
+        var key = new QueryKey(aKB, getRevision(aKB).get(), aQuery, aAll);
+        var results = cache.get(key);
+        if (LOG.isTraceEnabled()) {
+            LOG.trace("KB cache stats: {}", cache.stats());
+        }
+        return results;
+    }
+
+    /**
+     * Drops all cached results for the given knowledge base. This must be called after every
+     * change to the data or the configuration of the knowledge base.
+     * 
+     * @param aKB
+     *            the knowledge base.
+     */
+    void invalidate(KnowledgeBase aKB)
+    {
+        // Incrementing the revision makes sure that results which are still being loaded are not
+        // picked up by subsequent lookups
+        getRevision(aKB).incrementAndGet();
+
+        var repositoryId = aKB.getRepositoryId();
+        cache.asMap().keySet().removeIf(key -> Objects.equals(key.repositoryId, repositoryId));
+
+        if (persistentCache != null) {
+            persistentCache.clear(aKB);
+        }
+    }
+
+    private AtomicLong getRevision(KnowledgeBase aKB)
+    {
+        return revisions.computeIfAbsent(aKB.getRepositoryId(), _id -> new AtomicLong());
+    }
+
+    private boolean isPersistent(KnowledgeBase aKB)
+    {
+        return persistentCache != null && aKB.getType() == REMOTE && aKB.isReadOnly();
+    }
+
+    private List<KBHandle> runQuery(QueryKey aKey)
+    {
+        var results = queryRunner.run(aKey.kb, aKey.sparqlQuery, aKey.all);
+
+        if (isPersistent(aKey.kb)) {
+            persistentCache.store(aKey.kb, aKey.query, aKey.all, results);
+        }
+
+        return results;
+    }
+
+    @FunctionalInterface
+    interface QueryRunner
+    {
+        List<KBHandle> run(KnowledgeBase aKB, SPARQLQuery aQuery, boolean aAll);
+    }
+
+    private static final class QueryKey
+    {
+        private final KnowledgeBase kb;
+        private final SPARQLQuery sparqlQuery;
+        private final String repositoryId;
+        private final long revision;
+        private final String query;
+        private final boolean all;
+        private final int hash;
+
+        QueryKey(KnowledgeBase aKb, long aRevision, SPARQLQuery aQuery, boolean aAll)
+        {
+            kb = aKb;
+            sparqlQuery = aQuery;
+            repositoryId = aKb.getRepositoryId();
+            revision = aRevision;
+            // Render the query only once - it is needed for every lookup
+            query = aQuery.normalizedQuery();
+            all = aAll;
+            hash = Objects.hash(repositoryId, revision, query, all);
+        }
+
+        @Override
+        public boolean equals(Object aOther)
+        {
+            if (this == aOther) {
+                return true;
+            }
+
+            if (!(aOther instanceof QueryKey other)) {
+                return false;
+            }
+
+            return revision == other.revision && all == other.all
+                    && Objects.equals(repositoryId, other.repositoryId)
+                    && query.equals(other.query);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+}
@@ -59,6 +59,33 @@ public interface KnowledgeBaseService
 
     void importData(KnowledgeBase kb, String aFilename, InputStream aIS) throws IOException;
 
+    /**
+     * Imports data into a knowledge base of type {@link RepositoryType#LOCAL}. In contrast to
+     * {@link #importData}, the data is streamed into the store and committed in batches, so the
+     * memory required does not depend on the size of the data. The full text index is not updated
+     * while importing but rebuilt once at the end.
+     * <p>
+     * <b>Note:</b> the import is not atomic. If the import is cancelled or fails, e.g. because of
+     * a parse error in the data, only the current batch is discarded. The batches committed up to
+     * that point remain in the knowledge base and are included in the full text index.
+     * 
+     * @param kb
+     *            the knowledge base.
+     * @param aFilename
+     *            the name of the imported file, used to detect the format.
+     * @param aIS
+     *            the data to import. The stream is not closed.
+     * @param aMonitor
+     *            receives the progress and allows cancelling the import.
+     * @return the number of imported statements.
+     * @throws IOException
+     *             if the data cannot be read.
+     * @see BulkImportMonitor#batchCommitted(long)
+     */
+    long bulkImportData(KnowledgeBase kb, String aFilename, InputStream aIS,
+            BulkImportMonitor aMonitor)
+        throws IOException;
+
     /**
      * Writes the contents of a knowledge base of type {@link RepositoryType#LOCAL} to a given
      * {@link OutputStream} in a specifiable format.<br>
@@ -630,8 +657,11 @@ public interface KnowledgeBaseService
      * Execute the given query and return the results. The service will try to cache the results for
      * faster subsequent access.
      * <p>
-     * <b>NOTE:</b> Do <b>NOT</b> use this method when current data from the KB is required, in
-     * particular if it is a writable KB.
+     * Cached results are dropped whenever the KB is changed through this service. However, results
+     * from a remote KB may be outdated if the KB is changed by others.
+     * <p>
+     * <b>NOTE:</b> Do <b>NOT</b> use this method when current data from a writable remote KB is
+     * required.
      * 
      * @param aQuery
      *            a SPARQL query built using {@link SPARQLQueryBuilder}
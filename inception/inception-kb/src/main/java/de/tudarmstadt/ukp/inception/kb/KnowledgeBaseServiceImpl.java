@@ -26,6 +26,7 @@ import static de.tudarmstadt.ukp.inception.support.logging.BaseLoggers.BOOT_LOG;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
 import static java.lang.Math.round;
+import static java.lang.System.currentTimeMillis;
 import static java.nio.file.Files.createDirectories;
 import static java.nio.file.Files.move;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
@@ -51,7 +52,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -60,8 +60,6 @@ import org.apache.commons.compress.compressors.CompressorStreamFactory;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.SystemProperties;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.lucene.index.IndexFormatTooNewException;
 import org.eclipse.rdf4j.common.transaction.IsolationLevels;
@@ -84,6 +82,7 @@ import org.eclipse.rdf4j.repository.sparql.SPARQLConnection;
 import org.eclipse.rdf4j.repository.sparql.SPARQLRepository;
 import org.eclipse.rdf4j.repository.sparql.config.SPARQLRepositoryConfig;
 import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFHandlerException;
 import org.eclipse.rdf4j.rio.RDFParseException;
 import org.eclipse.rdf4j.rio.RDFWriter;
 import org.eclipse.rdf4j.rio.Rio;
@@ -112,9 +111,6 @@ import org.springframework.context.event.EventListener;
 import org.springframework.http.HttpHeaders;
 import org.springframework.transaction.annotation.Transactional;
 
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.LoadingCache;
-
 import de.tudarmstadt.ukp.clarin.webanno.model.Project;
 import de.tudarmstadt.ukp.inception.documents.api.RepositoryProperties;
 import de.tudarmstadt.ukp.inception.kb.config.KnowledgeBaseProperties;
@@ -168,7 +164,7 @@ public class KnowledgeBaseServiceImpl
     private final File kbRepositoriesRoot;
     private final KnowledgeBaseProperties properties;
 
-    private final LoadingCache<QueryKey, List<KBHandle>> queryCache;
+    private final KnowledgeBaseQueryCache queryCache;
     private final MemoryOAuthSessionRepository<KnowledgeBase> oAuthSessionRepository;
 
     @Autowired
@@ -177,7 +173,9 @@ public class KnowledgeBaseServiceImpl
     {
         properties = aKBProperties;
 
-        queryCache = createQueryCache(aKBProperties);
+        queryCache = new KnowledgeBaseQueryCache(aKBProperties,
+                new File(aRepoProperties.getPath(), "kb-cache"),
+                (kb, query, all) -> read(kb, conn -> query.asHandles(conn, all)));
         oAuthSessionRepository = new MemoryOAuthSessionRepository<>();
 
         kbRepositoriesRoot = new File(aRepoProperties.getPath(), "kb");
@@ -213,22 +211,6 @@ public class KnowledgeBaseServiceImpl
         BOOT_LOG.info("Knowledge base repository path: {}", kbRepositoriesRoot);
     }
 
-    private LoadingCache<QueryKey, List<KBHandle>> createQueryCache(
-            KnowledgeBaseProperties aKBProperties)
-    {
-        var queryCacheBuilder = Caffeine.newBuilder() //
-                .maximumWeight(aKBProperties.getCacheSize()) //
-                .expireAfterAccess(aKBProperties.getCacheExpireDelay()) //
-                .refreshAfterWrite(aKBProperties.getCacheRefreshDelay()) //
-                .weigher((QueryKey key, List<KBHandle> value) -> value.size());
-
-        if (LOG.isTraceEnabled()) {
-            queryCacheBuilder.recordStats();
-        }
-
-        return queryCacheBuilder.build(this::runQuery);
-    }
-
     public KnowledgeBaseServiceImpl(RepositoryProperties aRepoProperties,
             KnowledgeBaseProperties aKBProperties, EntityManager aEntityManager)
     {
@@ -424,8 +406,7 @@ public class KnowledgeBaseServiceImpl
         repoManager.addRepositoryConfig(new RepositoryConfig(aKB.getRepositoryId(), cfg));
 
         // Drop cached results from the KB being updated
-        queryCache.asMap().keySet()
-                .removeIf(key -> Objects.equals(key.kb.getRepositoryId(), aKB.getRepositoryId()));
+        queryCache.invalidate(aKB);
 
         updateKnowledgeBase(aKB);
     }
@@ -471,6 +452,8 @@ public class KnowledgeBaseServiceImpl
 
         repoManager.removeRepository(aKB.getRepositoryId());
 
+        queryCache.invalidate(aKB);
+
         entityManager.remove(entityManager.contains(aKB) ? aKB : entityManager.merge(aKB));
     }
 
@@ -619,7 +602,6 @@ public class KnowledgeBaseServiceImpl
         }
     }
 
-    @SuppressWarnings("resource")
     @Override
     public void importData(KnowledgeBase kb, String aFilename, InputStream aIS)
         throws RDFParseException, RepositoryException, IOException
@@ -629,6 +611,116 @@ public class KnowledgeBaseServiceImpl
             return;
         }
 
+        try (var data = openImportData(aFilename, aIS)) {
+            // Load files into the repository
+            try (var conn = getConnection(kb)) {
+                conn.setIsolationLevel(IsolationLevels.NONE);
+                conn.add(data.stream(), getImportBaseUri(kb), data.format());
+            }
+        }
+        finally {
+            queryCache.invalidate(kb);
+        }
+    }
+
+    @Override
+    public long bulkImportData(KnowledgeBase kb, String aFilename, InputStream aIS,
+            BulkImportMonitor aMonitor)
+        throws RDFParseException, RepositoryException, IOException
+    {
+        if (kb.isReadOnly()) {
+            LOG.warn("Knowledge base [{}] is read only, will not import!", kb.getName());
+            return 0;
+        }
+
+        if (LOCAL != kb.getType()) {
+            throw new IllegalArgumentException("Bulk import is only supported on local KBs");
+        }
+
+        var repo = repoManager.getRepository(kb.getRepositoryId());
+        if (!(repo instanceof SailRepository sailRepo)) {
+            throw new IllegalArgumentException(
+                    "Bulk import is not supported on [" + repo.getClass() + "] repositories");
+        }
+
+        // Write directly to the store underneath the full text index. Updating the index for
+        // every batch is much slower than rebuilding it once when all statements are in.
+        var sail = sailRepo.getSail();
+        var luceneSail = sail instanceof LuceneSail ? (LuceneSail) sail : null;
+        var targetSail = luceneSail != null ? luceneSail.getBaseSail() : sail;
+
+        var startTime = currentTimeMillis();
+        BulkRdfInserter inserter = null;
+        try (var data = openImportData(aFilename, aIS);
+                var conn = targetSail.getConnection()) {
+            inserter = new BulkRdfInserter(conn, properties.getBulkImportBatchSize(), aMonitor);
+            var parser = Rio.createParser(data.format(), targetSail.getValueFactory());
+            parser.setRDFHandler(inserter);
+            try {
+                parser.parse(data.stream(), getImportBaseUri(kb));
+            }
+            catch (RDFHandlerException e) {
+                if (!inserter.isCancelled()) {
+                    abortBulkImport(inserter, e);
+                    throw e;
+                }
+
+                LOG.info("Bulk import into {} cancelled after [{}] statements", kb,
+                        inserter.getStatementCount());
+            }
+            catch (IOException | RuntimeException e) {
+                // The batches committed before the failure remain in the knowledge base
+                abortBulkImport(inserter, e);
+                throw e;
+            }
+        }
+        finally {
+            queryCache.invalidate(kb);
+
+            // Also index the statements that were committed before a failure or cancellation so
+            // that the index is in sync with the store
+            if (luceneSail != null && inserter != null && inserter.getStatementCount() > 0) {
+                aMonitor.rebuildingFullTextIndex();
+                try {
+                    rebuildFullTextIndex(kb);
+                }
+                catch (Exception e) {
+                    LOG.error("Unable to rebuild full text index of {} after bulk import", kb, e);
+                }
+            }
+        }
+
+        LOG.info("Bulk imported [{}] statements into {} in {}ms", inserter.getStatementCount(),
+                kb, currentTimeMillis() - startTime);
+
+        return inserter.getStatementCount();
+    }
+
+    /**
+     * Discards the uncommitted statements of a failed bulk import. This must happen while the
+     * connection of the import is still open.
+     */
+    private void abortBulkImport(BulkRdfInserter aInserter, Exception aCause)
+    {
+        try {
+            aInserter.abort();
+        }
+        catch (RuntimeException e) {
+            aCause.addSuppressed(e);
+        }
+    }
+
+    private String getImportBaseUri(KnowledgeBase aKB)
+    {
+        // If the RDF file contains relative URLs, then they probably start with a hash.
+        // To avoid having two hashes here, we drop the hash from the base prefix configured
+        // by the user.
+        return StringUtils.removeEnd(aKB.getBasePrefix(), "#");
+    }
+
+    @SuppressWarnings("resource")
+    private ImportData openImportData(String aFilename, InputStream aIS) throws IOException
+    {
         InputStream is = new BufferedInputStream(aIS);
         try {
             // Stream is expected to be closed by caller of importData
@@ -639,34 +731,30 @@ public class KnowledgeBaseServiceImpl
             LOG.debug("Stream is not compressed, continue as is.");
         }
 
-        PipedStreamResource resource = null;
-        try {
-            // Detect the file format
-            var format = Rio.getParserFormatForFileName(aFilename).orElse(RDFXML);
+        // Detect the file format
+        var format = Rio.getParserFormatForFileName(aFilename).orElse(RDFXML);
 
-            String lowerCaseFilename = aFilename.toLowerCase(Locale.ROOT);
-            if (lowerCaseFilename.endsWith(".obo") || lowerCaseFilename.endsWith(".obo.gz")) {
-                try {
-                    resource = transduceOboToOwlFunctionalSyntax(is);
-                    is = resource.getInputStream();
-                    format = OWLAPIRDFFormat.OWL_FUNCTIONAL;
-                }
-                catch (Exception e) {
-                    throw new IOException(e);
-                }
+        String lowerCaseFilename = aFilename.toLowerCase(Locale.ROOT);
+        if (lowerCaseFilename.endsWith(".obo") || lowerCaseFilename.endsWith(".obo.gz")) {
+            try {
+                var resource = transduceOboToOwlFunctionalSyntax(is);
+                return new ImportData(resource.getInputStream(), OWLAPIRDFFormat.OWL_FUNCTIONAL,
+                        resource);
             }
-
-            // Load files into the repository
-            try (var conn = getConnection(kb)) {
-                conn.setIsolationLevel(IsolationLevels.NONE);
-                // If the RDF file contains relative URLs, then they probably start with a hash.
-                // To avoid having two hashes here, we drop the hash from the base prefix configured
-                // by the user.
-                String prefix = StringUtils.removeEnd(kb.getBasePrefix(), "#");
-                conn.add(is, prefix, format);
+            catch (Exception e) {
+                throw new IOException(e);
             }
         }
-        finally {
+
+        return new ImportData(is, format, null);
+    }
+
+    private record ImportData(InputStream stream, RDFFormat format, PipedStreamResource resource)
+        implements AutoCloseable
+    {
+        @Override
+        public void close() throws IOException
+        {
             if (resource != null) {
                 resource.close();
             }
@@ -718,6 +806,9 @@ public class KnowledgeBaseServiceImpl
         try (var conn = getConnection(kb)) {
             conn.clear();
         }
+        finally {
+            queryCache.invalidate(kb);
+        }
     }
 
     @Override
@@ -756,7 +847,7 @@ public class KnowledgeBaseServiceImpl
                     .retrieveDeprecation();
 
             Optional<KBHandle> result;
-            if (aKB.isReadOnly()) {
+            if (isQueryCacheable(aKB)) {
                 result = fetchHandleCaching(aKB, query, aAll);
             }
             else {
@@ -811,7 +902,7 @@ public class KnowledgeBaseServiceImpl
                     .excludeInferred();
 
             List<KBHandle> result;
-            if (aKB.isReadOnly()) {
+            if (isQueryCacheable(aKB)) {
                 result = listHandlesCaching(aKB, query, aAll);
             }
             else {
@@ -849,7 +940,7 @@ public class KnowledgeBaseServiceImpl
                     .excludeInferred();
 
             Optional<KBHandle> result;
-            if (aKB.isReadOnly()) {
+            if (isQueryCacheable(aKB)) {
                 result = fetchHandleCaching(aKB, query, true);
             }
             else {
@@ -899,7 +990,7 @@ public class KnowledgeBaseServiceImpl
                     .includeInferred(aIncludeInferred);
 
             List<KBHandle> result;
-            if (aKB.isReadOnly()) {
+            if (isQueryCacheable(aKB)) {
                 result = listHandlesCaching(aKB, query, aAll);
             }
             else {
@@ -937,7 +1028,7 @@ public class KnowledgeBaseServiceImpl
                     .retrieveDeprecation().excludeInferred();
 
             Optional<KBHandle> result;
-            if (aKB.isReadOnly()) {
+            if (isQueryCacheable(aKB)) {
                 result = fetchHandleCaching(aKB, query, true);
             }
             else {
@@ -991,7 +1082,7 @@ public class KnowledgeBaseServiceImpl
                     .retrieveDeprecation();
 
             List<KBHandle> result;
-            if (aKB.isReadOnly()) {
+            if (isQueryCacheable(aKB)) {
                 result = listHandlesCaching(aKB, query, aAll);
             }
             else {
@@ -1069,6 +1160,7 @@ public class KnowledgeBaseServiceImpl
                 aAction.accept(conn);
                 conn.commit();
                 error = false;
+                queryCache.invalidate(kb);
             }
             finally {
                 if (error) {
@@ -1101,7 +1193,7 @@ public class KnowledgeBaseServiceImpl
                     .includeInferred(aIncludeInferred);
 
             List<KBHandle> result;
-            if (aKB.isReadOnly()) {
+            if (isQueryCacheable(aKB)) {
                 result = listHandlesCaching(aKB, query, aAll);
             }
             else {
@@ -1123,7 +1215,7 @@ public class KnowledgeBaseServiceImpl
                     .retrieveDeprecation();
 
             List<KBHandle> result;
-            if (aKB.isReadOnly()) {
+            if (isQueryCacheable(aKB)) {
                 result = listHandlesCaching(aKB, query, aAll);
             }
             else {
@@ -1138,8 +1230,15 @@ public class KnowledgeBaseServiceImpl
     public boolean hasChildConcepts(KnowledgeBase aKB, String aParentIdentifier, boolean aAll)
     {
         try (var watch = new StopWatch(LOG, "hasChildConcepts(%s)", aParentIdentifier)) {
-            return read(aKB, conn -> SPARQLQueryBuilder.forClasses(aKB)
-                    .childrenOf(aParentIdentifier).exists(conn, aAll));
+            var query = SPARQLQueryBuilder.forClasses(aKB) //
+                    .childrenOf(aParentIdentifier) //
+                    .limit(1);
+
+            if (isQueryCacheable(aKB)) {
+                return !listHandlesCaching(aKB, query, aAll).isEmpty();
+            }
+
+            return read(aKB, conn -> query.exists(conn, aAll));
         }
     }
 
@@ -1163,7 +1262,7 @@ public class KnowledgeBaseServiceImpl
                     .retrieveDeprecation();
 
             List<KBHandle> result;
-            if (aKB.isReadOnly()) {
+            if (isQueryCacheable(aKB)) {
                 result = listHandlesCaching(aKB, query, aAll);
             }
             else {
@@ -1186,7 +1285,7 @@ public class KnowledgeBaseServiceImpl
                     .retrieveDeprecation();
 
             List<KBHandle> result;
-            if (aKB.isReadOnly()) {
+            if (isQueryCacheable(aKB)) {
                 result = listHandlesCaching(aKB, query, aAll);
             }
             else {
@@ -1211,7 +1310,7 @@ public class KnowledgeBaseServiceImpl
                     .limit(aLimit);
 
             List<KBHandle> result;
-            if (aKB.isReadOnly()) {
+            if (isQueryCacheable(aKB)) {
                 result = listHandlesCaching(aKB, query, aAll);
             }
             else {
@@ -1335,7 +1434,7 @@ public class KnowledgeBaseServiceImpl
                     .retrieveDeprecation();
 
             Optional<KBHandle> result;
-            if (aKB.isReadOnly()) {
+            if (isQueryCacheable(aKB)) {
                 result = fetchHandleCaching(aKB, query, true);
             }
             else {
@@ -1608,27 +1707,25 @@ public class KnowledgeBaseServiceImpl
     @Override
     public List<KBHandle> listHandlesCaching(KnowledgeBase aKB, SPARQLQuery aQuery, boolean aAll)
     {
-        var results = queryCache.get(QueryKey.of(aKB, aQuery, aAll));
-        if (LOG.isTraceEnabled()) {
-            LOG.trace("KB cache stats: {}", queryCache.stats());
-        }
-        return results;
+        // Return a copy so that callers cannot modify the cached list
+        return new ArrayList<>(queryCache.get(aKB, aQuery, aAll));
     }
 
     @Override
     public Optional<KBHandle> fetchHandleCaching(KnowledgeBase aKB, SPARQLQuery aQuery,
             boolean aAll)
     {
-        var result = queryCache.get(QueryKey.of(aKB, aQuery, aAll)).stream().findFirst();
-        if (LOG.isTraceEnabled()) {
-            LOG.trace("KB cache stats: {}", queryCache.stats());
-        }
-        return result;
+        return queryCache.get(aKB, aQuery, aAll).stream().findFirst();
     }
 
-    private List<KBHandle> runQuery(QueryKey aKey)
+    /**
+     * Local knowledge bases can only be changed through this service which takes care of dropping
+     * outdated results from the cache. Remote knowledge bases can be changed by others, so we only
+     * cache results from them if they are read-only.
+     */
+    private boolean isQueryCacheable(KnowledgeBase aKB)
     {
-        return read(aKey.kb, conn -> aKey.query.asHandles(conn, true));
+        return aKB.isReadOnly() || aKB.getType() == LOCAL;
     }
 
     /**
@@ -1638,12 +1735,13 @@ public class KnowledgeBaseServiceImpl
      *            The event containing the project
      */
     @EventListener
+    @Transactional
     public void onKnowledgeBaseConfigurationChangedEvent(
             KnowledgeBaseConfigurationChangedEvent aEvent)
     {
-        queryCache.asMap().keySet().stream()
-                .filter(key -> key.kb.getProject().equals(aEvent.getProject()))
-                .forEach(key -> queryCache.invalidate(key));
+        for (var kb : getKnowledgeBases(aEvent.getProject())) {
+            queryCache.invalidate(kb);
+        }
     }
 
     @EventListener
@@ -1660,41 +1758,4 @@ public class KnowledgeBaseServiceImpl
             LOG.info("Removed all knowledge bases from project {} being deleted", project);
         }
     }
-
-    private static final class QueryKey
-    {
-        private final KnowledgeBase kb;
-        private final SPARQLQuery query;
-        private final boolean all;
-
-        public static QueryKey of(KnowledgeBase aKb, SPARQLQuery aQuery, boolean aAll)
-        {
-            return new QueryKey(aKb, aQuery, aAll);
-        }
-
-        public QueryKey(KnowledgeBase aKb, SPARQLQuery aQuery, boolean aAll)
-        {
-            kb = aKb;
-            query = aQuery;
-            all = aAll;
-        }
-
-        @Override
-        public boolean equals(final Object other)
-        {
-            if (!(other instanceof QueryKey)) {
-                return false;
-            }
-
-            QueryKey castOther = (QueryKey) other;
-            return new EqualsBuilder().append(kb, castOther.kb).append(all, castOther.all)
-                    .append(query, castOther.query).isEquals();
-        }
-
-        @Override
-        public int hashCode()
-        {
-            return new HashCodeBuilder().append(kb).append(query).append(all).toHashCode();
-        }
-    }
 }
@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.tudarmstadt.ukp.inception.kb.graph.KBHandle;
+import de.tudarmstadt.ukp.inception.kb.model.KnowledgeBase;
+
+/**
+ * Stores query results on disk so that they survive a restart. There is one folder per knowledge
+ * base and one file per query. Entries older than the configured expiry are ignored and replaced
+ * when the query is run again.
+ */
+class PersistentQueryCache
+{
+    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final File root;
+    private final Duration expireDelay;
+
+    PersistentQueryCache(File aRoot, Duration aExpireDelay)
+    {
+        root = aRoot;
+        expireDelay = aExpireDelay;
+    }
+
+    Optional<List<KBHandle>> load(KnowledgeBase aKB, String aQuery, boolean aAll)
+    {
+        var file = getFile(aKB, aQuery, aAll);
+        if (!file.exists()) {
+            return Optional.empty();
+        }
+
+        if (file.lastModified() + expireDelay.toMillis() < System.currentTimeMillis()) {
+            LOG.trace("Cached query results in [{}] are stale", file);
+            return Optional.empty();
+        }
+
+        try (var in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return Optional.empty();
+            }
+
+            var count = in.readInt();
+            var handles = new ArrayList<KBHandle>(count);
+            for (int i = 0; i < count; i++) {
+                handles.add(readHandle(in, aKB));
+            }
+            return Optional.of(handles);
+        }
+        catch (IOException e) {
+            LOG.warn("Unable to read cached query results from [{}]", file, e);
+            FileUtils.deleteQuietly(file);
+            return Optional.empty();
+        }
+    }
+
+    void store(KnowledgeBase aKB, String aQuery, boolean aAll, List<KBHandle> aHandles)
+    {
+        var file = getFile(aKB, aQuery, aAll);
+        try {
+            Files.createDirectories(file.getParentFile().toPath());
+
+            // Write to a temporary file first so that concurrent readers never see partial data
+            var tmp = Files.createTempFile(file.getParentFile().toPath(), file.getName(), ".tmp");
+            try (var out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(aHandles.size());
+                for (var handle : aHandles) {
+                    writeHandle(out, handle);
+                }
+            }
+            Files.move(tmp, file.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+        }
+        catch (IOException e) {
+            LOG.warn("Unable to write cached query results to [{}]", file, e);
+        }
+    }
+
+    void clear(KnowledgeBase aKB)
+    {
+        FileUtils.deleteQuietly(new File(root, aKB.getRepositoryId()));
+    }
+
+    private File getFile(KnowledgeBase aKB, String aQuery, boolean aAll)
+    {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(aQuery.getBytes(UTF_8));
+            digest.update((byte) (aAll ? 1 : 0));
+            return new File(new File(root, aKB.getRepositoryId()),
+                    HexFormat.of().formatHex(digest.digest()));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void writeHandle(DataOutputStream aOut, KBHandle aHandle) throws IOException
+    {
+        writeString(aOut, aHandle.getIdentifier());
+        writeString(aOut, aHandle.getName());
+        writeString(aOut, aHandle.getDescription());
+        writeString(aOut, aHandle.getLanguage());
+        writeString(aOut, aHandle.getDomain());
+        writeString(aOut, aHandle.getRange());
+        writeString(aOut, aHandle.getQueryBestMatchTerm());
+        aOut.writeBoolean(aHandle.isDeprecated());
+
+        var matchTerms = aHandle.getMatchTerms();
+        aOut.writeInt(matchTerms.size());
+        for (var matchTerm : matchTerms) {
+            writeString(aOut, matchTerm.getKey());
+            writeString(aOut, matchTerm.getValue());
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static KBHandle readHandle(DataInputStream aIn, KnowledgeBase aKB) throws IOException
+    {
+        var builder = KBHandle.builder() //
+                .withKb(aKB) //
+                .withIdentifier(readString(aIn)) //
+                .withName(readString(aIn)) //
+                .withDescription(readString(aIn)) //
+                .withLanguage(readString(aIn)) //
+                .withDomain(readString(aIn)) //
+                .withRange(readString(aIn)) //
+                .withQueryBestMatchTerm(readString(aIn)) //
+                .withDeprecated(aIn.readBoolean());
+
+        var matchTermCount = aIn.readInt();
+        var matchTerms = new LinkedHashSet<Pair<String, String>>();
+        for (int i = 0; i < matchTermCount; i++) {
+            matchTerms.add(Pair.of(readString(aIn), readString(aIn)));
+        }
+
+        return builder.withMatchTerms(matchTerms).build();
+    }
+
+    private static void writeString(DataOutputStream aOut, String aValue) throws IOException
+    {
+        aOut.writeBoolean(aValue != null);
+        if (aValue != null) {
+            var bytes = aValue.getBytes(UTF_8);
+            aOut.writeInt(bytes.length);
+            aOut.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream aIn) throws IOException
+    {
+        if (!aIn.readBoolean()) {
+            return null;
+        }
+
+        var bytes = new byte[aIn.readInt()];
+        aIn.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
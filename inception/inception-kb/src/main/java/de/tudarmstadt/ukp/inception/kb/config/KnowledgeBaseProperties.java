@@ -45,6 +45,17 @@ public interface KnowledgeBaseProperties
      */
     Duration getCacheRefreshDelay();
 
+    /**
+     * @return whether query results from remote read-only knowledge bases are additionally cached
+     *         on disk so that they survive a restart.
+     */
+    boolean isPersistentCacheEnabled();
+
+    /**
+     * @return the time before query results cached on disk are considered stale (in minutes).
+     */
+    Duration getPersistentCacheExpireDelay();
+
     /**
      * @return whether do delete orphaned knowledge bases during startup.
      */
@@ -57,4 +68,9 @@ public interface KnowledgeBaseProperties
     long getRenderCacheSize();
 
     List<String> getDefaultFallbackLanguages();
+
+    /**
+     * @return number of statements to commit at once when bulk importing data.
+     */
+    int getBulkImportBatchSize();
 }
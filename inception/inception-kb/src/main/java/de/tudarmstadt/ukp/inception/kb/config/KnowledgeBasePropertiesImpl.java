@@ -17,6 +17,7 @@
  */
 package de.tudarmstadt.ukp.inception.kb.config;
 
+import static java.time.Duration.ofDays;
 import static java.time.Duration.ofMinutes;
 import static java.time.temporal.ChronoUnit.MINUTES;
 import static java.util.Collections.emptyList;
@@ -49,12 +50,17 @@ public class KnowledgeBasePropertiesImpl
     private @DurationUnit(MINUTES) Duration cacheExpireDelay = ofMinutes(15);
     private @DurationUnit(MINUTES) Duration cacheRefreshDelay = ofMinutes(5);
 
+    private boolean persistentCacheEnabled = false;
+    private @DurationUnit(MINUTES) Duration persistentCacheExpireDelay = ofDays(1);
+
     private long renderCacheSize = 10_000;
     private @DurationUnit(MINUTES) Duration renderCacheExpireDelay = ofMinutes(10);
     private @DurationUnit(MINUTES) Duration renderCacheRefreshDelay = ofMinutes(1);
 
     private List<String> defaultFallbackLanguages = emptyList();
 
+    private int bulkImportBatchSize = 50_000;
+
     public void setFtsInternalMaxResultsFactor(double aFtsMaxResultsFactor)
     {
         ftsInternalMaxResultsFactor = aFtsMaxResultsFactor;
@@ -121,6 +127,28 @@ public class KnowledgeBasePropertiesImpl
         cacheRefreshDelay = aCacheRefreshDelay;
     }
 
+    @Override
+    public boolean isPersistentCacheEnabled()
+    {
+        return persistentCacheEnabled;
+    }
+
+    public void setPersistentCacheEnabled(boolean aPersistentCacheEnabled)
+    {
+        persistentCacheEnabled = aPersistentCacheEnabled;
+    }
+
+    @Override
+    public Duration getPersistentCacheExpireDelay()
+    {
+        return persistentCacheExpireDelay;
+    }
+
+    public void setPersistentCacheExpireDelay(Duration aPersistentCacheExpireDelay)
+    {
+        persistentCacheExpireDelay = aPersistentCacheExpireDelay;
+    }
+
     @Override
     public boolean isRemoveOrphansOnStart()
     {
@@ -175,4 +203,15 @@ public class KnowledgeBasePropertiesImpl
     {
         defaultFallbackLanguages = aDefaultFallbackLanguages;
     }
+
+    @Override
+    public int getBulkImportBatchSize()
+    {
+        return bulkImportBatchSize;
+    }
+
+    public void setBulkImportBatchSize(int aBulkImportBatchSize)
+    {
+        bulkImportBatchSize = aBulkImportBatchSize;
+    }
 }
@@ -34,6 +34,15 @@ public interface SPARQLQuery
      */
     SelectQuery selectQuery();
 
+    /**
+     * Render the query along with all settings that affect its results but that are not part of
+     * the query string itself. Two queries with the same normalized form on the same knowledge
+     * base return the same results, so the normalized form can be used as a cache key.
+     * 
+     * @return normalized query.
+     */
+    String normalizedQuery();
+
     /**
      * Execute the query and retrieve the results as {@link KBHandle KBHandles}.
      * 
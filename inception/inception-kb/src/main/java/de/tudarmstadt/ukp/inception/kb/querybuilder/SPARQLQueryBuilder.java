@@ -171,6 +171,8 @@ public class SPARQLQueryBuilder
 
     private boolean includeInferred = true;
 
+    private int maxExecutionTime = 0;
+
     private Set<String> forceDisableFTS = new LinkedHashSet<>();
 
     /**
@@ -606,6 +608,14 @@ public class SPARQLQueryBuilder
         return this;
     }
 
+    @Override
+    public SPARQLQueryOptionalElements maxExecutionTime(int aSeconds)
+    {
+        maxExecutionTime = aSeconds;
+
+        return this;
+    }
+
     @Override
     public SPARQLQueryOptionalElements limit(int aLimit)
     {
@@ -1284,6 +1294,17 @@ public class SPARQLQueryBuilder
         return query;
     }
 
+    @Override
+    public String normalizedQuery()
+    {
+        var sb = new StringBuilder(selectQuery().getQueryString());
+        sb.append("\n# inferred: ").append(includeInferred);
+        sb.append("\n# empty: ").append(returnEmptyResult);
+        sb.append("\n# languages: ").append(kb.getDefaultLanguage()).append(" ")
+                .append(fallbackLanguages);
+        return sb.toString();
+    }
+
     @Override
     public List<KBHandle> asHandles(RepositoryConnection aConnection, boolean aAll)
     {
@@ -1305,6 +1326,7 @@ public class SPARQLQueryBuilder
         try {
             var tupleQuery = aConnection.prepareTupleQuery(queryString);
             tupleQuery.setIncludeInferred(includeInferred);
+            tupleQuery.setMaxExecutionTime(maxExecutionTime);
             var results = evaluateListQuery(tupleQuery, aAll);
             results.sort(comparing(KBObject::getUiLabel, CASE_INSENSITIVE_ORDER));
 
@@ -1357,6 +1379,7 @@ public class SPARQLQueryBuilder
 
         try {
             var tupleQuery = aConnection.prepareTupleQuery(queryString);
+            tupleQuery.setMaxExecutionTime(maxExecutionTime);
             var result = !evaluateListQuery(tupleQuery, aAll).isEmpty();
 
             var duration = currentTimeMillis() - startTime;
@@ -1395,6 +1418,7 @@ public class SPARQLQueryBuilder
         try {
             var tupleQuery = aConnection.prepareTupleQuery(queryString);
             tupleQuery.setIncludeInferred(includeInferred);
+            tupleQuery.setMaxExecutionTime(maxExecutionTime);
             var result = evaluateListQuery(tupleQuery, aAll).stream().findFirst();
 
             var duration = currentTimeMillis() - startTime;
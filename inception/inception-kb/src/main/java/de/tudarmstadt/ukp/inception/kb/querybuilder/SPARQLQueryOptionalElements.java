@@ -79,4 +79,19 @@ public interface SPARQLQueryOptionalElements
      */
     @SuppressWarnings("javadoc")
     SPARQLQueryOptionalElements includeInferred(boolean aEnabled);
+
+    /**
+     * Set the maximum time the query may take to execute. If it takes longer, the query is aborted
+     * and a {@link org.eclipse.rdf4j.query.QueryInterruptedException} is thrown. The default is
+     * {@code 0} which means that there is no limit.
+     * 
+     * This setting is only effective for methods which actually return results (e.g.
+     * {@link SPARQLQuery#asHandles} or {@link SPARQLQuery#exists}) but not for methods which just
+     * construct the query (e.g. {@link SPARQLQuery#selectQuery}.
+     * 
+     * @param aSeconds
+     *            the maximum execution time in seconds.
+     * @return the builder (fluent API)
+     */
+    SPARQLQueryOptionalElements maxExecutionTime(int aSeconds);
 }
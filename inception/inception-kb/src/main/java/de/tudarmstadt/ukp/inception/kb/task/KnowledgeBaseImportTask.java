@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb.task;
+
+import static de.tudarmstadt.ukp.inception.scheduling.TaskScope.PROJECT;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskState.CANCELLED;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskState.RUNNING;
+import static java.nio.file.StandardOpenOption.READ;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+
+import de.tudarmstadt.ukp.inception.kb.BulkImportMonitor;
+import de.tudarmstadt.ukp.inception.kb.KnowledgeBaseService;
+import de.tudarmstadt.ukp.inception.kb.event.KnowledgeBaseConfigurationChangedEvent;
+import de.tudarmstadt.ukp.inception.kb.model.KnowledgeBase;
+import de.tudarmstadt.ukp.inception.scheduling.ProjectTask;
+import de.tudarmstadt.ukp.inception.scheduling.Task;
+import de.tudarmstadt.ukp.inception.support.logging.LogMessage;
+
+/**
+ * Bulk imports a file into a local knowledge base. The progress is reported based on the position
+ * in the file. The task takes ownership of the file and deletes it when it is done. If the import
+ * is cancelled or fails, the statements imported up to that point remain in the knowledge base and
+ * the user is told so.
+ * 
+ * @see KnowledgeBaseService#bulkImportData
+ */
+public class KnowledgeBaseImportTask
+    extends Task
+    implements ProjectTask
+{
+    private static final Logger LOG = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+    public static final String TYPE = "KnowledgeBaseImportTask";
+
+    private static final int MAX_PROGRESS = 100;
+
+    private @Autowired KnowledgeBaseService kbService;
+    private @Autowired ApplicationEventPublisher applicationEventPublisher;
+
+    private final KnowledgeBase knowledgeBase;
+    private final String fileName;
+    private final File file;
+
+    public KnowledgeBaseImportTask(Builder<? extends Builder<?>> aBuilder)
+    {
+        super(aBuilder.withType(TYPE).withCancellable(true).withScope(PROJECT));
+
+        knowledgeBase = aBuilder.knowledgeBase;
+        fileName = aBuilder.fileName;
+        file = aBuilder.file;
+    }
+
+    @Override
+    public String getTitle()
+    {
+        return "Importing " + fileName + " into " + knowledgeBase.getName() + "...";
+    }
+
+    @Override
+    public void execute() throws IOException
+    {
+        var monitor = getMonitor();
+        monitor.setStateAndProgress(RUNNING, 0, MAX_PROGRESS);
+
+        var committedCount = new AtomicLong();
+        long statementCount;
+        try (var channel = FileChannel.open(file.toPath(), READ);
+                var is = Channels.newInputStream(channel)) {
+            var size = Math.max(1, channel.size());
+
+            statementCount = kbService.bulkImportData(knowledgeBase, fileName, is,
+                    new BulkImportMonitor()
+                    {
+                        @Override
+                        public void batchCommitted(long aStatementCount)
+                        {
+                            committedCount.set(aStatementCount);
+                            try {
+                                // Keep the last percent for rebuilding the full text index
+                                var progress = (int) (channel.position() * (MAX_PROGRESS - 1)
+                                        / size);
+                                monitor.setProgress(progress);
+                            }
+                            catch (IOException e) {
+                                // Channel closed - ignore
+                            }
+                        }
+
+                        @Override
+                        public void rebuildingFullTextIndex()
+                        {
+                            monitor.addMessage(LogMessage.info(KnowledgeBaseImportTask.this,
+                                    "Rebuilding full text index..."));
+                        }
+
+                        @Override
+                        public boolean isCancelled()
+                        {
+                            return monitor.isCancelled();
+                        }
+                    });
+        }
+        catch (IOException | RuntimeException e) {
+            monitor.addMessage(LogMessage.error(this,
+                    "Import of %s failed after %d statements: %s - the import is incomplete. "
+                            + "The statements imported up to that point remain in the "
+                            + "knowledge base.",
+                    fileName, committedCount.get(), e.getMessage()));
+            if (committedCount.get() > 0) {
+                publishKnowledgeBaseChanged();
+            }
+            throw e;
+        }
+        finally {
+            Files.deleteIfExists(file.toPath());
+        }
+
+        publishKnowledgeBaseChanged();
+
+        if (monitor.isCancelled()) {
+            LOG.info("Import of [{}] into {} cancelled after [{}] statements", fileName,
+                    knowledgeBase, statementCount);
+
+            monitor.setProgressWithMessage(monitor.getProgress(), MAX_PROGRESS,
+                    LogMessage.warn(this, "Import of %s cancelled after %d statements - the "
+                            + "import is incomplete. The statements imported up to that point "
+                            + "remain in the knowledge base.", fileName, statementCount));
+            monitor.setState(CANCELLED);
+            return;
+        }
+
+        LOG.info("Imported [{}] statements from [{}] into {}", statementCount, fileName,
+                knowledgeBase);
+
+        monitor.setProgressWithMessage(MAX_PROGRESS, MAX_PROGRESS, LogMessage.info(this,
+                "Imported %d statements from %s", statementCount, fileName));
+    }
+
+    private void publishKnowledgeBaseChanged()
+    {
+        applicationEventPublisher.publishEvent(
+                new KnowledgeBaseConfigurationChangedEvent(this, knowledgeBase.getProject()));
+    }
+
+    public static Builder<Builder<?>> builder()
+    {
+        return new Builder<>();
+    }
+
+    public static class Builder<T extends Builder<?>>
+        extends Task.Builder<T>
+    {
+        private KnowledgeBase knowledgeBase;
+        private String fileName;
+        private File file;
+
+        @SuppressWarnings("unchecked")
+        public T withKnowledgeBase(KnowledgeBase aKnowledgeBase)
+        {
+            knowledgeBase = aKnowledgeBase;
+            project = aKnowledgeBase.getProject();
+            return (T) this;
+        }
+
+        /**
+         * @param aFileName
+         *            the name of the file as uploaded by the user. It is used to detect the format
+         *            of the data.
+         * @param aFile
+         *            the file to import. The task deletes the file when it is done.
+         */
+        @SuppressWarnings("unchecked")
+        public T withFile(String aFileName, File aFile)
+        {
+            fileName = aFileName;
+            file = aFile;
+            return (T) this;
+        }
+
+        public KnowledgeBaseImportTask build()
+        {
+            Validate.notNull(knowledgeBase, "KnowledgeBaseImportTask requires a knowledge base");
+            Validate.notNull(file, "KnowledgeBaseImportTask requires a file");
+
+            return new KnowledgeBaseImportTask(this);
+        }
+    }
+}
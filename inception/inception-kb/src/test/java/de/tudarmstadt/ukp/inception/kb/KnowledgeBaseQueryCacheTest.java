@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.kb;
+
+import static de.tudarmstadt.ukp.inception.kb.RepositoryType.LOCAL;
+import static de.tudarmstadt.ukp.inception.kb.RepositoryType.REMOTE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.tudarmstadt.ukp.inception.kb.config.KnowledgeBasePropertiesImpl;
+import de.tudarmstadt.ukp.inception.kb.graph.KBHandle;
+import de.tudarmstadt.ukp.inception.kb.model.KnowledgeBase;
+import de.tudarmstadt.ukp.inception.kb.querybuilder.SPARQLQuery;
+
+class KnowledgeBaseQueryCacheTest
+{
+    private @TempDir File cacheRoot;
+
+    private KnowledgeBasePropertiesImpl properties;
+    private AtomicInteger queryCount;
+
+    @BeforeEach
+    void setup()
+    {
+        properties = new KnowledgeBasePropertiesImpl();
+        queryCount = new AtomicInteger();
+    }
+
+    @Test
+    void thatRepeatedQueriesAreServedFromCache()
+    {
+        var sut = createCache();
+        var kb = knowledgeBase("kb", LOCAL, false);
+
+        var first = sut.get(kb, query("SELECT 1"), true);
+        var second = sut.get(kb, query("SELECT 1"), true);
+
+        assertThat(second).isSameAs(first);
+        assertThat(queryCount).hasValue(1);
+    }
+
+    @Test
+    void thatQueriesAreKeyedByKnowledgeBaseAndFlags()
+    {
+        var sut = createCache();
+        var kb1 = knowledgeBase("kb1", LOCAL, false);
+        var kb2 = knowledgeBase("kb2", LOCAL, false);
+
+        sut.get(kb1, query("SELECT 1"), true);
+        sut.get(kb1, query("SELECT 1"), false);
+        sut.get(kb1, query("SELECT 2"), true);
+        sut.get(kb2, query("SELECT 1"), true);
+
+        assertThat(queryCount).hasValue(4);
+    }
+
+    @Test
+    void thatInvalidationOnlyAffectsTheChangedKnowledgeBase()
+    {
+        var sut = createCache();
+        var kb1 = knowledgeBase("kb1", LOCAL, false);
+        var kb2 = knowledgeBase("kb2", LOCAL, false);
+
+        sut.get(kb1, query("SELECT 1"), true);
+        sut.get(kb2, query("SELECT 1"), true);
+
+        sut.invalidate(kb1);
+
+        sut.get(kb1, query("SELECT 1"), true);
+        sut.get(kb2, query("SELECT 1"), true);
+
+        assertThat(queryCount).hasValue(3);
+    }
+
+    @Test
+    void thatResultsOfRemoteReadOnlyKnowledgeBasesArePersisted()
+    {
+        properties.setPersistentCacheEnabled(true);
+        var kb = knowledgeBase("kb", REMOTE, true);
+
+        var original = createCache().get(kb, query("SELECT 1"), true);
+        var restored = createCache().get(kb, query("SELECT 1"), true);
+
+        assertThat(queryCount).hasValue(1);
+        assertThat(restored) //
+                .usingRecursiveFieldByFieldElementComparator() //
+                .containsExactlyElementsOf(original);
+    }
+
+    @Test
+    void thatResultsOfLocalKnowledgeBasesAreNotPersisted()
+    {
+        properties.setPersistentCacheEnabled(true);
+        var kb = knowledgeBase("kb", LOCAL, true);
+
+        createCache().get(kb, query("SELECT 1"), true);
+        createCache().get(kb, query("SELECT 1"), true);
+
+        assertThat(queryCount).hasValue(2);
+        assertThat(cacheRoot.list()).isEmpty();
+    }
+
+    @Test
+    void thatInvalidationDropsPersistedResults()
+    {
+        properties.setPersistentCacheEnabled(true);
+        var kb = knowledgeBase("kb", REMOTE, true);
+
+        createCache().get(kb, query("SELECT 1"), true);
+        createCache().invalidate(kb);
+        createCache().get(kb, query("SELECT 1"), true);
+
+        assertThat(queryCount).hasValue(2);
+    }
+
+    private KnowledgeBaseQueryCache createCache()
+    {
+        return new KnowledgeBaseQueryCache(properties, cacheRoot, (kb, query, all) -> {
+            queryCount.incrementAndGet();
+            var handle = new KBHandle("http://example.org/" + queryCount.get(),
+                    "Item " + queryCount.get(), null, "en");
+            handle.setKB(kb);
+            handle.addMatchTerm("item", "en");
+            return List.of(handle);
+        });
+    }
+
+    private static KnowledgeBase knowledgeBase(String aId, RepositoryType aType, boolean aReadOnly)
+    {
+        var kb = new KnowledgeBase();
+        kb.setRepositoryId(aId);
+        kb.setType(aType);
+        kb.setReadOnly(aReadOnly);
+        return kb;
+    }
+
+    private static SPARQLQuery query(String aQuery)
+    {
+        var query = mock(SPARQLQuery.class);
+        when(query.normalizedQuery()).thenReturn(aQuery);
+        return query;
+    }
+}
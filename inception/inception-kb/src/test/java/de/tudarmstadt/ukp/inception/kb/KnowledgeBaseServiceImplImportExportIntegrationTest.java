@@ -17,15 +17,22 @@
  */
 package de.tudarmstadt.ukp.inception.kb;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Objects;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongConsumer;
 import java.util.stream.Stream;
 
 import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFParseException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -70,6 +77,7 @@ public class KnowledgeBaseServiceImplImportExportIntegrationTest
     private @Autowired TestEntityManager testEntityManager;
     private TestFixtures testFixtures;
 
+    private KnowledgeBasePropertiesImpl kbProperties;
     private KnowledgeBaseServiceImpl sut;
     private Project project;
     private KnowledgeBase kb;
@@ -86,7 +94,7 @@ public class KnowledgeBaseServiceImplImportExportIntegrationTest
         var repoProps = new RepositoryPropertiesImpl();
         repoProps.setPath(temporaryFolder);
 
-        var kbProperties = new KnowledgeBasePropertiesImpl();
+        kbProperties = new KnowledgeBasePropertiesImpl();
         var entityManager = testEntityManager.getEntityManager();
 
         testFixtures = new TestFixtures(testEntityManager);
@@ -184,6 +192,99 @@ public class KnowledgeBaseServiceImplImportExportIntegrationTest
                 .containsExactlyInAnyOrder(666);
     }
 
+    @Test
+    public void bulkImportData_WithExistingTtl_ShouldImportTriplesInBatches() throws Exception
+    {
+        kbProperties.setBulkImportBatchSize(5);
+        sut.registerKnowledgeBase(kb, sut.getNativeConfig());
+
+        var batches = new ArrayList<Long>();
+        var statementCount = bulkImportKnowledgeBase("data/pets.ttl", batches::add, () -> false);
+
+        assertThat(statementCount).isGreaterThan(5);
+        assertThat(batches) //
+                .as("Check that progress is reported for every batch") //
+                .hasSize((int) (statementCount / 5) + 1) //
+                .isSorted() //
+                .endsWith(statementCount);
+
+        var conceptLabels = sut.listAllConcepts(kb, false).stream().map(KBObject::getName);
+        var propertyLabels = sut.listProperties(kb, false).stream().map(KBObject::getName);
+        assertThat(conceptLabels).as("Check that concepts all have been imported")
+                .containsExactlyInAnyOrder("Animal", "Character", "Cat", "Dog");
+        assertThat(propertyLabels).as("Check that properties all have been imported")
+                .containsExactlyInAnyOrder("Loves", "Hates", "Has Character", "Year Of Birth");
+    }
+
+    @Test
+    public void bulkImportData_WhenCancelled_ShouldKeepCommittedBatches() throws Exception
+    {
+        kbProperties.setBulkImportBatchSize(5);
+        sut.registerKnowledgeBase(kb, sut.getNativeConfig());
+
+        var statementCount = bulkImportKnowledgeBase("data/pets.ttl", count -> {
+        }, () -> true);
+
+        assertThat(statementCount).isEqualTo(5);
+        try (var conn = sut.getConnection(kb)) {
+            assertThat(conn.size()).isEqualTo(5);
+        }
+    }
+
+    @Test
+    public void bulkImportData_WithParseError_ShouldKeepCommittedBatches() throws Exception
+    {
+        kbProperties.setBulkImportBatchSize(5);
+        sut.registerKnowledgeBase(kb, sut.getNativeConfig());
+
+        var data = new StringBuilder();
+        for (int i = 0; i < 7; i++) {
+            data.append("<http://example.org/s" + i + "> <http://example.org/p> \"" + i
+                    + "\" .\n");
+        }
+        data.append("this is not turtle\n");
+        var file = temporaryFolder.toPath().resolve("broken.ttl").toFile();
+        Files.writeString(file.toPath(), data, UTF_8);
+
+        try (var is = new FileInputStream(file)) {
+            assertThatExceptionOfType(RDFParseException.class) //
+                    .isThrownBy(() -> sut.bulkImportData(kb, file.getName(), is,
+                            new BulkImportMonitor()
+                            {
+                                @Override
+                                public void batchCommitted(long aStatementCount)
+                                {
+                                    // Nothing to do
+                                }
+
+                                @Override
+                                public boolean isCancelled()
+                                {
+                                    return false;
+                                }
+                            }));
+        }
+
+        try (var conn = sut.getConnection(kb)) {
+            assertThat(conn.size()) //
+                    .as("Check that only the uncommitted batch has been discarded") //
+                    .isEqualTo(5);
+        }
+    }
+
+    @Test
+    public void bulkImportData_WithReadOnlyKb_ShouldDoNothing() throws Exception
+    {
+        sut.registerKnowledgeBase(kb, sut.getNativeConfig());
+        kb.setReadOnly(true);
+
+        var statementCount = bulkImportKnowledgeBase("data/pets.ttl", count -> {
+        }, () -> false);
+
+        assertThat(statementCount).isZero();
+        assertThat(sut.listAllConcepts(kb, false)).isEmpty();
+    }
+
     @Test
     public void exportData_WithLocalKnowledgeBase_ShouldExportKnowledgeBase() throws Exception
     {
@@ -254,6 +355,30 @@ public class KnowledgeBaseServiceImplImportExportIntegrationTest
         }
     }
 
+    private long bulkImportKnowledgeBase(String aResourceName, LongConsumer aBatchListener,
+            BooleanSupplier aCancelled)
+        throws Exception
+    {
+        var classLoader = getClass().getClassLoader();
+        var fileName = classLoader.getResource(aResourceName).getFile();
+        try (var is = classLoader.getResourceAsStream(aResourceName)) {
+            return sut.bulkImportData(kb, fileName, is, new BulkImportMonitor()
+            {
+                @Override
+                public void batchCommitted(long aStatementCount)
+                {
+                    aBatchListener.accept(aStatementCount);
+                }
+
+                @Override
+                public boolean isCancelled()
+                {
+                    return aCancelled.getAsBoolean();
+                }
+            });
+        }
+    }
+
     @SpringBootConfiguration
     public static class SpringConfig
     {
@@ -27,8 +27,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.collections4.ListValuedMap;
 import org.apache.commons.collections4.multimap.ArrayListValuedHashMap;
@@ -50,6 +52,7 @@ public class VDocument
     private final ListValuedMap<Long, VSpan> spansByLayer = new ArrayListValuedHashMap<>();
     private final Map<Long, AnnotationLayer> annotationLayers = new LinkedHashMap<>();
     private final List<VMarker> markers = new ArrayList<>();
+    private final Set<VID> sharedSpans = new LinkedHashSet<>();
 
     private int windowBegin;
     private int windowEnd;
@@ -161,6 +164,24 @@ public class VDocument
         spansByLayer.put(aSpan.getLayer().getId(), aSpan);
     }
 
+    /**
+     * Adds a span which may be shared by several renderers unless a span with the same VID already
+     * exists, e.g. the anchors for arcs pointing outside the window.
+     * 
+     * @param aSpan
+     *            the span to add.
+     */
+    public void addShared(VSpan aSpan)
+    {
+        sharedSpans.add(aSpan.getVid());
+
+        if (spans.containsKey(aSpan.getVid())) {
+            return;
+        }
+
+        add(aSpan);
+    }
+
     public void add(VComment aComment)
     {
         if (get(aComment.getVid()) == null) {
@@ -176,6 +197,44 @@ public class VDocument
         markers.add(aMarker);
     }
 
+    /**
+     * Adds the objects, comments and markers of a fragment rendered separately (e.g. a single layer
+     * rendered in parallel with other layers) to this document. Merging fragments one after the
+     * other in a fixed order yields the same result as rendering into this document directly in
+     * the same order. In particular, a span the fragment added via {@link #addShared(VSpan)} is
+     * skipped if this document already contains a span with the same VID. All other objects are
+     * added via {@code add}, so conflicting objects are rejected as they would be when rendering
+     * into this document directly.
+     * 
+     * @param aFragment
+     *            the fragment to merge.
+     * @throws IllegalStateException
+     *             if the fragment contains an object which conflicts with an object in this
+     *             document.
+     */
+    public void merge(VDocument aFragment)
+    {
+        for (var span : aFragment.spans.values()) {
+            if (aFragment.sharedSpans.contains(span.getVid()) && spans.containsKey(span.getVid())) {
+                continue;
+            }
+            add(span);
+        }
+        sharedSpans.addAll(aFragment.sharedSpans);
+
+        for (var arc : aFragment.arcs.values()) {
+            add(arc);
+        }
+
+        for (var comment : aFragment.comments.values()) {
+            add(comment);
+        }
+
+        for (var marker : aFragment.markers) {
+            add(marker);
+        }
+    }
+
     public VSpan getSpan(VID aVid)
     {
         return spans.get(aVid);
@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.recommendation.api.model;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Comparator.comparingInt;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import de.tudarmstadt.ukp.inception.support.text.IntervalTree;
+
+/**
+ * Immutable index over the suggestions of a single document. Suggestions are indexed by their
+ * window offsets (overall and per layer) and span suggestions additionally by layer, feature and
+ * offsets. Updates produce a new index instance, so readers can use an index without locking while
+ * new suggestions are being added.
+ * <p>
+ * The suggestions are partitioned by recommender. Adding or removing the suggestions of a
+ * recommender only rebuilds the partition of that recommender, the partitions of the other
+ * recommenders are shared with the new index instance.
+ */
+final class DocumentSuggestionIndex
+    implements Serializable
+{
+    private static final long serialVersionUID = 4516279334927416208L;
+
+    static final DocumentSuggestionIndex EMPTY = new DocumentSuggestionIndex(
+            new LinkedHashMap<>());
+
+    private final Map<Long, RecommenderPartition> byRecommender;
+    private final int size;
+
+    private DocumentSuggestionIndex(Map<Long, RecommenderPartition> aByRecommender)
+    {
+        byRecommender = aByRecommender;
+        size = aByRecommender.values().stream().mapToInt(RecommenderPartition::size).sum();
+    }
+
+    /**
+     * @param aSuggestions
+     *            suggestions to add. Suggestions with the same extended ID as an existing
+     *            suggestion replace the existing suggestion.
+     * @return a new index containing the suggestions of this index and the given suggestions.
+     */
+    DocumentSuggestionIndex with(Collection<AnnotationSuggestion> aSuggestions)
+    {
+        if (aSuggestions.isEmpty()) {
+            return this;
+        }
+
+        var added = new LinkedHashMap<Long, List<AnnotationSuggestion>>();
+        for (var suggestion : aSuggestions) {
+            added.computeIfAbsent(suggestion.getRecommenderId(), $ -> new ArrayList<>())
+                    .add(suggestion);
+        }
+
+        var newByRecommender = new LinkedHashMap<>(byRecommender);
+        added.forEach((recommenderId, suggestions) -> newByRecommender.put(recommenderId,
+                byRecommender.getOrDefault(recommenderId, RecommenderPartition.EMPTY)
+                        .with(suggestions)));
+        return new DocumentSuggestionIndex(newByRecommender);
+    }
+
+    /**
+     * @param aRecommenderId
+     *            a recommender ID
+     * @return a new index without the suggestions of the given recommender.
+     */
+    DocumentSuggestionIndex without(long aRecommenderId)
+    {
+        if (!byRecommender.containsKey(aRecommenderId)) {
+            return this;
+        }
+
+        var newByRecommender = new LinkedHashMap<>(byRecommender);
+        newByRecommender.remove(aRecommenderId);
+        return new DocumentSuggestionIndex(newByRecommender);
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    List<AnnotationSuggestion> getAll()
+    {
+        var result = new ArrayList<AnnotationSuggestion>(size);
+        for (var partition : byRecommender.values()) {
+            result.addAll(partition.suggestions.values());
+        }
+        return unmodifiableList(result);
+    }
+
+    List<AnnotationSuggestion> getByRecommender(long aRecommenderId)
+    {
+        var partition = byRecommender.get(aRecommenderId);
+        return partition != null ? List.copyOf(partition.suggestions.values()) : emptyList();
+    }
+
+    Optional<AnnotationSuggestion> getByRecommenderAndId(long aRecommenderId, int aId)
+    {
+        var partition = byRecommender.get(aRecommenderId);
+        return partition != null ? Optional.ofNullable(partition.byId.get(aId))
+                : Optional.empty();
+    }
+
+    List<SpanSuggestion> getSpans(long aLayerId, String aFeature, int aBegin, int aEnd)
+    {
+        var key = new SpanKey(aLayerId, aFeature, aBegin, aEnd);
+        return merge(partition -> partition.bySpan.getOrDefault(key, emptyList()), false);
+    }
+
+    /**
+     * @return suggestions of the given type overlapping the given window, ordered by the begin of
+     *         their windows.
+     */
+    <T extends AnnotationSuggestion> List<T> getInWindow(Class<T> aType, int aBegin, int aEnd)
+    {
+        return merge(partition -> partition.byWindow.select(aType, aBegin, aEnd), true);
+    }
+
+    /**
+     * @return suggestions of the given type on the given layer overlapping the given window,
+     *         ordered by the begin of their windows.
+     */
+    <T extends AnnotationSuggestion> List<T> getInWindow(Class<T> aType, long aLayerId,
+            int aBegin, int aEnd)
+    {
+        return merge(partition -> {
+            var index = partition.byLayer.get(aLayerId);
+            return index != null ? index.select(aType, aBegin, aEnd) : emptyList();
+        }, true);
+    }
+
+    /**
+     * Collects the results from all partitions. If there are results from more than one partition
+     * and the results are ordered by window, they are merged into window order.
+     */
+    private <T extends AnnotationSuggestion> List<T> merge(
+            Function<RecommenderPartition, List<T>> aSelector, boolean aWindowOrder)
+    {
+        List<T> result = null;
+        var merged = false;
+        for (var partition : byRecommender.values()) {
+            var selected = aSelector.apply(partition);
+            if (selected.isEmpty()) {
+                continue;
+            }
+
+            if (result == null) {
+                result = selected;
+            }
+            else {
+                if (!merged) {
+                    result = new ArrayList<>(result);
+                    merged = true;
+                }
+                result.addAll(selected);
+            }
+        }
+
+        if (result == null) {
+            return emptyList();
+        }
+
+        if (merged && aWindowOrder) {
+            // The sort is stable, so suggestions with the same window begin remain in the order of
+            // the recommenders
+            result.sort(comparingInt(AnnotationSuggestion::getWindowBegin));
+        }
+
+        return unmodifiableList(result);
+    }
+
+    /**
+     * The suggestions of a single recommender.
+     */
+    private static final class RecommenderPartition
+        implements Serializable
+    {
+        private static final long serialVersionUID = -2387416326120531868L;
+
+        private static final RecommenderPartition EMPTY = new RecommenderPartition(
+                new LinkedHashMap<>());
+
+        private final Map<ExtendedId, AnnotationSuggestion> suggestions;
+        private final Map<Integer, AnnotationSuggestion> byId;
+        private final Map<SpanKey, List<SpanSuggestion>> bySpan;
+        private final Map<Long, WindowIndex> byLayer;
+        private final WindowIndex byWindow;
+
+        private RecommenderPartition(Map<ExtendedId, AnnotationSuggestion> aSuggestions)
+        {
+            suggestions = aSuggestions;
+            byId = new HashMap<>();
+            bySpan = new HashMap<>();
+
+            var positioned = new ArrayList<AnnotationSuggestion>();
+            var positionedByLayer = new HashMap<Long, List<AnnotationSuggestion>>();
+            for (var suggestion : aSuggestions.values()) {
+                byId.putIfAbsent(suggestion.getId(), suggestion);
+
+                // Suggestions without a position have no window and cannot be located by offsets
+                if (suggestion.getPosition() == null) {
+                    continue;
+                }
+
+                positioned.add(suggestion);
+                positionedByLayer.computeIfAbsent(suggestion.getLayerId(), $ -> new ArrayList<>())
+                        .add(suggestion);
+
+                if (suggestion instanceof SpanSuggestion span) {
+                    bySpan.computeIfAbsent(new SpanKey(span.getLayerId(), span.getFeature(),
+                            span.getBegin(), span.getEnd()), $ -> new ArrayList<>()).add(span);
+                }
+            }
+
+            byWindow = new WindowIndex(positioned);
+            byLayer = new HashMap<>();
+            positionedByLayer.forEach((layerId, s) -> byLayer.put(layerId, new WindowIndex(s)));
+        }
+
+        private RecommenderPartition with(List<AnnotationSuggestion> aSuggestions)
+        {
+            var newSuggestions = new LinkedHashMap<>(suggestions);
+            for (var suggestion : aSuggestions) {
+                newSuggestions.put(new ExtendedId(suggestion), suggestion);
+            }
+            return new RecommenderPartition(newSuggestions);
+        }
+
+        private int size()
+        {
+            return suggestions.size();
+        }
+    }
+
+    /**
+     * Interval tree over the windows of suggestions. The suggestions are sorted by the begin of
+     * their windows so that they are also returned in that order.
+     */
+    private static final class WindowIndex
+        implements Serializable
+    {
+        private static final long serialVersionUID = 6064815468412960129L;
+
+        private final AnnotationSuggestion[] suggestions;
+        private final IntervalTree tree;
+
+        private WindowIndex(List<AnnotationSuggestion> aSuggestions)
+        {
+            var sorted = new ArrayList<>(aSuggestions);
+            sorted.sort(comparingInt(AnnotationSuggestion::getWindowBegin));
+            suggestions = sorted.toArray(AnnotationSuggestion[]::new);
+            tree = IntervalTree.of(sorted, AnnotationSuggestion::getWindowBegin,
+                    AnnotationSuggestion::getWindowEnd);
+        }
+
+        private <T extends AnnotationSuggestion> List<T> select(Class<T> aType, int aBegin,
+                int aEnd)
+        {
+            var hits = tree.selectOverlapping(aBegin, aEnd);
+            var result = new ArrayList<T>(hits.length);
+            for (var position : hits) {
+                if (aType.isInstance(suggestions[position])) {
+                    result.add(aType.cast(suggestions[position]));
+                }
+            }
+            return result;
+        }
+    }
+
+    private record SpanKey(long layerId, String feature, int begin, int end)
+        implements Serializable
+    {}
+}
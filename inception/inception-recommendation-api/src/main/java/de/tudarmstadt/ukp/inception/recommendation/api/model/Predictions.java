@@ -18,23 +18,22 @@
 package de.tudarmstadt.ukp.inception.recommendation.api.model;
 
 import static java.util.Arrays.asList;
-import static java.util.Collections.emptyMap;
 import static java.util.Collections.unmodifiableSet;
-import static java.util.Comparator.comparingInt;
 
 import java.io.Serializable;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.Validate;
-import org.apache.uima.cas.text.AnnotationPredicates;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,19 +62,21 @@ public class Predictions
     private final User sessionOwner;
     private final String dataOwner;
 
-    private final Map<String, Map<ExtendedId, AnnotationSuggestion>> idxDocuments = new HashMap<>();
+    // Suggestions are indexed by document. The per-document indexes are immutable and replaced
+    // atomically on every update, so readers (e.g. the renderer) never block on a running
+    // prediction task.
+    private final Map<String, DocumentSuggestionIndex> idxDocuments = new ConcurrentHashMap<>();
 
-    private final Object predictionsLock = new Object();
     private final Set<String> seenDocumentsForPrediction = new HashSet<>();
     private final List<LogMessage> log = new ArrayList<>();
 
     // Predictions are (currently) scoped to a user session. We assume that within a single user
     // session, the pool of IDs of positive integer values is never exhausted.
-    private int nextId;
+    private final AtomicInteger nextId;
 
-    private int addedSuggestionCount = 0;
-    private int agedSuggestionCount = 0;
-    private int removedSuggestionCount = 0;
+    private final AtomicInteger addedSuggestionCount = new AtomicInteger();
+    private final AtomicInteger agedSuggestionCount = new AtomicInteger();
+    private final AtomicInteger removedSuggestionCount = new AtomicInteger();
 
     public Predictions(User aSessionOwner, String aDataOwner, Project aProject)
     {
@@ -86,7 +87,7 @@ public class Predictions
         project = aProject;
         sessionOwner = aSessionOwner;
         dataOwner = aDataOwner;
-        nextId = 0;
+        nextId = new AtomicInteger();
         generation = 1;
     }
 
@@ -95,7 +96,7 @@ public class Predictions
         project = aPredecessor.project;
         sessionOwner = aPredecessor.sessionOwner;
         dataOwner = aPredecessor.dataOwner;
-        nextId = aPredecessor.nextId;
+        nextId = new AtomicInteger(aPredecessor.nextId.get());
         generation = aPredecessor.generation + 1;
     }
 
@@ -174,25 +175,14 @@ public class Predictions
      * 
      * TODO #176 use the document Id once it it available in the CAS
      */
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     private <T extends AnnotationSuggestion> List<T> getFlattenedPredictions(Class<T> type,
             String aDocumentName, AnnotationLayer aLayer, int aWindowBegin, int aWindowEnd)
     {
         var windowBegin = aWindowBegin == -1 ? 0 : aWindowBegin;
         var windowEnd = aWindowEnd == -1 ? Integer.MAX_VALUE : aWindowEnd;
 
-        synchronized (predictionsLock) {
-            var byDocument = idxDocuments.getOrDefault(aDocumentName, emptyMap());
-            return byDocument.entrySet().stream() //
-                    .filter(f -> type.isInstance(f.getValue())) //
-                    .map(f -> (Entry<ExtendedId, T>) (Entry) f) //
-                    .filter(f -> f.getKey().getLayerId() == aLayer.getId()) //
-                    .filter(f -> AnnotationPredicates.overlapping(f.getValue().getWindowBegin(),
-                            f.getValue().getWindowEnd(), windowBegin, windowEnd))
-                    .sorted(comparingInt(e2 -> e2.getValue().getWindowBegin())) //
-                    .map(Map.Entry::getValue) //
-                    .toList();
-        }
+        return getDocumentIndex(aDocumentName).getInWindow(type, aLayer.getId(), windowBegin,
+                windowEnd);
     }
 
     /**
@@ -205,67 +195,75 @@ public class Predictions
      */
     public Optional<AnnotationSuggestion> getPredictionByVID(SourceDocument aDocument, VID aVID)
     {
-        synchronized (predictionsLock) {
-            var byDocument = idxDocuments.getOrDefault(aDocument.getName(), emptyMap());
-            return byDocument.values().stream() //
-                    .filter(suggestion -> suggestion.getId() == aVID.getSubId()) //
-                    .filter(suggestion -> suggestion.getRecommenderId() == aVID.getId()) //
-                    .findFirst();
-        }
+        return getDocumentIndex(aDocument.getName()).getByRecommenderAndId(aVID.getId(),
+                aVID.getSubId());
     }
 
     public void putSuggestions(int aAdded, int aRemoved, int aAged,
             List<AnnotationSuggestion> aSuggestions)
     {
-        synchronized (predictionsLock) {
-            addedSuggestionCount += aAdded;
-            agedSuggestionCount += aAged;
-            removedSuggestionCount += aRemoved;
-
-            var ageZeroSuggestions = 0;
-            for (var suggestion : aSuggestions) {
-                // Assign ID to predictions that do not have an ID yet
-                if (suggestion.getId() == AnnotationSuggestion.NEW_ID) {
-                    suggestion = suggestion.assignId(nextId);
-                    nextId++;
-                    if (nextId < 0) {
-                        throw new IllegalStateException(
-                                "Annotation suggestion ID overflow. Restart session.");
-                    }
+        addedSuggestionCount.addAndGet(aAdded);
+        agedSuggestionCount.addAndGet(aAged);
+        removedSuggestionCount.addAndGet(aRemoved);
+
+        var ageZeroSuggestions = 0;
+        var suggestionsByDocument = new LinkedHashMap<String, List<AnnotationSuggestion>>();
+        for (var suggestion : aSuggestions) {
+            // Assign ID to predictions that do not have an ID yet
+            if (suggestion.getId() == AnnotationSuggestion.NEW_ID) {
+                var id = nextId.getAndIncrement();
+                if (id < 0) {
+                    throw new IllegalStateException(
+                            "Annotation suggestion ID overflow. Restart session.");
                 }
+                suggestion = suggestion.assignId(id);
+            }
 
-                var xid = new ExtendedId(suggestion);
-                var byDocument = idxDocuments.computeIfAbsent(suggestion.getDocumentName(),
-                        $ -> new HashMap<>());
-                byDocument.put(xid, suggestion);
+            suggestionsByDocument
+                    .computeIfAbsent(suggestion.getDocumentName(), $ -> new ArrayList<>())
+                    .add(suggestion);
 
-                if (suggestion.getAge() == 0) {
-                    ageZeroSuggestions++;
-                }
+            if (suggestion.getAge() == 0) {
+                ageZeroSuggestions++;
             }
+        }
 
-            if (aAdded != ageZeroSuggestions) {
-                LOG.warn("Expected [{}] age-zero suggestions but found [{}]", aAdded,
-                        ageZeroSuggestions);
-            }
+        suggestionsByDocument.forEach(this::addToDocumentIndex);
+
+        if (aAdded != ageZeroSuggestions) {
+            LOG.warn("Expected [{}] age-zero suggestions but found [{}]", aAdded,
+                    ageZeroSuggestions);
         }
     }
 
     public void inheritSuggestions(List<AnnotationSuggestion> aPredictions)
     {
-        synchronized (predictionsLock) {
-            for (var prediction : aPredictions) {
-                if (prediction.getId() == AnnotationSuggestion.NEW_ID) {
-                    throw new IllegalStateException(
-                            "Inherited suggestions must already have an ID");
-                }
-
-                var xid = new ExtendedId(prediction);
-                var byDocument = idxDocuments.computeIfAbsent(prediction.getDocumentName(),
-                        $ -> new HashMap<>());
-                byDocument.put(xid, prediction);
+        var predictionsByDocument = new LinkedHashMap<String, List<AnnotationSuggestion>>();
+        for (var prediction : aPredictions) {
+            if (prediction.getId() == AnnotationSuggestion.NEW_ID) {
+                throw new IllegalStateException("Inherited suggestions must already have an ID");
             }
+
+            predictionsByDocument
+                    .computeIfAbsent(prediction.getDocumentName(), $ -> new ArrayList<>())
+                    .add(prediction);
         }
+
+        predictionsByDocument.forEach(this::addToDocumentIndex);
+    }
+
+    private DocumentSuggestionIndex getDocumentIndex(String aDocumentName)
+    {
+        return idxDocuments.getOrDefault(aDocumentName, DocumentSuggestionIndex.EMPTY);
+    }
+
+    private void addToDocumentIndex(String aDocumentName, List<AnnotationSuggestion> aSuggestions)
+    {
+        // Updates to the same document are applied atomically - all other documents remain
+        // unaffected and readers continue to see the previous index until the update is complete
+        idxDocuments.compute(aDocumentName,
+                ($, index) -> (index != null ? index : DocumentSuggestionIndex.EMPTY)
+                        .with(aSuggestions));
     }
 
     public Project getProject()
@@ -275,51 +273,33 @@ public class Predictions
 
     public boolean isEmpty()
     {
-        synchronized (predictionsLock) {
-            return idxDocuments.values().stream().allMatch(Map::isEmpty);
-        }
+        return idxDocuments.values().stream().allMatch(DocumentSuggestionIndex::isEmpty);
     }
 
     public boolean hasNewSuggestions()
     {
-        return addedSuggestionCount > 0;
+        return addedSuggestionCount.get() > 0;
     }
 
     public int getNewSuggestionCount()
     {
-        return addedSuggestionCount;
+        return addedSuggestionCount.get();
     }
 
     public int size()
     {
-        synchronized (predictionsLock) {
-            return idxDocuments.values().stream().mapToInt(Map::size).sum();
-        }
+        return idxDocuments.values().stream().mapToInt(DocumentSuggestionIndex::size).sum();
     }
 
     public void removePredictions(Long recommenderId)
     {
-        synchronized (predictionsLock) {
-            idxDocuments.values().forEach(docGroup -> docGroup.entrySet() //
-                    .removeIf((p) -> p.getKey().getRecommenderId() == recommenderId));
-        }
+        idxDocuments.replaceAll(($, index) -> index.without(recommenderId));
     }
 
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     public List<SpanSuggestion> getAlternativeSuggestions(SpanSuggestion aSuggestion)
     {
-        synchronized (predictionsLock) {
-            var byDocument = idxDocuments.getOrDefault(aSuggestion.getDocumentName(), emptyMap());
-            return byDocument.entrySet().stream() //
-                    .filter(f -> f.getValue() instanceof SpanSuggestion) //
-                    .map(f -> (Entry<ExtendedId, SpanSuggestion>) (Entry) f) //
-                    .filter(f -> f.getKey().getLayerId() == aSuggestion.getLayerId()) //
-                    .filter(f -> f.getValue().getBegin() == aSuggestion.getBegin()) //
-                    .filter(f -> f.getValue().getEnd() == aSuggestion.getEnd()) //
-                    .filter(f -> f.getValue().getFeature().equals(aSuggestion.getFeature())) //
-                    .map(Map.Entry::getValue) //
-                    .toList();
-        }
+        return getDocumentIndex(aSuggestion.getDocumentName()).getSpans(aSuggestion.getLayerId(),
+                aSuggestion.getFeature(), aSuggestion.getBegin(), aSuggestion.getEnd());
     }
 
     /**
@@ -339,34 +319,16 @@ public class Predictions
      * @return the annotation suggestions
      */
     // TODO #176 use the document Id once it it available in the CAS
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     public List<SpanSuggestion> getPredictionsByTokenAndFeature(String aDocumentName,
             AnnotationLayer aLayer, int aBegin, int aEnd, String aFeature)
     {
-        synchronized (predictionsLock) {
-            var byDocument = idxDocuments.getOrDefault(aDocumentName, emptyMap());
-            return byDocument.entrySet().stream() //
-                    .filter(f -> f.getValue() instanceof SpanSuggestion) //
-                    .map(f -> (Entry<ExtendedId, SpanSuggestion>) (Entry) f) //
-                    .filter(f -> f.getKey().getLayerId() == aLayer.getId()) //
-                    .filter(f -> f.getValue().getBegin() == aBegin) //
-                    .filter(f -> f.getValue().getEnd() == aEnd) //
-                    .filter(f -> f.getValue().getFeature().equals(aFeature)) //
-                    .map(Map.Entry::getValue) //
-                    .toList();
-        }
+        return getDocumentIndex(aDocumentName).getSpans(aLayer.getId(), aFeature, aBegin, aEnd);
     }
 
     public List<AnnotationSuggestion> getPredictionsByRecommenderAndDocument(
             Recommender aRecommender, String aDocumentName)
     {
-        synchronized (predictionsLock) {
-            var byDocument = idxDocuments.getOrDefault(aDocumentName, emptyMap());
-            return byDocument.entrySet().stream() //
-                    .filter(f -> f.getKey().getRecommenderId() == (long) aRecommender.getId())
-                    .map(Map.Entry::getValue) //
-                    .toList();
-        }
+        return getDocumentIndex(aDocumentName).getByRecommender(aRecommender.getId());
     }
 
     public List<AnnotationSuggestion> getPredictionsByDocument(SourceDocument aDocument)
@@ -376,26 +338,14 @@ public class Predictions
 
     public List<AnnotationSuggestion> getPredictionsByDocument(String aDocumentName)
     {
-        synchronized (predictionsLock) {
-            var byDocument = idxDocuments.getOrDefault(aDocumentName, emptyMap());
-            return byDocument.entrySet().stream() //
-                    .map(Map.Entry::getValue) //
-                    .toList();
-        }
+        return getDocumentIndex(aDocumentName).getAll();
     }
 
     public List<AnnotationSuggestion> getPredictionsByDocument(String aDocumentName,
             int aWindowBegin, int aWindowEnd)
     {
-        synchronized (predictionsLock) {
-            var byDocument = idxDocuments.getOrDefault(aDocumentName, emptyMap());
-            return byDocument.entrySet().stream() //
-                    .filter(f -> AnnotationPredicates.overlapping(f.getValue().getWindowBegin(),
-                            f.getValue().getWindowEnd(), aWindowBegin, aWindowEnd))
-                    .sorted(comparingInt(e2 -> e2.getValue().getWindowBegin())) //
-                    .map(Map.Entry::getValue) //
-                    .toList();
-        }
+        return getDocumentIndex(aDocumentName).getInWindow(AnnotationSuggestion.class,
+                aWindowBegin, aWindowEnd);
     }
 
     public void markDocumentAsPredictionCompleted(SourceDocument aDocument)
@@ -175,6 +175,18 @@ public abstract class RecommendationEngine
         return PredictionCapability.PREDICTION_USES_TEXT_ONLY;
     }
 
+    /**
+     * @return whether {@link #predict} may be called concurrently for different CASes by several
+     *         engine instances sharing the same {@link RecommenderContext}. Engines which modify
+     *         their model during prediction or which use models that cannot be shared across
+     *         threads must return {@code false} (the default) - their predictions are then
+     *         serialized when predicting on multiple documents in parallel.
+     */
+    public boolean isThreadSafe()
+    {
+        return false;
+    }
+
     /**
      * @param aContext
      *            previous context
@@ -19,6 +19,7 @@ package de.tudarmstadt.ukp.inception.recommendation.api.model;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
+import static java.util.Comparator.comparingInt;
 import static java.util.stream.Collectors.toList;
 import static org.apache.uima.fit.factory.CasFactory.createText;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -30,6 +31,7 @@ import java.util.List;
 import java.util.Random;
 
 import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.text.AnnotationPredicates;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -140,6 +142,77 @@ class PredictionsTest
                 .containsExactlyInAnyOrder(0, 1);
     }
 
+    @Test
+    void thatIndexedLookupsMatchLinearScan() throws Exception
+    {
+        var generatedPredictions = generatePredictions(3, 2, 500);
+        sut.inheritSuggestions(generatedPredictions);
+
+        var rng = new Random(1234l);
+        var textLength = cas.getDocumentText().length();
+        for (int i = 0; i < 100; i++) {
+            var document = "doc" + rng.nextInt(3);
+            var begin = rng.nextInt(textLength);
+            var end = begin + rng.nextInt(200);
+
+            var expected = sut.getPredictionsByDocument(document).stream() //
+                    .filter(s -> AnnotationPredicates.overlapping(s.getWindowBegin(),
+                            s.getWindowEnd(), begin, end)) //
+                    .toList();
+            assertThat(sut.getPredictionsByDocument(document, begin, end)) //
+                    .containsExactlyInAnyOrderElementsOf(expected) //
+                    .isSortedAccordingTo(comparingInt(AnnotationSuggestion::getWindowBegin));
+        }
+
+        for (var suggestion : generatedPredictions.subList(0, 50)) {
+            var span = (SpanSuggestion) suggestion;
+            var expected = sut.getPredictionsByDocument(span.getDocumentName()).stream() //
+                    .map(SpanSuggestion.class::cast) //
+                    .filter(s -> s.getBegin() == span.getBegin() && s.getEnd() == span.getEnd()) //
+                    .filter(s -> s.getFeature().equals(span.getFeature())) //
+                    .toList();
+            assertThat(sut.getAlternativeSuggestions(span)) //
+                    .containsExactlyInAnyOrderElementsOf(expected);
+        }
+
+        sut.removePredictions(0l);
+        assertThat(sut.size()).isEqualTo(1500);
+        assertThat(sut.getPredictionsByDocument("doc0")) //
+                .extracting(AnnotationSuggestion::getRecommenderId) //
+                .containsOnly(1l);
+    }
+
+    @Test
+    void thatAddingSuggestionsKeepsSuggestionsOfOtherRecommenders() throws Exception
+    {
+        var generatedPredictions = generatePredictions(1, 2, 200);
+        var fromRec0 = generatedPredictions.stream() //
+                .filter(s -> s.getRecommenderId() == 0l) //
+                .toList();
+        var fromRec1 = generatedPredictions.stream() //
+                .filter(s -> s.getRecommenderId() == 1l) //
+                .toList();
+        var rec0 = Recommender.builder().withId(0l).build();
+        var rec1 = Recommender.builder().withId(1l).build();
+
+        sut.inheritSuggestions(fromRec0);
+        sut.inheritSuggestions(fromRec1);
+
+        assertThat(sut.getPredictionsByRecommenderAndDocument(rec0, "doc0")) //
+                .containsExactlyElementsOf(fromRec0);
+        assertThat(sut.getPredictionsByRecommenderAndDocument(rec1, "doc0")) //
+                .containsExactlyElementsOf(fromRec1);
+        assertThat(sut.getPredictionsByDocument("doc0", 0, Integer.MAX_VALUE)) //
+                .containsExactlyInAnyOrderElementsOf(generatedPredictions) //
+                .isSortedAccordingTo(comparingInt(AnnotationSuggestion::getWindowBegin));
+
+        sut.removePredictions(1l);
+
+        assertThat(sut.getPredictionsByRecommenderAndDocument(rec0, "doc0")) //
+                .containsExactlyElementsOf(fromRec0);
+        assertThat(sut.getPredictionsByRecommenderAndDocument(rec1, "doc0")).isEmpty();
+    }
+
     private List<AnnotationSuggestion> generatePredictions(int aDocs, int aRecommenders,
             int aSuggestions)
         throws Exception
@@ -22,4 +22,10 @@ public interface RecommenderProperties
     boolean isActionButtonsEnabled();
 
     boolean isEnabled();
+
+    /**
+     * @return number of threads used to generate predictions when predicting on all documents of a
+     *         project (e.g. in active learning mode).
+     */
+    int getPredictionParallelism();
 }
@@ -30,6 +30,7 @@ public class RecommenderPropertiesImpl
 {
     private boolean enabled;
     private boolean actionButtonsEnabled;
+    private int predictionParallelism = 1;
 
     @Override
     public boolean isEnabled()
@@ -52,4 +53,15 @@ public class RecommenderPropertiesImpl
     {
         actionButtonsEnabled = aActionButtonsEnabled;
     }
+
+    @Override
+    public int getPredictionParallelism()
+    {
+        return predictionParallelism;
+    }
+
+    public void setPredictionParallelism(int aPredictionParallelism)
+    {
+        predictionParallelism = aPredictionParallelism;
+    }
 }
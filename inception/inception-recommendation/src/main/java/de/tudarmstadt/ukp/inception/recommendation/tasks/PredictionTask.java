@@ -34,10 +34,18 @@ import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.uima.UIMAException;
 import org.apache.uima.cas.CAS;
 import org.apache.uima.resource.ResourceInitializationException;
@@ -64,6 +72,7 @@ import de.tudarmstadt.ukp.inception.recommendation.api.recommender.PredictionCon
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngine;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationException;
 import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommenderProperties;
 import de.tudarmstadt.ukp.inception.recommendation.event.RecommenderTaskNotificationEvent;
 import de.tudarmstadt.ukp.inception.rendering.model.Range;
 import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
@@ -87,6 +96,7 @@ public class PredictionTask
     private @Autowired DocumentService documentService;
     private @Autowired ApplicationEventPublisher appEventPublisher;
     private @Autowired SuggestionSupportRegistry suggestionSupportRegistry;
+    private @Autowired RecommenderProperties recommenderProperties;
 
     private final SourceDocument currentDocument;
     private final int predictionBegin;
@@ -99,6 +109,9 @@ public class PredictionTask
 
     private Predictions predictions;
 
+    // Engines which are not thread-safe must not predict concurrently for the same recommender
+    private final Map<Long, Object> predictionLocks = new ConcurrentHashMap<>();
+
     public PredictionTask(Builder<? extends Builder<?>> aBuilder)
     {
         super(aBuilder.withType(TYPE).withCancellable(true));
@@ -216,6 +229,13 @@ public class PredictionTask
         var incomingPredictions = activePredictions != null ? new Predictions(activePredictions)
                 : new Predictions(sessionOwner, dataOwner, project);
 
+        var parallelism = recommenderProperties.getPredictionParallelism();
+        if (parallelism > 1 && aDocuments.size() > 1) {
+            generatePredictionsOnAllDocumentsInParallel(activePredictions, incomingPredictions,
+                    aDocuments, parallelism);
+            return incomingPredictions;
+        }
+
         var maxProgress = aDocuments.size();
         var progress = 0;
 
@@ -243,6 +263,66 @@ public class PredictionTask
         }
     }
 
+    /**
+     * Generate predictions for all documents using a pool of worker threads. Each worker owns a
+     * prediction CAS and keeps taking documents from a shared queue until all documents have been
+     * processed or the task is cancelled. The workers add their suggestions directly to the
+     * incoming predictions.
+     */
+    private void generatePredictionsOnAllDocumentsInParallel(Predictions aActivePredictions,
+            Predictions aIncomingPredictions, List<SourceDocument> aDocuments, int aParallelism)
+    {
+        var monitor = getMonitor();
+        var maxProgress = aDocuments.size();
+        var progress = new AtomicInteger();
+        var queue = new ConcurrentLinkedQueue<>(aDocuments);
+
+        var threadFactory = new BasicThreadFactory.Builder() //
+                .daemon(true) //
+                .namingPattern("prediction-" + getProject().getId() + "-%d") //
+                .build();
+        var executor = Executors.newFixedThreadPool(aParallelism, threadFactory);
+        try {
+            var workers = new ArrayList<Future<?>>();
+            for (int i = 0; i < Math.min(aParallelism, aDocuments.size()); i++) {
+                workers.add(executor.submit(() -> {
+                    try (var session = CasStorageSession.openNested();
+                            var casHolder = new PredictionCasHolder()) {
+                        SourceDocument document;
+                        while (!monitor.isCancelled() && (document = queue.poll()) != null) {
+                            applyActiveRecommendersToDocument(aActivePredictions,
+                                    aIncomingPredictions, casHolder.cas, document, -1, -1);
+                            monitor.setProgressWithMessage(progress.incrementAndGet(),
+                                    maxProgress, LogMessage.info(this, "%s", document.getName()));
+                        }
+                    }
+                    catch (ResourceInitializationException e) {
+                        logErrorCreationPredictionCas(aIncomingPredictions);
+                    }
+                }));
+            }
+
+            for (var worker : workers) {
+                worker.get();
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        monitor.setProgressWithMessage(progress.get(), maxProgress,
+                LogMessage.info(this, "%d documents processed", progress.get()));
+    }
+
     /**
      * Generate predictions for a single document. Any predictions available for other documents are
      * inherited.
@@ -662,8 +742,17 @@ public class PredictionTask
     {
         logStartGeneratingPredictions(aIncomingPredictions, aEngine.getRecommender());
 
-        return aEngine.predict(aCtx, aPredictionCas, aPredictionRange.getBegin(),
-                aPredictionRange.getEnd());
+        if (aEngine.isThreadSafe()) {
+            return aEngine.predict(aCtx, aPredictionCas, aPredictionRange.getBegin(),
+                    aPredictionRange.getEnd());
+        }
+
+        var lock = predictionLocks.computeIfAbsent(aEngine.getRecommender().getId(),
+                $ -> new Object());
+        synchronized (lock) {
+            return aEngine.predict(aCtx, aPredictionCas, aPredictionRange.getBegin(),
+                    aPredictionRange.getEnd());
+        }
     }
 
     private void calculateVisibility(Predictions aIncomingPredictions, RecommendationEngine aEngine,
@@ -17,6 +17,8 @@
  */
 package de.tudarmstadt.ukp.inception.recommendation.tasks;
 
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode.SHARED_READ_ONLY_ACCESS;
+import static de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasUpgradeMode.AUTO_CAS_UPGRADE;
 import static de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService.FEATURE_NAME_AUTO_ACCEPT_MODE_SUFFIX;
 import static de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService.FEATURE_NAME_IS_PREDICTION;
 import static de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService.FEATURE_NAME_SCORE_EXPLANATION_SUFFIX;
@@ -27,10 +29,19 @@ import static org.apache.uima.util.TypeSystemUtil.typeSystem2TypeSystemDescripti
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.uima.cas.CAS;
 import org.apache.uima.cas.Feature;
@@ -38,8 +49,10 @@ import org.apache.uima.resource.metadata.TypeSystemDescription;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 
 import de.tudarmstadt.ukp.clarin.webanno.api.casstorage.CasAccessMode;
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationFeature;
@@ -50,13 +63,29 @@ import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
 import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
 import de.tudarmstadt.ukp.inception.annotation.layer.span.SpanLayerSupport;
 import de.tudarmstadt.ukp.inception.annotation.storage.CasStorageSession;
+import de.tudarmstadt.ukp.inception.documents.api.DocumentService;
+import de.tudarmstadt.ukp.inception.documents.api.RepositoryPropertiesImpl;
+import de.tudarmstadt.ukp.inception.recommendation.api.RecommendationService;
+import de.tudarmstadt.ukp.inception.recommendation.api.SuggestionSupport;
+import de.tudarmstadt.ukp.inception.recommendation.api.SuggestionSupportRegistry;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.AnnotationSuggestion;
+import de.tudarmstadt.ukp.inception.recommendation.api.model.EvaluatedRecommender;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Offset;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Predictions;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.Recommender;
 import de.tudarmstadt.ukp.inception.recommendation.api.model.SpanSuggestion;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.ExtractionContext;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngine;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationEngineFactory;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommendationException;
+import de.tudarmstadt.ukp.inception.recommendation.api.recommender.RecommenderContext;
+import de.tudarmstadt.ukp.inception.recommendation.config.RecommenderPropertiesImpl;
+import de.tudarmstadt.ukp.inception.recommendation.event.RecommenderTaskNotificationEvent;
 import de.tudarmstadt.ukp.inception.rendering.model.Range;
+import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.schema.service.AnnotationSchemaServiceImpl;
+import de.tudarmstadt.ukp.inception.support.logging.LogLevel;
+import de.tudarmstadt.ukp.inception.support.logging.LogMessage;
 
 @ExtendWith(MockitoExtension.class)
 class PredictionTaskTest
@@ -64,6 +93,15 @@ class PredictionTaskTest
     private static final String TRIGGER = "test";
     private static final String DATA_OWNER = "user";
 
+    private @Mock RecommendationService recommendationService;
+    private @Mock DocumentService documentService;
+    private @Mock SuggestionSupportRegistry suggestionSupportRegistry;
+    private @Mock SuggestionSupport suggestionSupport;
+    private @Mock RecommendationEngineFactory<?> factory;
+    private @Mock RecommendationEngine engine;
+
+    private final Set<String> predictingThreads = ConcurrentHashMap.newKeySet();
+
     private User sessionOwner;
     private Project project;
     private SourceDocument document;
@@ -74,7 +112,7 @@ class PredictionTaskTest
     void setup()
     {
         sessionOwner = User.builder().withUsername("user").build();
-        project = Project.builder().build();
+        project = Project.builder().withId(1l).build();
         document = SourceDocument.builder().withId(1l).withName("doc1").withProject(project)
                 .build();
         layer = AnnotationLayer.builder().withId(1l).forJCasClass(NamedEntity.class)
@@ -171,4 +209,155 @@ class PredictionTaskTest
                         AnnotationSuggestion::getAge) //
                 .containsExactlyInAnyOrder(tuple(0, "aged", 1), tuple(3, "added", 0));
     }
+
+    @Test
+    void thatParallelPredictionMatchesSequentialPrediction() throws Exception
+    {
+        var rec = Recommender.builder().withId(1l).withName("rec").withLayer(layer)
+                .withFeature(feature).build();
+
+        var documents = new ArrayList<SourceDocument>();
+        for (var i = 0; i < 6; i++) {
+            documents.add(SourceDocument.builder().withId(i + 1l).withName("doc" + i)
+                    .withProject(project).build());
+        }
+        var failingDocument = documents.get(3);
+
+        var schemaService = Mockito.mock(AnnotationSchemaServiceImpl.class);
+        var typeSystem = typeSystem2TypeSystemDescription(createText("").getTypeSystem());
+        when(schemaService.getLayer(layer.getId())).thenReturn(layer);
+        when(schemaService.getFullProjectTypeSystem(project)).thenReturn(typeSystem);
+        when(schemaService.listAnnotationFeature(project)).thenReturn(asList(feature));
+        doCallRealMethod().when(schemaService).upgradeCas(any(CAS.class), any(CAS.class),
+                any(TypeSystemDescription.class));
+
+        when(documentService.listSourceDocuments(project)).thenReturn(documents);
+        when(documentService.readAnnotationCas(any(SourceDocument.class), eq(DATA_OWNER),
+                eq(AUTO_CAS_UPGRADE), eq(SHARED_READ_ONLY_ACCESS))) //
+                        .thenAnswer(call -> createText(call.<SourceDocument> getArgument(0)
+                                .getName()).getCas());
+
+        when(recommendationService.isPredictForAllDocuments(sessionOwner.getUsername(), project))
+                .thenReturn(true);
+        when(recommendationService.getActiveRecommenders(sessionOwner, project))
+                .thenReturn(asList(EvaluatedRecommender.makeActiveWithoutEvaluation(rec, "")));
+        when(recommendationService.getRecommender(rec.getId())).thenReturn(rec);
+        when(recommendationService.getContext(sessionOwner.getUsername(), rec))
+                .thenReturn(Optional.of(RecommenderContext.emptyContext()));
+        doReturn(Optional.of(factory)).when(recommendationService).getRecommenderFactory(rec);
+
+        when(factory.accepts(layer, feature)).thenReturn(true);
+        when(factory.build(rec)).thenReturn(engine);
+        when(engine.getRecommender()).thenReturn(rec);
+        when(engine.isReadyForPrediction(any())).thenReturn(true);
+        when(engine.predict(any(), any(), anyInt(), anyInt())).thenAnswer(call -> {
+            predictingThreads.add(Thread.currentThread().getName());
+            if (failingDocument.getName().equals(call.<CAS> getArgument(1).getDocumentText())) {
+                throw new RecommendationException("Prediction failed");
+            }
+            return new Range(call.<Integer> getArgument(2), call.<Integer> getArgument(3));
+        });
+
+        doReturn(Optional.of(suggestionSupport)).when(suggestionSupportRegistry)
+                .findGenericExtension(rec);
+        when(suggestionSupport.extractSuggestions(any())).thenAnswer(call -> {
+            var ctx = call.<ExtractionContext> getArgument(0);
+            return asList(SpanSuggestion.builder() //
+                    .withId(AnnotationSuggestion.NEW_ID) //
+                    .withPosition(0, ctx.getDocumentText().length()) //
+                    .withDocument(ctx.getDocument()) //
+                    .withLabel(ctx.getDocumentText()) //
+                    .withRecommender(ctx.getRecommender()) //
+                    .build());
+        });
+
+        var sequential = runPredictionOnAllDocuments(schemaService, 1);
+        var parallel = runPredictionOnAllDocuments(schemaService, 3);
+
+        assertThat(sequential.threads()).containsExactly(Thread.currentThread().getName());
+        assertThat(parallel.threads()).isNotEmpty() //
+                .allMatch(name -> name.startsWith("prediction-" + project.getId() + "-"));
+
+        for (var document : documents) {
+            assertThat(parallel.predictions().hasRunPredictionOnDocument(document)) //
+                    .isEqualTo(sequential.predictions().hasRunPredictionOnDocument(document)) //
+                    .isTrue();
+            assertThat(suggestions(parallel.predictions(), document)) //
+                    .containsExactlyInAnyOrderElementsOf(
+                            suggestions(sequential.predictions(), document));
+        }
+
+        assertThat(suggestions(sequential.predictions(), failingDocument)).isEmpty();
+        assertThat(sequential.predictions().size()).isEqualTo(documents.size() - 1);
+        assertThat(parallel.predictions().size()).isEqualTo(sequential.predictions().size());
+
+        assertThat(errors(parallel.predictions().getLog())) //
+                .containsExactlyInAnyOrderElementsOf(errors(sequential.predictions().getLog())) //
+                .containsExactly("Failed: Prediction failed");
+        assertThat(errors(parallel.notifications())) //
+                .containsExactlyInAnyOrderElementsOf(errors(sequential.notifications())) //
+                .containsExactly("Recommender [rec] failed: Prediction failed");
+    }
+
+    private PredictionRun runPredictionOnAllDocuments(AnnotationSchemaService aSchemaService,
+            int aParallelism)
+    {
+        var recommenderProperties = new RecommenderPropertiesImpl();
+        recommenderProperties.setPredictionParallelism(aParallelism);
+
+        var notifications = new CopyOnWriteArrayList<LogMessage>();
+        predictingThreads.clear();
+
+        try (var context = new AnnotationConfigApplicationContext()) {
+            context.getBeanFactory().registerSingleton("schemaService", aSchemaService);
+            context.getBeanFactory().registerSingleton("recommendationService",
+                    recommendationService);
+            context.getBeanFactory().registerSingleton("documentService", documentService);
+            context.getBeanFactory().registerSingleton("suggestionSupportRegistry",
+                    suggestionSupportRegistry);
+            context.getBeanFactory().registerSingleton("recommenderProperties",
+                    recommenderProperties);
+            context.getBeanFactory().registerSingleton("repositoryProperties",
+                    new RepositoryPropertiesImpl());
+            context.addApplicationListener(event -> {
+                if (event instanceof RecommenderTaskNotificationEvent notification) {
+                    notifications.add(notification.getMessage());
+                }
+            });
+            context.refresh();
+
+            var sut = PredictionTask.builder() //
+                    .withSessionOwner(sessionOwner) //
+                    .withTrigger(TRIGGER) //
+                    .withCurrentDocument(document) //
+                    .withDataOwner(DATA_OWNER) //
+                    .build();
+            context.getAutowireCapableBeanFactory().autowireBean(sut);
+            sut.afterPropertiesSet();
+            sut.execute();
+
+            return new PredictionRun(sut.getPredictions(), notifications,
+                    Set.copyOf(predictingThreads));
+        }
+    }
+
+    private static List<String> suggestions(Predictions aPredictions, SourceDocument aDocument)
+    {
+        return aPredictions.getPredictionsByDocument(aDocument.getName()).stream() //
+                .map(s -> s.getDocumentName() + ":" + s.getLabel() + "@" + s.getWindowBegin()
+                        + "-" + s.getWindowEnd()) //
+                .toList();
+    }
+
+    private static List<String> errors(List<LogMessage> aMessages)
+    {
+        return aMessages.stream() //
+                .filter(m -> m.getLevel() == LogLevel.ERROR) //
+                .map(LogMessage::getMessage) //
+                .toList();
+    }
+
+    private record PredictionRun(Predictions predictions, List<LogMessage> notifications,
+            Set<String> threads)
+    {}
 }
@@ -37,6 +37,12 @@ public abstract class DebouncingTask
         return System.currentTimeMillis() > runnableAfter;
     }
 
+    @Override
+    public long getEarliestStartTime()
+    {
+        return runnableAfter + 1;
+    }
+
     public static abstract class Builder<T extends Builder<?>>
         extends Task.Builder<T>
     {
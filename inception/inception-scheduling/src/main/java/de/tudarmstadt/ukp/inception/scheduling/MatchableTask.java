@@ -17,6 +17,18 @@
  */
 package de.tudarmstadt.ukp.inception.scheduling;
 
+import static java.util.Collections.emptySet;
+
+import java.util.Set;
+
+/**
+ * A task which decides itself which other tasks it is a duplicate of.
+ * <p>
+ * The scheduler only checks an incoming task against tasks of the same project. To avoid checking
+ * every such task, a task should declare the {@link #getMatchableTypes() types} and the
+ * {@link #getMatchKeys() keys} of the tasks it may match. If it declares neither, it is checked
+ * against all tasks of its project.
+ */
 public interface MatchableTask
 {
     /**
@@ -28,4 +40,23 @@ public interface MatchableTask
      * @return whether the given task matches this one
      */
     MatchResult matches(Task aTask);
+
+    /**
+     * @return the types of tasks which this task may match. All tasks of these types in the same
+     *         project are checked.
+     */
+    default Set<String> getMatchableTypes()
+    {
+        return emptySet();
+    }
+
+    /**
+     * @return keys identifying the subject of this task, e.g. the document it processes. Tasks of
+     *         the same project sharing at least one key are checked against each other. This allows
+     *         finding a task for the same subject without checking all tasks of the same type.
+     */
+    default Set<Object> getMatchKeys()
+    {
+        return emptySet();
+    }
 }
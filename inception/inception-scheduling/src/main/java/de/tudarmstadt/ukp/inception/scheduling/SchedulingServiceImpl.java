@@ -21,22 +21,26 @@ import static de.tudarmstadt.ukp.inception.scheduling.MatchResult.NO_MATCH;
 import static de.tudarmstadt.ukp.inception.scheduling.MatchResult.UNQUEUE_EXISTING_AND_QUEUE_THIS;
 import static java.lang.System.currentTimeMillis;
 import static java.lang.System.identityHashCode;
+import static java.util.Comparator.comparingLong;
 import static java.util.concurrent.TimeUnit.SECONDS;
 
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeoutException;
@@ -63,6 +67,21 @@ import de.tudarmstadt.ukp.inception.scheduling.config.SchedulingProperties;
 import de.tudarmstadt.ukp.inception.scheduling.config.SchedulingServiceAutoConfiguration;
 
 /**
+ * <p>
+ * Enqueued tasks and tasks which have been handed to the executor are kept in {@link TaskIndex
+ * indexes}, so finding duplicates of an incoming task does not require checking every queued task.
+ * The indexes are guarded by a dedicated lock which is only held while the indexes are inspected or
+ * updated. Initializing tasks and handing them to the executor happens outside this lock. Tasks
+ * which are being initialized are tracked separately until they have been handed to the executor,
+ * so stopping them does not need to guess which active tasks have already reached a worker.
+ * </p>
+ * <p>
+ * Each enqueued task is also recorded with the reason it is waiting for: tasks which are not ready
+ * to start are ordered by the time at which they may become ready, tasks for which an equal task is
+ * active are grouped by that task and tasks of suspended projects are grouped by project. All other
+ * enqueued tasks are ready to be handed to the executor. When a task ends or a project is resumed,
+ * only the tasks waiting for this are checked again, so scheduling does not scan the whole queue.
+ * </p>
  * <p>
  * This class is exposed as a Spring Component via
  * {@link SchedulingServiceAutoConfiguration#schedulingService}.
@@ -78,8 +97,15 @@ public class SchedulingServiceImpl
     private final ScheduledExecutorService watchdog;
     private final SessionRegistry sessionRegistry;
 
+    private final Object queueLock = new Object();
+    private final TaskIndex enqueuedTasks;
+    private final Map<TaskHandle, Task> readyTasks;
+    private final NavigableSet<Task> delayedTasks;
+    private final Map<Task, Map<TaskHandle, Task>> blockedTasks;
+    private final Map<Project, Map<TaskHandle, Task>> suspendedTasks;
+    private final TaskIndex activeTasks;
+    private final Map<TaskHandle, Task> handoffPending;
     private final List<Task> runningTasks;
-    private final List<Task> enqueuedTasks;
     private final List<Task> pendingAcknowledgement;
     private final Set<Project> deletionPending;
     private final Map<Project, AtomicInteger> suspended;
@@ -93,7 +119,14 @@ public class SchedulingServiceImpl
         executor = new InspectableThreadPoolExecutor(aConfig.getNumberOfThreads(),
                 aConfig.getQueueSize(), this::beforeExecute, this::afterExecute);
         runningTasks = Collections.synchronizedList(new ArrayList<>());
-        enqueuedTasks = Collections.synchronizedList(new ArrayList<>());
+        enqueuedTasks = new TaskIndex();
+        readyTasks = new LinkedHashMap<>();
+        delayedTasks = new TreeSet<>(comparingLong(Task::getEarliestStartTime) //
+                .thenComparingInt(Task::getId));
+        blockedTasks = new HashMap<>();
+        suspendedTasks = new HashMap<>();
+        activeTasks = new TaskIndex();
+        handoffPending = new LinkedHashMap<>();
         pendingAcknowledgement = Collections.synchronizedList(new ArrayList<>());
         deletionPending = Collections.synchronizedSet(new LinkedHashSet<>());
         suspended = Collections.synchronizedMap(new LinkedHashMap<>());
@@ -134,6 +167,10 @@ public class SchedulingServiceImpl
             runningTasks.remove(aTask);
         }
 
+        synchronized (queueLock) {
+            deactivate(aTask);
+        }
+
         if (aTask.getMonitor().isCancelled() || !aTask.getScope().isDestroyOnEnd()) {
             pendingAcknowledgement.add(aTask);
         }
@@ -148,9 +185,9 @@ public class SchedulingServiceImpl
     @Override
     public List<Task> getEnqueuedTasks()
     {
-        // We return copy here, as else the list the receiver sees might be updated
-        // when new tasks are running or existing ones stopped.
-        return new ArrayList<>(enqueuedTasks);
+        synchronized (queueLock) {
+            return enqueuedTasks.list();
+        }
     }
 
     /**
@@ -222,7 +259,7 @@ public class SchedulingServiceImpl
      *            the task to be enqueued.
      */
     @Override
-    public synchronized void enqueue(Task aTask)
+    public void enqueue(Task aTask)
     {
         Validate.notNull(aTask, "Task cannot be null");
 
@@ -232,53 +269,59 @@ public class SchedulingServiceImpl
             return;
         }
 
-        var tasksToUnqueue = new ArrayList<Task>();
-        for (var enqueuedTask : enqueuedTasks) {
-            switch (matchTask(aTask, enqueuedTask)) {
-            case DISCARD_OR_QUEUE_THIS:
-                // Check if the incoming task should be discarded
-                LOG.debug("Matching task already queued - keeping existing: [{}] and discarding "
-                        + "incoming [{}]", enqueuedTask, aTask);
-                return;
-            case UNQUEUE_EXISTING_AND_QUEUE_THIS:
-                // Check if any existing tasks should be replaced with the new incoming task (i.e.
-                // the incoming task supersedes them).
-                tasksToUnqueue.add(enqueuedTask);
-                break;
-            case NO_MATCH:
-                // Ignore
-                break;
+        synchronized (queueLock) {
+            var tasksToUnqueue = new ArrayList<Task>();
+            for (var enqueuedTask : enqueuedTasks.candidates(aTask)) {
+                switch (matchTask(aTask, enqueuedTask)) {
+                case DISCARD_OR_QUEUE_THIS:
+                    // Check if the incoming task should be discarded
+                    LOG.debug("Matching task already queued - keeping existing: [{}] and "
+                            + "discarding incoming [{}]", enqueuedTask, aTask);
+                    return;
+                case UNQUEUE_EXISTING_AND_QUEUE_THIS:
+                    // Check if any existing tasks should be replaced with the new incoming task
+                    // (i.e. the incoming task supersedes them).
+                    tasksToUnqueue.add(enqueuedTask);
+                    break;
+                case NO_MATCH:
+                    // Ignore
+                    break;
+                }
             }
-        }
 
-        for (var taskToUnqueue : tasksToUnqueue) {
-            LOG.debug("Matching task already queued - unqueuing exsting: [{}] in favor of "
-                    + "incoming [{}]", taskToUnqueue, aTask);
-            enqueuedTasks.remove(taskToUnqueue);
-        }
+            for (var taskToUnqueue : tasksToUnqueue) {
+                LOG.debug("Matching task already queued - unqueuing exsting: [{}] in favor of "
+                        + "incoming [{}]", taskToUnqueue, aTask);
+                unqueue(taskToUnqueue);
+            }
 
-        if (containsMatchingTask(getScheduledTasks(), aTask)) {
-            LOG.debug("Matching task already scheduled - adding to queue: [{}]", aTask);
-            enqueuedTasks.add(aTask);
-            return;
-        }
+            if (containsMatchingTask(activeTasks, aTask)) {
+                LOG.debug("Matching task already scheduled or running - adding to queue: [{}]",
+                        aTask);
+                queue(aTask);
+                return;
+            }
 
-        if (containsMatchingTask(getRunningTasks(), aTask)) {
-            LOG.debug("Matching task already running - adding to queue: [{}]", aTask);
-            enqueuedTasks.add(aTask);
-            return;
-        }
+            if (!aTask.isReadyToStart()) {
+                LOG.debug("Task not yet ready to start - adding to queue: [{}]", aTask);
+                queue(aTask);
+                return;
+            }
 
-        if (!aTask.isReadyToStart()) {
-            LOG.debug("Task not yet ready to start - adding to queue: [{}]", aTask);
-            enqueuedTasks.add(aTask);
-            return;
-        }
+            if (aTask.getProject() != null && suspended.containsKey(aTask.getProject())) {
+                LOG.debug("Tasks for project suspended - adding to queue: [{}]", aTask);
+                queue(aTask);
+                return;
+            }
 
-        if (aTask.getProject() != null && suspended.containsKey(aTask.getProject())) {
-            LOG.debug("Tasks for project suspended - adding to queue: [{}]", aTask);
-            enqueuedTasks.add(aTask);
-            return;
+            if (executor.getQueue().remainingCapacity() == 0) {
+                LOG.debug("Executor queue is full - adding to queue: [{}]", aTask);
+                queue(aTask);
+                return;
+            }
+
+            activeTasks.add(aTask);
+            handoffPending.put(aTask.getHandle(), aTask);
         }
 
         schedule(aTask);
@@ -345,6 +388,7 @@ public class SchedulingServiceImpl
     @Override
     public void resumeTasks(Project aProject)
     {
+        var resumed = false;
         synchronized (suspended) {
             var suspendCount = suspended.get(aProject);
             if (suspendCount != null) {
@@ -352,10 +396,23 @@ public class SchedulingServiceImpl
                         suspendCount);
                 if (suspendCount.decrementAndGet() == 0) {
                     suspended.remove(aProject);
-                    scheduleEligibleTasks();
+                    resumed = true;
                 }
             }
         }
+
+        // Must not be called while holding the lock on the suspended projects as it acquires the
+        // queue lock which in turn may be held while checking the suspended projects.
+        if (resumed) {
+            synchronized (queueLock) {
+                var waitingTasks = suspendedTasks.remove(aProject);
+                if (waitingTasks != null) {
+                    waitingTasks.values().forEach(this::await);
+                }
+            }
+
+            scheduleEligibleTasks();
+        }
     }
 
     @Override
@@ -382,17 +439,19 @@ public class SchedulingServiceImpl
         return aTask.equals(aEnqueueTask) ? UNQUEUE_EXISTING_AND_QUEUE_THIS : NO_MATCH;
     }
 
-    private boolean containsMatchingTask(Collection<Task> aTasks, Task aTask)
+    private boolean containsMatchingTask(TaskIndex aTasks, Task aTask)
     {
         if (aTask instanceof MatchableTask task) {
-            return aTasks.stream().anyMatch(t -> task.matches(t) != NO_MATCH);
+            return aTasks.candidates(aTask).stream().anyMatch(t -> task.matches(t) != NO_MATCH);
         }
 
-        return aTasks.contains(aTask);
+        return aTasks.containsEqual(aTask);
     }
 
     /**
      * Send a task to the scheduler. Once a task has been scheduled, it will be executed eventually.
+     * The task must already have been added to the active tasks and to the tasks pending handoff.
+     * It must be called without holding the queue lock.
      * 
      * @param aTask
      *            the task to be scheduled.
@@ -411,10 +470,109 @@ public class SchedulingServiceImpl
             LOG.error("Error initializing task [{}]", aTask, e);
         }
 
-        executor.execute(aTask);
+        synchronized (queueLock) {
+            if (handoffPending.remove(aTask.getHandle()) == null) {
+                // The task has been stopped while it was being initialized
+                LOG.debug("Task stopped before it could be scheduled: [{}]", aTask);
+                aTask.destroy();
+                return;
+            }
+
+            try {
+                executor.execute(aTask);
+            }
+            catch (RejectedExecutionException e) {
+                LOG.debug("Executor rejected task - adding to queue: [{}]", aTask);
+                deactivate(aTask);
+                queue(aTask);
+            }
+        }
+    }
+
+    /**
+     * Adds a task to the queue. Must be called while holding the queue lock.
+     */
+    private void queue(Task aTask)
+    {
+        enqueuedTasks.add(aTask);
+        await(aTask);
+    }
+
+    /**
+     * Removes a task from the queue. Must be called while holding the queue lock.
+     */
+    private void unqueue(Task aTask)
+    {
+        enqueuedTasks.remove(aTask);
+        stopWaiting(aTask);
+    }
+
+    /**
+     * Records what an enqueued task is waiting for. The task is only checked again once the reason
+     * for waiting may have gone away. Must be called while holding the queue lock.
+     */
+    private void await(Task aTask)
+    {
+        if (!aTask.isReadyToStart()) {
+            delayedTasks.add(aTask);
+        }
+        else if (activeTasks.containsEqual(aTask)) {
+            waitFor(blockedTasks, aTask, aTask);
+        }
+        else if (isSuspended(aTask)) {
+            waitFor(suspendedTasks, aTask.getProject(), aTask);
+        }
+        else {
+            readyTasks.put(aTask.getHandle(), aTask);
+        }
+    }
+
+    private void stopWaiting(Task aTask)
+    {
+        readyTasks.remove(aTask.getHandle());
+        delayedTasks.remove(aTask);
+        stopWaitingFor(blockedTasks, aTask, aTask);
+        stopWaitingFor(suspendedTasks, aTask.getProject(), aTask);
     }
 
-    private synchronized void cleanUpTasks()
+    /**
+     * Removes a task from the active tasks. Queued tasks which are equal to it are checked again
+     * unless another equal task is still active. Must be called while holding the queue lock.
+     */
+    private void deactivate(Task aTask)
+    {
+        activeTasks.remove(aTask);
+
+        if (!activeTasks.containsEqual(aTask)) {
+            var waitingTasks = blockedTasks.remove(aTask);
+            if (waitingTasks != null) {
+                waitingTasks.values().forEach(this::await);
+            }
+        }
+    }
+
+    private boolean isSuspended(Task aTask)
+    {
+        return aTask.getProject() != null && suspended.containsKey(aTask.getProject());
+    }
+
+    private static <K> void waitFor(Map<K, Map<TaskHandle, Task>> aWaitingTasks, K aReason,
+            Task aTask)
+    {
+        aWaitingTasks.computeIfAbsent(aReason, k -> new LinkedHashMap<>()) //
+                .put(aTask.getHandle(), aTask);
+    }
+
+    private static <K> void stopWaitingFor(Map<K, Map<TaskHandle, Task>> aWaitingTasks,
+            K aReason, Task aTask)
+    {
+        var tasks = aWaitingTasks.get(aReason);
+        if (tasks != null && tasks.remove(aTask.getHandle()) != null && tasks.isEmpty()) {
+            aWaitingTasks.remove(aReason);
+        }
+    }
+
+    private void cleanUpTasks()
     {
         // var activeSessionCount = 0;
         var activeUsers = new HashSet<String>();
@@ -448,28 +606,45 @@ public class SchedulingServiceImpl
         logState();
     }
 
-    private synchronized void scheduleEligibleTasks()
+    private void scheduleEligibleTasks()
     {
-        var i = enqueuedTasks.iterator();
+        var tasksToSchedule = new ArrayList<Task>();
 
-        while (i.hasNext()) {
-            var t = i.next();
-            if (!t.isReadyToStart()) {
-                continue;
-            }
-
-            if (getScheduledAndRunningTasks().contains(t)) {
-                continue;
+        synchronized (queueLock) {
+            // Only the tasks which may have become ready to start by now are checked again
+            var now = currentTimeMillis();
+            var dueTasks = new ArrayList<Task>();
+            while (!delayedTasks.isEmpty() && delayedTasks.first().getEarliestStartTime() <= now) {
+                dueTasks.add(delayedTasks.pollFirst());
             }
+            dueTasks.forEach(this::await);
+
+            var capacity = executor.getQueue().remainingCapacity();
+
+            // Stop looking at the ready tasks as soon as the executor queue would be full
+            var tasksToWait = new ArrayList<Task>();
+            for (var i = readyTasks.values().iterator(); i.hasNext()
+                    && tasksToSchedule.size() < capacity;) {
+                var t = i.next();
+                i.remove();
+
+                // An equal task may have been started or the project may have been suspended
+                // since the task became ready
+                if (activeTasks.containsEqual(t) || isSuspended(t)) {
+                    tasksToWait.add(t);
+                    continue;
+                }
 
-            if (t.getProject() != null && suspended.containsKey(t.getProject())) {
-                continue;
+                enqueuedTasks.remove(t);
+                activeTasks.add(t);
+                handoffPending.put(t.getHandle(), t);
+                tasksToSchedule.add(t);
             }
-
-            i.remove();
-            schedule(t);
+            tasksToWait.forEach(this::await);
         }
 
+        tasksToSchedule.forEach(this::schedule);
+
         logState();
     }
 
@@ -503,41 +678,59 @@ public class SchedulingServiceImpl
     }
 
     @Override
-    public synchronized Optional<Task> findTask(Predicate<Task> aPredicate)
-    {
-        return enqueuedTasks.stream().filter(aPredicate).findFirst() //
-                .or(() -> executor.getQueue().stream().map(Task.class::cast).filter(aPredicate)
-                        .findFirst())
-                .or(() -> runningTasks.stream().filter(aPredicate).findFirst())
-                .or(() -> pendingAcknowledgement.stream().filter(aPredicate).findFirst());
+    public Optional<Task> findTask(Predicate<Task> aPredicate)
+    {
+        synchronized (queueLock) {
+            return enqueuedTasks.list().stream().filter(aPredicate).findFirst() //
+                    .or(() -> executor.getQueue().stream().map(Task.class::cast)
+                            .filter(aPredicate).findFirst())
+                    .or(() -> getRunningTasks().stream().filter(aPredicate).findFirst())
+                    .or(() -> getTasksPendingAcknowledgment().stream().filter(aPredicate)
+                            .findFirst());
+        }
     }
 
     @Override
-    public synchronized void stopAllTasksMatching(Predicate<Task> aPredicate)
-    {
-        enqueuedTasks.removeIf(task -> {
-            if (aPredicate.test(task)) {
-                task.destroy();
-                return true;
+    public void stopAllTasksMatching(Predicate<Task> aPredicate)
+    {
+        synchronized (queueLock) {
+            for (var i = enqueuedTasks.iterator(); i.hasNext();) {
+                var task = i.next();
+                if (aPredicate.test(task)) {
+                    i.remove();
+                    stopWaiting(task);
+                    task.destroy();
+                }
             }
-            return false;
-        });
 
-        executor.getQueue().removeIf(runnable -> {
-            var task = (Task) runnable;
-            if (aPredicate.test(task)) {
-                task.destroy();
-                return true;
+            executor.getQueue().removeIf(runnable -> {
+                var task = (Task) runnable;
+                if (aPredicate.test(task)) {
+                    deactivate(task);
+                    task.destroy();
+                    return true;
+                }
+                return false;
+            });
+
+            for (var i = handoffPending.values().iterator(); i.hasNext();) {
+                var task = i.next();
+                if (aPredicate.test(task)) {
+                    // The task is still being initialized - schedule() will destroy it
+                    i.remove();
+                    deactivate(task);
+                }
             }
-            return false;
-        });
 
-        runningTasks.forEach(task -> {
-            if (aPredicate.test(task)) {
-                task.getMonitor().cancel();
-                // The task will be destroyed if necessary by the afterExecute callback
+            // All remaining active tasks have been handed to a worker thread - they are either
+            // running already or they are about to be started
+            for (var task : activeTasks) {
+                if (aPredicate.test(task)) {
+                    task.getMonitor().cancel();
+                    // The task will be destroyed if necessary by the afterExecute callback
+                }
             }
-        });
+        }
 
         pendingAcknowledgement.removeIf(runnable -> {
             var task = (Task) runnable;
@@ -631,8 +824,16 @@ public class SchedulingServiceImpl
         watchdog.shutdownNow();
         executor.shutdownNow();
 
-        enqueuedTasks.clear();
-        executor.getQueue().clear();
+        synchronized (queueLock) {
+            enqueuedTasks.clear();
+            readyTasks.clear();
+            delayedTasks.clear();
+            blockedTasks.clear();
+            suspendedTasks.clear();
+            activeTasks.clear();
+            handoffPending.clear();
+            executor.getQueue().clear();
+        }
         pendingAcknowledgement.clear();
 
         try {
@@ -676,6 +877,9 @@ public class SchedulingServiceImpl
             factory.initializeBean(aTask, "transientTask");
 
             LOG.debug("Starting task (sync): {} ", aTask);
+            synchronized (queueLock) {
+                activeTasks.add(aTask);
+            }
             runningTasks.add(aTask);
             aTask.runSync();
         }
@@ -166,6 +166,17 @@ public abstract class Task
         return true;
     }
 
+    /**
+     * @return the time (in milliseconds since the epoch) before which the task does not need to be
+     *         checked whether it is {@link #isReadyToStart() ready to start}. A task which is still
+     *         not ready to start after this time is checked again whenever the scheduler looks for
+     *         tasks to start.
+     */
+    public long getEarliestStartTime()
+    {
+        return 0;
+    }
+
     public TaskScope getScope()
     {
         return scope;
@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.scheduling;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.tudarmstadt.ukp.clarin.webanno.model.Project;
+
+/**
+ * Tasks indexed by project, by equality, by type and by the match keys of {@link MatchableTask}s.
+ * This allows finding the tasks an incoming task may match without checking every task. The index
+ * keeps the tasks in the order in which they were added. Iterating over the index does not copy
+ * the tasks and removing a task through the iterator also removes it from all other indexes.
+ * <p>
+ * This class is not thread-safe. Access needs to be synchronized by the caller.
+ */
+class TaskIndex
+    implements Iterable<Task>
+{
+    private final Map<TaskHandle, Task> tasks = new LinkedHashMap<>();
+    private final Map<Project, ProjectTasks> projects = new HashMap<>();
+
+    /**
+     * @param aTask
+     *            the task to add.
+     * @return {@code false} if the task was already part of the index.
+     */
+    boolean add(Task aTask)
+    {
+        if (tasks.putIfAbsent(aTask.getHandle(), aTask) != null) {
+            return false;
+        }
+
+        projects.computeIfAbsent(aTask.getProject(), p -> new ProjectTasks()).add(aTask);
+        return true;
+    }
+
+    /**
+     * @param aTask
+     *            the task to remove.
+     * @return {@code false} if the task was not part of the index.
+     */
+    boolean remove(Task aTask)
+    {
+        if (tasks.remove(aTask.getHandle()) == null) {
+            return false;
+        }
+
+        unindex(aTask);
+        return true;
+    }
+
+    private void unindex(Task aTask)
+    {
+        var projectTasks = projects.get(aTask.getProject());
+        projectTasks.remove(aTask);
+        if (projectTasks.all.isEmpty()) {
+            projects.remove(aTask.getProject());
+        }
+    }
+
+    /**
+     * @return whether the index contains a task which {@link Object#equals equals} the given task.
+     */
+    boolean containsEqual(Task aTask)
+    {
+        var projectTasks = projects.get(aTask.getProject());
+        return projectTasks != null && projectTasks.byEquality.containsKey(aTask);
+    }
+
+    /**
+     * Returns the tasks which the given task may match. If the given task is not a
+     * {@link MatchableTask}, these are the tasks which are equal to it. Otherwise, these are the
+     * tasks of the same project which share a match key with it or which are of one of its
+     * matchable types. If the task declares neither, these are all tasks of the same project.
+     * 
+     * @param aTask
+     *            the incoming task.
+     * @return the candidate tasks in the order in which they were added to the index.
+     */
+    List<Task> candidates(Task aTask)
+    {
+        var projectTasks = projects.get(aTask.getProject());
+        if (projectTasks == null) {
+            return new ArrayList<>();
+        }
+
+        if (!(aTask instanceof MatchableTask task)) {
+            return values(projectTasks.byEquality.get(aTask));
+        }
+
+        var keys = task.getMatchKeys();
+        var types = task.getMatchableTypes();
+        if (keys.isEmpty() && types.isEmpty()) {
+            return values(projectTasks.all);
+        }
+
+        var result = new HashMap<TaskHandle, Task>();
+        for (var key : keys) {
+            putAll(result, projectTasks.byKey.get(key));
+        }
+        for (var type : types) {
+            putAll(result, projectTasks.byType.get(type));
+        }
+
+        var sorted = new ArrayList<>(result.values());
+        sorted.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+        return sorted;
+    }
+
+    /**
+     * @return the tasks in the order in which they were added to the index.
+     */
+    List<Task> list()
+    {
+        return new ArrayList<>(tasks.values());
+    }
+
+    /**
+     * @return an iterator over the tasks in the order in which they were added to the index. The
+     *         iterator supports removing tasks. The index must not be modified otherwise while
+     *         iterating.
+     */
+    @Override
+    public Iterator<Task> iterator()
+    {
+        var i = tasks.values().iterator();
+        return new Iterator<>()
+        {
+            private Task current;
+
+            @Override
+            public boolean hasNext()
+            {
+                return i.hasNext();
+            }
+
+            @Override
+            public Task next()
+            {
+                current = i.next();
+                return current;
+            }
+
+            @Override
+            public void remove()
+            {
+                i.remove();
+                unindex(current);
+                current = null;
+            }
+        };
+    }
+
+    int size()
+    {
+        return tasks.size();
+    }
+
+    boolean isEmpty()
+    {
+        return tasks.isEmpty();
+    }
+
+    void clear()
+    {
+        tasks.clear();
+        projects.clear();
+    }
+
+    private static List<Task> values(Map<TaskHandle, Task> aTasks)
+    {
+        return aTasks != null ? new ArrayList<>(aTasks.values()) : new ArrayList<>();
+    }
+
+    private static void putAll(Map<TaskHandle, Task> aTarget, Map<TaskHandle, Task> aTasks)
+    {
+        if (aTasks != null) {
+            aTarget.putAll(aTasks);
+        }
+    }
+
+    private static class ProjectTasks
+    {
+        private final Map<TaskHandle, Task> all = new LinkedHashMap<>();
+        private final Map<Task, Map<TaskHandle, Task>> byEquality = new HashMap<>();
+        private final Map<String, Map<TaskHandle, Task>> byType = new HashMap<>();
+        private final Map<Object, Map<TaskHandle, Task>> byKey = new HashMap<>();
+
+        private void add(Task aTask)
+        {
+            all.put(aTask.getHandle(), aTask);
+            index(byEquality, aTask, aTask);
+            index(byType, aTask.getType(), aTask);
+            if (aTask instanceof MatchableTask task) {
+                for (var key : task.getMatchKeys()) {
+                    index(byKey, key, aTask);
+                }
+            }
+        }
+
+        private void remove(Task aTask)
+        {
+            all.remove(aTask.getHandle());
+            unindex(byEquality, aTask, aTask);
+            unindex(byType, aTask.getType(), aTask);
+            if (aTask instanceof MatchableTask task) {
+                for (var key : task.getMatchKeys()) {
+                    unindex(byKey, key, aTask);
+                }
+            }
+        }
+
+        private static <K> void index(Map<K, Map<TaskHandle, Task>> aIndex, K aKey, Task aTask)
+        {
+            aIndex.computeIfAbsent(aKey, k -> new LinkedHashMap<>()).put(aTask.getHandle(), aTask);
+        }
+
+        private static <K> void unindex(Map<K, Map<TaskHandle, Task>> aIndex, K aKey, Task aTask)
+        {
+            var tasks = aIndex.get(aKey);
+            if (tasks == null) {
+                return;
+            }
+
+            tasks.remove(aTask.getHandle());
+            if (tasks.isEmpty()) {
+                aIndex.remove(aKey);
+            }
+        }
+    }
+}
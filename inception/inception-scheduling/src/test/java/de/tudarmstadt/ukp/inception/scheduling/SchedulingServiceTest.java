@@ -17,15 +17,29 @@
  */
 package de.tudarmstadt.ukp.inception.scheduling;
 
+import static de.tudarmstadt.ukp.inception.scheduling.MatchResult.NO_MATCH;
+import static de.tudarmstadt.ukp.inception.scheduling.MatchResult.UNQUEUE_EXISTING_AND_QUEUE_THIS;
 import static java.time.Duration.ofSeconds;
 import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -113,6 +127,156 @@ public class SchedulingServiceTest
                 .doesNotContain(tasksToRemove);
     }
 
+    @Test
+    public void thatTasksExceedingTheExecutorQueueAreQueued()
+    {
+        var config = new SchedulingProperties();
+        var tasks = IntStream.range(0, config.getNumberOfThreads() + config.getQueueSize() + 10)
+                .mapToObj(i -> buildDummyTask("user" + i, "project1")) //
+                .toList();
+
+        for (Task task : tasks) {
+            sut.enqueue(task);
+        }
+
+        await().atMost(15, SECONDS)
+                .until(() -> sut.getRunningTasks().size() == config.getNumberOfThreads());
+
+        assertThat(sut.getScheduledTasks()).hasSize(config.getQueueSize());
+        assertThat(sut.getEnqueuedTasks()).hasSize(10);
+    }
+
+    @Test
+    public void thatEnqueuingManyTasksDoesNotCheckAllQueuedTasks() throws Exception
+    {
+        var projects = IntStream.range(0, 10) //
+                .mapToObj(i -> buildProject("project" + i)) //
+                .toList();
+        var taskCount = 100_000;
+        var comparisons = new AtomicLong();
+        var readinessChecks = new AtomicLong();
+
+        var replacedTasks = new ArrayList<TaskHandle>();
+        var replacingTasks = new ArrayList<TaskHandle>();
+        assertTimeoutPreemptively(ofSeconds(30), () -> {
+            for (int i = 0; i < taskCount; i++) {
+                var task = buildMatchableDummyTask(projects.get(i % projects.size()), i,
+                        comparisons, readinessChecks, null);
+                if (i % 100 == 0) {
+                    replacedTasks.add(task.getHandle());
+                }
+                sut.enqueue(task);
+            }
+
+            for (int i = 0; i < taskCount; i += 100) {
+                var task = buildMatchableDummyTask(projects.get(i % projects.size()), i,
+                        comparisons, readinessChecks, null);
+                replacingTasks.add(task.getHandle());
+                sut.enqueue(task);
+            }
+        });
+
+        assertThat(comparisons.get()) //
+                .as("Each replacing task should only be compared to the task it replaces") //
+                .isEqualTo(replacingTasks.size());
+
+        // A task matching a running task has to wait until the running task has ended. It must
+        // only be compared to the running task and the tasks which cannot be ready yet must not be
+        // checked again while it is waiting.
+        readinessChecks.set(0);
+        var runningRelease = new CountDownLatch(1);
+        var waitingRelease = new CountDownLatch(1);
+        var running = buildMatchableDummyTask(projects.get(0), taskCount, comparisons,
+                readinessChecks, runningRelease);
+        var waiting = buildMatchableDummyTask(projects.get(0), taskCount, comparisons,
+                readinessChecks, waitingRelease);
+        try {
+            sut.enqueue(running);
+            await().atMost(15, SECONDS).until(() -> sut.getRunningTasks().contains(running));
+
+            sut.enqueue(waiting);
+            assertThat(sut.getEnqueuedTasks()).contains(waiting);
+            assertThat(comparisons.get()).isEqualTo(replacingTasks.size() + 1);
+
+            runningRelease.countDown();
+            await().atMost(15, SECONDS).until(() -> sut.getRunningTasks().contains(waiting));
+        }
+        finally {
+            runningRelease.countDown();
+            waitingRelease.countDown();
+        }
+
+        assertThat(readinessChecks.get()) //
+                .as("Tasks which cannot be ready yet should not be checked again") //
+                .isZero();
+
+        var enqueuedTasks = sut.getEnqueuedTasks();
+        assertThat(enqueuedTasks) //
+                .as("Matching tasks should have replaced the queued ones") //
+                .hasSize(taskCount) //
+                .extracting(Task::getHandle) //
+                .containsAll(replacingTasks) //
+                .doesNotContainAnyElementsOf(replacedTasks);
+    }
+
+    @Test
+    public void thatTasksStoppedConcurrentlyAreCancelledOrDiscarded() throws Exception
+    {
+        var project = buildProject("project1");
+        var taskCounter = new AtomicInteger();
+        var enqueuingDone = new AtomicBoolean();
+        var uncancelledTasks = ConcurrentHashMap.<Task> newKeySet();
+
+        var threads = Executors.newFixedThreadPool(6);
+        try {
+            var enqueuers = new ArrayList<Future<?>>();
+            for (int n = 0; n < 4; n++) {
+                enqueuers.add(threads.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        sut.enqueue(buildCancellableDummyTask(
+                                "user" + taskCounter.incrementAndGet(), project,
+                                uncancelledTasks));
+                    }
+                    return null;
+                }));
+            }
+
+            var suspender = threads.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    sut.suspendTasks(project);
+                    sut.resumeTasks(project);
+                }
+                return null;
+            });
+
+            var stopper = threads.submit(() -> {
+                while (!enqueuingDone.get()) {
+                    sut.stopAllTasksMatching(t -> true);
+                }
+                return null;
+            });
+
+            for (var enqueuer : enqueuers) {
+                enqueuer.get(60, SECONDS);
+            }
+            suspender.get(60, SECONDS);
+            enqueuingDone.set(true);
+            stopper.get(60, SECONDS);
+        }
+        finally {
+            threads.shutdownNow();
+        }
+
+        // Every task which has reached a worker thread must see the cancellation, all others must
+        // be discarded
+        sut.stopAllTasksMatching(t -> true);
+
+        await().atMost(30, SECONDS).until(() -> sut.getEnqueuedTasks().isEmpty()
+                && sut.getScheduledTasks().isEmpty() && sut.getRunningTasks().isEmpty());
+
+        assertThat(uncancelledTasks).isEmpty();
+    }
+
     private User buildUser(String aUsername)
     {
         return new User(aUsername);
@@ -134,6 +298,32 @@ public class SchedulingServiceTest
         return task;
     }
 
+    private Task buildCancellableDummyTask(String aUsername, Project aProject,
+            Set<Task> aUncancelledTasks)
+    {
+        var task = CancellableDummyTask.builder() //
+                .withUncancelledTasks(aUncancelledTasks) //
+                .withSessionOwner(buildUser(aUsername)) //
+                .withProject(aProject) //
+                .build();
+        task.afterPropertiesSet();
+        return task;
+    }
+
+    private Task buildMatchableDummyTask(Project aProject, long aKey, AtomicLong aComparisons,
+            AtomicLong aReadinessChecks, CountDownLatch aRelease)
+    {
+        var task = MatchableDummyTask.builder() //
+                .withKey(aKey) //
+                .withComparisons(aComparisons) //
+                .withReadinessChecks(aReadinessChecks) //
+                .withRelease(aRelease) //
+                .withProject(aProject) //
+                .build();
+        task.afterPropertiesSet();
+        return task;
+    }
+
     /**
      * DummyTask is a task that does nothing and just sleeps until interrupted. if interrupted, it
      * just finishes running and returns.
@@ -180,4 +370,183 @@ public class SchedulingServiceTest
             }
         }
     }
+
+    /**
+     * CancellableDummyTask is a task that runs until it is cancelled. If it is not cancelled within
+     * a few seconds, it records itself as uncancelled and finishes.
+     */
+    private static class CancellableDummyTask
+        extends Task
+    {
+        private static final String TYPE = "CancellableDummyTask";
+
+        private final Set<Task> uncancelledTasks;
+
+        CancellableDummyTask(Builder<? extends Builder<?>> aBuilder)
+        {
+            super(aBuilder.withType(TYPE).withTrigger("test"));
+            uncancelledTasks = aBuilder.uncancelledTasks;
+        }
+
+        @Override
+        public void execute()
+        {
+            var deadline = System.currentTimeMillis() + 10_000;
+            while (!getMonitor().isCancelled()) {
+                if (System.currentTimeMillis() > deadline) {
+                    uncancelledTasks.add(this);
+                    return;
+                }
+
+                try {
+                    MILLISECONDS.sleep(1);
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        public static Builder<Builder<?>> builder()
+        {
+            return new Builder<>();
+        }
+
+        public static class Builder<T extends Builder<?>>
+            extends Task.Builder<T>
+        {
+            private Set<Task> uncancelledTasks;
+
+            @SuppressWarnings("unchecked")
+            public T withUncancelledTasks(Set<Task> aUncancelledTasks)
+            {
+                uncancelledTasks = aUncancelledTasks;
+                return (T) this;
+            }
+
+            public CancellableDummyTask build()
+            {
+                return new CancellableDummyTask(this);
+            }
+        }
+    }
+
+    /**
+     * MatchableDummyTask is a task that replaces queued tasks with the same key. Without a release
+     * latch, it never becomes ready to start and only checks for readiness are counted. With a
+     * release latch, it runs until the latch is released. Comparisons to other tasks are counted.
+     */
+    private static class MatchableDummyTask
+        extends Task
+        implements MatchableTask
+    {
+        private static final String TYPE = "MatchableDummyTask";
+
+        private final long key;
+        private final AtomicLong comparisons;
+        private final AtomicLong readinessChecks;
+        private final CountDownLatch release;
+
+        MatchableDummyTask(Builder<? extends Builder<?>> aBuilder)
+        {
+            super(aBuilder.withType(TYPE).withTrigger("test"));
+            key = aBuilder.key;
+            comparisons = aBuilder.comparisons;
+            readinessChecks = aBuilder.readinessChecks;
+            release = aBuilder.release;
+        }
+
+        @Override
+        public boolean isReadyToStart()
+        {
+            if (release != null) {
+                return true;
+            }
+
+            readinessChecks.incrementAndGet();
+            return false;
+        }
+
+        @Override
+        public long getEarliestStartTime()
+        {
+            return release != null ? 0 : Long.MAX_VALUE;
+        }
+
+        @Override
+        public void execute()
+        {
+            try {
+                release.await();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public MatchResult matches(Task aTask)
+        {
+            comparisons.incrementAndGet();
+
+            if (aTask instanceof MatchableDummyTask task && task.key == key) {
+                return UNQUEUE_EXISTING_AND_QUEUE_THIS;
+            }
+
+            return NO_MATCH;
+        }
+
+        @Override
+        public Set<Object> getMatchKeys()
+        {
+            return Set.of(key);
+        }
+
+        public static Builder<Builder<?>> builder()
+        {
+            return new Builder<>();
+        }
+
+        public static class Builder<T extends Builder<?>>
+            extends Task.Builder<T>
+        {
+            private long key;
+            private AtomicLong comparisons;
+            private AtomicLong readinessChecks;
+            private CountDownLatch release;
+
+            @SuppressWarnings("unchecked")
+            public T withKey(long aKey)
+            {
+                key = aKey;
+                return (T) this;
+            }
+
+            @SuppressWarnings("unchecked")
+            public T withComparisons(AtomicLong aComparisons)
+            {
+                comparisons = aComparisons;
+                return (T) this;
+            }
+
+            @SuppressWarnings("unchecked")
+            public T withReadinessChecks(AtomicLong aReadinessChecks)
+            {
+                readinessChecks = aReadinessChecks;
+                return (T) this;
+            }
+
+            @SuppressWarnings("unchecked")
+            public T withRelease(CountDownLatch aRelease)
+            {
+                release = aRelease;
+                return (T) this;
+            }
+
+            public MatchableDummyTask build()
+            {
+                return new MatchableDummyTask(this);
+            }
+        }
+    }
 }
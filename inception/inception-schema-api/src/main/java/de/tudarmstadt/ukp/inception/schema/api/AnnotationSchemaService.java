@@ -523,6 +523,19 @@ public interface AnnotationSchemaService
     TypeSystemDescription getFullProjectTypeSystem(Project aProject, boolean aIncludeInternalTypes)
         throws ResourceInitializationException;
 
+    /**
+     * Creates an empty CAS using the full project type system. The compiled type system is shared
+     * between all CASes of the project until the project schema changes, so this is much cheaper
+     * than creating a CAS from {@link #getFullProjectTypeSystem(Project)}.
+     * 
+     * @param aProject
+     *            a project
+     * @return a new CAS using the full project type system including internal types.
+     * @throws ResourceInitializationException
+     *             if there was an UIMA-level problem
+     */
+    CAS createCas(Project aProject) throws ResourceInitializationException;
+
     /**
      * Upgrade the CAS to the current project type system. This also compacts the CAS and removes
      * any unreachable feature structures. This should be called at key points such as when the user
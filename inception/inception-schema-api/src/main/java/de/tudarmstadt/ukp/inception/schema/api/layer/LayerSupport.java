@@ -112,6 +112,23 @@ public interface LayerSupport<A extends TypeAdapter, T>
         return asList(aLayer.getName());
     }
 
+    /**
+     * Creates a renderer for the given layer.
+     * <p>
+     * <b>Thread-safety:</b> the layers of a document may be rendered in parallel. Each renderer
+     * instance is only ever used by a single thread at a time, but the renderers of different
+     * layers may access the same CAS concurrently. In this case, the CAS is passed to the renderer
+     * unwrapped from its thread-bound proxy and no thread modifies it while rendering is in
+     * progress. Renderers must therefore only <i>read</i> from the CAS (no creating, modifying or
+     * re-indexing feature structures) and must only write to the {@code VDocument} passed to them.
+     * They must not rely on thread-bound context such as the current Wicket request cycle.
+     * 
+     * @param aLayer
+     *            the layer to render.
+     * @param aFeatures
+     *            supplier for all the features of the layer.
+     * @return the renderer.
+     */
     Renderer createRenderer(AnnotationLayer aLayer,
             Supplier<Collection<AnnotationFeature>> aFeatures);
 
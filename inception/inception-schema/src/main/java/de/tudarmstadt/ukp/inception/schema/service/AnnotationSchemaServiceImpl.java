@@ -41,6 +41,8 @@ import static org.apache.uima.cas.impl.TypeSystemUtils.isIdentifier;
 import static org.apache.uima.fit.factory.TypeSystemDescriptionFactory.createTypeSystemDescription;
 import static org.apache.uima.util.CasCreationUtils.mergeTypeSystems;
 import static org.hibernate.annotations.QueryHints.CACHEABLE;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.isSynchronizationActive;
+import static org.springframework.transaction.support.TransactionSynchronizationManager.registerSynchronization;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -50,9 +52,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.uima.UIMAException;
 import org.apache.uima.cas.CAS;
@@ -60,6 +64,7 @@ import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.cas.Type;
 import org.apache.uima.cas.TypeSystem;
+import org.apache.uima.cas.impl.CASCompleteSerializer;
 import org.apache.uima.cas.impl.CASImpl;
 import org.apache.uima.cas.impl.TypeSystemUtils;
 import org.apache.uima.cas.text.AnnotationFS;
@@ -78,8 +83,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 
@@ -111,6 +119,7 @@ import de.tudarmstadt.ukp.inception.schema.api.AttachedAnnotation;
 import de.tudarmstadt.ukp.inception.schema.api.adapter.IllegalFeatureValueException;
 import de.tudarmstadt.ukp.inception.schema.api.adapter.TypeAdapter;
 import de.tudarmstadt.ukp.inception.schema.api.config.AnnotationSchemaProperties;
+import de.tudarmstadt.ukp.inception.schema.api.event.LayerConfigurationChangedEvent;
 import de.tudarmstadt.ukp.inception.schema.api.event.TagCreatedEvent;
 import de.tudarmstadt.ukp.inception.schema.api.event.TagDeletedEvent;
 import de.tudarmstadt.ukp.inception.schema.api.event.TagUpdatedEvent;
@@ -120,6 +129,7 @@ import de.tudarmstadt.ukp.inception.schema.api.layer.LayerSupport;
 import de.tudarmstadt.ukp.inception.schema.api.layer.LayerSupportRegistry;
 import de.tudarmstadt.ukp.inception.schema.config.AnnotationSchemaServiceAutoConfiguration;
 import de.tudarmstadt.ukp.inception.support.uima.ICasUtil;
+import de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.criteria.JoinType;
@@ -141,6 +151,8 @@ public class AnnotationSchemaServiceImpl
     private final LayerSupportRegistry layerSupportRegistry;
     private final FeatureSupportRegistry featureSupportRegistry;
     private final LoadingCache<TagSet, List<ImmutableTag>> immutableTagsCache;
+    private final Cache<Long, ProjectTypeSystem> projectTypeSystemCache;
+    private final Map<Long, Long> schemaVersions = new ConcurrentHashMap<>();
     private final TypeSystemDescription builtInTypes;
     private final AnnotationSchemaProperties annotationEditorProperties;
 
@@ -166,6 +178,11 @@ public class AnnotationSchemaServiceImpl
                 .maximumSize(10 * 1024) //
                 .build(this::loadImmutableTags);
 
+        projectTypeSystemCache = Caffeine.newBuilder() //
+                .expireAfterAccess(30, MINUTES) //
+                .maximumSize(1024) //
+                .build();
+
         try {
             builtInTypes = createTypeSystemDescription();
         }
@@ -289,6 +306,8 @@ public class AnnotationSchemaServiceImpl
                 n++;
             }
         }
+
+        schemaChanged(aLayer.getProject());
     }
 
     @Override
@@ -320,6 +339,8 @@ public class AnnotationSchemaServiceImpl
                 entityManager.merge(aLayer);
                 LOG.info("Updated layer {} in project {}", aLayer, aLayer.getProject());
             }
+
+            schemaChanged(aLayer.getProject());
         }
     }
 
@@ -336,6 +357,8 @@ public class AnnotationSchemaServiceImpl
                 entityManager.merge(aFeature);
                 LOG.info("Updated feature {} in project {}", aFeature, aFeature.getProject());
             }
+
+            schemaChanged(aFeature.getProject());
         }
     }
 
@@ -1011,6 +1034,8 @@ public class AnnotationSchemaServiceImpl
             entityManager.remove(
                     entityManager.contains(aFeature) ? aFeature : entityManager.merge(aFeature));
 
+            schemaChanged(aFeature.getProject());
+
             LOG.info("Removed feature {} from project {}", aFeature, aFeature.getProject());
         }
     }
@@ -1037,6 +1062,8 @@ public class AnnotationSchemaServiceImpl
 
             entityManager.remove(layer);
 
+            schemaChanged(aLayer.getProject());
+
             LOG.info("Removed layer {} from project {}", aLayer, aLayer.getProject());
         }
     }
@@ -1214,6 +1241,85 @@ public class AnnotationSchemaServiceImpl
         return mergeTypeSystems(typeSystems);
     }
 
+    @Override
+    public CAS createCas(Project aProject) throws ResourceInitializationException
+    {
+        return WebAnnoCasUtil.createCas(getProjectTypeSystem(aProject).typeSystem());
+    }
+
+    /**
+     * Obtains the full project type system from the cache or compiles it if the schema of the
+     * project changed since it was last compiled. Compiling means querying all layers and features
+     * from the database, merging them into a type system description and committing that into a
+     * UIMA type system - all of which is too expensive to do every time a CAS is loaded.
+     */
+    private ProjectTypeSystem getProjectTypeSystem(Project aProject)
+        throws ResourceInitializationException
+    {
+        if (aProject.getId() == null) {
+            return compileProjectTypeSystem(aProject, 0);
+        }
+
+        // Obtain the version before compiling so that if the schema changes while we compile, the
+        // compiled type system is considered outdated on the next access
+        var version = schemaVersions.getOrDefault(aProject.getId(), 0l);
+
+        var cached = projectTypeSystemCache.getIfPresent(aProject.getId());
+        if (cached != null && cached.version() == version) {
+            return cached;
+        }
+
+        var compiled = compileProjectTypeSystem(aProject, version);
+        projectTypeSystemCache.put(aProject.getId(), compiled);
+        return compiled;
+    }
+
+    private ProjectTypeSystem compileProjectTypeSystem(Project aProject, long aVersion)
+        throws ResourceInitializationException
+    {
+        var tsd = getFullProjectTypeSystem(aProject);
+        var template = CasFactory.createCas(tsd);
+
+        LOG.debug("Compiled type system of project {} (schema version {})", aProject, aVersion);
+
+        return new ProjectTypeSystem(aVersion, tsd, template,
+                Caffeine.newBuilder().weakKeys().build());
+    }
+
+    private void schemaChanged(Project aProject)
+    {
+        if (aProject == null || aProject.getId() == null) {
+            return;
+        }
+
+        bumpSchemaVersion(aProject.getId());
+
+        // A type system compiled by another thread before this transaction is committed would
+        // still see the old schema, so we bump the version once more after the transaction
+        if (isSynchronizationActive()) {
+            registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCompletion(int aStatus)
+                {
+                    bumpSchemaVersion(aProject.getId());
+                }
+            });
+        }
+    }
+
+    private void bumpSchemaVersion(Long aProjectId)
+    {
+        schemaVersions.merge(aProjectId, 1l, Long::sum);
+        projectTypeSystemCache.invalidate(aProjectId);
+    }
+
+    @EventListener
+    public void onLayerConfigurationChanged(LayerConfigurationChangedEvent aEvent)
+    {
+        bumpSchemaVersion(aEvent.getProject().getId());
+    }
+
     @Override
     public void upgradeCas(CAS aCas, AnnotationDocument aAnnotationDocument)
         throws UIMAException, IOException
@@ -1261,8 +1367,7 @@ public class AnnotationSchemaServiceImpl
     @Override
     public void upgradeCas(CAS aCas, Project aProject) throws UIMAException, IOException
     {
-        TypeSystemDescription ts = getFullProjectTypeSystem(aProject);
-        upgradeCas(aCas, ts);
+        upgradeCas(aCas, getProjectTypeSystem(aProject));
     }
 
     @Override
@@ -1283,7 +1388,7 @@ public class AnnotationSchemaServiceImpl
     public boolean upgradeCasIfRequired(Iterable<CAS> aCasIter, Project aProject)
         throws UIMAException, IOException
     {
-        TypeSystemDescription ts = getFullProjectTypeSystem(aProject);
+        var ts = getProjectTypeSystem(aProject);
 
         // Check if the current CAS already contains the required type system
         boolean upgradePerformed = false;
@@ -1312,6 +1417,13 @@ public class AnnotationSchemaServiceImpl
         upgradeCas(aCas, aCas, aTargetTypeSystem);
     }
 
+    private void upgradeCas(CAS aCas, ProjectTypeSystem aTargetTypeSystem) throws IOException
+    {
+        CasStorageSession.get().assertWritingPermitted(aCas);
+
+        _upgradeCas(aCas, aCas, aTargetTypeSystem.template());
+    }
+
     /**
      * Load the contents from the source CAS, upgrade it to the target type system and write the
      * results to the target CAS. An in-place upgrade can be achieved by using the same CAS as
@@ -1331,6 +1443,18 @@ public class AnnotationSchemaServiceImpl
     public static void _upgradeCas(CAS aSourceCas, CAS aTargetCas,
             TypeSystemDescription aTargetTypeSystem)
         throws IOException, ResourceInitializationException
+    {
+        _upgradeCas(aSourceCas, aTargetCas, CasFactory.createCas(aTargetTypeSystem));
+    }
+
+    /**
+     * @param aTemplateCas
+     *            an empty CAS with the target type system. Only its type system and index
+     *            definitions are copied to the target CAS, so the same template can be used for any
+     *            number of upgrades.
+     */
+    private static void _upgradeCas(CAS aSourceCas, CAS aTargetCas, CAS aTemplateCas)
+        throws IOException
     {
         // Save source CAS type system (do this early since we might do an in-place upgrade)
         var sourceTypeSystem = aSourceCas.getTypeSystem();
@@ -1350,8 +1474,10 @@ public class AnnotationSchemaServiceImpl
         CAS realTargetCas = getRealCas(aTargetCas);
         // UIMA-6162 Workaround: synchronize CAS during de/serialization
         synchronized (((CASImpl) realTargetCas).getBaseCAS()) {
-            var tempCas = CasFactory.createCas(aTargetTypeSystem);
-            var serializer = serializeCASComplete((CASImpl) tempCas);
+            CASCompleteSerializer serializer;
+            synchronized (aTemplateCas) {
+                serializer = serializeCASComplete((CASImpl) aTemplateCas);
+            }
             deserializeCASComplete(serializer, (CASImpl) realTargetCas);
 
             // Leniently load the source CAS contents into the target CAS
@@ -1361,14 +1487,28 @@ public class AnnotationSchemaServiceImpl
     }
 
     /**
-     * Check if the current CAS already contains the required type system.
+     * Check if the current CAS already contains the required type system. UIMA shares committed
+     * type systems between all CASes with equal type systems, so a CAS which has been created or
+     * upgraded with the current project type system can be recognized by identity. For any other
+     * type system, the result of the full check is remembered until the project schema changes.
      */
-    private boolean isUpgradeRequired(CAS aCas, TypeSystemDescription aTargetTypeSystem)
+    private boolean isUpgradeRequired(CAS aCas, ProjectTypeSystem aTargetTypeSystem)
+    {
+        var ts = aCas.getTypeSystem();
+        if (ts == aTargetTypeSystem.typeSystem()) {
+            return false;
+        }
+
+        return aTargetTypeSystem.upgradeRequired().get(ts,
+                t -> isUpgradeRequired(t, aTargetTypeSystem.description()));
+    }
+
+    private boolean isUpgradeRequired(TypeSystem aTypeSystem,
+            TypeSystemDescription aTargetTypeSystem)
     {
-        TypeSystem ts = aCas.getTypeSystem();
         boolean upgradeRequired = false;
         nextType: for (TypeDescription tdesc : aTargetTypeSystem.getTypes()) {
-            Type t = ts.getType(tdesc.getName());
+            Type t = aTypeSystem.getType(tdesc.getName());
 
             // Type does not exist
             if (t == null) {
@@ -1378,9 +1518,10 @@ public class AnnotationSchemaServiceImpl
             }
 
             // Super-type does not match
-            if (!Objects.equals(tdesc.getSupertypeName(), ts.getParent(t).getName())) {
+            if (!Objects.equals(tdesc.getSupertypeName(), aTypeSystem.getParent(t).getName())) {
                 LOG.debug("CAS update required: supertypes of {} do not match: {} <-> {}",
-                        tdesc.getName(), tdesc.getSupertypeName(), ts.getParent(t).getName());
+                        tdesc.getName(), tdesc.getSupertypeName(),
+                        aTypeSystem.getParent(t).getName());
                 upgradeRequired = true;
                 break nextType;
             }
@@ -1828,4 +1969,26 @@ public class AnnotationSchemaServiceImpl
         }
         return true;
     }
+
+    /**
+     * A project type system compiled for a particular version of the project schema.
+     * 
+     * @param version
+     *            the schema version the type system was compiled for.
+     * @param description
+     *            the full project type system.
+     * @param template
+     *            an empty CAS using the committed project type system. It serves as template when
+     *            creating or upgrading CASes and must not be modified.
+     * @param upgradeRequired
+     *            whether CASes using a given type system need to be upgraded to this one.
+     */
+    private record ProjectTypeSystem(long version, TypeSystemDescription description, CAS template,
+            Cache<TypeSystem, Boolean> upgradeRequired)
+    {
+        TypeSystem typeSystem()
+        {
+            return template.getTypeSystem();
+        }
+    }
 }
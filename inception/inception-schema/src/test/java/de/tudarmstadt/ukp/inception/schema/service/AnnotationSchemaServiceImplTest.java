@@ -144,6 +144,27 @@ class AnnotationSchemaServiceImplTest
         assertThat(sut.existsTag(TAG_NOT_IN_LIST, tagset)).isTrue();
     }
 
+    @Test
+    void thatProjectTypeSystemIsReusedUntilSchemaChanges() throws Exception
+    {
+        var cas1 = sut.createCas(project);
+        var cas2 = sut.createCas(project);
+
+        assertThat(cas2.getTypeSystem()).isSameAs(cas1.getTypeSystem());
+        assertThat(cas1.getTypeSystem().getType("custom.Span")).isNull();
+
+        sut.createOrUpdateLayer(AnnotationLayer.builder() //
+                .withName("custom.Span") //
+                .withUiName("Span") //
+                .withType(SpanLayerSupport.TYPE) //
+                .withProject(project) //
+                .build());
+
+        var cas3 = sut.createCas(project);
+
+        assertThat(cas3.getTypeSystem().getType("custom.Span")).isNotNull();
+    }
+
     @Test
     void testCasUpgradePerformsGarbageCollection() throws Exception
     {
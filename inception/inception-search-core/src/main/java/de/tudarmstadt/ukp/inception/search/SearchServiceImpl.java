@@ -25,7 +25,6 @@ import static de.tudarmstadt.ukp.clarin.webanno.model.SourceDocumentState.CURATI
 import static de.tudarmstadt.ukp.inception.scheduling.TaskState.RUNNING;
 import static de.tudarmstadt.ukp.inception.search.model.AnnotationSearchState.KEY_SEARCH_STATE;
 import static de.tudarmstadt.ukp.inception.support.WebAnnoConst.CURATION_USER;
-import static de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil.casToByteArray;
 import static java.lang.Integer.MAX_VALUE;
 import static java.lang.System.currentTimeMillis;
 import static java.util.Arrays.asList;
@@ -42,13 +41,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.Validate;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.DisposableBean;
@@ -82,6 +84,7 @@ import de.tudarmstadt.ukp.inception.schema.api.event.LayerConfigurationChangedEv
 import de.tudarmstadt.ukp.inception.search.config.SearchServiceAutoConfiguration;
 import de.tudarmstadt.ukp.inception.search.config.SearchServiceProperties;
 import de.tudarmstadt.ukp.inception.search.index.IndexRebuildRequiredException;
+import de.tudarmstadt.ukp.inception.search.index.PhysicalIndex;
 import de.tudarmstadt.ukp.inception.search.index.PhysicalIndexRegistry;
 import de.tudarmstadt.ukp.inception.search.model.BulkIndexingContext;
 import de.tudarmstadt.ukp.inception.search.model.Index;
@@ -489,12 +492,13 @@ public class SearchServiceImpl
     public void indexDocument(SourceDocument aSourceDocument, byte[] aBinaryCas)
     {
         try (var pooledIndex = acquireIndex(aSourceDocument.getProject().getId())) {
-            indexDocument(pooledIndex, aSourceDocument, aBinaryCas);
+            indexDocument(pooledIndex, aSourceDocument,
+                    physicalIndex -> physicalIndex.indexDocument(aSourceDocument, aBinaryCas));
         }
     }
 
     private void indexDocument(PooledIndex aPooledIndex, SourceDocument aSourceDocument,
-            byte[] aBinaryCas)
+            IndexingAction aAction)
     {
         var project = aSourceDocument.getProject();
 
@@ -515,7 +519,7 @@ public class SearchServiceImpl
         // threads to update the index concurrently. The underlying index code should hopefully
         // be thread-safe...
         try {
-            index.getPhysicalIndex().indexDocument(aSourceDocument, aBinaryCas);
+            aAction.index(index.getPhysicalIndex());
         }
         catch (IndexRebuildRequiredException e) {
             invalidateIndexAndForceIndexRebuild(project, index, "indexDocument[error]");
@@ -536,7 +540,8 @@ public class SearchServiceImpl
         Project project = aAnnotationDocument.getProject();
 
         try (var pooledIndex = acquireIndex(project.getId())) {
-            indexDocument(pooledIndex, aAnnotationDocument, "indexDocument", aBinaryCas);
+            indexDocument(pooledIndex, aAnnotationDocument, "indexDocument",
+                    physicalIndex -> physicalIndex.indexDocument(aAnnotationDocument, aBinaryCas));
         }
         catch (Exception e) {
             LOG.error("Error indexing annotation document {} in project {}", aAnnotationDocument,
@@ -554,7 +559,7 @@ public class SearchServiceImpl
     }
 
     private void indexDocument(PooledIndex aPooledIndex, AnnotationDocument aAnnotationDocument,
-            String aTrigger, byte[] aBinaryCas)
+            String aTrigger, IndexingAction aAction)
     {
         var project = aAnnotationDocument.getProject();
 
@@ -584,7 +589,7 @@ public class SearchServiceImpl
             // Add annotation document to the index again
             LOG.trace("Indexing new version of annotation document {} in project {}",
                     aAnnotationDocument, project);
-            index.getPhysicalIndex().indexDocument(aAnnotationDocument, aBinaryCas);
+            aAction.index(index.getPhysicalIndex());
         }
         catch (IndexRebuildRequiredException e) {
             invalidateIndexAndForceIndexRebuild(project, index, "indexDocument[error]");
@@ -708,102 +713,51 @@ public class SearchServiceImpl
                     .toList();
             var sourceDocuments = documentService.listSourceDocuments(aProject);
 
-            var progress = 0;
-            int maxProgress = annotationDocuments.size() + sourceDocuments.size();
-
-            // We do not need write access and do not want to add to the exclusive access CAS cache,
-            // so we would normally use SHARED_READ_ONLY_ACCESS. However, that mode can only be used
-            // with AUTO_CAS_UPGRADE which makes things slow. We want NO_CAS_UPGRADE.
-            // So we use UNMANAGED_NON_INITIALIZING_ACCESS for the annotation CASes to avoid
-            // initializing CASes for users who have not started working on a document but for which
-            // an AnnotationDocument item exists (e.g. locked documents).
-            // For INITIAL_CASes, we use UNMANAGED_ACCESS since the INITIAL_CAS should always
-            // exist.
-            final var accessModeAnnotationCas = UNMANAGED_NON_INITIALIZING_ACCESS;
-            final var accessModeInitialCas = UNMANAGED_ACCESS;
-            final var casUpgradeMode = NO_CAS_UPGRADE;
+            // Everything the jobs need from the database is looked up here because the jobs may
+            // run on worker threads outside of the transaction
+            var jobs = new ArrayList<IndexingJob>();
+
+            // Index all the source documents and curation documents (if available)
+            for (var doc : sourceDocuments) {
+                // Creating a missing initial CAS imports the document which needs the database,
+                // so this has to happen in the calling thread
+                var message = LogMessage.info(this, "Source document: %s", doc.getName());
+                jobs.add(new IndexingJob(message, documentService.existsInitialCas(doc),
+                        () -> reindexSourceDocument(pooledIndex, doc)));
+
+                if (asList(CURATION_IN_PROGRESS, CURATION_FINISHED).contains(doc.getState())
+                        && documentService.existsCas(doc, CURATION_USER)) {
+                    var curationDoc = documentService.getAnnotationDocument(doc, CURATION_USER);
+                    var curationMessage = LogMessage.info(this, "Curation document: %s",
+                            doc.getName());
+                    jobs.add(new IndexingJob(curationMessage, true,
+                            () -> reindexCurationDocument(pooledIndex, curationDoc)));
+                }
+            }
+
+            // Index all the annotation documents (from annotators)
+            for (var doc : annotationDocuments) {
+                var message = LogMessage.info(this, "Annotation document: %s @ %s",
+                        doc.getUser(), doc.getName());
+                jobs.add(new IndexingJob(message, true,
+                        () -> reindexAnnotationDocument(pooledIndex, doc)));
+            }
 
             var prefs = preferencesService.loadDefaultTraitsForProject(KEY_SEARCH_STATE, aProject);
             try (var indexContext = BulkIndexingContext.init(aProject, schemaService, true,
                     prefs)) {
-                // Index all the source documents
-                for (var doc : sourceDocuments) {
-                    progress++;
-
-                    if (isPerformNoMoreActions(pooledIndex)) {
-                        return;
-                    }
-
-                    if (aMonitor != null) {
-                        if (aMonitor.isCancelled()) {
-                            aMonitor.setProgressWithMessage(progress, maxProgress, LogMessage
-                                    .info(this, "Indexing aborted. Search cannot be used."));
-                            if (aMonitor.isCancelled()) {
-                                aMonitor.setState(TaskState.CANCELLED);
-                            }
-                            break;
-                        }
-
-                        aMonitor.setProgressWithMessage(progress, maxProgress,
-                                LogMessage.info(this, "Source document: %s", doc.getName()));
-                    }
-
-                    try (var session = CasStorageSession.openNested()) {
-                        // Index source document
-                        var casAsByteArray = casToByteArray(documentService
-                                .createOrReadInitialCas(doc, casUpgradeMode, accessModeInitialCas));
-                        indexDocument(pooledIndex, doc, casAsByteArray);
-
-                        // Index curation document (if available)
-                        if (documentService.existsCas(doc, CURATION_USER)
-                                && asList(CURATION_IN_PROGRESS, CURATION_FINISHED)
-                                        .contains(doc.getState())) {
-                            var aDoc = documentService.getAnnotationDocument(doc, CURATION_USER);
-                            var curationCasAsByteArray = casToByteArray(
-                                    documentService.readAnnotationCas(doc, CURATION_USER,
-                                            casUpgradeMode, accessModeInitialCas));
-                            indexDocument(pooledIndex, aDoc, "reindex", curationCasAsByteArray);
-                        }
-                    }
-                    catch (Exception e) {
-                        LOG.error("Error indexing document {}", doc, e);
-                    }
+                var parallelism = properties.getReindexParallelism();
+                var completed = parallelism > 1
+                        ? runIndexingJobsInParallel(pooledIndex, indexContext, jobs, parallelism,
+                                aMonitor)
+                        : runIndexingJobs(pooledIndex, jobs, aMonitor);
+                if (!completed) {
+                    return;
                 }
 
-                // Index all the annotation documents (from annotators)
-                for (var doc : annotationDocuments) {
-                    progress++;
-
-                    if (isPerformNoMoreActions(pooledIndex)) {
-                        return;
-                    }
-
-                    if (aMonitor != null) {
-                        if (aMonitor.isCancelled()) {
-                            aMonitor.setProgressWithMessage(progress, maxProgress, LogMessage
-                                    .info(this, "Indexing aborted. Search cannot be used."));
-                            if (aMonitor.isCancelled()) {
-                                aMonitor.setState(TaskState.CANCELLED);
-                            }
-                            break;
-                        }
-
-                        aMonitor.setProgressWithMessage(progress, maxProgress, LogMessage.info(this,
-                                "Annotation document: %s @ %s", doc.getUser(), doc.getName()));
-                    }
-
-                    try (var session = CasStorageSession.openNested()) {
-                        var casAsByteArray = casToByteArray(
-                                documentService.readAnnotationCas(doc.getDocument(), doc.getUser(),
-                                        casUpgradeMode, accessModeAnnotationCas));
-                        indexDocument(pooledIndex, doc, "reindex", casAsByteArray);
-                    }
-                    catch (FileNotFoundException e) {
-                        // Ignore it if a annotation CAS does not exist yet
-                    }
-                    catch (Exception e) {
-                        LOG.error("Error indexing document {}", doc, e);
-                    }
+                if (indexContext.isRebuildRequested()) {
+                    invalidateIndexAndForceIndexRebuild(aProject, index, "reindex[error]");
+                    return;
                 }
             }
 
@@ -823,6 +777,201 @@ public class SearchServiceImpl
         }
     }
 
+    // We do not need write access and do not want to add to the exclusive access CAS cache,
+    // so we would normally use SHARED_READ_ONLY_ACCESS. However, that mode can only be used
+    // with AUTO_CAS_UPGRADE which makes things slow. We want NO_CAS_UPGRADE.
+    // So we use UNMANAGED_NON_INITIALIZING_ACCESS for the annotation CASes to avoid
+    // initializing CASes for users who have not started working on a document but for which
+    // an AnnotationDocument item exists (e.g. locked documents).
+    // For INITIAL_CASes, we use UNMANAGED_ACCESS since the INITIAL_CAS should always
+    // exist.
+    private void reindexSourceDocument(PooledIndex aPooledIndex, SourceDocument aDocument)
+    {
+        try (var session = CasStorageSession.openNested()) {
+            // Index source document - the CAS is not shared with anybody else, so we can hand
+            // it to the index directly instead of serializing it first
+            var cas = documentService.createOrReadInitialCas(aDocument, NO_CAS_UPGRADE,
+                    UNMANAGED_ACCESS);
+            indexDocument(aPooledIndex, aDocument,
+                    physicalIndex -> physicalIndex.indexDocument(aDocument, cas));
+        }
+        catch (Exception e) {
+            LOG.error("Error indexing document {}", aDocument, e);
+        }
+    }
+
+    private void reindexCurationDocument(PooledIndex aPooledIndex, AnnotationDocument aDocument)
+    {
+        try (var session = CasStorageSession.openNested()) {
+            var cas = documentService.readAnnotationCas(aDocument.getDocument(), CURATION_USER,
+                    NO_CAS_UPGRADE, UNMANAGED_ACCESS);
+            indexDocument(aPooledIndex, aDocument, "reindex",
+                    physicalIndex -> physicalIndex.indexDocument(aDocument, cas));
+        }
+        catch (Exception e) {
+            LOG.error("Error indexing document {}", aDocument, e);
+        }
+    }
+
+    private void reindexAnnotationDocument(PooledIndex aPooledIndex, AnnotationDocument aDocument)
+    {
+        try (var session = CasStorageSession.openNested()) {
+            var cas = documentService.readAnnotationCas(aDocument.getDocument(),
+                    aDocument.getUser(), NO_CAS_UPGRADE, UNMANAGED_NON_INITIALIZING_ACCESS);
+            indexDocument(aPooledIndex, aDocument, "reindex",
+                    physicalIndex -> physicalIndex.indexDocument(aDocument, cas));
+        }
+        catch (FileNotFoundException e) {
+            // Ignore it if a annotation CAS does not exist yet
+        }
+        catch (Exception e) {
+            LOG.error("Error indexing document {}", aDocument, e);
+        }
+    }
+
+    /**
+     * Runs the indexing jobs one after another in the calling thread.
+     * 
+     * @return {@code false} if indexing was stopped because the index is no longer usable.
+     */
+    private boolean runIndexingJobs(PooledIndex aPooledIndex, List<IndexingJob> aJobs,
+            TaskMonitor aMonitor)
+    {
+        var progress = 0;
+        for (var job : aJobs) {
+            progress++;
+
+            if (isPerformNoMoreActions(aPooledIndex)) {
+                return false;
+            }
+
+            if (aMonitor != null) {
+                if (isIndexingCancelled(aMonitor, progress, aJobs.size())) {
+                    break;
+                }
+
+                aMonitor.setProgressWithMessage(progress, aJobs.size(), job.message());
+            }
+
+            job.action().run();
+        }
+
+        return true;
+    }
+
+    /**
+     * Runs the indexing jobs on a pool of worker threads. Each worker loads a CAS and adds it to
+     * the index. The index writer is thread-safe and analyzes the documents in the thread adding
+     * them, so loading and parsing the CASes both happen in parallel. The number of jobs that may
+     * be pending at any time is bounded, so that the CASes are not loaded faster than they can be
+     * indexed. The workers are not part of the transaction of the calling thread, so jobs which
+     * may need the database are run by the calling thread itself.
+     * 
+     * @return {@code false} if indexing was stopped because the index is no longer usable.
+     */
+    private boolean runIndexingJobsInParallel(PooledIndex aPooledIndex,
+            BulkIndexingContext aContext, List<IndexingJob> aJobs, int aParallelism,
+            TaskMonitor aMonitor)
+    {
+        var threadFactory = new BasicThreadFactory.Builder() //
+                .daemon(true) //
+                .namingPattern("search-reindex-" + aContext.getProject().getId() + "-%d") //
+                .build();
+        var executor = Executors.newFixedThreadPool(aParallelism, threadFactory);
+        var permits = new Semaphore(aParallelism * 2);
+        var done = new AtomicInteger();
+        var stopped = false;
+
+        try {
+            for (var job : aJobs) {
+                if (isPerformNoMoreActions(aPooledIndex)) {
+                    stopped = true;
+                    break;
+                }
+
+                if (aMonitor != null && isIndexingCancelled(aMonitor, done.get(), aJobs.size())) {
+                    break;
+                }
+
+                if (!job.concurrent()) {
+                    job.action().run();
+                    var progress = done.incrementAndGet();
+                    if (aMonitor != null) {
+                        aMonitor.setProgressWithMessage(progress, aJobs.size(), job.message());
+                    }
+                    continue;
+                }
+
+                permits.acquire();
+                executor.execute(() -> {
+                    // The indexing context is thread-bound, so we need to bind it to the worker
+                    BulkIndexingContext.set(aContext);
+                    try {
+                        job.action().run();
+                    }
+                    finally {
+                        BulkIndexingContext.clear();
+                        permits.release();
+                        var progress = done.incrementAndGet();
+                        if (aMonitor != null && !aMonitor.isCancelled()) {
+                            aMonitor.setProgressWithMessage(progress, aJobs.size(),
+                                    job.message());
+                        }
+                    }
+                });
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = true;
+        }
+        finally {
+            executor.shutdown();
+            try {
+                while (!executor.awaitTermination(10, SECONDS)) {
+                    LOG.debug("Waiting for indexing workers in project {} to complete",
+                            aContext.getProject());
+                }
+            }
+            catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+                stopped = true;
+            }
+        }
+
+        return !stopped && !isPerformNoMoreActions(aPooledIndex);
+    }
+
+    private boolean isIndexingCancelled(TaskMonitor aMonitor, int aProgress, int aMaxProgress)
+    {
+        if (!aMonitor.isCancelled()) {
+            return false;
+        }
+
+        aMonitor.setProgressWithMessage(aProgress, aMaxProgress,
+                LogMessage.info(this, "Indexing aborted. Search cannot be used."));
+        aMonitor.setState(TaskState.CANCELLED);
+        return true;
+    }
+
+    /**
+     * @param message
+     *            the progress message shown while the job is running.
+     * @param concurrent
+     *            whether the job may run on a worker thread. Jobs which may need the database
+     *            must run in the thread that runs the re-indexing.
+     * @param action
+     *            the job.
+     */
+    private record IndexingJob(LogMessage message, boolean concurrent, Runnable action) {}
+
+    @FunctionalInterface
+    private interface IndexingAction
+    {
+        void index(PhysicalIndex aIndex) throws IOException;
+    }
+
     /**
      * For testing only...
      */
@@ -934,6 +1083,14 @@ public class SearchServiceImpl
 
     private void invalidateIndexAndForceIndexRebuild(Project aProject, Index aIndex, String aReason)
     {
+        // During a full re-index, documents may be indexed by worker threads which are not part of
+        // the transaction. The re-index takes care of the rebuild once all documents are done.
+        var indexContext = BulkIndexingContext.get();
+        if (indexContext.isPresent() && indexContext.get().isFullReindex()) {
+            indexContext.get().requestRebuild();
+            return;
+        }
+
         if (!aIndex.isInvalid()) {
             // Only update flag and DB if necessary
             aIndex.setInvalid(true);
@@ -27,4 +27,9 @@ public interface SearchServiceProperties
      * @return time to keep an index open after it has last been used.
      */
     Duration getIndexKeepOpenTime();
+
+    /**
+     * @return number of threads used to load and index documents when re-indexing a project.
+     */
+    int getReindexParallelism();
 }
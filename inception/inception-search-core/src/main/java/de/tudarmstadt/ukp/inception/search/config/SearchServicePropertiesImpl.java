@@ -29,6 +29,8 @@ public class SearchServicePropertiesImpl
 
     private Duration indexKeepOpenTime = Duration.ofMinutes(10);
 
+    private int reindexParallelism = 1;
+
     @Override
     public boolean isEnabled()
     {
@@ -50,4 +52,15 @@ public class SearchServicePropertiesImpl
     {
         indexKeepOpenTime = aIndexKeepOpenTime;
     }
+
+    @Override
+    public int getReindexParallelism()
+    {
+        return reindexParallelism;
+    }
+
+    public void setReindexParallelism(int aReindexParallelism)
+    {
+        reindexParallelism = aReindexParallelism;
+    }
 }
@@ -22,6 +22,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import org.apache.uima.cas.CAS;
+
 import de.tudarmstadt.ukp.clarin.webanno.model.AnnotationDocument;
 import de.tudarmstadt.ukp.clarin.webanno.model.SourceDocument;
 import de.tudarmstadt.ukp.inception.search.ExecutionException;
@@ -77,6 +79,19 @@ public interface PhysicalIndex
 
     void indexDocument(AnnotationDocument aDocument, byte[] aBinaryCas) throws IOException;
 
+    /**
+     * Index the given CAS directly. The caller must ensure that the CAS is not modified while it
+     * is being indexed.
+     * 
+     * @param aDocument
+     *            the annotation document
+     * @param aCas
+     *            the CAS of the annotation document
+     * @throws IOException
+     *             if there was an I/O-level problem
+     */
+    void indexDocument(AnnotationDocument aDocument, CAS aCas) throws IOException;
+
     void clear() throws IOException;
 
     /**
@@ -94,4 +109,17 @@ public interface PhysicalIndex
     public Optional<String> getTimestamp(long aSrcDocId, long aAnnoDocId) throws IOException;
 
     void indexDocument(SourceDocument aSourceDocument, byte[] aBinaryCas) throws IOException;
+
+    /**
+     * Index the given CAS directly. The caller must ensure that the CAS is not modified while it
+     * is being indexed.
+     * 
+     * @param aSourceDocument
+     *            the source document
+     * @param aCas
+     *            the initial CAS of the source document
+     * @throws IOException
+     *             if there was an I/O-level problem
+     */
+    void indexDocument(SourceDocument aSourceDocument, CAS aCas) throws IOException;
 }
@@ -36,6 +36,8 @@ public class BulkIndexingContext
     private final List<AnnotationLayer> layers;
     private final List<AnnotationFeature> features;
 
+    private volatile boolean rebuildRequested;
+
     public BulkIndexingContext(Project aProject, List<AnnotationLayer> aLayers,
             List<AnnotationFeature> aFeatures, boolean aFullReindex, AnnotationSearchState aPrefs)
     {
@@ -71,6 +73,19 @@ public class BulkIndexingContext
         return prefs;
     }
 
+    /**
+     * Records that the index needs to be rebuilt, e.g. because a document could not be indexed.
+     */
+    public void requestRebuild()
+    {
+        rebuildRequested = true;
+    }
+
+    public boolean isRebuildRequested()
+    {
+        return rebuildRequested;
+    }
+
     @Override
     public void close()
     {
@@ -94,6 +109,18 @@ public class BulkIndexingContext
         return indexingContext;
     }
 
+    /**
+     * Binds the given context to the current thread, e.g. to a worker thread that indexes documents
+     * on behalf of the thread that initialized the context.
+     * 
+     * @param aContext
+     *            the context.
+     */
+    public static void set(BulkIndexingContext aContext)
+    {
+        INSTANCE.set(aContext);
+    }
+
     public static Optional<BulkIndexingContext> get()
     {
         return Optional.ofNullable(INSTANCE.get());
@@ -30,6 +30,7 @@ import static de.tudarmstadt.ukp.inception.scheduling.MatchResult.UNQUEUE_EXISTI
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.Objects;
+import java.util.Set;
 
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
@@ -117,6 +118,18 @@ public class IndexAnnotationDocumentTask
         return NO_MATCH;
     }
 
+    @Override
+    public Set<String> getMatchableTypes()
+    {
+        return Set.of(ReindexTask.TYPE);
+    }
+
+    @Override
+    public Set<Object> getMatchKeys()
+    {
+        return Set.of(TYPE + ":" + getAnnotationDocument().getId());
+    }
+
     public static Builder<Builder<?>> builder()
     {
         return new Builder<>();
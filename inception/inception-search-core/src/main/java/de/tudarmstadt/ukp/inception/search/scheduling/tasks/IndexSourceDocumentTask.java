@@ -30,6 +30,7 @@ import static de.tudarmstadt.ukp.inception.scheduling.MatchResult.UNQUEUE_EXISTI
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.Objects;
+import java.util.Set;
 
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
@@ -116,6 +117,18 @@ public class IndexSourceDocumentTask
         return NO_MATCH;
     }
 
+    @Override
+    public Set<String> getMatchableTypes()
+    {
+        return Set.of(ReindexTask.TYPE);
+    }
+
+    @Override
+    public Set<Object> getMatchKeys()
+    {
+        return Set.of(TYPE + ":" + getSourceDocument().getId());
+    }
+
     public static Builder<Builder<?>> builder()
     {
         return new Builder<>();
@@ -29,6 +29,7 @@ import static de.tudarmstadt.ukp.inception.scheduling.TaskScope.PROJECT;
 import java.io.IOException;
 import java.lang.invoke.MethodHandles;
 import java.util.Objects;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -100,6 +101,12 @@ public class ReindexTask
         return NO_MATCH;
     }
 
+    @Override
+    public Set<String> getMatchableTypes()
+    {
+        return Set.of(IndexSourceDocumentTask.TYPE, IndexAnnotationDocumentTask.TYPE, TYPE);
+    }
+
     public static Builder<Builder<?>> builder()
     {
         return new Builder<>();
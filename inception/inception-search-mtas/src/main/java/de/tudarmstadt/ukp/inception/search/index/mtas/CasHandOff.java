@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.index.mtas;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.uima.cas.CAS;
+
+/**
+ * In-process hand-off of an already loaded CAS from the {@link MtasDocumentIndex} to the
+ * {@link MtasUimaParser}. Lucene runs the analysis of a document in the thread that adds the
+ * document to the index. So instead of encoding the whole CAS into the content field and decoding
+ * it again in the parser, the index offers the CAS in a thread-local slot and only places a short
+ * key into the content field. The parser then claims the CAS using that key.
+ */
+public final class CasHandOff
+{
+    private static final String KEY_PREFIX = "\u0000cas-hand-off:";
+
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    private static final ThreadLocal<Offer> CURRENT = new ThreadLocal<>();
+
+    private CasHandOff()
+    {
+        // No instances
+    }
+
+    /**
+     * Offers the given CAS to the parser running in the current thread.
+     *
+     * @param aCas
+     *            the CAS to hand off.
+     * @return the key to place into the content field instead of the encoded CAS.
+     */
+    public static String offer(CAS aCas)
+    {
+        var key = KEY_PREFIX + NEXT_ID.incrementAndGet();
+        CURRENT.set(new Offer(key, aCas));
+        return key;
+    }
+
+    /**
+     * Claims the CAS offered in the current thread under the given key.
+     *
+     * @param aContent
+     *            the content of the field being analyzed.
+     * @return the CAS if the content is the key of a CAS offered in the current thread.
+     */
+    public static Optional<CAS> claim(char[] aContent)
+    {
+        var offer = CURRENT.get();
+        if (offer == null || !Arrays.equals(offer.key().toCharArray(), aContent)) {
+            return Optional.empty();
+        }
+
+        CURRENT.remove();
+        return Optional.of(offer.cas());
+    }
+
+    /**
+     * Withdraws any CAS offered in the current thread which has not been claimed.
+     */
+    public static void clear()
+    {
+        CURRENT.remove();
+    }
+
+    private record Offer(String key, CAS cas) {}
+}
@@ -30,6 +30,7 @@ import static de.tudarmstadt.ukp.inception.search.Metrics.VIRTUAL_LAYER_SEGMENTA
 import static de.tudarmstadt.ukp.inception.search.index.mtas.MtasUimaParser.PARAM_PROJECT_ID;
 import static de.tudarmstadt.ukp.inception.search.index.mtas.MtasUimaParser.getIndexedName;
 import static de.tudarmstadt.ukp.inception.search.index.mtas.MtasUtils.decodeFSAddress;
+import static de.tudarmstadt.ukp.inception.support.uima.WebAnnoCasUtil.byteArrayToCas;
 import static java.util.Comparator.comparingLong;
 import static java.util.concurrent.TimeUnit.SECONDS;
 import static mtas.analysis.util.MtasTokenizerFactory.ARGUMENT_PARSER;
@@ -88,6 +89,7 @@ import org.apache.lucene.search.SearcherFactory;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.uima.cas.CAS;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -1235,7 +1237,7 @@ public class MtasDocumentIndex
     }
 
     private String indexDocument(String aDocumentTitle, long aSourceDocumentId,
-            long aAnnotationDocumentId, String aUser, byte[] aBinaryCas)
+            long aAnnotationDocumentId, String aUser, CAS aCas)
         throws IOException
     {
         // Calculate timestamp that will be indexed
@@ -1247,8 +1249,9 @@ public class MtasDocumentIndex
                 project.getName(), project.getId(), aSourceDocumentId, aAnnotationDocumentId, aUser,
                 timestamp);
 
-        // Prepare bytearray with document content to be indexed
-        var encodedCAS = new String(MtasUtils.bytesToChars(aBinaryCas));
+        // Hand the CAS off to the MtasUimaParser directly instead of encoding it into the content
+        // field. The parser runs in this thread while the document is added to the index.
+        var casKey = CasHandOff.offer(aCas);
 
         // Create new Lucene document
         var doc = new Document();
@@ -1264,11 +1267,16 @@ public class MtasDocumentIndex
         doc.add(new StringField(FIELD_TITLE, aDocumentTitle, Field.Store.YES));
         doc.add(new StringField(FIELD_USER, aUser, Field.Store.YES));
         doc.add(new StringField(FIELD_TIMESTAMP, timestamp, Field.Store.YES));
-        doc.add(new TextField(FIELD_CONTENT, encodedCAS, Field.Store.NO));
+        doc.add(new TextField(FIELD_CONTENT, casKey, Field.Store.NO));
 
         // Add document to the Lucene index
-        var indexWriter = getIndexWriter();
-        indexWriter.addDocument(doc);
+        try {
+            var indexWriter = getIndexWriter();
+            indexWriter.addDocument(doc);
+        }
+        finally {
+            CasHandOff.clear();
+        }
 
         return timestamp;
     };
@@ -1516,6 +1524,12 @@ public class MtasDocumentIndex
 
     @Override
     public void indexDocument(AnnotationDocument aDocument, byte[] aBinaryCas) throws IOException
+    {
+        indexDocument(aDocument, byteArrayToCas(aBinaryCas));
+    }
+
+    @Override
+    public void indexDocument(AnnotationDocument aDocument, CAS aCas) throws IOException
     {
         var srcDocId = aDocument.getDocument().getId();
         var annoDocId = aDocument.getId();
@@ -1536,7 +1550,7 @@ public class MtasDocumentIndex
         // }
 
         var currentTimestamp = indexDocument(aDocument.getName(), srcDocId, annoDocId, user,
-                aBinaryCas);
+                aCas);
 
         deindexOldVersionsOfDocument(srcDocId, annoDocId, user, currentTimestamp);
 
@@ -1549,6 +1563,12 @@ public class MtasDocumentIndex
 
     @Override
     public void indexDocument(SourceDocument aSourceDocument, byte[] aBinaryCas) throws IOException
+    {
+        indexDocument(aSourceDocument, byteArrayToCas(aBinaryCas));
+    }
+
+    @Override
+    public void indexDocument(SourceDocument aSourceDocument, CAS aCas) throws IOException
     {
         // NOTE: deleting all index versions related to the sourcedoc is ok in comparison to
         // re-indexing annotation documents, because we do this before the search
@@ -1557,7 +1577,7 @@ public class MtasDocumentIndex
             deindexDocument(aSourceDocument.getId(), -1, "");
         }
 
-        indexDocument(aSourceDocument.getName(), aSourceDocument.getId(), -1, "", aBinaryCas);
+        indexDocument(aSourceDocument.getName(), aSourceDocument.getId(), -1, "", aCas);
         scheduleCommit();
     }
 }
@@ -228,7 +228,15 @@ public class MtasUimaParser
 
     private CAS readCas(Reader aReader) throws UIMAException, IOException, SAXException
     {
-        return getRealCas(WebAnnoCasUtil.byteArrayToCas(charsToBytes(toCharArray(aReader))));
+        var content = toCharArray(aReader);
+
+        // If the index handed the CAS off to us directly, there is no need to decode it
+        var offeredCas = CasHandOff.claim(content);
+        if (offeredCas.isPresent()) {
+            return getRealCas(offeredCas.get());
+        }
+
+        return getRealCas(WebAnnoCasUtil.byteArrayToCas(charsToBytes(content)));
     }
 
     public MtasTokenCollection createTokenCollection(CAS aJCas)
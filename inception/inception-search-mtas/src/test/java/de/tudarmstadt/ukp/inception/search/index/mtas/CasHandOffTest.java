@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.search.index.mtas;
+
+import static de.tudarmstadt.ukp.inception.search.index.mtas.MtasUtils.bytesToChars;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.apache.uima.fit.factory.CasFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class CasHandOffTest
+{
+    @AfterEach
+    public void tearDown()
+    {
+        CasHandOff.clear();
+    }
+
+    @Test
+    public void thatOfferedCasCanBeClaimedOnce() throws Exception
+    {
+        var cas = CasFactory.createCas();
+
+        var key = CasHandOff.offer(cas);
+
+        assertThat(CasHandOff.claim(key.toCharArray())).containsSame(cas);
+        assertThat(CasHandOff.claim(key.toCharArray())).isEmpty();
+    }
+
+    @Test
+    public void thatEncodedCasIsNotClaimed() throws Exception
+    {
+        CasHandOff.offer(CasFactory.createCas());
+
+        assertThat(CasHandOff.claim(bytesToChars(new byte[] { 0x01, 0x02 }))).isEmpty();
+    }
+
+    @Test
+    public void thatCasOfferedInOtherThreadIsNotClaimed() throws Exception
+    {
+        var key = new String[1];
+        var thread = new Thread(() -> key[0] = CasHandOff.offer(null));
+        thread.start();
+        thread.join();
+
+        assertThat(CasHandOff.claim(key[0].toCharArray())).isEmpty();
+    }
+}
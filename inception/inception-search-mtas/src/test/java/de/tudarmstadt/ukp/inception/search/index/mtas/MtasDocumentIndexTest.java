@@ -26,6 +26,7 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -94,6 +95,7 @@ import de.tudarmstadt.ukp.inception.search.SearchResult;
 import de.tudarmstadt.ukp.inception.search.SearchService;
 import de.tudarmstadt.ukp.inception.search.StatisticsResult;
 import de.tudarmstadt.ukp.inception.search.config.SearchServiceAutoConfiguration;
+import de.tudarmstadt.ukp.inception.search.config.SearchServicePropertiesImpl;
 import de.tudarmstadt.ukp.inception.search.index.mtas.config.MtasDocumentIndexAutoConfiguration;
 import de.tudarmstadt.ukp.inception.support.spring.ApplicationContextProvider;
 
@@ -144,6 +146,7 @@ public class MtasDocumentIndexTest
     private @Autowired ProjectService projectService;
     private @Autowired DocumentService documentService;
     private @Autowired SearchService searchService;
+    private @Autowired SearchServicePropertiesImpl searchServiceProperties;
 
     private User user;
 
@@ -717,6 +720,47 @@ public class MtasDocumentIndexTest
         assertThat(queryStatsResults.getResults()).isEqualTo(expected);
     }
 
+    @Test
+    public void thatParallelReindexingMatchesSequentialIndexing() throws Exception
+    {
+        var project = new Project("parallel-reindex");
+
+        createProject(project);
+
+        var sourceDocuments = new ArrayList<SourceDocument>();
+        for (int i = 0; i < 6; i++) {
+            var sourceDocument = new SourceDocument("Document " + i, project, "text");
+            uploadDocument(
+                    Pair.of(sourceDocument, "The capital of Galicia is Santiago de Compostela."));
+            sourceDocuments.add(sourceDocument);
+        }
+        annotateDocument(project, user, sourceDocuments.get(0));
+        annotateDocument(project, user, sourceDocuments.get(3));
+
+        var textQuery = "Galicia";
+        var annotationQuery = "<Named_entity.value=\"LOC\"/>";
+
+        // Results of the documents indexed one at a time as they were added
+        var expectedTextResults = searchService.query(user, project, textQuery);
+        var expectedAnnotationResults = searchService.query(user, project, annotationQuery);
+
+        searchServiceProperties.setReindexParallelism(3);
+        try {
+            searchService.reindex(project, null);
+        }
+        finally {
+            searchServiceProperties.setReindexParallelism(1);
+        }
+
+        assertThat(searchService.isIndexValid(project)).isTrue();
+        assertThat(searchService.query(user, project, textQuery)) //
+                .isNotEmpty() //
+                .containsExactlyInAnyOrderElementsOf(expectedTextResults);
+        assertThat(searchService.query(user, project, annotationQuery)) //
+                .isNotEmpty() //
+                .containsExactlyInAnyOrderElementsOf(expectedAnnotationResults);
+    }
+
     @SpringBootConfiguration
     public static class TestContext
     {
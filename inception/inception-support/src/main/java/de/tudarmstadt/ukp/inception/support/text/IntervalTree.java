@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.support.text;
+
+import static org.apache.uima.cas.text.AnnotationPredicates.overlapping;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * Immutable index over intervals of text offsets which allows finding all intervals overlapping a
+ * given window in {@code O(log n + k)}. The intervals are identified by their position in the input
+ * arrays, so the tree itself does not refer to the items the intervals belong to. The intervals are
+ * kept in an implicit augmented interval tree, i.e. an array sorted by interval begin in which each
+ * inner node additionally records the maximum interval end of its subtree. Overlap is determined as
+ * by {@link org.apache.uima.cas.text.AnnotationPredicates#overlapping(int, int, int, int)}, so
+ * zero-width intervals are also found.
+ */
+public final class IntervalTree
+    implements Serializable
+{
+    private static final long serialVersionUID = 2203424718716402436L;
+
+    /**
+     * Leaf blocks of up to {@code 2^SCAN_LEVEL} entries are scanned linearly instead of descending
+     * further into the tree.
+     */
+    private static final int SCAN_LEVEL = 3;
+
+    private final int[] positions;
+    private final int[] begins;
+    private final int[] ends;
+    private final int[] maxEnds;
+    private final int maxLevel;
+
+    /**
+     * @param aItems
+     *            the items.
+     * @param aBegin
+     *            function returning the interval begin of an item.
+     * @param aEnd
+     *            function returning the interval end of an item.
+     * @return the index over the intervals of the items in the order of the given list.
+     */
+    public static <T> IntervalTree of(List<? extends T> aItems, ToIntFunction<? super T> aBegin,
+            ToIntFunction<? super T> aEnd)
+    {
+        var begins = new int[aItems.size()];
+        var ends = new int[aItems.size()];
+        for (int i = 0; i < begins.length; i++) {
+            begins[i] = aBegin.applyAsInt(aItems.get(i));
+            ends[i] = aEnd.applyAsInt(aItems.get(i));
+        }
+        return new IntervalTree(begins, ends);
+    }
+
+    /**
+     * @param aBegins
+     *            the interval begins.
+     * @param aEnds
+     *            the interval ends.
+     */
+    public IntervalTree(int[] aBegins, int[] aEnds)
+    {
+        if (aBegins.length != aEnds.length) {
+            throw new IllegalArgumentException("Expected the same number of interval begins and "
+                    + "ends but got [" + aBegins.length + "] begins and [" + aEnds.length
+                    + "] ends");
+        }
+
+        var n = aBegins.length;
+        var sorted = true;
+        for (int i = 1; i < n && sorted; i++) {
+            sorted = aBegins[i - 1] <= aBegins[i];
+        }
+
+        positions = new int[n];
+        if (sorted) {
+            for (int i = 0; i < n; i++) {
+                positions[i] = i;
+            }
+        }
+        else {
+            // Sort by interval begin. The low bits of the sort keys hold the position, so intervals
+            // with the same begin remain in their original order.
+            var keys = new long[n];
+            for (int i = 0; i < n; i++) {
+                keys[i] = ((long) aBegins[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < n; i++) {
+                positions[i] = (int) keys[i];
+            }
+        }
+
+        begins = new int[n];
+        ends = new int[n];
+        for (int i = 0; i < n; i++) {
+            begins[i] = aBegins[positions[i]];
+            ends[i] = aEnds[positions[i]];
+        }
+
+        maxEnds = new int[n];
+        maxLevel = buildTree();
+    }
+
+    /**
+     * Computes the maximum interval end for each node of the implicit tree. Leaves are at the even
+     * positions, the nodes of level {@code k} are at the positions whose lowest {@code k} bits are
+     * set.
+     * 
+     * @return the level of the root node.
+     */
+    private int buildTree()
+    {
+        var n = begins.length;
+        if (n == 0) {
+            return -1;
+        }
+
+        int lastIndex = 0;
+        int last = 0;
+        for (int i = 0; i < n; i += 2) {
+            lastIndex = i;
+            maxEnds[i] = ends[i];
+            last = maxEnds[i];
+        }
+
+        int k = 1;
+        for (; 1 << k <= n; k++) {
+            int x = 1 << (k - 1);
+            int i0 = (x << 1) - 1;
+            int step = x << 2;
+            for (int i = i0; i < n; i += step) {
+                int leftMax = maxEnds[i - x];
+                int rightMax = i + x < n ? maxEnds[i + x] : last;
+                maxEnds[i] = Math.max(ends[i], Math.max(leftMax, rightMax));
+            }
+            lastIndex = ((lastIndex >> k) & 1) != 0 ? lastIndex - x : lastIndex + x;
+            if (lastIndex < n && maxEnds[lastIndex] > last) {
+                last = maxEnds[lastIndex];
+            }
+        }
+
+        return k - 1;
+    }
+
+    /**
+     * @param aBegin
+     *            the window begin.
+     * @param aEnd
+     *            the window end.
+     * @return the positions of the intervals overlapping the given window in ascending order.
+     */
+    public int[] selectOverlapping(int aBegin, int aEnd)
+    {
+        var n = begins.length;
+        if (n == 0) {
+            return new int[0];
+        }
+
+        // The tree is searched using closed intervals so that zero-width intervals at the window
+        // boundaries are also found. The exact overlap check is done on the candidates.
+        var hits = new IntArrayList();
+        var stack = new int[64 * 3];
+        int top = 0;
+        stack[top++] = maxLevel;
+        stack[top++] = (1 << maxLevel) - 1;
+        stack[top++] = 0;
+        while (top > 0) {
+            int visited = stack[--top];
+            int x = stack[--top];
+            int k = stack[--top];
+
+            if (k <= SCAN_LEVEL) {
+                // Small subtree - scan linearly
+                int i0 = x >> k << k;
+                int i1 = Math.min(i0 + (1 << (k + 1)) - 1, n);
+                for (int i = i0; i < i1 && begins[i] <= aEnd; i++) {
+                    if (aBegin <= ends[i]) {
+                        addIfOverlapping(hits, i, aBegin, aEnd);
+                    }
+                }
+            }
+            else if (visited == 0) {
+                // First visit - revisit this node after the left subtree
+                int left = x - (1 << (k - 1));
+                stack[top++] = k;
+                stack[top++] = x;
+                stack[top++] = 1;
+                if (left >= n || maxEnds[left] >= aBegin) {
+                    stack[top++] = k - 1;
+                    stack[top++] = left;
+                    stack[top++] = 0;
+                }
+            }
+            else if (x < n && begins[x] <= aEnd) {
+                // Second visit - check this node and continue with the right subtree
+                if (aBegin <= ends[x]) {
+                    addIfOverlapping(hits, x, aBegin, aEnd);
+                }
+                stack[top++] = k - 1;
+                stack[top++] = x + (1 << (k - 1));
+                stack[top++] = 0;
+            }
+        }
+
+        var result = hits.toIntArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * @param aItems
+     *            the items in the order of the intervals the tree was built from.
+     * @param aBegin
+     *            the window begin.
+     * @param aEnd
+     *            the window end.
+     * @return the items whose interval overlaps the given window in the order of the given list.
+     */
+    public <T> List<T> selectOverlapping(List<? extends T> aItems, int aBegin, int aEnd)
+    {
+        var hits = selectOverlapping(aBegin, aEnd);
+        var result = new ArrayList<T>(hits.length);
+        for (var position : hits) {
+            result.add(aItems.get(position));
+        }
+        return result;
+    }
+
+    private void addIfOverlapping(IntArrayList aHits, int aIndex, int aBegin, int aEnd)
+    {
+        if (overlapping(begins[aIndex], ends[aIndex], aBegin, aEnd)) {
+            aHits.add(positions[aIndex]);
+        }
+    }
+
+    public int size()
+    {
+        return positions.length;
+    }
+
+    public boolean isEmpty()
+    {
+        return positions.length == 0;
+    }
+}
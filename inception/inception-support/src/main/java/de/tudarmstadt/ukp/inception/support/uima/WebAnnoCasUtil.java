@@ -48,6 +48,7 @@ import org.apache.uima.cas.FSIterator;
 import org.apache.uima.cas.Feature;
 import org.apache.uima.cas.FeatureStructure;
 import org.apache.uima.cas.Type;
+import org.apache.uima.cas.TypeSystem;
 import org.apache.uima.cas.impl.CASCompleteSerializer;
 import org.apache.uima.cas.impl.CASImpl;
 import org.apache.uima.cas.impl.CASMgrSerializer;
@@ -94,9 +95,32 @@ public class WebAnnoCasUtil
         return cas;
     }
 
+    /**
+     * Creates a CAS using an already committed type system. This is much cheaper than creating a
+     * CAS from a type system description because the type system does not have to be committed
+     * again.
+     * 
+     * @param aTypeSystem
+     *            the committed type system.
+     * @return the new CAS.
+     * @throws ResourceInitializationException
+     *             if the CAS could not be created.
+     */
+    public static CAS createCas(TypeSystem aTypeSystem) throws ResourceInitializationException
+    {
+        CAS cas = CasCreationUtils.createCas(aTypeSystem, null, null, null);
+
+        if (ENFORCE_CAS_THREAD_LOCK) {
+            cas = (CAS) Proxy.newProxyInstance(cas.getClass().getClassLoader(),
+                    new Class[] { CAS.class }, new ThreadLockingInvocationHandler(cas));
+        }
+
+        return cas;
+    }
+
     public static CAS createCas() throws ResourceInitializationException
     {
-        return createCas(null);
+        return createCas((TypeSystemDescription) null);
     }
 
     /**
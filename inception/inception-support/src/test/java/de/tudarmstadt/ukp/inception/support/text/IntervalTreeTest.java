@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.support.text;
+
+import static org.apache.uima.cas.text.AnnotationPredicates.overlapping;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class IntervalTreeTest
+{
+    @Test
+    void thatOverlappingItemsAreFoundInInputOrder()
+    {
+        var rnd = new Random(42);
+        var items = new ArrayList<Item>();
+        for (int i = 0; i < 500; i++) {
+            var begin = rnd.nextInt(1000);
+            var end = begin + (rnd.nextInt(10) == 0 ? rnd.nextInt(1000) : rnd.nextInt(20));
+            items.add(new Item(begin, end));
+        }
+
+        var tree = IntervalTree.of(items, Item::begin, Item::end);
+
+        assertThat(tree.size()).isEqualTo(items.size());
+        for (int i = 0; i < 200; i++) {
+            var windowBegin = rnd.nextInt(1000);
+            var windowEnd = windowBegin + rnd.nextInt(100);
+
+            var expected = items.stream() //
+                    .filter(it -> overlapping(it.begin(), it.end(), windowBegin, windowEnd)) //
+                    .toList();
+
+            assertThat(tree.selectOverlapping(items, windowBegin, windowEnd)) //
+                    .as("Window [%d-%d]", windowBegin, windowEnd) //
+                    .containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void thatZeroWidthItemsAtWindowBoundariesAreFound()
+    {
+        var atBegin = new Item(10, 10);
+        var inside = new Item(15, 15);
+        var atEnd = new Item(20, 20);
+
+        var items = List.of(atBegin, inside, atEnd);
+        var tree = IntervalTree.of(items, Item::begin, Item::end);
+
+        assertThat(tree.selectOverlapping(items, 10, 20)) //
+                .containsExactly(atBegin, inside);
+    }
+
+    @Test
+    void thatItemsWithSameBeginKeepInputOrder()
+    {
+        var first = new Item(5, 30);
+        var second = new Item(5, 10);
+        var third = new Item(0, 8);
+
+        var items = List.of(first, second, third);
+        var tree = IntervalTree.of(items, Item::begin, Item::end);
+
+        assertThat(tree.selectOverlapping(items, 6, 7)) //
+                .containsExactly(first, second, third);
+    }
+
+    @Test
+    void thatPositionsOfUnsortedIntervalsAreFoundInAscendingOrder()
+    {
+        var tree = new IntervalTree(new int[] { 40, -5, 20, 20, 0 },
+                new int[] { 50, 5, 30, 25, 45 });
+
+        assertThat(tree.selectOverlapping(22, 42)).containsExactly(0, 2, 3, 4);
+        assertThat(tree.selectOverlapping(-10, 1)).containsExactly(1, 4);
+    }
+
+    @Test
+    void thatEmptyTreeYieldsNothing()
+    {
+        var tree = IntervalTree.<Item> of(List.of(), Item::begin, Item::end);
+
+        assertThat(tree.isEmpty()).isTrue();
+        assertThat(tree.selectOverlapping(0, 100)).isEmpty();
+        assertThat(tree.selectOverlapping(List.of(), 0, 100)).isEmpty();
+    }
+
+    private record Item(int begin, int end)
+    {}
+}
@@ -23,6 +23,7 @@ import static de.tudarmstadt.ukp.clarin.webanno.model.PermissionLevel.MANAGER;
 import static de.tudarmstadt.ukp.clarin.webanno.ui.core.page.ProjectPageBase.NS_PROJECT;
 import static de.tudarmstadt.ukp.clarin.webanno.ui.core.page.ProjectPageBase.PAGE_PARAM_PROJECT;
 import static de.tudarmstadt.ukp.inception.scheduling.TaskScope.LAST_USER_SESSION;
+import static de.tudarmstadt.ukp.inception.scheduling.TaskState.FAILED;
 import static de.tudarmstadt.ukp.inception.support.WebAnnoConst.CURATION_USER;
 import static de.tudarmstadt.ukp.inception.support.lambda.HtmlElementEvents.CHANGE_EVENT;
 import static de.tudarmstadt.ukp.inception.support.lambda.LambdaBehavior.enabledWhen;
@@ -90,6 +91,7 @@ import de.tudarmstadt.ukp.inception.schema.api.AnnotationSchemaService;
 import de.tudarmstadt.ukp.inception.support.help.DocLink;
 import de.tudarmstadt.ukp.inception.support.lambda.LambdaAjaxButton;
 import de.tudarmstadt.ukp.inception.support.lambda.LambdaAjaxFormComponentUpdatingBehavior;
+import de.tudarmstadt.ukp.inception.support.logging.LogLevel;
 import de.tudarmstadt.ukp.inception.support.wicket.AjaxDownloadBehavior;
 import de.tudarmstadt.ukp.inception.support.wicket.PipedStreamResource;
 import de.tudarmstadt.ukp.inception.ui.core.config.DefaultMdcSetup;
@@ -442,6 +444,14 @@ public class AgreementPage
 
         schedulingService.executeSync(task);
 
+        if (task.getMonitor().getState() == FAILED) {
+            task.getMonitor().getMessages().stream() //
+                    .filter(msg -> msg.getLevel() == LogLevel.ERROR) //
+                    .forEach(msg -> error(msg.getMessage()));
+            aTarget.addChildren(getPage(), IFeedback.class);
+            return;
+        }
+
         refreshResults(aTarget, task.getResult());
     }
 
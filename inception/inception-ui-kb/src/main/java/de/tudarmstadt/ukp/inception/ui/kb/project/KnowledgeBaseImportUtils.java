@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Technische Universität Darmstadt under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The Technische Universität Darmstadt 
+ * licenses this file to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.
+ *  
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.tudarmstadt.ukp.inception.ui.kb.project;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.tuple.Pair;
+
+import de.tudarmstadt.ukp.clarin.webanno.security.model.User;
+import de.tudarmstadt.ukp.inception.kb.model.KnowledgeBase;
+import de.tudarmstadt.ukp.inception.kb.task.KnowledgeBaseImportTask;
+import de.tudarmstadt.ukp.inception.scheduling.SchedulingService;
+
+public class KnowledgeBaseImportUtils
+{
+    private KnowledgeBaseImportUtils()
+    {
+        // No instances
+    }
+
+    /**
+     * Schedules the import of the given file into the given knowledge base. The uploaded file is
+     * only kept until the session is cleaned up, so it is moved to a new temporary file which is
+     * owned by the import task.
+     * 
+     * @param aSchedulingService
+     *            the scheduling service.
+     * @param aSessionOwner
+     *            the user triggering the import.
+     * @param aKb
+     *            the knowledge base to import into.
+     * @param aFile
+     *            the title and the location of the file to import.
+     * @throws IOException
+     *             if the file cannot be moved.
+     */
+    public static void enqueueImport(SchedulingService aSchedulingService, User aSessionOwner,
+            KnowledgeBase aKb, Pair<String, File> aFile)
+        throws IOException
+    {
+        var source = aFile.getValue();
+        var target = Files.createTempFile("kb-import-",
+                "." + FilenameUtils.getExtension(source.getName()));
+        Files.move(source.toPath(), target, REPLACE_EXISTING);
+
+        aSchedulingService.enqueue(KnowledgeBaseImportTask.builder() //
+                .withSessionOwner(aSessionOwner) //
+                .withKnowledgeBase(aKb) //
+                .withFile(source.getName(), target.toFile()) //
+                .withTrigger("Knowledge base import") //
+                .build());
+    }
+}
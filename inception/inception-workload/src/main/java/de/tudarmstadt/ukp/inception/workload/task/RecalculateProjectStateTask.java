@@ -22,6 +22,7 @@ import static de.tudarmstadt.ukp.inception.scheduling.MatchResult.UNQUEUE_EXISTI
 import static java.time.Duration.ofSeconds;
 
 import java.util.Objects;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -89,6 +90,12 @@ public class RecalculateProjectStateTask
         return NO_MATCH;
     }
 
+    @Override
+    public Set<String> getMatchableTypes()
+    {
+        return Set.of(TYPE, UpdateProjectStateTask.TYPE);
+    }
+
     @Override
     public boolean equals(Object o)
     {
@@ -22,6 +22,7 @@ import static de.tudarmstadt.ukp.inception.scheduling.MatchResult.NO_MATCH;
 import static java.time.Duration.ofSeconds;
 
 import java.util.Objects;
+import java.util.Set;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -87,6 +88,12 @@ public class UpdateProjectStateTask
         return NO_MATCH;
     }
 
+    @Override
+    public Set<String> getMatchableTypes()
+    {
+        return Set.of(RecalculateProjectStateTask.TYPE);
+    }
+
     @Override
     public boolean equals(Object o)
     {